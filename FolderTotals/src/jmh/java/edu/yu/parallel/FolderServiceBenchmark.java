@@ -0,0 +1,105 @@
+package edu.yu.parallel;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+/***
+ * The parallel traversals of MyFolderService on a [tree] of 4096 folders with 4 files each: deep
+ * (16 chains of 256 nested folders) or wide (4096 folders side by side). FORK_JOIN runs on a pool
+ * of [threads] threads, THREAD_PER_FOLDER on a thread per folder with at most [maxOpenFolders]
+ * folders open, e.g.
+ *
+ * java -jar target/benchmarks.jar -p threads=1,4,16 -p maxOpenFolders=16,256
+ *
+ * THREAD_PER_FOLDER runs on virtual threads, so it needs Java 21 or later: on an older runtime,
+ * pass -p strategy=FORK_JOIN.
+ *
+ * The trees are written to a temporary folder, so they are usually in the page cache and the
+ * traversals measure the cost of the filesystem calls rather than of the disk.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class FolderServiceBenchmark {
+    private static final int FOLDERS = 4096;
+    private static final int CHAINS = 16;
+    private static final int FILES_PER_FOLDER = 4;
+
+    @Param({"deep", "wide"})
+    public String tree;
+
+    @Param({"FORK_JOIN", "THREAD_PER_FOLDER"})
+    public MyFolderService.Strategy strategy;
+
+    @Param({"4"})
+    public int threads;
+
+    @Param({"64"})
+    public int maxOpenFolders;
+
+    private Path root;
+    private ForkJoinPool pool;
+    private MyFolderService service;
+
+    @Setup
+    public void setUp() throws IOException {
+        root = Files.createTempDirectory("folders");
+        if (tree.equals("deep")) {
+            for (int chain = 0; chain < CHAINS; chain++) {
+                var folder = root;
+                for (int depth = 0; depth < FOLDERS / CHAINS; depth++)
+                    folder = createFolder(folder.resolve(depth == 0 ? "c" + chain : "n"));
+            }
+        } else {
+            for (int i = 0; i < FOLDERS; i++)
+                createFolder(root.resolve("w" + i));
+        }
+
+        pool = new ForkJoinPool(threads);
+        service = strategy == MyFolderService.Strategy.FORK_JOIN
+                ? new MyFolderService(root.toString(), pool)
+                : MyFolderService.threadPerFolder(root.toString(), maxOpenFolders);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        pool.shutdown();
+        try (var paths = Files.walk(root)) {
+            for (var path : paths.sorted(Comparator.reverseOrder()).toList())
+                Files.delete(path);
+        }
+    }
+
+    @Benchmark
+    public PropertyValues parallel() throws ExecutionException, InterruptedException {
+        return service.getPropertyValuesParallel().get();
+    }
+
+    private static Path createFolder(Path folder) throws IOException {
+        Files.createDirectory(folder);
+        for (int i = 0; i < FILES_PER_FOLDER; i++)
+            Files.write(folder.resolve("file" + i), new byte[100]);
+        return folder;
+    }
+}
@@ -18,7 +18,11 @@ public class App {
 
     public static void main(String[] args) throws ExecutionException, InterruptedException {
         var rootFolder = System.getProperty("folder", "C:\\Windows");
-        var service = new MyFolderService(rootFolder);
+        var strategy = MyFolderService.Strategy.valueOf(System.getProperty("strategy", "FORK_JOIN"));
+        var service = strategy == MyFolderService.Strategy.FORK_JOIN
+                ? new MyFolderService(rootFolder)
+                : MyFolderService.threadPerFolder(rootFolder, Integer.getInteger("maxOpenFolders", 64));
+        logger.info("folder={}, strategy={}", rootFolder, strategy);
 
         logger.info("Calling getPropertiesSequential()");
         var start = Instant.now();
@@ -37,6 +41,7 @@ public class App {
         assert (cancelled == future.isCancelled());
         logger.info("Task future is cancelled = {}\n", future.isCancelled());
         Thread.sleep(1000); // Sleep to verify if threads stopped or not
+        logActiveThreads(service);
 
         logger.info("Calling getPropertiesParallel() and then cancelling");
         future = service.getPropertyValuesParallel();
@@ -45,6 +50,13 @@ public class App {
         assert (cancelled == future.isCancelled());
         logger.info("Task future is cancelled = {}\n", future.isCancelled());
         Thread.sleep(1000); // Sleep to verify if threads stopped or not
+        logActiveThreads(service);
+    }
+
+    private static void logActiveThreads(MyFolderService service) {
+        logger.info("Active {} threads = {}\n",
+                service.strategy() == MyFolderService.Strategy.FORK_JOIN ? "fork/join worker" : "folder",
+                service.activeThreadCount());
     }
 
     private static void logResult(PropertyValues values, Instant start, Instant finish) {
@@ -0,0 +1,47 @@
+package edu.yu.parallel;
+
+/***
+ * The totals of a folder tree, added up as it is traversed. Not thread-safe: each task adds into
+ * its own totals, which are then added together.
+ */
+final class FolderTotals implements PropertyValues {
+    private int fileCount;
+    private long byteCount;
+    private int folderCount;
+
+    void addFile(long bytes) {
+        fileCount++;
+        byteCount += bytes;
+    }
+
+    void addFolder() {
+        folderCount++;
+    }
+
+    FolderTotals add(FolderTotals other) {
+        fileCount += other.fileCount;
+        byteCount += other.byteCount;
+        folderCount += other.folderCount;
+        return this;
+    }
+
+    @Override
+    public int getFileCount() {
+        return fileCount;
+    }
+
+    @Override
+    public long getByteCount() {
+        return byteCount;
+    }
+
+    @Override
+    public int getFolderCount() {
+        return folderCount;
+    }
+
+    @Override
+    public String toString() {
+        return "files=" + fileCount + ", bytes=" + byteCount + ", folders=" + folderCount;
+    }
+}
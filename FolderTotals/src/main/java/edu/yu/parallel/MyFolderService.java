@@ -1,18 +1,351 @@
 package edu.yu.parallel;
 
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.DirectoryIteratorException;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
 import java.util.concurrent.Future;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
 
+/***
+ * Totals the files, bytes and folders under a root folder, sequentially or in parallel on a
+ * fork/join pool.
+ *
+ * Both traversals list each folder once and count the same way: every entry that is not a folder
+ * counts as a file, symbolic links are not followed, and a folder that cannot be listed (e.g. for
+ * lack of permission) is counted but its contents are not. The root folder itself is not counted;
+ * failing to list it is an error.
+ *
+ * The parallel traversal takes one of two strategies:
+ *
+ * FORK_JOIN: a tree of RecursiveTasks on a fork/join pool. A task lists its folder and forks a
+ * subtask per subfolder as long as its worker has few tasks queued for idle workers to steal
+ * (getSurplusQueuedTaskCount()); beyond that it walks the subfolders itself. So a tree is split
+ * only while there are workers to take the pieces, whatever its depth or width, rather than at a
+ * fixed cutoff. Its threads are as many as the cores, each blocked in turn on the filesystem.
+ *
+ * THREAD_PER_FOLDER: a thread per folder, which lists the folder, starts a thread per subfolder
+ * and joins their totals into its own: every listing is in flight at once, up to a limit on the
+ * folders open at the same time, however the filesystem's latency compares to the CPU's. The
+ * threads are virtual threads, so this strategy needs Java 21 or later; all the services that use
+ * it share one executor, which starts a virtual thread per task and needs no shutting down.
+ *
+ * The tasks share the state of the future they compute. cancel(false) stops any further subtask
+ * from being started, and those queued but not started return at once; running tasks finish
+ * listing their current folder and walk no further. cancel(true) also stops running tasks between
+ * two entries of a listing, so all the threads are free again within milliseconds.
+ */
 public class MyFolderService implements FolderService {
+    private final static Logger logger = LogManager.getLogger(MyFolderService.class);
+    // The number of tasks a worker may have queued for others to steal before it stops forking
+    private static final int SURPLUS_THRESHOLD = 2;
+
+    public enum Strategy {FORK_JOIN, THREAD_PER_FOLDER}
+
+    private final Path rootFolder;
+    private final Strategy strategy;
+    private final ForkJoinPool pool;
+    private final Semaphore openFolders;
+    // The folder threads of this service's traversals that are running
+    private final AtomicInteger runningFolders = new AtomicInteger();
+    private volatile Consumer<Path> listing = folder -> {
+    };
+
     public MyFolderService(String rootFolder) {
+        this(rootFolder, ForkJoinPool.commonPool());
+    }
+
+    /***
+     * @param pool where to run the parallel traversals
+     */
+    public MyFolderService(String rootFolder, ForkJoinPool pool) {
+        this.rootFolder = Path.of(rootFolder);
+        this.strategy = Strategy.FORK_JOIN;
+        this.pool = pool;
+        this.openFolders = null;
+    }
+
+    private MyFolderService(String rootFolder, int maxOpenFolders) {
+        if (maxOpenFolders < 1)
+            throw new IllegalArgumentException("maxOpenFolders must be at least 1: " + maxOpenFolders);
+        if (!hasVirtualThreads())
+            throw new UnsupportedOperationException("A thread per folder needs virtual threads (Java 21 or later)");
+        this.rootFolder = Path.of(rootFolder);
+        this.strategy = Strategy.THREAD_PER_FOLDER;
+        this.pool = null;
+        this.openFolders = new Semaphore(maxOpenFolders);
+    }
+
+    /***
+     * @param maxOpenFolders the maximum number of folders being listed at the same time
+     * @return a service whose parallel traversals run a thread per folder
+     * @throws UnsupportedOperationException if the runtime has no virtual threads
+     */
+    public static MyFolderService threadPerFolder(String rootFolder, int maxOpenFolders) {
+        return new MyFolderService(rootFolder, maxOpenFolders);
+    }
+
+    public Strategy strategy() {
+        return strategy;
     }
 
+    /***
+     * @return whether the runtime has virtual threads, which THREAD_PER_FOLDER needs
+     */
+    public static boolean hasVirtualThreads() {
+        return FolderThreads.EXECUTOR != null;
+    }
+
+    /***
+     * @return the threads running parallel traversals: for FORK_JOIN, the pool's active workers
+     * (including those of other work on the pool); for THREAD_PER_FOLDER, this service's running
+     * folder threads
+     */
+    public int activeThreadCount() {
+        return strategy == Strategy.FORK_JOIN ? pool.getActiveThreadCount() : runningFolders.get();
+    }
+
+    /***
+     * For tests: calls the listener on the traversal's thread before each folder is listed
+     */
+    void onListing(Consumer<Path> listener) {
+        this.listing = listener;
+    }
+
+    /***
+     * @throws UncheckedIOException if the root folder cannot be listed
+     */
     @Override
     public PropertyValues getPropertyValuesSequential() {
-        return null;
+        var totals = new FolderTotals();
+        var pending = new ArrayDeque<Path>();
+        list(rootFolder, true, totals, pending::push, () -> false);
+        while (!pending.isEmpty())
+            list(pending.pop(), false, totals, pending::push, () -> false);
+        return totals;
     }
 
+    /***
+     * @return a future that completes exceptionally with an UncheckedIOException if the root
+     * folder cannot be listed
+     */
     @Override
     public Future<PropertyValues> getPropertyValuesParallel() {
-        return null;
+        var future = new TraversalFuture();
+        if (strategy == Strategy.FORK_JOIN) {
+            var root = new Traversal(rootFolder, true, future);
+            pool.execute(() -> complete(future, root::invoke));
+        } else {
+            FolderThreads.EXECUTOR.execute(() -> complete(future, () -> totalFolder(rootFolder, true, future)));
+        }
+        return future;
+    }
+
+    private static void complete(TraversalFuture future, Supplier<FolderTotals> traversal) {
+        try {
+            future.complete(traversal.get());
+        } catch (Throwable e) {
+            future.completeExceptionally(e);
+        }
+    }
+
+    /***
+     * Totals a folder on the current thread, and each subfolder on a thread of its own, as a
+     * structured scope: the subfolders' totals are joined before this returns, and if one fails
+     * the others are cancelled and the failure is thrown to the parent folder.
+     */
+    private FolderTotals totalFolder(Path folder, boolean root, TraversalFuture future) {
+        var totals = new FolderTotals();
+        if (future.isCancelled())
+            return totals;
+
+        runningFolders.incrementAndGet();
+        try {
+            var subfolders = new ArrayList<Future<FolderTotals>>();
+            // The permit is held while the folder is open, not while its subfolders are joined
+            openFolders.acquireUninterruptibly();
+            try {
+                // The traversal may have been cancelled while this waited for the permit
+                if (!future.isCancelled()) {
+                    list(folder, root, totals, subfolder -> {
+                        if (!future.isCancelled())
+                            subfolders.add(FolderThreads.EXECUTOR.submit(() -> totalFolder(subfolder, false, future)));
+                    }, future::isInterrupted);
+                }
+            } finally {
+                openFolders.release();
+            }
+
+            try {
+                for (var subfolder : subfolders)
+                    totals.add(join(subfolder));
+            } catch (RuntimeException | Error e) {
+                for (var subfolder : subfolders)
+                    subfolder.cancel(true);
+                throw e;
+            }
+            return totals;
+        } finally {
+            runningFolders.decrementAndGet();
+        }
+    }
+
+    private static FolderTotals join(Future<FolderTotals> subfolder) {
+        try {
+            return subfolder.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CancellationException("Interrupted while joining a subfolder");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause)
+                throw cause;
+            if (e.getCause() instanceof Error cause)
+                throw cause;
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    /***
+     * Lists a folder, adding its files and subfolders to the totals, and hands each subfolder on
+     *
+     * @param root whether the folder is the root folder, which must be listed
+     * @param subfolders called with each subfolder
+     * @param stop checked before each entry: the listing stops when it returns true
+     */
+    private void list(Path folder, boolean root, FolderTotals totals, Consumer<Path> subfolders,
+                      BooleanSupplier stop) {
+        listing.accept(folder);
+        try (var entries = Files.newDirectoryStream(folder)) {
+            for (var entry : entries) {
+                if (stop.getAsBoolean())
+                    return;
+
+                BasicFileAttributes attributes;
+                try {
+                    attributes = Files.readAttributes(entry, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+                } catch (IOException e) {
+                    // The entry was removed after it was listed
+                    logger.debug("Skipped {}: {}", entry, e.toString());
+                    continue;
+                }
+                if (attributes.isDirectory()) {
+                    totals.addFolder();
+                    subfolders.accept(entry);
+                } else {
+                    totals.addFile(attributes.size());
+                }
+            }
+        } catch (IOException e) {
+            failed(folder, root, e);
+        } catch (DirectoryIteratorException e) {
+            failed(folder, root, e.getCause());
+        }
+    }
+
+    private static void failed(Path folder, boolean root, IOException e) {
+        if (root)
+            throw new UncheckedIOException(e);
+        logger.debug("Cannot list {}: {}", folder, e.toString());
+    }
+
+    /***
+     * The future of a parallel traversal, whose cancellation its tasks check
+     */
+    private static final class TraversalFuture extends CompletableFuture<PropertyValues> {
+        private volatile boolean interrupted;
+
+        @Override
+        public boolean cancel(boolean mayInterruptIfRunning) {
+            if (mayInterruptIfRunning)
+                interrupted = true;
+            return super.cancel(mayInterruptIfRunning);
+        }
+
+        /***
+         * @return whether running tasks should stop where they are
+         */
+        boolean isInterrupted() {
+            return interrupted;
+        }
+    }
+
+    /***
+     * Holds the executor of the folder threads, created on first use: a virtual thread per task,
+     * or null if the runtime has no virtual threads
+     */
+    private static final class FolderThreads {
+        static final ExecutorService EXECUTOR = virtualThreads();
+
+        private static ExecutorService virtualThreads() {
+            try {
+                return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+            } catch (ReflectiveOperationException e) {
+                // Missing before Java 19, and a preview feature (which throws) until Java 21
+                logger.debug("No virtual threads: {}", e.toString());
+                return null;
+            }
+        }
+    }
+
+    /***
+     * Totals a folder and the subfolders it does not fork subtasks for
+     */
+    private final class Traversal extends RecursiveTask<FolderTotals> {
+        private final Path folder;
+        private final boolean root;
+        private final TraversalFuture future;
+
+        Traversal(Path folder, boolean root, TraversalFuture future) {
+            this.folder = folder;
+            this.root = root;
+            this.future = future;
+        }
+
+        @Override
+        protected FolderTotals compute() {
+            var totals = new FolderTotals();
+            if (future.isCancelled())
+                return totals;
+
+            var forked = new ArrayList<Traversal>();
+            var pending = new ArrayDeque<Path>();
+            Consumer<Path> subfolders = subfolder -> {
+                if (getSurplusQueuedTaskCount() < SURPLUS_THRESHOLD && !future.isCancelled()) {
+                    var task = new Traversal(subfolder, false, future);
+                    task.fork();
+                    forked.add(task);
+                } else {
+                    pending.push(subfolder);
+                }
+            };
+
+            list(folder, root, totals, subfolders, future::isInterrupted);
+            while (!pending.isEmpty() && !future.isCancelled())
+                list(pending.pop(), false, totals, subfolders, future::isInterrupted);
+
+            // Join the most recently forked first: those are the likeliest not to have been stolen
+            for (int i = forked.size() - 1; i >= 0; i--)
+                totals.add(forked.get(i).join());
+            return totals;
+        }
     }
 }
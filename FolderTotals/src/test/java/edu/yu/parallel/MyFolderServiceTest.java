@@ -0,0 +1,183 @@
+package edu.yu.parallel;
+
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+class MyFolderServiceTest {
+    // 3 + 9 + 27 + 81 folders, each with 2 files of 10 bytes
+    private static final int DEPTH = 4;
+    private static final int WIDTH = 3;
+    private static final int FOLDERS = 3 + 9 + 27 + 81;
+    // How long the cancellation tests take to list a folder: a full traversal takes seconds
+    private static final long LISTING_MILLIS = 40;
+
+    @TempDir
+    static Path root;
+
+    private static ForkJoinPool pool;
+
+    @BeforeAll
+    static void setUp() throws IOException {
+        createTree(root, DEPTH);
+        // A link to a folder is counted as a file and not followed
+        Files.createSymbolicLink(root.resolve("link"), root.resolve("0"));
+        pool = new ForkJoinPool(4);
+    }
+
+    @AfterAll
+    static void tearDown() {
+        pool.shutdown();
+    }
+
+    @Test
+    @DisplayName("the sequential traversal counts every file, byte and folder below the root")
+    public void sequential() throws IOException {
+        var values = new MyFolderService(root.toString()).getPropertyValuesSequential();
+        var linkSize = Files.readAttributes(root.resolve("link"), BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS)
+                .size();
+
+        Assertions.assertEquals(2 * (FOLDERS + 1) + 1, values.getFileCount());
+        Assertions.assertEquals(20L * (FOLDERS + 1) + linkSize, values.getByteCount());
+        Assertions.assertEquals(FOLDERS, values.getFolderCount());
+    }
+
+    @Test
+    @DisplayName("the parallel traversal matches the sequential one")
+    public void parallel() throws ExecutionException, InterruptedException {
+        var service = new MyFolderService(root.toString(), pool);
+        var expected = service.getPropertyValuesSequential();
+        for (int i = 0; i < 10; i++) {
+            var values = service.getPropertyValuesParallel().get();
+            Assertions.assertEquals(expected.getFileCount(), values.getFileCount());
+            Assertions.assertEquals(expected.getByteCount(), values.getByteCount());
+            Assertions.assertEquals(expected.getFolderCount(), values.getFolderCount());
+        }
+    }
+
+    @Test
+    @DisplayName("a thread per folder matches the sequential traversal, however few folders may be open")
+    public void threadPerFolder() throws ExecutionException, InterruptedException {
+        Assumptions.assumeTrue(MyFolderService.hasVirtualThreads(), "no virtual threads");
+        var expected = new MyFolderService(root.toString()).getPropertyValuesSequential();
+        for (var maxOpenFolders : new int[]{1, 4, 1000}) {
+            var values = MyFolderService.threadPerFolder(root.toString(), maxOpenFolders).getPropertyValuesParallel().get();
+            Assertions.assertEquals(expected.getFileCount(), values.getFileCount());
+            Assertions.assertEquals(expected.getByteCount(), values.getByteCount());
+            Assertions.assertEquals(expected.getFolderCount(), values.getFolderCount());
+        }
+        Assertions.assertThrows(IllegalArgumentException.class, () -> MyFolderService.threadPerFolder(root.toString(), 0));
+    }
+
+    @Test
+    @DisplayName("a thread per folder is refused, rather than run on platform threads, without virtual threads")
+    public void threadPerFolderNeedsVirtualThreads() {
+        Assumptions.assumeFalse(MyFolderService.hasVirtualThreads(), "virtual threads");
+        Assertions.assertThrows(UnsupportedOperationException.class, () -> MyFolderService.threadPerFolder(root.toString(), 4));
+    }
+
+    @Test
+    @DisplayName("a root folder that cannot be listed is an error")
+    public void missingRoot() {
+        var service = new MyFolderService(root.resolve("missing").toString(), pool);
+
+        Assertions.assertThrows(UncheckedIOException.class, service::getPropertyValuesSequential);
+        var e = Assertions.assertThrows(ExecutionException.class, () -> service.getPropertyValuesParallel().get());
+        Assertions.assertInstanceOf(UncheckedIOException.class, e.getCause());
+
+        if (!MyFolderService.hasVirtualThreads())
+            return;
+        var threadPerFolder = MyFolderService.threadPerFolder(root.resolve("missing").toString(), 4);
+        e = Assertions.assertThrows(ExecutionException.class, () -> threadPerFolder.getPropertyValuesParallel().get());
+        Assertions.assertInstanceOf(UncheckedIOException.class, e.getCause());
+    }
+
+    @Test
+    @DisplayName("cancelling a traversal midway, with or without interrupting it, frees the workers at once")
+    public void cancel() throws InterruptedException {
+        var service = new MyFolderService(root.toString(), pool);
+        for (var mayInterruptIfRunning : new boolean[]{false, true}) {
+            var listed = cancelMidway(service, mayInterruptIfRunning);
+
+            Assertions.assertTrue(awaitIdle(pool::isQuiescent), "mayInterruptIfRunning=" + mayInterruptIfRunning);
+            Assertions.assertTrue(listed.get() < FOLDERS / 2, listed + " folders listed");
+        }
+    }
+
+    @Test
+    @DisplayName("cancelling a thread per folder midway, with or without interrupting it, ends its threads at once")
+    public void cancelThreadPerFolder() throws InterruptedException {
+        Assumptions.assumeTrue(MyFolderService.hasVirtualThreads(), "no virtual threads");
+        var service = MyFolderService.threadPerFolder(root.toString(), 4);
+        for (var mayInterruptIfRunning : new boolean[]{false, true}) {
+            var listed = cancelMidway(service, mayInterruptIfRunning);
+
+            Assertions.assertTrue(awaitIdle(() -> service.activeThreadCount() == 0),
+                    "mayInterruptIfRunning=" + mayInterruptIfRunning);
+            Assertions.assertTrue(listed.get() < FOLDERS / 2, listed + " folders listed");
+        }
+    }
+
+    /***
+     * Starts a traversal that takes LISTING_MILLIS to list each folder, and cancels it once a few
+     * folders have been listed
+     *
+     * @return the number of folders listed, which stops growing once the workers are idle
+     */
+    private static AtomicInteger cancelMidway(MyFolderService service, boolean mayInterruptIfRunning)
+            throws InterruptedException {
+        var listed = new AtomicInteger();
+        var started = new CountDownLatch(8);
+        service.onListing(folder -> {
+            listed.incrementAndGet();
+            started.countDown();
+            try {
+                Thread.sleep(LISTING_MILLIS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+
+        var future = service.getPropertyValuesParallel();
+        Assertions.assertTrue(started.await(10, TimeUnit.SECONDS));
+        Assertions.assertTrue(future.cancel(mayInterruptIfRunning));
+        Assertions.assertTrue(future.isCancelled());
+        Assertions.assertThrows(CancellationException.class, future::get);
+        return listed;
+    }
+
+    /***
+     * @return whether the workers went idle within a few folder listings of the cancellation
+     */
+    private static boolean awaitIdle(BooleanSupplier idle) throws InterruptedException {
+        var deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(5 * LISTING_MILLIS);
+        while (!idle.getAsBoolean()) {
+            if (System.nanoTime() > deadline)
+                return false;
+            Thread.sleep(1);
+        }
+        return true;
+    }
+
+    private static void createTree(Path folder, int depth) throws IOException {
+        for (int i = 0; i < 2; i++)
+            Files.write(folder.resolve("file" + i + ".txt"), new byte[10]);
+        if (depth == 0)
+            return;
+        for (int i = 0; i < WIDTH; i++)
+            createTree(Files.createDirectory(folder.resolve(Integer.toString(i))), depth - 1);
+    }
+}
@@ -0,0 +1,92 @@
+package edu.yu.parallel;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/***
+ * The covariance matrix of the NASDAQ 100 members' returns from series already in memory: the
+ * blocked fork/join kernels of CovarianceMatrix against a naive pass over the pairs, which merges
+ * the two series' dates for every pair. Larger matrices can be measured on a generated dataset
+ * (see MarketDataGenerator) with -DsymbolFile and -Ddata.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CovarianceBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class SeriesState {
+        List<PriceSeries> series;
+
+        @Setup
+        public void setUp(MarketDataState state) {
+            var members = state.symbolCache.stream().filter(symbol -> symbol.nsdq100Weight() > 0).toList();
+            series = state.pipeline.run(members, state.priceSource, (symbol, data) -> data);
+        }
+    }
+
+    @Benchmark
+    public CovarianceMatrix blocked(SeriesState series, MarketDataState state) {
+        return CovarianceMatrix.compute(series.series, state.pipeline);
+    }
+
+    @Benchmark
+    public double[] naivePairs(SeriesState state) {
+        var series = state.series;
+        var covariance = new double[series.size() * series.size()];
+        for (int i = 0; i < series.size(); i++) {
+            for (int j = i; j < series.size(); j++)
+                covariance[i * series.size() + j] = covariance(series.get(i), series.get(j));
+        }
+        return covariance;
+    }
+
+    /***
+     * The covariance of two series' returns over the dates both have one, in two passes
+     */
+    private static double covariance(PriceSeries first, PriceSeries second) {
+        double sumX = 0, sumY = 0;
+        var n = 0;
+        for (int i = 1, j = 1; i < first.size() && j < second.size(); ) {
+            if (first.epochDay(i) != second.epochDay(j)) {
+                if (first.epochDay(i) < second.epochDay(j)) i++;
+                else j++;
+                continue;
+            }
+            sumX += first.adjClose(i) / first.adjClose(i - 1) - 1;
+            sumY += second.adjClose(j) / second.adjClose(j - 1) - 1;
+            n++;
+            i++;
+            j++;
+        }
+        if (n < 2)
+            return Double.NaN;
+
+        double meanX = sumX / n, meanY = sumY / n, products = 0;
+        for (int i = 1, j = 1; i < first.size() && j < second.size(); ) {
+            if (first.epochDay(i) != second.epochDay(j)) {
+                if (first.epochDay(i) < second.epochDay(j)) i++;
+                else j++;
+                continue;
+            }
+            products += (first.adjClose(i) / first.adjClose(i - 1) - 1 - meanX)
+                    * (second.adjClose(j) / second.adjClose(j - 1) - 1 - meanY);
+            i++;
+            j++;
+        }
+        return products / (n - 1);
+    }
+}
@@ -0,0 +1,76 @@
+package edu.yu.parallel;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.time.LocalDate;
+import java.util.concurrent.TimeUnit;
+
+/***
+ * Parsing one market data file that is already in memory, with the CsvCursor and with the
+ * split/Double.parseDouble approach it replaced. The score is per file.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CsvParsingBenchmark {
+
+    @Param({"AAPL"})
+    public String symbol;
+
+    private byte[] contents;
+    private String[] lines;
+    private final CsvCursor cursor = new CsvCursor();
+
+    @Setup
+    public void setUp() throws IOException {
+        contents = Files.readAllBytes(PriceSource.defaultDataDirectory().resolve(symbol + ".csv"));
+        lines = new String(contents, StandardCharsets.US_ASCII).split("\n");
+    }
+
+    @Benchmark
+    public void cursor(Blackhole blackhole) {
+        cursor.reset(contents).nextLine();
+        while (cursor.nextLine()) {
+            blackhole.consume(cursor.nextEpochDay());
+            for (int i = 0; i < 6; i++)
+                blackhole.consume(cursor.nextDouble());
+        }
+    }
+
+    @Benchmark
+    public void split(Blackhole blackhole) {
+        for (int line = 1; line < lines.length; line++) {
+            var fields = lines[line].split(",");
+            blackhole.consume(LocalDate.parse(fields[0]).toEpochDay());
+            for (int i = 1; i < 7; i++)
+                blackhole.consume(Double.parseDouble(fields[i]));
+        }
+    }
+
+    @Benchmark
+    public PriceSeries loadFile(LoadState state) {
+        return state.source.load(symbol).orElseThrow();
+    }
+
+    @State(Scope.Benchmark)
+    public static class LoadState {
+        final PriceSource source = new CsvPriceSource(PriceSource.defaultDataDirectory());
+    }
+}
@@ -0,0 +1,69 @@
+package edu.yu.parallel;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.BufferedWriter;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.time.LocalDate;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/***
+ * Writing the rows of a composite report, with the CsvWriter and with the String.format approach it
+ * replaced. The score is per 1000 rows.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CsvWritingBenchmark {
+    private static final int ROWS = 1000;
+
+    private final double[][] rows = new double[ROWS][6];
+    private final int firstDay = (int) LocalDate.of(2017, 1, 3).toEpochDay();
+
+    @Setup
+    public void setUp() {
+        var random = new Random(3820);
+        for (var row : rows) {
+            for (int i = 0; i < row.length; i++)
+                row[i] = i == 4 ? random.nextDouble() * 5e9 : 15_000 + random.nextDouble() * 5_000;
+        }
+    }
+
+    @Benchmark
+    public void writer() {
+        var writer = new CsvWriter(OutputStream.nullOutputStream());
+        for (int r = 0; r < ROWS; r++) {
+            writer.dateField(firstDay + r);
+            for (var value : rows[r])
+                writer.field(value, 6);
+            writer.endLine();
+        }
+        writer.flush();
+    }
+
+    @Benchmark
+    public void format() {
+        var writer = new PrintWriter(new BufferedWriter(new OutputStreamWriter(OutputStream.nullOutputStream())));
+        for (int r = 0; r < ROWS; r++) {
+            var row = rows[r];
+            writer.print(String.format("%s,%.6f,%.6f,%.6f,%.6f,%.6f,%.6f\n",
+                    LocalDate.ofEpochDay(firstDay + r), row[0], row[1], row[2], row[3], row[4], row[5]));
+        }
+        writer.flush();
+    }
+}
@@ -0,0 +1,30 @@
+package edu.yu.parallel;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/***
+ * Entry point of benchmarks.jar. Accepts the usual JMH command line (e.g. a benchmark regex,
+ * -p threads=1,4 or -f 1) and always adds the GC profiler, so every result comes with its
+ * allocation rate (gc.alloc.rate.norm = bytes allocated per operation).
+ *
+ * The benchmarks read the market data from the directory given by the "data" system property
+ * (default src/main/resources/data), e.g.
+ *
+ * java -Ddata=src/main/resources/data -jar target/benchmarks.jar ReportBenchmark -p source=csv,snapshot
+ */
+public class MarketDataBenchmarks {
+
+    public static void main(String[] args) throws RunnerException, CommandLineOptionException {
+        var options = new OptionsBuilder()
+                .parent(new CommandLineOptions(args))
+                .addProfiler(GCProfiler.class)
+                .jvmArgsAppend("-Ddata=" + PriceSource.defaultDataDirectory().toAbsolutePath())
+                .build();
+        new Runner(options).run();
+    }
+}
@@ -0,0 +1,64 @@
+package edu.yu.parallel;
+
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/***
+ * The dataset shared by the report benchmarks: the first [symbols] index members of the symbol
+ * file, read through the given [source] with a pipeline of [threads] threads, optionally behind a
+ * SeriesCache of [cacheMB] megabytes
+ */
+@State(Scope.Benchmark)
+public class MarketDataState {
+
+    @Param({"csv", "columnar", "snapshot"})
+    public String source;
+
+    @Param({"1", "4"})
+    public int threads;
+
+    /***
+     * The number of index member symbols to include, or 0 for all of them
+     */
+    @Param({"100", "0"})
+    public int symbols;
+
+    /***
+     * The budget of a SeriesCache in front of the source, in megabytes, or 0 for no cache
+     */
+    @Param({"0"})
+    public long cacheMB;
+
+    SymbolCache symbolCache;
+    PriceSource priceSource;
+    IngestionPipeline pipeline;
+    MarketDataReports reports;
+
+    @Setup
+    public void setUp() {
+        var dataDirectory = PriceSource.defaultDataDirectory();
+        var members = SymbolReader.defaultReader().stream()
+                .filter(data -> data.nsdq100Weight() > 0 || data.snp500Weight() > 0);
+        symbolCache = new SymbolCache(symbols > 0 ? members.limit(symbols) : members);
+
+        pipeline = threads > 1 ? IngestionPipeline.parallel(threads) : IngestionPipeline.sequential();
+        priceSource = switch (source) {
+            case "csv" -> new CsvPriceSource(dataDirectory);
+            case "columnar" -> new ColumnarPriceSource(dataDirectory);
+            case "snapshot" -> MarketDataSnapshot.open(SymbolReader.defaultReader(), dataDirectory,
+                    dataDirectory.resolve(".snapshot").resolve("nasdaq.snapshot"), pipeline);
+            default -> throw new IllegalArgumentException("Unknown source: " + source);
+        };
+        if (cacheMB > 0)
+            priceSource = new SeriesCache(symbolCache, priceSource, cacheMB << 20);
+        reports = new MarketDataReports(symbolCache, priceSource, pipeline);
+    }
+
+    @TearDown
+    public void tearDown() {
+        pipeline.close();
+    }
+}
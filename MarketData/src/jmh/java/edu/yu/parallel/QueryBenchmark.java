@@ -0,0 +1,61 @@
+package edu.yu.parallel;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/***
+ * Ad-hoc queries over the loaded market data (see MarketDataQuery); compare with the full passes
+ * of ReportBenchmark
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class QueryBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class QueryState {
+        MarketDataQuery query;
+        int lastEpochDay;
+
+        @Setup
+        public void setUp(MarketDataState state) {
+            query = state.reports.query();
+            var series = query.series(state.symbolCache.symbol(0));
+            lastEpochDay = series == null ? 0 : series.epochDay(series.size() - 1);
+        }
+    }
+
+    /***
+     * The NASDAQ 100 weighted close over the last quarter
+     */
+    @Benchmark
+    public MarketDataQuery.Aggregate nasdaq100Quarter(QueryState state) {
+        return state.query.select()
+                .between(state.lastEpochDay - 91, state.lastEpochDay)
+                .members(MarketIndex.NASDAQ_100)
+                .weightedBy(MarketIndex.NASDAQ_100)
+                .aggregate(MarketDataQuery.Column.CLOSE);
+    }
+
+    /***
+     * The volume of every symbol over the last month, by symbol
+     */
+    @Benchmark
+    public Object volumeBySymbolMonth(QueryState state) {
+        return state.query.select()
+                .between(state.lastEpochDay - 30, state.lastEpochDay)
+                .aggregateBySymbol(MarketDataQuery.Column.VOLUME);
+    }
+}
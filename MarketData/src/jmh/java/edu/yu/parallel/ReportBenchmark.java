@@ -0,0 +1,67 @@
+package edu.yu.parallel;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.OutputStream;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/***
+ * End-to-end report generation, including reading the market data, with the output discarded
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ReportBenchmark {
+
+    @Benchmark
+    public void closeAboveMid(MarketDataState state) {
+        state.reports.generateCloseAboveMidPriceReport(OutputStream.nullOutputStream());
+    }
+
+    /***
+     * The top 10 symbols of closeAboveMid, counted per symbol on the pipeline
+     */
+    @Benchmark
+    public void closeAboveMidTop10(MarketDataState state) {
+        state.reports.generateCloseAboveMidPriceReport(OutputStream.nullOutputStream(), 10);
+    }
+
+    @Benchmark
+    public void nasdaq100Composite(MarketDataState state) {
+        state.reports.generateNASDAQ100CompositeReport(OutputStream.nullOutputStream());
+    }
+
+    /***
+     * The NASDAQ 100 and S&P 500 composites from one pass; compare with nasdaq100Composite
+     */
+    @Benchmark
+    public void indexComposites(MarketDataState state) {
+        state.reports.generateCompositeReports(Map.of(
+                MarketIndex.NASDAQ_100, OutputStream.nullOutputStream(),
+                MarketIndex.SNP_500, OutputStream.nullOutputStream()));
+    }
+
+    @Benchmark
+    public void rollingWindow(MarketDataState state) {
+        state.reports.generateRollingWindowReport(OutputStream.nullOutputStream(), 20);
+    }
+
+    /***
+     * Both reports from a single pass of the report engine; compare with the sum of the two above
+     */
+    @Benchmark
+    public void singlePass(MarketDataState state) {
+        state.reports.generateReports(
+                new CloseAboveMidReport(OutputStream.nullOutputStream()),
+                new CompositeReport(OutputStream.nullOutputStream(), MarketIndex.NASDAQ_100));
+    }
+}
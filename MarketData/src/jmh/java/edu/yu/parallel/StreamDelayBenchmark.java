@@ -0,0 +1,50 @@
+package edu.yu.parallel;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+/***
+ * The overhead of simulating a slow feed of [items] symbols, each delayed by [delayMicros]
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class StreamDelayBenchmark {
+
+    @Param({"1000"})
+    public int items;
+
+    @Param({"1", "100"})
+    public long delayMicros;
+
+    @Benchmark
+    public int blocking() {
+        return IntStream.range(0, items).parallel()
+                .map(i -> StreamDelay.delay(i, delayMicros, TimeUnit.MICROSECONDS, Integer.MAX_VALUE))
+                .sum();
+    }
+
+    @Benchmark
+    public int async() {
+        var futures = IntStream.range(0, items)
+                .mapToObj(i -> StreamDelay.delayAsync(i, delayMicros, TimeUnit.MICROSECONDS, Integer.MAX_VALUE))
+                .toArray(CompletableFuture[]::new);
+        CompletableFuture.allOf(futures).join();
+        return futures.length;
+    }
+}
@@ -0,0 +1,65 @@
+package edu.yu.parallel;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/***
+ * Reading the symbol file, building the SymbolCache and looking symbols up in it
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SymbolBenchmark {
+    private SymbolReader reader;
+    private SymbolCache cache;
+    private String[] symbols;
+
+    @Setup
+    public void setUp() {
+        reader = new SymbolReader("nasdaq");
+        cache = new SymbolCache(reader);
+        symbols = reader.stream().map(SymbolData::symbol).toArray(String[]::new);
+    }
+
+    @Benchmark
+    public void readSymbols(Blackhole blackhole) {
+        reader.stream().forEach(blackhole::consume);
+    }
+
+    @Benchmark
+    public SymbolCache buildCache() {
+        return new SymbolCache(reader);
+    }
+
+    /***
+     * Looks up symbols of the whole symbol file, so most lookups are for symbols that are not in
+     * any index and therefore not in the cache
+     */
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    @Threads(4)
+    public SymbolData lookup(LookupState lookup) {
+        return cache.getSymbolData(symbols[lookup.random.nextInt(symbols.length)]);
+    }
+
+    @State(Scope.Thread)
+    public static class LookupState {
+        final SplittableRandom random = new SplittableRandom(42);
+    }
+}
@@ -0,0 +1,73 @@
+package edu.yu.parallel;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/***
+ * The weighted sum of one date's rows of an index, with the scalar and the Vector API kernels and
+ * the exact kernel the reports use by default. The forks add the jdk.incubator.vector module; the
+ * sums of the scalar and vector kernels are identical.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"--add-modules", "jdk.incubator.vector"})
+@State(Scope.Benchmark)
+public class WeightedSumBenchmark {
+
+    // About the number of members of the NASDAQ 100 and the S&P 500
+    @Param({"100", "500"})
+    public int rows;
+
+    private double[] weights;
+    private double[] values;
+    private final double[] sums = new double[WeightedSumKernel.STRIDE];
+    private final WeightedSumKernel vector = WeightedSumKernel.best();
+
+    @Setup
+    public void setUp() {
+        var random = new Random(3820);
+        weights = new double[rows];
+        values = new double[rows * WeightedSumKernel.STRIDE];
+        for (int k = 0; k < rows; k++) {
+            weights[k] = random.nextDouble() * 13;
+            for (int f = 0; f < 6; f++)
+                values[k * WeightedSumKernel.STRIDE + f] = random.nextDouble() * 500;
+        }
+    }
+
+    @Benchmark
+    public double[] scalar() {
+        Arrays.fill(sums, 0);
+        WeightedSumKernel.scalar().accumulate(weights, values, rows, sums);
+        return sums;
+    }
+
+    @Benchmark
+    public double[] vector() {
+        Arrays.fill(sums, 0);
+        vector.accumulate(weights, values, rows, sums);
+        return sums;
+    }
+
+    @Benchmark
+    public double[] exact() {
+        Arrays.fill(sums, 0);
+        WeightedSumKernel.exact().accumulate(weights, values, rows, sums);
+        return sums;
+    }
+}
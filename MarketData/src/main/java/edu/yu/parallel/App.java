@@ -7,8 +7,11 @@ import org.apache.logging.log4j.core.config.Configurator;
 
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.time.Duration;
 import java.time.Instant;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
 
 
 public class App {
@@ -18,22 +21,174 @@ public class App {
         Configurator.setLevel("edu.yu.parallel", Level.INFO);
     }
 
-    public static void main(String[] args) throws IOException {
+    public static void main(String[] args) throws IOException, InterruptedException {
 
-        var symbolCache = new SymbolCache(new SymbolReader("nasdaq"));
+        try (var pipeline = pipeline()) {
+            var metrics = new PipelineMetrics();
+            metrics.watchQueue(pipeline::queueDepth);
+            metrics.register("MarketData");
 
-        logger.info("{} symbols", symbolCache.stream().count());
+            var start = Instant.now();
+            var priceSource = priceSource(pipeline);
+            var symbolCache = priceSource instanceof MarketDataSnapshot snapshot
+                    ? new SymbolCache(snapshot)
+                    : new SymbolCache(SymbolReader.defaultReader());
+            var duration = Duration.between(start, Instant.now()).toMillis();
 
-        var reports = new MarketDataReports(symbolCache);
+            logger.info("{} symbols: duration={}", symbolCache.size(), duration);
 
+            if (Boolean.getBoolean("live")) {
+                runLive(symbolCache, pipeline, metrics);
+                return;
+            }
+
+            priceSource = seriesCache(symbolCache, priceSource);
+            var reports = new MarketDataReports(symbolCache, priceSource, pipeline, metrics);
+            runReports(reports, pipeline.parallelism(), metrics);
+
+            var top = Integer.getInteger("top");
+            if (top != null)
+                runTopCloseAboveMidReport(reports, top, pipeline.parallelism());
+
+            var window = Integer.getInteger("window");
+            if (window != null)
+                runRollingWindowReport(reports, window, pipeline.parallelism());
+
+            if (Boolean.getBoolean("correlation"))
+                runCorrelationReports(reports, pipeline.parallelism());
+
+            if (priceSource instanceof SeriesCache cache)
+                logger.info("series cache: {}", cache.stats());
+            logger.info("pipeline metrics:{}{}", System.lineSeparator(), metrics.getSummary());
+        }
+    }
+
+    /***
+     * Keeps the series read (loaded, or streamed by the reports) in a SeriesCache when the "cacheMB"
+     * system property sets its budget in megabytes; "cachePolicy" selects LRU or TINY_LFU (default)
+     * eviction
+     */
+    private static PriceSource seriesCache(SymbolCache symbolCache, PriceSource priceSource) {
+        var megabytes = Long.getLong("cacheMB");
+        if (megabytes == null)
+            return priceSource;
+        var policy = SeriesCache.Policy.valueOf(System.getProperty("cachePolicy", "TINY_LFU"));
+        return new SeriesCache(symbolCache, priceSource, megabytes << 20, policy);
+    }
+
+    /***
+     * With the "live" system property set to true, first writes the full reports from data held in
+     * memory and then follows the data directory, appending the rows that new data changes to
+     * CloseAboveMid.live.csv, NASDAQ_100.live.csv and SNP_500.live.csv, until the process is stopped
+     */
+    private static void runLive(SymbolCache symbolCache, IngestionPipeline pipeline, PipelineMetrics metrics)
+            throws IOException, InterruptedException {
+        var dataDirectory = PriceSource.defaultDataDirectory();
+        logger.info("live, data={}", dataDirectory);
+        try (var live = new LiveMarketData(symbolCache, dataDirectory);
+             var closeAboveMid = new FileOutputStream("CloseAboveMid.live.csv");
+             var nasdaq100 = new FileOutputStream("NASDAQ_100.live.csv");
+             var snp500 = new FileOutputStream("SNP_500.live.csv")) {
+            var liveReports = new LiveReports(live);
+            liveReports.apply(live.refresh(), null);
+            runReports(new MarketDataReports(symbolCache, live, pipeline, metrics), pipeline.parallelism(), metrics);
+
+            var changes = new LiveReportWriter(closeAboveMid,
+                    Map.of(MarketIndex.NASDAQ_100, nasdaq100, MarketIndex.SNP_500, snp500));
+            live.watch(updates -> {
+                var start = Instant.now();
+                liveReports.apply(updates, changes);
+                var duration = Duration.between(start, Instant.now()).toMillis();
+                logger.info("live: {} symbols updated, duration={}", updates.size(), duration);
+            });
+        }
+    }
+
+    /***
+     * Writes the symbols with the top counts of the CloseAboveMid report when the "top" system
+     * property sets their number
+     */
+    private static void runTopCloseAboveMidReport(MarketDataReports reports, int top, int threads) throws IOException {
+        var start = Instant.now();
+        try (var closeAboveMid = new FileOutputStream("CloseAboveMid_Top" + top + ".csv")) {
+            reports.generateCloseAboveMidPriceReport(closeAboveMid, top);
+        }
+        var duration = Duration.between(start, Instant.now()).toMillis();
+        logger.info("CloseAboveMid_Top{}: duration={}, threads={}", top, duration, threads);
+    }
+
+    /***
+     * Writes the rolling-window metrics when the "window" system property sets a window size
+     */
+    private static void runRollingWindowReport(MarketDataReports reports, int window, int threads) throws IOException {
+        var start = Instant.now();
+        try (var rolling = new FileOutputStream("Rolling_" + window + ".csv")) {
+            reports.generateRollingWindowReport(rolling, window);
+        }
+        var duration = Duration.between(start, Instant.now()).toMillis();
+        logger.info("Rolling_{}: duration={}, threads={}", window, duration, threads);
+    }
+
+    /***
+     * Writes the correlation and covariance matrices of the NASDAQ 100 members' daily returns when
+     * the "correlation" system property is true
+     */
+    private static void runCorrelationReports(MarketDataReports reports, int threads) throws IOException {
+        var start = Instant.now();
+        var matrix = reports.covarianceMatrix(MarketIndex.NASDAQ_100);
+        try (var correlation = new FileOutputStream("NASDAQ_100_Correlation.csv");
+             var covariance = new FileOutputStream("NASDAQ_100_Covariance.csv")) {
+            matrix.writeCorrelation(correlation);
+            matrix.writeCovariance(covariance);
+        }
+        var duration = Duration.between(start, Instant.now()).toMillis();
+        logger.info("NASDAQ_100_Correlation, NASDAQ_100_Covariance: {} symbols, {} dates, duration={}, threads={}",
+                matrix.size(), matrix.dates(), duration, threads);
+    }
+
+    /***
+     * Writes the reports, recording the time spent writing them as the metrics' WRITE stage
+     */
+    private static void runReports(MarketDataReports reports, int threads, PipelineMetrics metrics) throws IOException {
         var start = Instant.now();
-        reports.generateCloseAboveMidPriceReport(new FileOutputStream("CloseAboveMid.csv"));
+        try (OutputStream closeAboveMid = metrics.meter(new FileOutputStream("CloseAboveMid.csv"));
+             OutputStream nasdaq100 = metrics.meter(new FileOutputStream("NASDAQ_100.csv"));
+             OutputStream snp500 = metrics.meter(new FileOutputStream("SNP_500.csv"))) {
+            reports.generateReports(
+                    new CloseAboveMidReport(closeAboveMid),
+                    new CompositeReport(Map.of(MarketIndex.NASDAQ_100, nasdaq100, MarketIndex.SNP_500, snp500)));
+        }
         var duration = Duration.between(start, Instant.now()).toMillis();
-        logger.info("CloseAboveMid: duration={}", duration);
+        logger.info("CloseAboveMid, NASDAQ_100, SNP_500: duration={}, threads={}", duration, threads);
+    }
+
+    /***
+     * Sizes the ingestion pipeline with the "threads" (default: number of processors) and "inFlight"
+     * (default: 2 x threads) system properties. A single thread runs the reports sequentially.
+     */
+    private static IngestionPipeline pipeline() {
+        var threads = Integer.getInteger("threads", Runtime.getRuntime().availableProcessors());
+        if (threads <= 1)
+            return IngestionPipeline.sequential();
+        return new IngestionPipeline(new ForkJoinPool(threads), Integer.getInteger("inFlight", threads * 2));
+    }
+
+    /***
+     * Selects where the market data is read from with the "source" system property:
+     * "csv" (default) re-reads the CSV files, "columnar" uses the memory-mapped columnar store and
+     * "snapshot" loads the symbols and market data from a single binary snapshot
+     */
+    private static PriceSource priceSource(IngestionPipeline pipeline) {
+        var dataDirectory = PriceSource.defaultDataDirectory();
+        var source = System.getProperty("source", "csv");
+        logger.info("source={}, data={}", source, dataDirectory);
 
-        start = Instant.now();
-        reports.generateNASDAQ100CompositeReport(new FileOutputStream("NASDAQ_100.csv"));
-        duration = Duration.between(start, Instant.now()).toMillis();
-        logger.info("NASDAQ_100: duration={}", duration);
+        return switch (source) {
+            case "csv" -> new CsvPriceSource(dataDirectory);
+            case "columnar" -> new ColumnarPriceSource(dataDirectory);
+            case "snapshot" -> MarketDataSnapshot.open(SymbolReader.defaultReader(), dataDirectory,
+                    dataDirectory.resolve(".snapshot").resolve("nasdaq.snapshot"), pipeline);
+            default -> throw new IllegalArgumentException("Unknown source: " + source);
+        };
     }
 }
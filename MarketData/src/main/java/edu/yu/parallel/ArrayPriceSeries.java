@@ -0,0 +1,132 @@
+package edu.yu.parallel;
+
+import java.util.Arrays;
+
+/***
+ * A PriceSeries held in primitive arrays on the heap
+ */
+public class ArrayPriceSeries implements PriceSeries {
+    private final String symbol;
+    private final int size;
+    private final int[] epochDays;
+    private final double[] high;
+    private final double[] low;
+    private final double[] open;
+    private final double[] close;
+    private final double[] volume;
+    private final double[] adjClose;
+
+    private ArrayPriceSeries(Builder builder) {
+        this.symbol = builder.symbol;
+        this.size = builder.size;
+        this.epochDays = Arrays.copyOf(builder.epochDays, size);
+        this.high = Arrays.copyOf(builder.high, size);
+        this.low = Arrays.copyOf(builder.low, size);
+        this.open = Arrays.copyOf(builder.open, size);
+        this.close = Arrays.copyOf(builder.close, size);
+        this.volume = Arrays.copyOf(builder.volume, size);
+        this.adjClose = Arrays.copyOf(builder.adjClose, size);
+    }
+
+    public static Builder builder(String symbol) {
+        return new Builder(symbol);
+    }
+
+    @Override
+    public String symbol() {
+        return symbol;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public int epochDay(int row) {
+        return epochDays[row];
+    }
+
+    @Override
+    public double high(int row) {
+        return high[row];
+    }
+
+    @Override
+    public double low(int row) {
+        return low[row];
+    }
+
+    @Override
+    public double open(int row) {
+        return open[row];
+    }
+
+    @Override
+    public double close(int row) {
+        return close[row];
+    }
+
+    @Override
+    public double volume(int row) {
+        return volume[row];
+    }
+
+    @Override
+    public double adjClose(int row) {
+        return adjClose[row];
+    }
+
+    public static class Builder {
+        private final String symbol;
+        private int size;
+        private int[] epochDays = new int[256];
+        private double[] high = new double[256];
+        private double[] low = new double[256];
+        private double[] open = new double[256];
+        private double[] close = new double[256];
+        private double[] volume = new double[256];
+        private double[] adjClose = new double[256];
+
+        private Builder(String symbol) {
+            this.symbol = symbol;
+        }
+
+        /***
+         * Reads one Date,High,Low,Open,Close,Volume,Adj Close row from the cursor's current line
+         */
+        public Builder add(CsvCursor row) {
+            return add(row.nextEpochDay(), row.nextDouble(), row.nextDouble(), row.nextDouble(),
+                    row.nextDouble(), row.nextDouble(), row.nextDouble());
+        }
+
+        public Builder add(int epochDay, double high, double low, double open, double close, double volume, double adjClose) {
+            if (size == epochDays.length)
+                grow();
+            this.epochDays[size] = epochDay;
+            this.high[size] = high;
+            this.low[size] = low;
+            this.open[size] = open;
+            this.close[size] = close;
+            this.volume[size] = volume;
+            this.adjClose[size] = adjClose;
+            size++;
+            return this;
+        }
+
+        private void grow() {
+            var capacity = epochDays.length * 2;
+            epochDays = Arrays.copyOf(epochDays, capacity);
+            high = Arrays.copyOf(high, capacity);
+            low = Arrays.copyOf(low, capacity);
+            open = Arrays.copyOf(open, capacity);
+            close = Arrays.copyOf(close, capacity);
+            volume = Arrays.copyOf(volume, capacity);
+            adjClose = Arrays.copyOf(adjClose, capacity);
+        }
+
+        public ArrayPriceSeries build() {
+            return new ArrayPriceSeries(this);
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package edu.yu.parallel;
+
+import java.io.OutputStream;
+
+/***
+ * Counts, for each symbol with data, the days on which the close was above the midpoint of the
+ * high and low. See MarketDataReports.generateCloseAboveMidPriceReport() for the output format.
+ *
+ * The symbols are ranked with a counting sort on the counts, or, when only the top symbols are
+ * wanted, with a bounded heap (see CountRanking).
+ */
+public class CloseAboveMidReport implements ReportAggregator {
+    private final CsvWriter writer;
+    private final int limit;
+    private SymbolCache symbols;
+    private int[] scanned;
+    private int[] counts;
+
+    public CloseAboveMidReport(OutputStream outputStream) {
+        this(outputStream, Integer.MAX_VALUE);
+    }
+
+    /***
+     * @param limit the number of symbols to write: those with the highest counts, in report order
+     */
+    public CloseAboveMidReport(OutputStream outputStream, int limit) {
+        if (limit < 0)
+            throw new IllegalArgumentException("The limit cannot be negative: " + limit);
+        this.writer = new CsvWriter(outputStream);
+        this.limit = limit;
+    }
+
+    @Override
+    public boolean includes(SymbolData symbol) {
+        return true;
+    }
+
+    /***
+     * A symbol's count does not depend on any other symbol
+     */
+    @Override
+    public boolean needsDateOrder() {
+        return false;
+    }
+
+    @Override
+    public void start(SymbolCache symbols, int[] scanned) {
+        this.symbols = symbols;
+        this.scanned = scanned;
+        this.counts = new int[symbols.size()];
+    }
+
+    @Override
+    public void onRow(int id, PriceCursor row) {
+        if (closeAboveMid(row))
+            counts[id]++;
+    }
+
+    @Override
+    public void finish() {
+        write(writer, symbols, scanned, counts, limit);
+    }
+
+    static boolean closeAboveMid(PriceCursor row) {
+        return row.close() > (row.high() + row.low()) / 2;
+    }
+
+    /***
+     * Writes the report: the limit symbols with the highest counts, ordered by count descending and
+     * then by symbol
+     *
+     * @param ids the ids of the symbols with data, in ascending (alphabetical) order
+     * @param counts the counts, by id
+     */
+    static void write(CsvWriter writer, SymbolCache symbols, int[] ids, int[] counts, int limit) {
+        writer.field("Symbol").field("Count").endLine();
+        for (var id : CountRanking.rank(ids, counts, limit))
+            writer.field(symbols.symbol(id)).field(counts[id]).endLine();
+        writer.flush();
+    }
+}
@@ -0,0 +1,145 @@
+package edu.yu.parallel;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Optional;
+import java.util.regex.Pattern;
+
+/***
+ * Serves each symbol from a memory-mapped columnar copy of its CSV file.
+ *
+ * The first time a symbol is loaded (or whenever its CSV file, plain or compressed, has changed size
+ * or timestamp since the copy was made, or the copy is in an older format) the CSV is parsed once
+ * and written to [storeDirectory]/[symbol].[size]_[last modified].v[format version].col. After
+ * that, loading a symbol only maps the file: the data stays off-heap in the OS page cache, where it
+ * is shared between report runs and between JVMs reading the same store.
+ *
+ * Each version of a CSV file gets a columnar file of its own, so a rebuild never replaces a file
+ * that an earlier load may still have mapped (which Windows refuses). The older files are then
+ * deleted; one still mapped on Windows is left in place and deleted by a later rebuild.
+ */
+public class ColumnarPriceSource implements PriceSource {
+    private final static Logger logger = LogManager.getLogger(ColumnarPriceSource.class);
+
+    private final PriceSource csvSource;
+    private final Path dataDirectory;
+    private final Path storeDirectory;
+
+    public ColumnarPriceSource(Path dataDirectory) {
+        this(dataDirectory, dataDirectory.resolve(".columnar"));
+    }
+
+    public ColumnarPriceSource(Path dataDirectory, Path storeDirectory) {
+        this.csvSource = new CsvPriceSource(dataDirectory);
+        this.dataDirectory = dataDirectory;
+        this.storeDirectory = storeDirectory;
+    }
+
+    @Override
+    public boolean hasData(String symbol) {
+        return csvSource.hasData(symbol);
+    }
+
+    @Override
+    public Optional<PriceSeries> load(String symbol) {
+        var csvFile = CsvPriceSource.dataFile(dataDirectory, symbol);
+        if (!Files.isRegularFile(csvFile))
+            return Optional.empty();
+
+        try {
+            var columnFile = columnFile(symbol, Files.size(csvFile), Files.getLastModifiedTime(csvFile).toMillis());
+            if (!isCurrent(columnFile, csvFile))
+                columnFile = build(symbol, csvFile);
+            return Optional.of(new ColumnarSeries(symbol, map(columnFile)));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private boolean isCurrent(Path columnFile, Path csvFile) throws IOException {
+        if (!Files.isRegularFile(columnFile) || Files.size(columnFile) < ColumnarSeries.HEADER_BYTES)
+            return false;
+
+        var header = ByteBuffer.allocate(ColumnarSeries.HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        try (var channel = FileChannel.open(columnFile, StandardOpenOption.READ)) {
+            channel.read(header, 0);
+        }
+        return header.getInt(0) == ColumnarSeries.MAGIC
+                && header.getInt(4) == ColumnarSeries.VERSION
+                && ColumnarSeries.sourceSize(header) == Files.size(csvFile)
+                && ColumnarSeries.sourceLastModified(header) == Files.getLastModifiedTime(csvFile).toMillis();
+    }
+
+    private Path columnFile(String symbol, long sourceSize, long sourceLastModified) {
+        return storeDirectory.resolve(symbol + "." + sourceSize + "_" + sourceLastModified
+                + ".v" + ColumnarSeries.VERSION + ".col");
+    }
+
+    /***
+     * @return the file written, named after the CSV file's size and timestamp when it was read
+     */
+    private Path build(String symbol, Path csvFile) throws IOException {
+        var sourceSize = Files.size(csvFile);
+        var sourceLastModified = Files.getLastModifiedTime(csvFile).toMillis();
+        var columnFile = columnFile(symbol, sourceSize, sourceLastModified);
+        var series = csvSource.load(symbol).orElseThrow();
+        var contents = ColumnarSeries.encode(series, sourceSize, sourceLastModified);
+
+        // Write to a temporary file and move it into place so that concurrent readers (or other JVMs)
+        // never map a partially written file
+        Files.createDirectories(storeDirectory);
+        var tempFile = Files.createTempFile(storeDirectory, symbol, ".tmp");
+        try {
+            try (var channel = FileChannel.open(tempFile, StandardOpenOption.WRITE)) {
+                while (contents.hasRemaining())
+                    channel.write(contents);
+            }
+            try {
+                Files.move(tempFile, columnFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (IOException e) {
+                // Another thread or JVM got there first (and may have mapped its file)
+                if (!isCurrent(columnFile, csvFile))
+                    throw e;
+            }
+        } finally {
+            Files.deleteIfExists(tempFile);
+        }
+        logger.debug("Built columnar file for {}: rows={}", symbol, series.size());
+        deleteOthers(symbol, columnFile);
+        return columnFile;
+    }
+
+    /***
+     * Deletes the symbol's columnar files other than the current one, skipping any that cannot be
+     * deleted yet
+     */
+    private void deleteOthers(String symbol, Path columnFile) throws IOException {
+        var pattern = Pattern.compile(Pattern.quote(symbol) + "(\\.-?\\d+_-?\\d+\\.v\\d+)?\\.col");
+        try (var files = Files.newDirectoryStream(storeDirectory,
+                file -> pattern.matcher(file.getFileName().toString()).matches() && !file.equals(columnFile))) {
+            for (var file : files) {
+                try {
+                    Files.deleteIfExists(file);
+                } catch (IOException e) {
+                    logger.debug("Cannot delete {} yet: {}", file, e.toString());
+                }
+            }
+        }
+    }
+
+    private static ByteBuffer map(Path columnFile) throws IOException {
+        try (var channel = FileChannel.open(columnFile, StandardOpenOption.READ)) {
+            return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+    }
+}
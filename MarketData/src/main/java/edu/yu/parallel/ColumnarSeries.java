@@ -0,0 +1,146 @@
+package edu.yu.parallel;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.IntBuffer;
+
+/***
+ * A PriceSeries whose columns live in a (memory-mapped) buffer rather than on the heap.
+ *
+ * Layout, all values little-endian:
+ *   header   - magic, version, row count, reserved (4 ints), source size, source last-modified (2 longs)
+ *   date     - int[rows] epoch days, padded to a multiple of 8 bytes
+ *   high, low, open, close, volume, adjClose - double[rows] each
+ */
+public class ColumnarSeries implements PriceSeries {
+    static final int MAGIC = 0x4D44434C; // "MDCL"
+    static final int VERSION = 1;
+    static final int HEADER_BYTES = 32;
+    static final int DOUBLE_COLUMNS = 6;
+
+    private final String symbol;
+    private final int size;
+    private final IntBuffer dates;
+    private final DoubleBuffer high;
+    private final DoubleBuffer low;
+    private final DoubleBuffer open;
+    private final DoubleBuffer close;
+    private final DoubleBuffer volume;
+    private final DoubleBuffer adjClose;
+
+    ColumnarSeries(String symbol, ByteBuffer buffer) {
+        buffer = buffer.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+        if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION)
+            throw new IllegalArgumentException("Not a columnar market data file: " + symbol);
+
+        this.symbol = symbol;
+        this.size = buffer.getInt(8);
+        this.dates = column(buffer, HEADER_BYTES, size * Integer.BYTES).asIntBuffer();
+
+        var offset = HEADER_BYTES + dateColumnBytes(size);
+        var columnBytes = size * Double.BYTES;
+        this.high = column(buffer, offset, columnBytes).asDoubleBuffer();
+        this.low = column(buffer, offset += columnBytes, columnBytes).asDoubleBuffer();
+        this.open = column(buffer, offset += columnBytes, columnBytes).asDoubleBuffer();
+        this.close = column(buffer, offset += columnBytes, columnBytes).asDoubleBuffer();
+        this.volume = column(buffer, offset += columnBytes, columnBytes).asDoubleBuffer();
+        this.adjClose = column(buffer, offset + columnBytes, columnBytes).asDoubleBuffer();
+    }
+
+    static int dateColumnBytes(int rows) {
+        return (rows * Integer.BYTES + 7) & ~7;
+    }
+
+    static long fileBytes(int rows) {
+        return HEADER_BYTES + dateColumnBytes(rows) + (long) rows * Double.BYTES * DOUBLE_COLUMNS;
+    }
+
+    /***
+     * Encodes a series into the columnar layout
+     *
+     * @param series the series to encode
+     * @param sourceSize the size of the CSV file the series was read from
+     * @param sourceLastModified the last-modified time (millis) of the CSV file
+     * @return a buffer, positioned at 0, holding the complete file contents
+     */
+    static ByteBuffer encode(PriceSeries series, long sourceSize, long sourceLastModified) {
+        var rows = series.size();
+        var buffer = ByteBuffer.allocate((int) fileBytes(rows)).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.putInt(MAGIC).putInt(VERSION).putInt(rows).putInt(0)
+                .putLong(sourceSize).putLong(sourceLastModified);
+
+        for (int i = 0; i < rows; i++)
+            buffer.putInt(series.epochDay(i));
+        buffer.position(HEADER_BYTES + dateColumnBytes(rows));
+
+        for (int i = 0; i < rows; i++) buffer.putDouble(series.high(i));
+        for (int i = 0; i < rows; i++) buffer.putDouble(series.low(i));
+        for (int i = 0; i < rows; i++) buffer.putDouble(series.open(i));
+        for (int i = 0; i < rows; i++) buffer.putDouble(series.close(i));
+        for (int i = 0; i < rows; i++) buffer.putDouble(series.volume(i));
+        for (int i = 0; i < rows; i++) buffer.putDouble(series.adjClose(i));
+
+        return buffer.flip();
+    }
+
+    /***
+     * @param header the little-endian file header
+     */
+    static long sourceSize(ByteBuffer header) {
+        return header.getLong(16);
+    }
+
+    static long sourceLastModified(ByteBuffer header) {
+        return header.getLong(24);
+    }
+
+    private static ByteBuffer column(ByteBuffer buffer, int offset, int length) {
+        return buffer.slice(offset, length).order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    @Override
+    public String symbol() {
+        return symbol;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public int epochDay(int row) {
+        return dates.get(row);
+    }
+
+    @Override
+    public double high(int row) {
+        return high.get(row);
+    }
+
+    @Override
+    public double low(int row) {
+        return low.get(row);
+    }
+
+    @Override
+    public double open(int row) {
+        return open.get(row);
+    }
+
+    @Override
+    public double close(int row) {
+        return close.get(row);
+    }
+
+    @Override
+    public double volume(int row) {
+        return volume.get(row);
+    }
+
+    @Override
+    public double adjClose(int row) {
+        return adjClose.get(row);
+    }
+}
@@ -0,0 +1,155 @@
+package edu.yu.parallel;
+
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.Map;
+
+/***
+ * Sums the weighted prices and volumes of the members of one or more indexes, one row per date and
+ * one output per index. See MarketDataReports.generateNASDAQ100CompositeReport() for the output
+ * format.
+ *
+ * All the indexes are computed from the same scan: each row is read from the cursor once and then
+ * copied into a columnar buffer for every index its symbol is a member of, so adding an index costs
+ * a copy per member row but no extra reads. When all rows of a date have been scanned, each
+ * index's buffer is summed with the weights by a WeightedSumKernel and written out.
+ *
+ * The sums are exact until they are rounded once (see ExactSum), so a composite does not depend on
+ * the order its rows were scanned in, on how its work is divided between threads, or on the
+ * platform: any run over the same data writes the same bytes. The "kernel" system property selects
+ * the faster vector or scalar kernels, whose naive sums are identical to each other and follow the
+ * scan's (symbol id) order, but may differ from the exact sums in the last digits.
+ *
+ * The report only holds the rows of one date in memory.
+ */
+public class CompositeReport implements ReportAggregator {
+    private static final String[] COLUMNS = {"Date", "High", "Low", "Open", "Close", "Volume", "Adj Close"};
+    private static final int DECIMALS = 6;
+
+    private final MarketIndex[] indexes;
+    private final CsvWriter[] writers;
+    private final WeightedSumKernel kernel;
+    private final double[] sums = new double[WeightedSumKernel.STRIDE];
+    private double[][] weights;
+    private int[][] memberOf;
+    // The rows of the current date, per index: the weight of each row, and the rows themselves
+    private double[][] rowWeights;
+    private double[][] rows;
+    private int[] rowCounts;
+
+    /***
+     * @param outputStream where to write the report
+     * @param index the index whose members' participation weights are applied
+     */
+    public CompositeReport(OutputStream outputStream, MarketIndex index) {
+        this(Map.of(index, outputStream));
+    }
+
+    /***
+     * @param outputStreams where to write the composite of each index
+     */
+    public CompositeReport(Map<MarketIndex, ? extends OutputStream> outputStreams) {
+        this(outputStreams, WeightedSumKernel.configured());
+    }
+
+    CompositeReport(Map<MarketIndex, ? extends OutputStream> outputStreams, WeightedSumKernel kernel) {
+        var sorted = new EnumMap<MarketIndex, OutputStream>(outputStreams);
+        this.indexes = sorted.keySet().toArray(new MarketIndex[0]);
+        this.writers = sorted.values().stream().map(CsvWriter::new).toArray(CsvWriter[]::new);
+        this.kernel = kernel;
+    }
+
+    @Override
+    public boolean includes(SymbolData symbol) {
+        for (var index : indexes) {
+            if (index.weight(symbol) > 0)
+                return true;
+        }
+        return false;
+    }
+
+    @Override
+    public void start(SymbolCache symbols, int[] scanned) {
+        weights = new double[indexes.length][];
+        for (int i = 0; i < indexes.length; i++)
+            weights[i] = symbols.weights(indexes[i]);
+
+        // For each symbol id, the positions of the indexes it is a member of
+        memberOf = new int[symbols.size()][];
+        var buffer = new int[indexes.length];
+        var members = new int[indexes.length];
+        for (int id = 0; id < memberOf.length; id++) {
+            var count = 0;
+            for (int i = 0; i < indexes.length; i++) {
+                if (weights[i][id] > 0) {
+                    buffer[count++] = i;
+                    members[i]++;
+                }
+            }
+            memberOf[id] = Arrays.copyOf(buffer, count);
+        }
+
+        // A date has at most one row per member
+        rowWeights = new double[indexes.length][];
+        rows = new double[indexes.length][];
+        rowCounts = new int[indexes.length];
+        for (int i = 0; i < indexes.length; i++) {
+            rowWeights[i] = new double[members[i]];
+            rows[i] = new double[members[i] * WeightedSumKernel.STRIDE];
+        }
+
+        for (var writer : writers) {
+            for (var column : COLUMNS)
+                writer.field(column);
+            writer.endLine();
+        }
+    }
+
+    @Override
+    public void onRow(int id, PriceCursor row) {
+        var high = row.high();
+        var low = row.low();
+        var open = row.open();
+        var close = row.close();
+        var volume = row.volume();
+        var adjClose = row.adjClose();
+
+        for (var i : memberOf[id]) {
+            var count = rowCounts[i]++;
+            var offset = count * WeightedSumKernel.STRIDE;
+            var buffer = rows[i];
+            buffer[offset] = high;
+            buffer[offset + 1] = low;
+            buffer[offset + 2] = open;
+            buffer[offset + 3] = close;
+            buffer[offset + 4] = volume;
+            buffer[offset + 5] = adjClose;
+            rowWeights[i][count] = weights[i][id];
+        }
+    }
+
+    @Override
+    public void onDateEnd(int epochDay) {
+        for (int i = 0; i < indexes.length; i++) {
+            if (rowCounts[i] == 0)
+                continue;
+
+            Arrays.fill(sums, 0);
+            kernel.accumulate(rowWeights[i], rows[i], rowCounts[i], sums);
+            rowCounts[i] = 0;
+
+            var writer = writers[i];
+            writer.dateField(epochDay);
+            for (int column = 0; column < COLUMNS.length - 1; column++)
+                writer.field(sums[column], DECIMALS);
+            writer.endLine();
+        }
+    }
+
+    @Override
+    public void finish() {
+        for (var writer : writers)
+            writer.flush();
+    }
+}
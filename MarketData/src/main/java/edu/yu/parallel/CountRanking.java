@@ -0,0 +1,121 @@
+package edu.yu.parallel;
+
+import java.util.Arrays;
+
+/***
+ * Orders symbol ids by a per-symbol count, descending, and then by id (i.e. alphabetically): all of
+ * them with a counting sort, or only the first k with a bounded heap.
+ *
+ * Counts are numbers of trading days, so they are small integers and a pass that buckets the ids by
+ * count replaces the comparison sort. When only the top k are wanted, a heap of the k best seen so
+ * far keeps the memory and the sorting to O(k) however many symbols there are. Both break ties
+ * exactly as a full sort on (count descending, id) does.
+ */
+final class CountRanking {
+    // Above this many buckets per id, a comparison sort is cheaper than a counting sort
+    private static final int MAX_BUCKETS_PER_ID = 8;
+
+    private CountRanking() {
+    }
+
+    /***
+     * @param ids the ids to rank, in ascending order
+     * @param counts the counts, by id
+     * @param limit the number of ids to return
+     * @return the first limit ids (or all of them) in order of count descending, then id
+     */
+    static int[] rank(int[] ids, int[] counts, int limit) {
+        if (limit < 0)
+            throw new IllegalArgumentException("The limit cannot be negative: " + limit);
+        return limit < ids.length ? top(ids, counts, limit) : countingSort(ids, counts);
+    }
+
+    static int[] countingSort(int[] ids, int[] counts) {
+        var max = 0;
+        for (var id : ids)
+            max = Math.max(max, counts[id]);
+        if (max > Math.max(1024L, (long) MAX_BUCKETS_PER_ID * ids.length))
+            return sort(ids, counts);
+
+        // Bucket b holds the ids with a count of max - b; placing the ids in ascending order keeps
+        // each bucket in id order
+        var starts = new int[max + 2];
+        for (var id : ids)
+            starts[max - counts[id] + 1]++;
+        for (int bucket = 1; bucket < starts.length; bucket++)
+            starts[bucket] += starts[bucket - 1];
+        var ranked = new int[ids.length];
+        for (var id : ids)
+            ranked[starts[max - counts[id]]++] = id;
+        return ranked;
+    }
+
+    static int[] top(int[] ids, int[] counts, int k) {
+        // A max-heap of the k smallest keys seen so far, with its worst key at the root
+        var heap = new long[k];
+        var size = 0;
+        for (var id : ids) {
+            var key = key(id, counts);
+            if (size < k) {
+                heap[size] = key;
+                siftUp(heap, size++);
+            } else if (k > 0 && key < heap[0]) {
+                heap[0] = key;
+                siftDown(heap, size);
+            }
+        }
+        Arrays.sort(heap, 0, size);
+        return ids(heap, size);
+    }
+
+    static int[] sort(int[] ids, int[] counts) {
+        var keys = new long[ids.length];
+        for (int i = 0; i < ids.length; i++)
+            keys[i] = key(ids[i], counts);
+        Arrays.sort(keys);
+        return ids(keys, keys.length);
+    }
+
+    /***
+     * @return a key that orders by count descending, then by id
+     */
+    private static long key(int id, int[] counts) {
+        return ((long) (Integer.MAX_VALUE - counts[id]) << 32) | id;
+    }
+
+    private static int[] ids(long[] keys, int size) {
+        var ids = new int[size];
+        for (int i = 0; i < size; i++)
+            ids[i] = (int) keys[i];
+        return ids;
+    }
+
+    private static void siftUp(long[] heap, int i) {
+        var key = heap[i];
+        while (i > 0) {
+            var parent = (i - 1) >>> 1;
+            if (heap[parent] >= key)
+                break;
+            heap[i] = heap[parent];
+            i = parent;
+        }
+        heap[i] = key;
+    }
+
+    private static void siftDown(long[] heap, int size) {
+        var key = heap[0];
+        var i = 0;
+        while (true) {
+            var child = 2 * i + 1;
+            if (child >= size)
+                break;
+            if (child + 1 < size && heap[child + 1] > heap[child])
+                child++;
+            if (heap[child] <= key)
+                break;
+            heap[i] = heap[child];
+            i = child;
+        }
+        heap[i] = key;
+    }
+}
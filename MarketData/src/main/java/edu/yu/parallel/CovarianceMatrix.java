@@ -0,0 +1,399 @@
+package edu.yu.parallel;
+
+import java.io.OutputStream;
+import java.util.BitSet;
+import java.util.List;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+
+/***
+ * The covariance and correlation matrices of the daily returns of a set of symbols, where a
+ * symbol's return on a date is the change of its adjusted close from its previous row.
+ *
+ * The returns are aligned by date into a dense column-major matrix: one column per symbol and one
+ * row per date on which any of the symbols has a return. Where a symbol has no return (it was not
+ * listed yet, or no longer), the matrix holds a 0 and a mask of the same shape holds a 0 rather
+ * than a 1. Each pair of symbols is then compared over the dates both have returns on, and all
+ * the sums this takes (the count of those dates, the sums of each symbol's returns and squared
+ * returns over them, and the sum of the products) are products of columns of the two matrices,
+ * computed together in one branch-free loop. Where both symbols have every return of a block of
+ * dates, only the products remain to compute (see computeTile()).
+ *
+ * A naive pass over the pairs reads every column once per symbol. Here the pairs are computed by
+ * tiles of SYMBOL_TILE symbols by SYMBOL_TILE symbols, and each tile by blocks of DATE_TILE dates,
+ * so the two blocks of columns a tile multiplies stay in cache while they are reused. The tiles of
+ * the upper triangle are split between the threads of the pipeline's fork/join pool; each tile
+ * writes its own cells of the matrices, so the tasks share nothing, and the results do not depend
+ * on the number of threads.
+ */
+public final class CovarianceMatrix {
+    private static final int SYMBOL_TILE = 16;
+    private static final int DATE_TILE = 512;
+    private static final int COVARIANCE_DECIMALS = 9;
+    private static final int CORRELATION_DECIMALS = 6;
+    // The sums of a pair (i, j) over the dates both have a return on: the number of dates, the
+    // sums of each symbol's returns, of their products, and of each symbol's squared returns
+    private static final int SUMS = 6;
+    private static final int COUNT = 0;
+    private static final int SUM_I = 1;
+    private static final int SUM_J = 2;
+    private static final int PRODUCTS = 3;
+    private static final int SQUARES_I = 4;
+    private static final int SQUARES_J = 5;
+
+    private final String[] symbols;
+    private final int size;
+    private final int dates;
+    // The matrices, row-major; each is symmetric
+    private final double[] covariance;
+    private final double[] correlation;
+    private final int[] observations;
+    // The aligned returns and their mask, column-major: a symbol's column is dates long
+    private final double[] returns;
+    private final double[] mask;
+    // By symbol and block of DATE_TILE dates: whether the symbol has a return on every date of the
+    // block, and the sums of its returns and squared returns over the block
+    private final int blocks;
+    private final boolean[] complete;
+    private final double[] blockSums;
+    private final double[] blockSquares;
+
+    private CovarianceMatrix(List<? extends PriceSeries> series) {
+        this.size = series.size();
+        this.symbols = series.stream().map(PriceSeries::symbol).toArray(String[]::new);
+        this.covariance = new double[size * size];
+        this.correlation = new double[size * size];
+        this.observations = new int[size * size];
+
+        var first = Integer.MAX_VALUE;
+        var last = Integer.MIN_VALUE;
+        for (var data : series) {
+            if (data.size() > 1) {
+                first = Math.min(first, data.epochDay(1));
+                last = Math.max(last, data.epochDay(data.size() - 1));
+            }
+        }
+        var days = new BitSet();
+        for (var data : series) {
+            for (int row = 1; row < data.size(); row++)
+                days.set(data.epochDay(row) - first);
+        }
+        var rowOf = new int[first > last ? 0 : last - first + 1];
+        var count = 0;
+        for (var day = days.nextSetBit(0); day >= 0; day = days.nextSetBit(day + 1))
+            rowOf[day] = count++;
+        this.dates = count;
+
+        this.returns = new double[size * dates];
+        this.mask = new double[size * dates];
+        for (int symbol = 0; symbol < size; symbol++)
+            align(series.get(symbol), symbol * dates, first, rowOf);
+
+        this.blocks = (dates + DATE_TILE - 1) / DATE_TILE;
+        this.complete = new boolean[size * blocks];
+        this.blockSums = new double[size * blocks];
+        this.blockSquares = new double[size * blocks];
+        for (int symbol = 0; symbol < size; symbol++) {
+            for (int block = 0; block < blocks; block++)
+                sumBlock(symbol, block);
+        }
+    }
+
+    /***
+     * Computes the matrices of the series' returns, in parallel when the pipeline has a fork/join
+     * pool
+     *
+     * @param series the series of the symbols, in the order of the matrices' rows and columns
+     */
+    public static CovarianceMatrix compute(List<? extends PriceSeries> series, IngestionPipeline pipeline) {
+        var matrix = new CovarianceMatrix(series);
+        var tiles = (matrix.size + SYMBOL_TILE - 1) / SYMBOL_TILE;
+        if (tiles > 0)
+            pipeline.invoke(matrix.new TileTask(tiles, 0, tiles * (tiles + 1) / 2));
+        return matrix;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public String symbol(int i) {
+        return symbols[i];
+    }
+
+    /***
+     * @return the number of dates on which any of the symbols has a return
+     */
+    public int dates() {
+        return dates;
+    }
+
+    /***
+     * @return the number of dates on which both symbols have a return
+     */
+    public int observations(int i, int j) {
+        return observations[i * size + j];
+    }
+
+    /***
+     * @return the sample covariance of the two symbols' returns over the dates both have one, or
+     * NaN if there are fewer than two such dates
+     */
+    public double covariance(int i, int j) {
+        return covariance[i * size + j];
+    }
+
+    /***
+     * @return the correlation of the two symbols' returns over the dates both have one, or NaN if
+     * there are fewer than two such dates or either symbol's returns are constant over them
+     */
+    public double correlation(int i, int j) {
+        return correlation[i * size + j];
+    }
+
+    /***
+     * Writes the covariance matrix as CSV, with a header row Symbol,[symbol]... and a row per symbol
+     */
+    public void writeCovariance(OutputStream outputStream) {
+        write(covariance, COVARIANCE_DECIMALS, outputStream);
+    }
+
+    /***
+     * Writes the correlation matrix as CSV, with a header row Symbol,[symbol]... and a row per symbol
+     */
+    public void writeCorrelation(OutputStream outputStream) {
+        write(correlation, CORRELATION_DECIMALS, outputStream);
+    }
+
+    private void write(double[] matrix, int decimals, OutputStream outputStream) {
+        var writer = new CsvWriter(outputStream);
+        writer.field("Symbol");
+        for (var symbol : symbols)
+            writer.field(symbol);
+        writer.endLine();
+
+        for (int i = 0; i < size; i++) {
+            writer.field(symbols[i]);
+            for (int j = 0; j < size; j++)
+                writer.field(matrix[i * size + j], decimals);
+            writer.endLine();
+        }
+        writer.flush();
+    }
+
+    /***
+     * Writes the series' returns into its column, centred on their mean: covariances do not
+     * change, and the sums of products stay small enough not to cancel out
+     */
+    private void align(PriceSeries data, int column, int first, int[] rowOf) {
+        var sum = 0.0;
+        var count = 0;
+        for (int row = 1; row < data.size(); row++) {
+            var previous = data.adjClose(row - 1);
+            var value = data.adjClose(row) / previous - 1;
+            if (previous > 0 && Double.isFinite(value)) {
+                var cell = column + rowOf[data.epochDay(row) - first];
+                returns[cell] = value;
+                mask[cell] = 1;
+                sum += value;
+                count++;
+            }
+        }
+        if (count == 0)
+            return;
+
+        var mean = sum / count;
+        for (int cell = column; cell < column + dates; cell++)
+            returns[cell] -= mean * mask[cell];
+    }
+
+    private void sumBlock(int symbol, int block) {
+        var from = symbol * dates + block * DATE_TILE;
+        var to = symbol * dates + Math.min(dates, (block + 1) * DATE_TILE);
+        double sum = 0, squares = 0, count = 0;
+        for (int cell = from; cell < to; cell++) {
+            sum += returns[cell];
+            squares += returns[cell] * returns[cell];
+            count += mask[cell];
+        }
+        var position = symbol * blocks + block;
+        complete[position] = count == to - from;
+        blockSums[position] = sum;
+        blockSquares[position] = squares;
+    }
+
+    /***
+     * Computes the pairs of a tile, from the blocks of symbols starting at first and second.
+     *
+     * Within a block of dates, the pairs are taken two symbols by two: when the four symbols have
+     * a return on every date of the block, which is the usual case, their sums are the block sums,
+     * and the four products are computed together, each loaded return serving two of them. Other
+     * pairs take the masked loop.
+     */
+    private void computeTile(int first, int second) {
+        // The sums of each pair of the tile, by (i - first) * SYMBOL_TILE + (j - second)
+        var sums = new double[SUMS][SYMBOL_TILE * SYMBOL_TILE];
+        var firstEnd = Math.min(size, first + SYMBOL_TILE);
+        var secondEnd = Math.min(size, second + SYMBOL_TILE);
+        for (int block = 0; block < blocks; block++) {
+            for (int i = first; i < firstEnd; i += 2) {
+                for (int j = first == second ? i : second; j < secondEnd; j += 2) {
+                    if (i + 1 < firstEnd && j + 1 < secondEnd && isComplete(i, block) && isComplete(i + 1, block)
+                            && isComplete(j, block) && isComplete(j + 1, block)) {
+                        addQuad(i, j, block, sums[PRODUCTS], (i - first) * SYMBOL_TILE + (j - second));
+                        for (int pairI = i; pairI < i + 2; pairI++) {
+                            for (int pairJ = Math.max(pairI, j); pairJ < j + 2; pairJ++)
+                                addBlockSums(pairI, pairJ, block, sums, (pairI - first) * SYMBOL_TILE + (pairJ - second));
+                        }
+                        continue;
+                    }
+                    for (int pairI = i; pairI < Math.min(firstEnd, i + 2); pairI++) {
+                        for (int pairJ = Math.max(pairI, j); pairJ < Math.min(secondEnd, j + 2); pairJ++)
+                            addMasked(pairI, pairJ, block, sums, (pairI - first) * SYMBOL_TILE + (pairJ - second));
+                    }
+                }
+            }
+        }
+
+        for (int i = first; i < firstEnd; i++) {
+            for (int j = Math.max(i, second); j < secondEnd; j++) {
+                var cell = (i - first) * SYMBOL_TILE + (j - second);
+                setPair(i, j, sums[COUNT][cell], sums[SUM_I][cell], sums[SUM_J][cell], sums[PRODUCTS][cell],
+                        sums[SQUARES_I][cell], sums[SQUARES_J][cell]);
+            }
+        }
+    }
+
+    private boolean isComplete(int symbol, int block) {
+        return complete[symbol * blocks + block];
+    }
+
+    /***
+     * Adds the products of symbols i and i + 1 with symbols j and j + 1 over the block to the cell
+     * of (i, j) and its neighbours
+     */
+    private void addQuad(int i, int j, int block, double[] products, int cell) {
+        var from = block * DATE_TILE;
+        var length = Math.min(dates, from + DATE_TILE) - from;
+        var columnI = i * dates + from;
+        var columnJ = j * dates + from;
+        double product00 = 0, product01 = 0, product10 = 0, product11 = 0;
+        for (int date = 0; date < length; date++) {
+            var returnI0 = returns[columnI + date];
+            var returnI1 = returns[columnI + dates + date];
+            var returnJ0 = returns[columnJ + date];
+            var returnJ1 = returns[columnJ + dates + date];
+            product00 += returnI0 * returnJ0;
+            product01 += returnI0 * returnJ1;
+            product10 += returnI1 * returnJ0;
+            product11 += returnI1 * returnJ1;
+        }
+        products[cell] += product00;
+        products[cell + 1] += product01;
+        products[cell + SYMBOL_TILE] += product10;
+        products[cell + SYMBOL_TILE + 1] += product11;
+    }
+
+    /***
+     * Adds all but the products of a pair of symbols that both have a return on every date of the
+     * block, from their block sums
+     */
+    private void addBlockSums(int i, int j, int block, double[][] sums, int cell) {
+        var blockI = i * blocks + block;
+        var blockJ = j * blocks + block;
+        sums[COUNT][cell] += Math.min(dates, (block + 1) * DATE_TILE) - block * DATE_TILE;
+        sums[SUM_I][cell] += blockSums[blockI];
+        sums[SUM_J][cell] += blockSums[blockJ];
+        sums[SQUARES_I][cell] += blockSquares[blockI];
+        sums[SQUARES_J][cell] += blockSquares[blockJ];
+    }
+
+    /***
+     * Adds the sums of a pair of symbols over the dates of the block both have a return on
+     */
+    private void addMasked(int i, int j, int block, double[][] sums, int cell) {
+        var from = block * DATE_TILE;
+        var to = Math.min(dates, from + DATE_TILE);
+        var columnI = i * dates;
+        var columnJ = j * dates;
+        double pairs = 0, x = 0, y = 0, xy = 0, xx = 0, yy = 0;
+        for (int date = from; date < to; date++) {
+            var returnI = returns[columnI + date];
+            var returnJ = returns[columnJ + date];
+            var maskI = mask[columnI + date];
+            var maskJ = mask[columnJ + date];
+            pairs += maskI * maskJ;
+            x += returnI * maskJ;
+            y += returnJ * maskI;
+            xy += returnI * returnJ;
+            xx += returnI * returnI * maskJ;
+            yy += returnJ * returnJ * maskI;
+        }
+        sums[COUNT][cell] += pairs;
+        sums[SUM_I][cell] += x;
+        sums[SUM_J][cell] += y;
+        sums[PRODUCTS][cell] += xy;
+        sums[SQUARES_I][cell] += xx;
+        sums[SQUARES_J][cell] += yy;
+    }
+
+    private void setPair(int i, int j, double n, double sumI, double sumJ, double products,
+                         double squaresI, double squaresJ) {
+        var pairCovariance = Double.NaN;
+        var pairCorrelation = Double.NaN;
+        if (n >= 2) {
+            var comoment = products - sumI * sumJ / n;
+            var momentI = squaresI - sumI * sumI / n;
+            var momentJ = squaresJ - sumJ * sumJ / n;
+            pairCovariance = comoment / (n - 1);
+            if (momentI > 0 && momentJ > 0) {
+                pairCorrelation = i == j
+                        ? 1
+                        : Math.max(-1, Math.min(1, comoment / Math.sqrt(momentI * momentJ)));
+            }
+        }
+        covariance[i * size + j] = covariance[j * size + i] = pairCovariance;
+        correlation[i * size + j] = correlation[j * size + i] = pairCorrelation;
+        observations[i * size + j] = observations[j * size + i] = (int) n;
+    }
+
+    /***
+     * Computes a range of the tiles of the upper triangle, numbered row by row, halving the range
+     * between subtasks down to single tiles when running in a fork/join pool
+     */
+    private final class TileTask extends RecursiveAction {
+        private final int tiles;
+        private final int from;
+        private final int to;
+
+        TileTask(int tiles, int from, int to) {
+            this.tiles = tiles;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > 1 && ForkJoinTask.inForkJoinPool()) {
+                var middle = (from + to) >>> 1;
+                invokeAll(new TileTask(tiles, from, middle), new TileTask(tiles, middle, to));
+                return;
+            }
+
+            // Walk the triangle to the first tile, then along its rows
+            int row = 0, start = 0;
+            while (start + tiles - row <= from) {
+                start += tiles - row;
+                row++;
+            }
+            var column = row + from - start;
+            for (int tile = from; tile < to; tile++) {
+                computeTile(row * SYMBOL_TILE, column * SYMBOL_TILE);
+                if (++column == tiles) {
+                    row++;
+                    column = row;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,384 @@
+package edu.yu.parallel;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/***
+ * A reusable, forward-only cursor over CSV data held as bytes.
+ *
+ * The cursor moves line by line and field by field, and parses numbers, booleans and dates
+ * straight out of its byte buffer into primitives, so reading a numeric field allocates nothing.
+ * Only fields that are explicitly read as strings create a String.
+ *
+ * The data either comes from an array/buffer that is already in memory, or is streamed from an
+ * InputStream through the cursor's own buffer, which is kept and reused when the cursor is reset.
+ * A cursor is not thread-safe; use one per thread.
+ *
+ * Fields are not quoted and may not contain commas. Empty lines are skipped and a trailing
+ * carriage return is ignored.
+ */
+public final class CsvCursor {
+    private static final int DEFAULT_BUFFER_SIZE = 64 * 1024;
+
+    private byte[] ownBuffer;
+    private byte[] buffer;
+    private int limit;
+    private InputStream input;
+
+    private int lineStart;
+    private int lineEnd;
+    private int nextLineStart;
+    private int fieldStart;
+    private int fieldEnd;
+    private int position;
+    private long lineNumber;
+    private long bytesRead;
+
+    public CsvCursor() {
+        this(DEFAULT_BUFFER_SIZE);
+    }
+
+    public CsvCursor(int bufferSize) {
+        this.ownBuffer = this.buffer = new byte[bufferSize];
+    }
+
+    /***
+     * Positions the cursor before the first line of data
+     *
+     * @param data the CSV contents
+     * @return this cursor
+     */
+    public CsvCursor reset(byte[] data) {
+        return reset(data, 0, data.length);
+    }
+
+    /***
+     * Positions the cursor before the first line of data[offset, offset + length). The array is
+     * read in place, not copied.
+     */
+    public CsvCursor reset(byte[] data, int offset, int length) {
+        this.buffer = data;
+        return start(null, offset, offset + length);
+    }
+
+    /***
+     * Positions the cursor before the first line of the buffer's remaining bytes. Heap buffers
+     * are read in place; other buffers are copied into the cursor's own buffer.
+     */
+    public CsvCursor reset(ByteBuffer data) {
+        if (data.hasArray())
+            return reset(data.array(), data.arrayOffset() + data.position(), data.remaining());
+
+        var length = data.remaining();
+        if (ownBuffer.length < length)
+            ownBuffer = new byte[length];
+        data.duplicate().get(ownBuffer, 0, length);
+        this.buffer = ownBuffer;
+        return start(null, 0, length);
+    }
+
+    /***
+     * Positions the cursor before the first line of the stream. The stream is read in chunks into
+     * the cursor's own buffer as the cursor advances; closing it remains the caller's responsibility.
+     */
+    public CsvCursor reset(InputStream input) {
+        this.buffer = ownBuffer;
+        return start(input, 0, 0);
+    }
+
+    private CsvCursor start(InputStream input, int from, int to) {
+        this.input = input;
+        this.limit = to;
+        this.lineStart = this.lineEnd = this.nextLineStart = from;
+        this.fieldStart = this.fieldEnd = this.position = from;
+        this.lineNumber = 0;
+        this.bytesRead = to - from;
+        return this;
+    }
+
+    /***
+     * Advances to the next non-empty line
+     *
+     * @return false if there are no more lines
+     */
+    public boolean nextLine() {
+        while (true) {
+            var end = indexOf('\n', nextLineStart);
+            if (end < 0 && input != null && fill())
+                continue;
+            if (nextLineStart >= limit)
+                return false;
+
+            lineStart = nextLineStart;
+            lineEnd = end < 0 ? limit : end;
+            nextLineStart = lineEnd + 1;
+            lineNumber++;
+            if (lineEnd > lineStart && buffer[lineEnd - 1] == '\r')
+                lineEnd--;
+            if (lineEnd > lineStart) {
+                position = lineStart;
+                fieldStart = fieldEnd = lineStart;
+                return true;
+            }
+        }
+    }
+
+    /***
+     * @return the 1-based number of the current line, counting skipped empty lines
+     */
+    public long lineNumber() {
+        return lineNumber;
+    }
+
+    /***
+     * @return the number of bytes read into the cursor since it was last reset
+     */
+    public long bytesRead() {
+        return bytesRead;
+    }
+
+    /***
+     * @return true if the current line has another field
+     */
+    public boolean hasField() {
+        return position <= lineEnd;
+    }
+
+    public void skipField() {
+        nextField();
+    }
+
+    public String nextString() {
+        nextField();
+        return new String(buffer, fieldStart, fieldEnd - fieldStart, StandardCharsets.UTF_8);
+    }
+
+    /***
+     * Parses the next field as a boolean, following Boolean.parseBoolean: true if, ignoring
+     * case, the field is "true"
+     */
+    public boolean nextBoolean() {
+        nextField();
+        if (fieldEnd - fieldStart != 4)
+            return false;
+        return (buffer[fieldStart] | 0x20) == 't' && (buffer[fieldStart + 1] | 0x20) == 'r'
+                && (buffer[fieldStart + 2] | 0x20) == 'u' && (buffer[fieldStart + 3] | 0x20) == 'e';
+    }
+
+    public int nextInt() {
+        var value = nextLong();
+        if (value != (int) value)
+            throw error("int out of range");
+        return (int) value;
+    }
+
+    public long nextLong() {
+        nextField();
+        var i = fieldStart;
+        var negative = i < fieldEnd && buffer[i] == '-';
+        if (negative || (i < fieldEnd && buffer[i] == '+'))
+            i++;
+        if (i == fieldEnd)
+            throw error("invalid integer");
+
+        long value = 0;
+        for (; i < fieldEnd; i++) {
+            var digit = buffer[i] - '0';
+            if (digit < 0 || digit > 9)
+                throw error("invalid integer");
+            value = Math.addExact(Math.multiplyExact(value, 10), digit);
+        }
+        return negative ? -value : value;
+    }
+
+    /***
+     * Parses the next field as a double. The result is the same as Double.parseDouble(), i.e. the
+     * correctly rounded value; fields that cannot be converted exactly with primitive arithmetic
+     * (more than 19 significant digits, NaN, Infinity, hex, ...) fall back to Double.parseDouble().
+     */
+    public double nextDouble() {
+        nextField();
+        var i = fieldStart;
+        var negative = i < fieldEnd && buffer[i] == '-';
+        if (negative || (i < fieldEnd && buffer[i] == '+'))
+            i++;
+
+        // Up to 19 significant digits, which fit in an unsigned long
+        long mantissa = 0;
+        int digits = 0;
+        int exponent = 0;
+        int start = i;
+        for (; i < fieldEnd && isDigit(buffer[i]); i++) {
+            if (digits < 19) {
+                mantissa = mantissa * 10 + (buffer[i] - '0');
+                if (mantissa != 0)
+                    digits++;
+            } else {
+                return slowDouble();
+            }
+        }
+        var integerDigits = i - start;
+        var fractionDigits = 0;
+        if (i < fieldEnd && buffer[i] == '.') {
+            for (i++; i < fieldEnd && isDigit(buffer[i]); i++, fractionDigits++) {
+                if (digits < 19) {
+                    mantissa = mantissa * 10 + (buffer[i] - '0');
+                    if (mantissa != 0)
+                        digits++;
+                    exponent--;
+                } else if (buffer[i] != '0') {
+                    return slowDouble();
+                }
+            }
+        }
+        if (integerDigits + fractionDigits == 0)
+            return slowDouble();
+
+        if (i < fieldEnd && (buffer[i] | 0x20) == 'e') {
+            i++;
+            var negativeExponent = i < fieldEnd && buffer[i] == '-';
+            if (negativeExponent || (i < fieldEnd && buffer[i] == '+'))
+                i++;
+            if (i == fieldEnd)
+                return slowDouble();
+            int explicit = 0;
+            for (; i < fieldEnd && isDigit(buffer[i]); i++) {
+                if (explicit < 100_000)
+                    explicit = explicit * 10 + (buffer[i] - '0');
+            }
+            exponent += negativeExponent ? -explicit : explicit;
+        }
+        if (i != fieldEnd)
+            return slowDouble();
+
+        var value = FastDoubleParser.toDouble(mantissa, exponent);
+        if (Double.isNaN(value))
+            return slowDouble();
+        return negative ? -value : value;
+    }
+
+    /***
+     * Parses the next field as an ISO-8601 (yyyy-MM-dd) date
+     *
+     * @return the date as a number of days since 1970-01-01, as LocalDate.toEpochDay()
+     */
+    public int nextEpochDay() {
+        nextField();
+        if (fieldEnd - fieldStart != 10 || buffer[fieldStart + 4] != '-' || buffer[fieldStart + 7] != '-')
+            throw error("invalid date");
+
+        var year = digits(fieldStart, 4);
+        var month = digits(fieldStart + 5, 2);
+        var day = digits(fieldStart + 8, 2);
+        if (month < 1 || month > 12 || day < 1 || day > daysInMonth(year, month))
+            throw error("invalid date");
+        return epochDay(year, month, day);
+    }
+
+    /***
+     * Converts a proleptic Gregorian date to an epoch day without going through LocalDate
+     */
+    static int epochDay(int year, int month, int day) {
+        // Shift the year to start in March so that the leap day is the last day of the year
+        var y = month <= 2 ? year - 1 : year;
+        var era = Math.floorDiv(y, 400);
+        var yearOfEra = y - era * 400;
+        var dayOfYear = (153 * (month + (month > 2 ? -3 : 9)) + 2) / 5 + day - 1;
+        var dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+        return era * 146097 + dayOfEra - 719468;
+    }
+
+    private static int daysInMonth(int year, int month) {
+        return switch (month) {
+            case 2 -> (year % 4 == 0 && (year % 100 != 0 || year % 400 == 0)) ? 29 : 28;
+            case 4, 6, 9, 11 -> 30;
+            default -> 31;
+        };
+    }
+
+    private int digits(int offset, int count) {
+        int value = 0;
+        for (int i = offset; i < offset + count; i++) {
+            if (!isDigit(buffer[i]))
+                throw error("invalid date");
+            value = value * 10 + (buffer[i] - '0');
+        }
+        return value;
+    }
+
+    private static boolean isDigit(byte b) {
+        return b >= '0' && b <= '9';
+    }
+
+    private double slowDouble() {
+        var text = new String(buffer, fieldStart, fieldEnd - fieldStart, StandardCharsets.ISO_8859_1);
+        try {
+            return Double.parseDouble(text);
+        } catch (NumberFormatException e) {
+            throw error("invalid number");
+        }
+    }
+
+    private void nextField() {
+        if (position > lineEnd)
+            throw error("missing field");
+
+        fieldStart = position;
+        var comma = indexOf(',', position, lineEnd);
+        fieldEnd = comma < 0 ? lineEnd : comma;
+        position = fieldEnd + 1;
+    }
+
+    private NumberFormatException error(String message) {
+        var field = new String(buffer, fieldStart, fieldEnd - fieldStart, StandardCharsets.ISO_8859_1);
+        return new NumberFormatException(message + " at line " + lineNumber + ": \"" + field + "\"");
+    }
+
+    private int indexOf(char c, int from) {
+        return indexOf(c, from, limit);
+    }
+
+    private int indexOf(char c, int from, int to) {
+        for (int i = from; i < to; i++) {
+            if (buffer[i] == c)
+                return i;
+        }
+        return -1;
+    }
+
+    /***
+     * Moves the unread bytes to the front of the buffer (growing it if a single line does not fit)
+     * and reads more data from the input stream
+     *
+     * @return false if the stream is exhausted
+     */
+    private boolean fill() {
+        var remaining = limit - nextLineStart;
+        if (nextLineStart > 0) {
+            System.arraycopy(buffer, nextLineStart, buffer, 0, remaining);
+            lineStart -= nextLineStart;
+            lineEnd -= nextLineStart;
+            limit = remaining;
+            nextLineStart = 0;
+        } else if (limit == buffer.length) {
+            ownBuffer = buffer = Arrays.copyOf(buffer, buffer.length * 2);
+        }
+
+        try {
+            var read = input.read(buffer, limit, buffer.length - limit);
+            if (read < 0) {
+                input = null;
+                return false;
+            }
+            limit += read;
+            bytesRead += read;
+            return true;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
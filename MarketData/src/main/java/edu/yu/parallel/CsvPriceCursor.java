@@ -0,0 +1,169 @@
+package edu.yu.parallel;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/***
+ * A PriceCursor that streams a market data CSV file through a small, fixed-size CsvCursor buffer.
+ *
+ * The CsvCursor, and for a gzip-compressed file the GzipStream with its Inflater and input buffer,
+ * are taken from a pool when the cursor is opened and given back when it is released, so opening
+ * one cursor after another allocates no new buffers (or native inflater memory). Up to POOL_SIZE
+ * idle sets are kept; any beyond that are freed.
+ */
+class CsvPriceCursor implements PriceCursor {
+    private static final int BUFFER_SIZE = 16 * 1024;
+    private static final int POOL_SIZE = 64;
+    private static final BlockingQueue<Buffers> pool = new ArrayBlockingQueue<>(POOL_SIZE);
+
+    private final String symbol;
+    private final InputStream input;
+    private Buffers buffers;
+    private CsvCursor csv;
+    private long bytesRead;
+    private int epochDay;
+    private double high;
+    private double low;
+    private double open;
+    private double close;
+    private double volume;
+    private double adjClose;
+
+    private CsvPriceCursor(String symbol, InputStream input, Buffers buffers) {
+        this.symbol = symbol;
+        this.input = input;
+        this.buffers = buffers;
+        this.csv = buffers.csv.reset(input);
+        csv.nextLine(); // header
+    }
+
+    /***
+     * Opens a cursor on the file, which is decompressed as it is read if it is a [symbol].csv.gz
+     * file
+     */
+    static CsvPriceCursor open(String symbol, Path file) throws IOException {
+        var buffers = pool.poll();
+        if (buffers == null)
+            buffers = new Buffers();
+
+        InputStream in = null;
+        try {
+            in = Files.newInputStream(file);
+            if (CsvPriceSource.isCompressed(file)) {
+                if (buffers.gzip == null)
+                    buffers.gzip = new GzipStream(BUFFER_SIZE);
+                in = buffers.gzip.reset(in);
+            }
+            return new CsvPriceCursor(symbol, in, buffers);
+        } catch (IOException | RuntimeException e) {
+            try {
+                if (in != null)
+                    in.close();
+            } finally {
+                recycle(buffers);
+            }
+            throw e;
+        }
+    }
+
+    @Override
+    public String symbol() {
+        return symbol;
+    }
+
+    @Override
+    public boolean next() {
+        if (!csv.nextLine())
+            return false;
+
+        epochDay = csv.nextEpochDay();
+        high = csv.nextDouble();
+        low = csv.nextDouble();
+        open = csv.nextDouble();
+        close = csv.nextDouble();
+        volume = csv.nextDouble();
+        adjClose = csv.nextDouble();
+        return true;
+    }
+
+    @Override
+    public int epochDay() {
+        return epochDay;
+    }
+
+    @Override
+    public double high() {
+        return high;
+    }
+
+    @Override
+    public double low() {
+        return low;
+    }
+
+    @Override
+    public double open() {
+        return open;
+    }
+
+    @Override
+    public double close() {
+        return close;
+    }
+
+    @Override
+    public double volume() {
+        return volume;
+    }
+
+    @Override
+    public double adjClose() {
+        return adjClose;
+    }
+
+    @Override
+    public long bytesRead() {
+        return csv != null ? csv.bytesRead() : bytesRead;
+    }
+
+    /***
+     * Closes the file and gives the buffers back to the pool. Releasing the cursor again does
+     * nothing.
+     */
+    @Override
+    public void release() {
+        if (buffers == null)
+            return;
+
+        bytesRead = csv.bytesRead();
+        var released = buffers;
+        buffers = null;
+        csv = null;
+        try {
+            input.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            recycle(released);
+        }
+    }
+
+    private static void recycle(Buffers buffers) {
+        if (!pool.offer(buffers) && buffers.gzip != null)
+            buffers.gzip.end();
+    }
+
+    /***
+     * The parts of a cursor that are reused from one file to the next
+     */
+    private static final class Buffers {
+        final CsvCursor csv = new CsvCursor(BUFFER_SIZE);
+        // Created the first time the buffers are used for a compressed file
+        GzipStream gzip;
+    }
+}
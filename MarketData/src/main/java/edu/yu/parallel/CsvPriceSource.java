@@ -0,0 +1,95 @@
+package edu.yu.parallel;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Optional;
+
+/***
+ * Reads each symbol directly from its CSV file in the data directory every time it is loaded.
+ *
+ * Files are loaded through a per-thread CsvCursor whose buffer is reused from one file to the
+ * next, and parsed straight into the primitive arrays of an ArrayPriceSeries. Cursors opened with
+ * open() stream their file instead, holding only a small buffer in memory; the buffers are pooled
+ * and reused by the cursors opened after one is released.
+ *
+ * A symbol's file may also be gzip-compressed ([symbol].csv.gz), which is read when there is no
+ * [symbol].csv. Loading decompresses the whole file with a per-thread GzipReader, whose buffers are
+ * reused like the cursor's, so files loaded by an IngestionPipeline are decompressed in parallel on
+ * its threads. A cursor decompresses its file as it streams it, through a GzipStream whose Inflater
+ * is pooled along with the cursor's buffers.
+ */
+public class CsvPriceSource implements PriceSource {
+    private static final String COMPRESSED = ".csv.gz";
+    private static final ThreadLocal<CsvCursor> cursors = ThreadLocal.withInitial(CsvCursor::new);
+    private static final ThreadLocal<GzipReader> gzipReaders = ThreadLocal.withInitial(GzipReader::new);
+
+    private final Path dataDirectory;
+
+    public CsvPriceSource(Path dataDirectory) {
+        this.dataDirectory = dataDirectory;
+    }
+
+    /***
+     * @return the symbol's data file: [symbol].csv, or [symbol].csv.gz if only that exists. The
+     * file may not exist.
+     */
+    static Path dataFile(Path dataDirectory, String symbol) {
+        var file = dataDirectory.resolve(symbol + ".csv");
+        if (Files.isRegularFile(file))
+            return file;
+        var compressed = dataDirectory.resolve(symbol + COMPRESSED);
+        return Files.isRegularFile(compressed) ? compressed : file;
+    }
+
+    static boolean isCompressed(Path file) {
+        return file.getFileName().toString().endsWith(COMPRESSED);
+    }
+
+    @Override
+    public boolean hasData(String symbol) {
+        return Files.isRegularFile(dataFile(dataDirectory, symbol));
+    }
+
+    @Override
+    public Optional<PriceCursor> open(String symbol) {
+        var file = dataFile(dataDirectory, symbol);
+        if (!Files.isRegularFile(file))
+            return Optional.empty();
+
+        try {
+            return Optional.of(CsvPriceCursor.open(symbol, file));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public Optional<PriceSeries> load(String symbol) {
+        var file = dataFile(dataDirectory, symbol);
+        if (!Files.isRegularFile(file))
+            return Optional.empty();
+
+        try {
+            if (isCompressed(file)) {
+                var gzip = gzipReaders.get();
+                var length = gzip.read(file);
+                return Optional.of(parse(symbol, cursors.get().reset(gzip.buffer(), 0, length)));
+            }
+            try (var in = Files.newInputStream(file)) {
+                return Optional.of(parse(symbol, cursors.get().reset(in)));
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static PriceSeries parse(String symbol, CsvCursor cursor) {
+        cursor.nextLine(); // header
+        var series = ArrayPriceSeries.builder(symbol);
+        while (cursor.nextLine())
+            series.add(cursor);
+        return series.build();
+    }
+}
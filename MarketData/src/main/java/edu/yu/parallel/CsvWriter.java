@@ -0,0 +1,319 @@
+package edu.yu.parallel;
+
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+
+/***
+ * A buffered CSV writer that formats fields straight into a reusable byte buffer, the writing
+ * counterpart of CsvCursor.
+ *
+ * Fields are separated by commas as they are added, and lines end with "\n". The buffer is
+ * written to the output stream in large chunks when it fills up and on flush(). Integers, dates
+ * and most doubles are formatted without allocating.
+ *
+ * Doubles are written as String.format("%.6f", value) does (with the ROOT locale): Formatter rounds
+ * the digits of Double.toString() half-up. When the exact binary value is not close to a rounding
+ * boundary, that is the same as rounding the exact value, which is done here with integer
+ * arithmetic. Values too close to a boundary to tell (ties, or values whose ulp approaches the
+ * requested precision, e.g. |value| > 2^31 at 6 decimals) are rounded from the Double.toString()
+ * digits instead. A writer is not thread-safe.
+ */
+public final class CsvWriter implements Flushable {
+    private static final int DEFAULT_BUFFER_SIZE = 64 * 1024;
+    private static final int MAX_DECIMALS = 9;
+    private static final long[] POWERS_OF_TEN = {
+            1L, 10L, 100L, 1_000L, 10_000L, 100_000L, 1_000_000L, 10_000_000L, 100_000_000L, 1_000_000_000L
+    };
+    // The longest field that the numeric writers produce: a sign, 20 integer digits, a point and
+    // the decimals, or a Double.toString() value padded out to the decimals
+    private static final int MAX_NUMBER_LENGTH = 360;
+
+    private final OutputStream output;
+    private final byte[] buffer;
+    private final byte[] digits = new byte[32];
+    private int position;
+    private boolean lineStart = true;
+
+    public CsvWriter(OutputStream output) {
+        this(output, DEFAULT_BUFFER_SIZE);
+    }
+
+    public CsvWriter(OutputStream output, int bufferSize) {
+        this.output = output;
+        this.buffer = new byte[Math.max(bufferSize, MAX_NUMBER_LENGTH + 1)];
+    }
+
+    public CsvWriter field(String value) {
+        separator();
+        for (int i = 0; i < value.length(); i++) {
+            var c = value.charAt(i);
+            if (c >= 0x80) {
+                writeBytes(value.substring(i).getBytes(StandardCharsets.UTF_8));
+                return this;
+            }
+            if (position == buffer.length)
+                drain();
+            buffer[position++] = (byte) c;
+        }
+        return this;
+    }
+
+    public CsvWriter field(long value) {
+        separator();
+        ensure(MAX_NUMBER_LENGTH);
+        if (value < 0) {
+            buffer[position++] = '-';
+            if (value == Long.MIN_VALUE) {
+                writeAscii("9223372036854775808");
+                return this;
+            }
+            value = -value;
+        }
+        writeDigits(value, 1);
+        return this;
+    }
+
+    /***
+     * Writes a date as an ISO-8601 (yyyy-MM-dd) field, as LocalDate.toString()
+     *
+     * @param epochDay the number of days since 1970-01-01
+     */
+    public CsvWriter dateField(int epochDay) {
+        separator();
+        // Hinnant's civil_from_days, with years starting in March
+        var z = epochDay + 719468L;
+        var era = Math.floorDiv(z, 146097);
+        var dayOfEra = z - era * 146097;
+        var yearOfEra = (dayOfEra - dayOfEra / 1460 + dayOfEra / 36524 - dayOfEra / 146096) / 365;
+        var dayOfYear = dayOfEra - (365 * yearOfEra + yearOfEra / 4 - yearOfEra / 100);
+        var shiftedMonth = (5 * dayOfYear + 2) / 153;
+        var day = dayOfYear - (153 * shiftedMonth + 2) / 5 + 1;
+        var month = shiftedMonth < 10 ? shiftedMonth + 3 : shiftedMonth - 9;
+        var year = yearOfEra + era * 400 + (month <= 2 ? 1 : 0);
+
+        ensure(MAX_NUMBER_LENGTH);
+        if (year < 0 || year > 9999) {
+            writeAscii(LocalDate.ofEpochDay(epochDay).toString());
+            return this;
+        }
+        writeDigits(year, 4);
+        buffer[position++] = '-';
+        writeDigits(month, 2);
+        buffer[position++] = '-';
+        writeDigits(day, 2);
+        return this;
+    }
+
+    /***
+     * Writes a double with a fixed number of decimals, exactly as String.format("%.<decimals>f")
+     * in the ROOT locale
+     *
+     * @param decimals the number of digits after the decimal point, 0 to 9
+     */
+    public CsvWriter field(double value, int decimals) {
+        if (decimals < 0 || decimals > MAX_DECIMALS)
+            throw new IllegalArgumentException("decimals must be between 0 and " + MAX_DECIMALS + ": " + decimals);
+
+        separator();
+        ensure(MAX_NUMBER_LENGTH);
+        if (Double.isNaN(value)) {
+            writeAscii("NaN");
+            return this;
+        }
+        // Formatter writes the sign of negative values that round to 0, and of -0.0
+        var bits = Double.doubleToRawLongBits(value);
+        if (bits < 0)
+            buffer[position++] = '-';
+        if (Double.isInfinite(value)) {
+            writeAscii("Infinity");
+            return this;
+        }
+        if (!writeExact(bits & Long.MAX_VALUE, decimals))
+            writeFromDigits(Double.toString(Math.abs(value)), decimals);
+        return this;
+    }
+
+    /***
+     * Ends the current line
+     */
+    public CsvWriter endLine() {
+        if (position == buffer.length)
+            drain();
+        buffer[position++] = '\n';
+        lineStart = true;
+        return this;
+    }
+
+    /***
+     * Writes the buffered bytes and flushes the output stream, which is left open
+     */
+    @Override
+    public void flush() {
+        drain();
+        try {
+            output.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /***
+     * Rounds the exact value of a positive double (given as its bits) to the decimals, if the
+     * result cannot differ from rounding its Double.toString() digits
+     *
+     * @return false if the value has to be formatted from its digits
+     */
+    private boolean writeExact(long bits, int decimals) {
+        var biasedExponent = (int) (bits >>> 52);
+        if (biasedExponent == 0)
+            return false;
+
+        // value = significand * 2^exponent; scaled = value * 10^decimals, as a 128-bit fixed point
+        // number with `shift` fraction bits
+        var significand = (bits & 0xFFFFFFFFFFFFFL) | (1L << 52);
+        var shift = 1075 - biasedExponent;
+        if (shift < 1 || shift > 63)
+            return false;
+        var scale = POWERS_OF_TEN[decimals];
+        var high = Math.multiplyHigh(significand, scale);
+        var low = significand * scale;
+        if ((high >>> (shift - 1)) != 0)
+            return false;
+
+        var integer = (high << (64 - shift)) | (low >>> shift);
+        var fraction = low & ((1L << shift) - 1);
+        var half = 1L << (shift - 1);
+
+        // The Double.toString() digits are within half an ulp of the value; an ulp is `scale`
+        // units of the fraction. Keep a full ulp clear of the boundary.
+        if (Math.abs(fraction - half) <= scale)
+            return false;
+        if (fraction > half)
+            integer++;
+
+        writeDigits(integer / scale, 1);
+        if (decimals > 0) {
+            buffer[position++] = '.';
+            writeDigits(integer % scale, decimals);
+        }
+        return true;
+    }
+
+    /***
+     * Rounds the digits of a Double.toString() value half-up to the decimals, as Formatter does
+     */
+    private void writeFromDigits(String text, int decimals) {
+        // Collect the significant digits, and the position of the decimal point relative to them
+        var exponentAt = text.indexOf('E');
+        var mantissaEnd = exponentAt < 0 ? text.length() : exponentAt;
+        var count = 0;
+        var pointAt = 0;
+        var afterPoint = false;
+        for (int i = 0; i < mantissaEnd; i++) {
+            var c = text.charAt(i);
+            if (c == '.') {
+                afterPoint = true;
+            } else if (count > 0 || c != '0') {
+                digits[count++] = (byte) c;
+                if (!afterPoint)
+                    pointAt++;
+            } else if (afterPoint) {
+                pointAt--;
+            }
+        }
+        if (exponentAt >= 0)
+            pointAt += Integer.parseInt(text, exponentAt + 1, text.length(), 10);
+
+        // Keep the digits up to the last decimal, and round half-up on the first one dropped
+        var keep = pointAt + decimals;
+        if (keep < 0 || count == 0) {
+            count = 0;
+        } else if (keep < count) {
+            var roundUp = digits[keep] >= '5';
+            count = keep;
+            for (int i = count - 1; roundUp && i >= 0; i--) {
+                roundUp = digits[i] == '9';
+                digits[i] = roundUp ? (byte) '0' : (byte) (digits[i] + 1);
+            }
+            if (roundUp) {
+                System.arraycopy(digits, 0, digits, 1, count);
+                digits[0] = '1';
+                count++;
+                pointAt++;
+            }
+        }
+
+        if (pointAt <= 0) {
+            buffer[position++] = '0';
+        } else {
+            for (int i = 0; i < pointAt; i++)
+                buffer[position++] = i < count ? digits[i] : (byte) '0';
+        }
+        if (decimals > 0) {
+            buffer[position++] = '.';
+            for (int i = pointAt; i < pointAt + decimals; i++)
+                buffer[position++] = i >= 0 && i < count ? digits[i] : (byte) '0';
+        }
+    }
+
+    /***
+     * Writes a non-negative value in decimal, zero-padded to at least minDigits
+     */
+    private void writeDigits(long value, int minDigits) {
+        var count = 0;
+        do {
+            digits[count++] = (byte) ('0' + value % 10);
+            value /= 10;
+        } while (value != 0);
+        while (count < minDigits)
+            digits[count++] = '0';
+        while (count > 0)
+            buffer[position++] = digits[--count];
+    }
+
+    private void writeAscii(String value) {
+        for (int i = 0; i < value.length(); i++)
+            buffer[position++] = (byte) value.charAt(i);
+    }
+
+    private void writeBytes(byte[] bytes) {
+        for (int offset = 0; offset < bytes.length; ) {
+            if (position == buffer.length)
+                drain();
+            var length = Math.min(bytes.length - offset, buffer.length - position);
+            System.arraycopy(bytes, offset, buffer, position, length);
+            position += length;
+            offset += length;
+        }
+    }
+
+    private void separator() {
+        if (lineStart) {
+            lineStart = false;
+            return;
+        }
+        if (position == buffer.length)
+            drain();
+        buffer[position++] = ',';
+    }
+
+    private void ensure(int length) {
+        if (buffer.length - position < length)
+            drain();
+    }
+
+    private void drain() {
+        if (position == 0)
+            return;
+        try {
+            output.write(buffer, 0, position);
+            position = 0;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,132 @@
+package edu.yu.parallel;
+
+import java.util.List;
+
+/***
+ * Merges several date-ordered PriceCursors into a single stream of rows ordered by date, and by
+ * cursor index within a date.
+ *
+ * The merge keeps a binary min-heap of cursors keyed on the epoch day of each cursor's current row,
+ * so it holds one row per input at any time however long the inputs are. Heap entries are packed
+ * as (epoch day << 32 | cursor index) longs, so ordering by date and then index is a single
+ * comparison. All rows for a date are returned before any row of a later date; once a row for a
+ * later date is returned, every input has moved past the earlier date.
+ *
+ * e.g.
+ *   int i;
+ *   while ((i = merge.next()) >= 0)
+ *       process(merge.cursor(i));
+ */
+public class CursorMerge implements AutoCloseable {
+    private final PriceCursor[] cursors;
+    private final long[] heap;
+    private int size;
+    private boolean pending;
+
+    /***
+     * @param cursors the inputs; each must be in ascending date order. The merge takes ownership of
+     *                the cursors and releases them when it is closed, or at once if it cannot read
+     *                their first rows.
+     */
+    public CursorMerge(List<PriceCursor> cursors) {
+        this.cursors = cursors.toArray(new PriceCursor[0]);
+        this.heap = new long[this.cursors.length];
+
+        try {
+            for (int i = 0; i < this.cursors.length; i++) {
+                if (this.cursors[i].next())
+                    heap[size++] = entry(this.cursors[i].epochDay(), i);
+            }
+        } catch (RuntimeException e) {
+            try {
+                close();
+            } catch (RuntimeException release) {
+                e.addSuppressed(release);
+            }
+            throw e;
+        }
+        for (int i = size / 2 - 1; i >= 0; i--)
+            siftDown(i);
+    }
+
+    public PriceCursor cursor(int index) {
+        return cursors[index];
+    }
+
+    public int size() {
+        return cursors.length;
+    }
+
+    /***
+     * @return the number of inputs that have not been exhausted yet, counting the input of the
+     * current row
+     */
+    public int remaining() {
+        return size;
+    }
+
+    /***
+     * Moves to the next row. The row returned by the previous call is no longer valid.
+     *
+     * @return the index of the cursor positioned on the next row, or -1 if all inputs are exhausted
+     * @throws IllegalStateException if an input is not in ascending date order
+     */
+    public int next() {
+        if (pending) {
+            var top = heap[0];
+            var index = (int) top;
+            var cursor = cursors[index];
+            if (cursor.next()) {
+                var day = cursor.epochDay();
+                if (day <= (int) (top >> 32))
+                    throw new IllegalStateException("Market data for " + cursor.symbol()
+                            + " is not in ascending date order at epoch day " + day);
+                heap[0] = entry(day, index);
+            } else {
+                heap[0] = heap[--size];
+            }
+            siftDown(0);
+        }
+
+        pending = size > 0;
+        return pending ? (int) heap[0] : -1;
+    }
+
+    private static long entry(int epochDay, int index) {
+        return ((long) epochDay << 32) | index;
+    }
+
+    private void siftDown(int position) {
+        if (size == 0)
+            return;
+
+        var entry = heap[position];
+        while (true) {
+            var child = 2 * position + 1;
+            if (child >= size)
+                break;
+            if (child + 1 < size && heap[child + 1] < heap[child])
+                child++;
+            if (heap[child] >= entry)
+                break;
+            heap[position] = heap[child];
+            position = child;
+        }
+        heap[position] = entry;
+    }
+
+    @Override
+    public void close() {
+        RuntimeException failure = null;
+        for (var cursor : cursors) {
+            try {
+                cursor.release();
+            } catch (RuntimeException e) {
+                if (failure == null)
+                    failure = e;
+            }
+        }
+        if (failure != null)
+            throw failure;
+    }
+}
@@ -0,0 +1,175 @@
+package edu.yu.parallel;
+
+import java.math.BigInteger;
+
+/***
+ * A sum of doubles, and of products of doubles, that is exact until it is read and then rounded
+ * once to the nearest double.
+ *
+ * Every finite double is an integer times a power of two, and so is the product of two of them
+ * (the mantissas' 106-bit product, computed with Math.multiplyHigh()). The sum keeps a fixed-point
+ * integer wide enough for all of them, in 32-bit digits held in longs, and adds each value into the
+ * three to five digits it covers: a few integer operations with no data-dependent branches, and no
+ * rounding at all. So the result depends neither on the order in which values are added nor on how
+ * the additions were divided between threads: sums of the parts, combined with add(ExactSum) in
+ * any order, read the same as one sequential sum, and that is the correctly rounded sum, as
+ * accurate as a double can be.
+ *
+ * Infinite and NaN values make the sum infinite or NaN as they would a naive sum; a finite sum
+ * beyond Double.MAX_VALUE reads as infinite, and one in the subnormal range may be rounded twice.
+ * Not thread-safe: each thread sums into its own ExactSum.
+ */
+public final class ExactSum {
+    private static final int DIGIT_BITS = 32;
+    private static final long DIGIT_MASK = (1L << DIGIT_BITS) - 1;
+    // The weight of the lowest bit: that of the lowest bit of the product of two subnormals
+    private static final int MIN_EXPONENT = 2 * -1074;
+    // Enough digits for the largest product, and for carries out of the top
+    private static final int DIGITS = (2 * 1024 - MIN_EXPONENT) / DIGIT_BITS + 2;
+    // Each add puts less than 2^33 into a digit, so digits cannot overflow between normalizations
+    private static final int NORMALIZE_INTERVAL = 1 << 28;
+
+    private final long[] digits = new long[DIGITS];
+    private int lowest = DIGITS;
+    private int highest = -1;
+    private int adds;
+    private double nonFinite;
+
+    public ExactSum add(double value) {
+        var bits = Double.doubleToRawLongBits(value);
+        var exponent = (int) (bits >>> 52) & 0x7ff;
+        if (exponent == 0x7ff) {
+            nonFinite += value;
+            return this;
+        }
+
+        var mantissa = bits & ((1L << 52) - 1);
+        if (exponent == 0)
+            exponent = 1;
+        else
+            mantissa |= 1L << 52;
+        if (mantissa != 0)
+            deposit(bits < 0, 0, mantissa, exponent - 1075 - MIN_EXPONENT);
+        return this;
+    }
+
+    /***
+     * Adds the exact product a * b
+     */
+    public ExactSum addProduct(double a, double b) {
+        var aBits = Double.doubleToRawLongBits(a);
+        var bBits = Double.doubleToRawLongBits(b);
+        var aExponent = (int) (aBits >>> 52) & 0x7ff;
+        var bExponent = (int) (bBits >>> 52) & 0x7ff;
+        if (aExponent == 0x7ff || bExponent == 0x7ff) {
+            nonFinite += a * b;
+            return this;
+        }
+
+        var aMantissa = aBits & ((1L << 52) - 1);
+        var bMantissa = bBits & ((1L << 52) - 1);
+        if (aExponent == 0)
+            aExponent = 1;
+        else
+            aMantissa |= 1L << 52;
+        if (bExponent == 0)
+            bExponent = 1;
+        else
+            bMantissa |= 1L << 52;
+        if (aMantissa != 0 && bMantissa != 0) {
+            deposit((aBits ^ bBits) < 0, Math.multiplyHigh(aMantissa, bMantissa), aMantissa * bMantissa,
+                    aExponent - 1075 + bExponent - 1075 - MIN_EXPONENT);
+        }
+        return this;
+    }
+
+    /***
+     * Adds the exact value of another sum, e.g. one computed by another thread
+     */
+    public ExactSum add(ExactSum other) {
+        // Normalized digits are below 2^32 (but for the highest), so they add without overflowing
+        other.normalize();
+        normalize();
+        for (int i = other.lowest; i <= other.highest; i++)
+            digits[i] += other.digits[i];
+        lowest = Math.min(lowest, other.lowest);
+        highest = Math.max(highest, other.highest);
+        nonFinite += other.nonFinite;
+        normalize();
+        return this;
+    }
+
+    /***
+     * @return the sum of everything added, rounded to the nearest double (ties to even)
+     */
+    public double sum() {
+        if (nonFinite != 0 || Double.isNaN(nonFinite))
+            return nonFinite;
+        if (highest < 0)
+            return 0.0;
+
+        var value = BigInteger.ZERO;
+        for (int i = highest; i >= lowest; i--)
+            value = value.shiftLeft(DIGIT_BITS).add(BigInteger.valueOf(digits[i]));
+        var scale = lowest * DIGIT_BITS + MIN_EXPONENT;
+        if (value.signum() == 0)
+            return 0.0;
+
+        // Keep 53 bits, a rounding bit and a sticky bit that is set if any bit below them is,
+        // so that converting the long to a double rounds exactly as the whole integer would
+        var magnitude = value.abs();
+        var excess = magnitude.bitLength() - 55;
+        long kept;
+        if (excess > 0) {
+            kept = magnitude.shiftRight(excess).longValue();
+            if (magnitude.getLowestSetBit() < excess)
+                kept |= 1;
+            scale += excess;
+        } else {
+            kept = magnitude.longValue();
+        }
+        var result = Math.scalb((double) kept, scale);
+        return value.signum() < 0 ? -result : result;
+    }
+
+    public void reset() {
+        for (int i = lowest; i <= highest; i++)
+            digits[i] = 0;
+        lowest = DIGITS;
+        highest = -1;
+        adds = 0;
+        nonFinite = 0;
+    }
+
+    /***
+     * Adds (or subtracts) the 128-bit integer high:low times 2^position
+     */
+    private void deposit(boolean negative, long high, long low, int position) {
+        var digit = position / DIGIT_BITS;
+        var shift = position % DIGIT_BITS;
+        var sign = negative ? -1L : 1L;
+        var pieces = high == 0 ? 2 : 4;
+        for (int i = 0; i < pieces; i++) {
+            var piece = (i < 2 ? low >>> (i * DIGIT_BITS) : high >>> ((i - 2) * DIGIT_BITS)) & DIGIT_MASK;
+            var shifted = piece << shift;
+            digits[digit + i] += sign * (shifted & DIGIT_MASK);
+            digits[digit + i + 1] += sign * (shifted >>> DIGIT_BITS);
+        }
+        lowest = Math.min(lowest, digit);
+        highest = Math.max(highest, digit + pieces);
+        if (++adds == NORMALIZE_INTERVAL)
+            normalize();
+    }
+
+    /***
+     * Propagates the carries between digits, leaving every digit but the highest in [0, 2^32)
+     */
+    private void normalize() {
+        adds = 0;
+        for (int i = lowest; i < highest; i++) {
+            var carry = digits[i] >> DIGIT_BITS;
+            digits[i] -= carry << DIGIT_BITS;
+            digits[i + 1] += carry;
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package edu.yu.parallel;
+
+/***
+ * The WeightedSumKernel whose sums are exact until they are stored, and then correctly rounded (see
+ * ExactSum): the sums of a call depend neither on the order of its rows nor on the platform, and
+ * are at least as accurate as those of any order of naive adds
+ */
+final class ExactWeightedSum implements WeightedSumKernel {
+    static final ExactWeightedSum INSTANCE = new ExactWeightedSum();
+    private static final int FIELDS = 6;
+
+    private final ThreadLocal<ExactSum[]> accumulators = ThreadLocal.withInitial(() -> {
+        var sums = new ExactSum[FIELDS];
+        for (int f = 0; f < FIELDS; f++)
+            sums[f] = new ExactSum();
+        return sums;
+    });
+
+    private ExactWeightedSum() {
+    }
+
+    @Override
+    public void accumulate(double[] weights, double[] rows, int count, double[] sums) {
+        var accumulators = this.accumulators.get();
+        for (int f = 0; f < FIELDS; f++) {
+            var sum = accumulators[f];
+            sum.reset();
+            sum.add(sums[f]);
+            for (int k = 0, offset = f; k < count; k++, offset += STRIDE)
+                sum.addProduct(weights[k], rows[offset]);
+            sums[f] = sum.sum();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "exact";
+    }
+}
@@ -0,0 +1,119 @@
+package edu.yu.parallel;
+
+import java.math.BigInteger;
+
+/***
+ * Converts a decimal significand and exponent (w * 10^q) to the nearest double using only
+ * primitive arithmetic.
+ *
+ * Small values take Clinger's fast path (both w and 10^q are exact doubles, so one multiply or
+ * divide rounds correctly). Everything else uses the Eisel-Lemire algorithm: w is multiplied by a
+ * 128-bit truncated approximation of 10^q and the result is accepted only when the truncation
+ * provably cannot change the rounding. The rare inputs where it can are reported as NaN, so that
+ * the caller falls back to Double.parseDouble().
+ */
+final class FastDoubleParser {
+    private static final int MIN_EXPONENT = -342;
+    private static final int MAX_EXPONENT = 308;
+    private static final double[] EXACT_POWERS_OF_TEN = {
+            1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+            1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+
+    // The 128-bit significand of 10^q, normalized so that the top bit is set; truncated for q >= 0
+    // and rounded up for q < 0
+    private static final long[] POWER_HIGH = new long[MAX_EXPONENT - MIN_EXPONENT + 1];
+    private static final long[] POWER_LOW = new long[MAX_EXPONENT - MIN_EXPONENT + 1];
+
+    static {
+        var twoTo128 = BigInteger.ONE.shiftLeft(128);
+        var mask = BigInteger.ONE.shiftLeft(64).subtract(BigInteger.ONE);
+        for (int q = MIN_EXPONENT; q <= MAX_EXPONENT; q++) {
+            BigInteger significand;
+            if (q >= 0) {
+                significand = BigInteger.valueOf(5).pow(q);
+                while (significand.compareTo(twoTo128.shiftRight(1)) < 0)
+                    significand = significand.shiftLeft(1);
+                while (significand.compareTo(twoTo128) >= 0)
+                    significand = significand.shiftRight(1);
+            } else {
+                var power = BigInteger.valueOf(5).pow(-q);
+                var bits = power.bitLength();
+                var shift = q >= -27 ? bits + 127 : 2 * bits + 128;
+                significand = BigInteger.ONE.shiftLeft(shift).divide(power).add(BigInteger.ONE);
+                while (significand.compareTo(twoTo128) >= 0)
+                    significand = significand.shiftRight(1);
+            }
+            POWER_HIGH[q - MIN_EXPONENT] = significand.shiftRight(64).longValue();
+            POWER_LOW[q - MIN_EXPONENT] = significand.and(mask).longValue();
+        }
+    }
+
+    private FastDoubleParser() {
+    }
+
+    /***
+     * @param mantissa the decimal significand, as an unsigned long
+     * @param exponent the power of ten to scale the significand by
+     * @return the correctly rounded, non-negative value of mantissa * 10^exponent, or NaN if it
+     * cannot be determined here
+     */
+    static double toDouble(long mantissa, int exponent) {
+        if (mantissa == 0)
+            return 0.0;
+        if (mantissa > 0 && mantissa <= (1L << 53) && Math.abs(exponent) <= 22) {
+            return exponent >= 0
+                    ? mantissa * EXACT_POWERS_OF_TEN[exponent]
+                    : mantissa / EXACT_POWERS_OF_TEN[-exponent];
+        }
+        if (exponent < MIN_EXPONENT || exponent > MAX_EXPONENT)
+            return Double.NaN;
+
+        var leadingZeros = Long.numberOfLeadingZeros(mantissa);
+        mantissa <<= leadingZeros;
+        long exponent2 = ((217706L * exponent) >> 16) + 64 + 1023 - leadingZeros;
+
+        var index = exponent - MIN_EXPONENT;
+        var high = unsignedMultiplyHigh(mantissa, POWER_HIGH[index]);
+        var low = mantissa * POWER_HIGH[index];
+
+        // If the top 55 bits of the product might still change, widen to the full 192-bit product
+        if ((high & 0x1FF) == 0x1FF && Long.compareUnsigned(low + mantissa, mantissa) < 0) {
+            var secondHigh = unsignedMultiplyHigh(mantissa, POWER_LOW[index]);
+            var secondLow = mantissa * POWER_LOW[index];
+            var mergedHigh = high;
+            var mergedLow = low + secondHigh;
+            if (Long.compareUnsigned(mergedLow, low) < 0)
+                mergedHigh++;
+            if ((mergedHigh & 0x1FF) == 0x1FF && mergedLow + 1 == 0
+                    && Long.compareUnsigned(secondLow + mantissa, mantissa) < 0)
+                return Double.NaN;
+            high = mergedHigh;
+            low = mergedLow;
+        }
+
+        var msb = high >>> 63;
+        var significand = high >>> (msb + 9);
+        exponent2 -= 1 ^ msb;
+
+        // Exactly half-way between two doubles
+        if (low == 0 && (high & 0x1FF) == 0 && (significand & 3) == 1)
+            return Double.NaN;
+
+        significand += significand & 1;
+        significand >>>= 1;
+        if ((significand >>> 53) > 0) {
+            significand >>>= 1;
+            exponent2++;
+        }
+        // Subnormal, infinite or NaN results are left to Double.parseDouble()
+        if (exponent2 <= 0 || exponent2 >= 0x7FF)
+            return Double.NaN;
+
+        return Double.longBitsToDouble((exponent2 << 52) | (significand & 0x000FFFFFFFFFFFFFL));
+    }
+
+    private static long unsignedMultiplyHigh(long x, long y) {
+        return Math.multiplyHigh(x, y) + ((x >> 63) & y) + ((y >> 63) & x);
+    }
+}
@@ -0,0 +1,154 @@
+package edu.yu.parallel;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+import java.util.zip.ZipException;
+
+/***
+ * Decompresses whole gzip files into a buffer that is reused from one file to the next.
+ *
+ * Unlike a GZIPInputStream per file, the Inflater (and the native memory behind it), the buffer
+ * holding the compressed file and the buffer it is decompressed into are all kept, so once the
+ * buffers have grown to fit the largest file, decompressing a file allocates nothing. Files made of
+ * several concatenated gzip members are read in full, as gunzip does, and every member's CRC and
+ * length are checked.
+ *
+ * A reader is not thread-safe; use one per thread.
+ */
+final class GzipReader {
+    private static final int FHCRC = 2;
+    private static final int FEXTRA = 4;
+    private static final int FNAME = 8;
+    private static final int FCOMMENT = 16;
+
+    private final Inflater inflater = new Inflater(true);
+    private final CRC32 crc = new CRC32();
+    private byte[] input = new byte[64 * 1024];
+    private byte[] output = new byte[256 * 1024];
+
+    /***
+     * Decompresses the file into buffer()
+     *
+     * @return the number of bytes decompressed, which are in buffer()[0, length) until the next read
+     * @throws ZipException if the file is not valid gzip data
+     */
+    int read(Path file) throws IOException {
+        var length = readFully(file);
+        var position = 0;
+        var total = 0;
+        do {
+            position = header(length, position);
+            var member = inflate(position, length, total);
+            position = length - inflater.getRemaining();
+            if (length - position < 8)
+                throw new EOFException("Unexpected end of gzip data: " + file);
+
+            crc.reset();
+            crc.update(output, total, member);
+            if (intAt(position) != (int) crc.getValue())
+                throw new ZipException("Corrupt gzip data (CRC mismatch): " + file);
+            if (intAt(position + 4) != member)
+                throw new ZipException("Corrupt gzip data (length mismatch): " + file);
+            position += 8;
+            total += member;
+        } while (position < length);
+        return total;
+    }
+
+    /***
+     * @return the buffer holding the data decompressed by the last read
+     */
+    byte[] buffer() {
+        return output;
+    }
+
+    private int readFully(Path file) throws IOException {
+        try (var channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            var size = channel.size();
+            if (size > Integer.MAX_VALUE - 8)
+                throw new IOException("File too large: " + file);
+            if (input.length < size)
+                input = new byte[(int) size];
+
+            var buffer = ByteBuffer.wrap(input, 0, (int) size);
+            while (buffer.hasRemaining() && channel.read(buffer) >= 0) {
+                // keep reading
+            }
+            return buffer.position();
+        }
+    }
+
+    /***
+     * Inflates one member, starting at input[position], to output[offset...]
+     *
+     * @return the number of bytes inflated
+     */
+    private int inflate(int position, int length, int offset) throws IOException {
+        inflater.reset();
+        inflater.setInput(input, position, length - position);
+        var end = offset;
+        try {
+            while (!inflater.finished()) {
+                if (end == output.length)
+                    output = Arrays.copyOf(output, output.length * 2);
+                var count = inflater.inflate(output, end, output.length - end);
+                if (count == 0 && (inflater.needsInput() || inflater.needsDictionary()))
+                    throw new EOFException("Unexpected end of gzip data");
+                end += count;
+            }
+        } catch (DataFormatException e) {
+            throw new ZipException("Corrupt gzip data: " + e.getMessage());
+        }
+        return end - offset;
+    }
+
+    /***
+     * Skips the member header at input[position]
+     *
+     * @return the position of the compressed data
+     */
+    private int header(int length, int position) throws IOException {
+        if (length - position < 10 || (input[position] & 0xff) != 0x1f || (input[position + 1] & 0xff) != 0x8b)
+            throw new ZipException("Not in gzip format");
+        if (input[position + 2] != 8)
+            throw new ZipException("Unsupported gzip compression method: " + input[position + 2]);
+
+        var flags = input[position + 3];
+        position += 10;
+        if ((flags & FEXTRA) != 0) {
+            if (length - position < 2)
+                throw new EOFException("Unexpected end of gzip data");
+            position += 2 + ((input[position] & 0xff) | (input[position + 1] & 0xff) << 8);
+        }
+        if ((flags & FNAME) != 0)
+            position = skipString(position, length);
+        if ((flags & FCOMMENT) != 0)
+            position = skipString(position, length);
+        if ((flags & FHCRC) != 0)
+            position += 2;
+        if (position >= length)
+            throw new EOFException("Unexpected end of gzip data");
+        return position;
+    }
+
+    private int skipString(int position, int length) throws EOFException {
+        while (position < length && input[position] != 0)
+            position++;
+        if (position == length)
+            throw new EOFException("Unexpected end of gzip data");
+        return position + 1;
+    }
+
+    private int intAt(int position) {
+        return (input[position] & 0xff) | (input[position + 1] & 0xff) << 8
+                | (input[position + 2] & 0xff) << 16 | (input[position + 3] & 0xff) << 24;
+    }
+}
@@ -0,0 +1,183 @@
+package edu.yu.parallel;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+import java.util.zip.ZipException;
+
+/***
+ * Decompresses a gzip stream as it is read, like a GZIPInputStream, but keeps its Inflater (and the
+ * native memory behind it) and its input buffer when it is reset to the next file.
+ *
+ * Streams made of several concatenated gzip members are read in full, and every member's CRC and
+ * length are checked, as GzipReader does. close() closes the underlying stream only; end() frees the
+ * Inflater once the stream is no longer needed.
+ *
+ * A stream is not thread-safe.
+ */
+final class GzipStream extends InputStream {
+    private static final int FHCRC = 2;
+    private static final int FEXTRA = 4;
+    private static final int FNAME = 8;
+    private static final int FCOMMENT = 16;
+
+    private final Inflater inflater = new Inflater(true);
+    private final CRC32 crc = new CRC32();
+    private final byte[] input;
+    private final byte[] single = new byte[1];
+    private InputStream in;
+    private int position;
+    private int limit;
+    private boolean finished;
+
+    GzipStream(int bufferSize) {
+        this.input = new byte[bufferSize];
+    }
+
+    /***
+     * Starts decompressing the stream, reading its first member header. The stream is closed by
+     * close().
+     *
+     * @throws ZipException if the stream does not start with a gzip header
+     */
+    GzipStream reset(InputStream in) throws IOException {
+        this.in = in;
+        this.position = this.limit = 0;
+        this.finished = false;
+        var first = readByte();
+        if (first < 0)
+            throw new EOFException("Unexpected end of gzip data");
+        header(first);
+        return this;
+    }
+
+    @Override
+    public int read() throws IOException {
+        return read(single, 0, 1) < 0 ? -1 : single[0] & 0xff;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (in == null)
+            throw new IOException("Stream closed");
+        if (len == 0)
+            return 0;
+
+        while (!finished) {
+            try {
+                var count = inflater.inflate(b, off, len);
+                if (count > 0) {
+                    crc.update(b, off, count);
+                    return count;
+                }
+            } catch (DataFormatException e) {
+                throw new ZipException("Corrupt gzip data: " + e.getMessage());
+            }
+
+            if (inflater.finished()) {
+                position = limit - inflater.getRemaining();
+                trailer();
+                var next = readByte();
+                if (next < 0)
+                    finished = true;
+                else
+                    header(next);
+            } else if (inflater.needsDictionary() || !fill()) {
+                throw new EOFException("Unexpected end of gzip data");
+            } else {
+                inflater.setInput(input, 0, limit);
+            }
+        }
+        return -1;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (in != null) {
+            var closing = in;
+            in = null;
+            closing.close();
+        }
+    }
+
+    /***
+     * Frees the Inflater; the stream cannot be reset after this
+     */
+    void end() {
+        inflater.end();
+    }
+
+    /***
+     * Reads the rest of a member header whose first byte has been read, and prepares the Inflater
+     * for the member's compressed data
+     */
+    private void header(int first) throws IOException {
+        if (first != 0x1f || requireByte() != 0x8b)
+            throw new ZipException("Not in gzip format");
+        var method = requireByte();
+        if (method != 8)
+            throw new ZipException("Unsupported gzip compression method: " + method);
+
+        var flags = requireByte();
+        skip(6);
+        if ((flags & FEXTRA) != 0)
+            skip(requireByte() | requireByte() << 8);
+        if ((flags & FNAME) != 0)
+            skipString();
+        if ((flags & FCOMMENT) != 0)
+            skipString();
+        if ((flags & FHCRC) != 0)
+            skip(2);
+
+        inflater.reset();
+        crc.reset();
+        inflater.setInput(input, position, limit - position);
+    }
+
+    private void trailer() throws IOException {
+        if (requireInt() != (int) crc.getValue())
+            throw new ZipException("Corrupt gzip data (CRC mismatch)");
+        if (requireInt() != (int) inflater.getBytesWritten())
+            throw new ZipException("Corrupt gzip data (length mismatch)");
+    }
+
+    private boolean fill() throws IOException {
+        position = 0;
+        limit = Math.max(in.read(input, 0, input.length), 0);
+        return limit > 0;
+    }
+
+    /***
+     * @return the next byte of compressed input, or -1 at the end of the stream
+     */
+    private int readByte() throws IOException {
+        if (position == limit && !fill())
+            return -1;
+        return input[position++] & 0xff;
+    }
+
+    private int requireByte() throws IOException {
+        var b = readByte();
+        if (b < 0)
+            throw new EOFException("Unexpected end of gzip data");
+        return b;
+    }
+
+    private int requireInt() throws IOException {
+        return requireByte() | requireByte() << 8 | requireByte() << 16 | requireByte() << 24;
+    }
+
+    private void skip(int count) throws IOException {
+        for (int i = 0; i < count; i++)
+            requireByte();
+    }
+
+    private void skipString() throws IOException {
+        while (requireByte() != 0) {
+            // keep skipping
+        }
+    }
+}
@@ -0,0 +1,209 @@
+package edu.yu.parallel;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/***
+ * Loads and processes the market data for a list of symbols, one task per symbol file.
+ *
+ * Tasks run on the pipeline's executor, with at most maxInFlight files being read and parsed at
+ * any one time. Each task writes its result into its own slot of a results array, so no lock is
+ * shared between the tasks; the results are handed back in the same order as the symbols.
+ *
+ * Once a task fails, or the calling thread is interrupted, no more tasks are started, and the
+ * tasks already running are waited for before the failure is thrown.
+ */
+public class IngestionPipeline implements AutoCloseable {
+    private final ExecutorService executor;
+    private final int maxInFlight;
+
+    /***
+     * @param executor the executor to run the per-symbol tasks on, or null to run them on the
+     *                 calling thread
+     * @param maxInFlight the maximum number of map() tasks to run at the same time, and so of symbol
+     *                    files being read by them. A file a task hands on past its own end, as a
+     *                    cursor opened on the report path is, no longer counts once the task returns,
+     *                    so this does not bound the number of files ReportEngine has open.
+     */
+    public IngestionPipeline(ExecutorService executor, int maxInFlight) {
+        if (maxInFlight < 1)
+            throw new IllegalArgumentException("maxInFlight must be at least 1");
+        this.executor = executor;
+        this.maxInFlight = maxInFlight;
+    }
+
+    /***
+     * @return a pipeline that processes one symbol at a time on the calling thread
+     */
+    public static IngestionPipeline sequential() {
+        return new IngestionPipeline(null, 1);
+    }
+
+    /***
+     * @param threads the number of worker threads
+     * @return a pipeline backed by its own fork/join pool, allowing two files in flight per thread
+     * so that a worker has the next file ready while it parses the current one
+     */
+    public static IngestionPipeline parallel(int threads) {
+        return new IngestionPipeline(new ForkJoinPool(threads), threads * 2);
+    }
+
+    public int parallelism() {
+        return executor instanceof ForkJoinPool pool ? pool.getParallelism() : 1;
+    }
+
+    /***
+     * @return the number of tasks waiting in the executor's queues (an estimate for a fork/join
+     * pool), or 0 when tasks run on the calling thread
+     */
+    public int queueDepth() {
+        if (executor instanceof ForkJoinPool pool)
+            return (int) Math.min(Integer.MAX_VALUE, pool.getQueuedSubmissionCount() + pool.getQueuedTaskCount());
+        if (executor instanceof ThreadPoolExecutor pool)
+            return pool.getQueue().size();
+        return 0;
+    }
+
+    /***
+     * Loads each symbol from the source and applies the task to it
+     *
+     * @param symbols the symbols to process
+     * @param source where to load the symbols from
+     * @param task the per-symbol work, called on a pipeline thread
+     * @return the task results, in the same order as the symbols, for the symbols that have data
+     */
+    public <R> List<R> run(List<SymbolData> symbols, PriceSource source, BiFunction<SymbolData, PriceSeries, R> task) {
+        return run(symbols, source, null, task);
+    }
+
+    /***
+     * Loads each symbol from the source and applies the task to it, recording each load as the
+     * parse of its symbol
+     *
+     * @param metrics where to record the loads and the queue depth as each task starts, or null
+     */
+    public <R> List<R> run(List<SymbolData> symbols, PriceSource source, PipelineMetrics metrics,
+                           BiFunction<SymbolData, PriceSeries, R> task) {
+        return map(symbols, symbol -> {
+            if (metrics != null)
+                metrics.sampleQueueDepth();
+            var start = metrics != null ? System.nanoTime() : 0;
+            var loaded = source.load(symbol.symbol());
+            if (metrics != null && loaded.isPresent()) {
+                var rows = loaded.get().size();
+                metrics.recordParse(System.nanoTime() - start, rows, (long) rows * SeriesCursor.ROW_BYTES);
+            }
+            return loaded.map(series -> task.apply(symbol, series)).orElse(null);
+        });
+    }
+
+    /***
+     * Applies the task to each symbol
+     *
+     * @param symbols the symbols to process
+     * @param task the per-symbol work, called on a pipeline thread; it may return null to skip a symbol
+     * @return the non-null task results, in the same order as the symbols
+     * @throws RuntimeException the first task failure (or a CompletionException if the calling thread
+     *                          was interrupted), once no task is running any more
+     */
+    public <R> List<R> map(List<SymbolData> symbols, Function<SymbolData, R> task) {
+        var results = new Object[symbols.size()];
+        if (executor == null) {
+            for (int i = 0; i < symbols.size(); i++)
+                results[i] = task.apply(symbols.get(i));
+            return collect(results);
+        }
+
+        var permits = new Semaphore(maxInFlight);
+        var failure = new AtomicReference<RuntimeException>();
+        var futures = new ArrayList<CompletableFuture<?>>(symbols.size());
+        for (int i = 0; i < symbols.size() && failure.get() == null; i++) {
+            try {
+                permits.acquire();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                failure.compareAndSet(null, new CompletionException(e));
+                break;
+            }
+            var slot = i;
+            var symbol = symbols.get(i);
+            futures.add(CompletableFuture.runAsync(() -> {
+                try {
+                    if (failure.get() == null)
+                        results[slot] = task.apply(symbol);
+                } catch (RuntimeException e) {
+                    failure.compareAndSet(null, e);
+                } finally {
+                    permits.release();
+                }
+            }, executor));
+        }
+
+        // Wait for every task submitted, even after a failure, so that none is still running when
+        // control returns to the caller
+        try {
+            CompletableFuture.allOf(futures.toArray(CompletableFuture[]::new)).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof Error error)
+                throw error;
+            throw e;
+        }
+        if (failure.get() != null)
+            throw failure.get();
+        return collect(results);
+    }
+
+    /***
+     * Runs a fork/join computation on the pipeline's fork/join pool, or on the calling thread when
+     * the pipeline has none; the task should then not fork (see ForkJoinTask.inForkJoinPool()), or
+     * its subtasks run on the common pool
+     *
+     * @return the task's result
+     */
+    public <T> T invoke(ForkJoinTask<T> task) {
+        return executor instanceof ForkJoinPool pool ? pool.invoke(task) : task.invoke();
+    }
+
+    /***
+     * Runs a task on the pipeline's executor, or on the calling thread when the pipeline has none.
+     * Unlike map(), it does not count against the files in flight.
+     *
+     * @return the task's result, as it completes
+     */
+    public <T> CompletableFuture<T> supply(Supplier<T> task) {
+        if (executor != null)
+            return CompletableFuture.supplyAsync(task, executor);
+        try {
+            return CompletableFuture.completedFuture(task.get());
+        } catch (RuntimeException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <R> List<R> collect(Object[] results) {
+        var list = new ArrayList<R>(results.length);
+        for (var result : results) {
+            if (result != null)
+                list.add((R) result);
+        }
+        return list;
+    }
+
+    @Override
+    public void close() {
+        if (executor != null)
+            executor.shutdown();
+    }
+}
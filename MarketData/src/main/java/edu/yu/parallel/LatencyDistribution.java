@@ -0,0 +1,83 @@
+package edu.yu.parallel;
+
+import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import java.util.random.RandomGenerator;
+
+/***
+ * The simulated latency of one item of a slow feed.
+ *
+ * The random distributions draw from ThreadLocalRandom, or from a Random of their own if given a
+ * seed: a seeded distribution returns the same latencies in the same order from one thread, and
+ * is still safe to share between threads (which then interleave its sequence).
+ */
+@FunctionalInterface
+public interface LatencyDistribution {
+
+    /***
+     * @return the next latency in nanoseconds (never negative)
+     */
+    long nextNanos();
+
+    static LatencyDistribution none() {
+        return () -> 0;
+    }
+
+    static LatencyDistribution fixed(long latency, TimeUnit unit) {
+        var nanos = unit.toNanos(latency);
+        return () -> nanos;
+    }
+
+    /***
+     * @return latencies spread evenly between min (inclusive) and max (exclusive)
+     */
+    static LatencyDistribution uniform(long min, long max, TimeUnit unit) {
+        return uniform(min, max, unit, ThreadLocalRandom::current);
+    }
+
+    /***
+     * @return latencies spread evenly between min (inclusive) and max (exclusive), drawn from the seed
+     */
+    static LatencyDistribution uniform(long min, long max, TimeUnit unit, long seed) {
+        var random = new Random(seed);
+        return uniform(min, max, unit, () -> random);
+    }
+
+    private static LatencyDistribution uniform(long min, long max, TimeUnit unit, Supplier<RandomGenerator> random) {
+        var minNanos = unit.toNanos(min);
+        var maxNanos = unit.toNanos(max);
+        if (minNanos < 0 || maxNanos <= minNanos)
+            throw new IllegalArgumentException("Require 0 <= min < max");
+        return () -> random.get().nextLong(minNanos, maxNanos);
+    }
+
+    /***
+     * A long-tailed distribution, typical of network latency: most items take about the median,
+     * a few take many times longer
+     *
+     * @param median the median latency
+     * @param sigma the standard deviation of the latency's natural logarithm; e.g. 0.5 puts the
+     *              99th percentile at about 3.2 x the median
+     */
+    static LatencyDistribution logNormal(long median, double sigma, TimeUnit unit) {
+        return logNormal(median, sigma, unit, ThreadLocalRandom::current);
+    }
+
+    /***
+     * @return the log-normal distribution logNormal(median, sigma, unit), drawn from the seed
+     */
+    static LatencyDistribution logNormal(long median, double sigma, TimeUnit unit, long seed) {
+        var random = new Random(seed);
+        return logNormal(median, sigma, unit, () -> random);
+    }
+
+    private static LatencyDistribution logNormal(long median, double sigma, TimeUnit unit,
+                                                 Supplier<RandomGenerator> random) {
+        var mu = Math.log(unit.toNanos(median));
+        if (sigma < 0 || median <= 0)
+            throw new IllegalArgumentException("Require median > 0 and sigma >= 0");
+        return () -> (long) Math.exp(mu + sigma * random.get().nextGaussian());
+    }
+}
@@ -0,0 +1,112 @@
+package edu.yu.parallel;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/***
+ * Simulates a slow feed by delaying the items of a stream.
+ *
+ * Every simulator schedules its delays on one shared, single-threaded timer, so delaying an item
+ * costs a timer entry rather than a thread: thousands of delayed items per second create no
+ * threads at all. Each item is delayed by a latency drawn from the simulator's distribution plus,
+ * if the simulator has a rate limit, however long it must wait for its turn.
+ *
+ * e.g.
+ * var feed = new LatencySimulator(LatencyDistribution.logNormal(2, 0.5, TimeUnit.MILLISECONDS), 500, 1);
+ * symbols.stream().map(feed::delay)...                 // blocking
+ * symbols.stream().map(feed::delayAsync)...            // CompletableFuture per item
+ */
+public class LatencySimulator {
+    private static final ScheduledThreadPoolExecutor timer = createTimer();
+
+    private final LatencyDistribution latency;
+    private final RateLimiter rateLimiter;
+    private final int everyNthRecord;
+
+    /***
+     * @param latency the latency added to each delayed item
+     * @param permitsPerSecond the maximum number of items per second, or 0 for no limit
+     * @param everyNthRecord items whose hashCode is a multiple of this pass without delay, as in
+     *                       StreamDelay (so 1 disables the delay altogether)
+     */
+    public LatencySimulator(LatencyDistribution latency, double permitsPerSecond, int everyNthRecord) {
+        if (everyNthRecord < 1)
+            throw new IllegalArgumentException("everyNthRecord must be at least 1");
+        this.latency = latency;
+        this.rateLimiter = permitsPerSecond > 0 ? new RateLimiter(permitsPerSecond) : null;
+        this.everyNthRecord = everyNthRecord;
+    }
+
+    /***
+     * Blocks the calling thread until the item's delay has passed. If the thread is interrupted,
+     * this returns the item at once with the thread's interrupt status set.
+     *
+     * @return the item
+     */
+    public <T> T delay(T item) {
+        var nanos = delayNanos(item);
+        if (nanos <= 0)
+            return item;
+
+        var future = schedule(item, nanos);
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            // Take the entry off the timer rather than leave it queued until it is due
+            future.cancel(false);
+            Thread.currentThread().interrupt();
+            return item;
+        } catch (ExecutionException e) {
+            return item;
+        }
+    }
+
+    /***
+     * Returns immediately with a future that completes with the item once its delay has passed.
+     * Dependent stages run on the shared timer thread unless an async stage is used, so they
+     * should be short.
+     */
+    public <T> CompletableFuture<T> delayAsync(T item) {
+        var nanos = delayNanos(item);
+        if (nanos <= 0)
+            return CompletableFuture.completedFuture(item);
+        return schedule(item, nanos);
+    }
+
+    /***
+     * For tests: the number of delays, of all simulators, waiting on the timer
+     */
+    static int scheduledDelays() {
+        return timer.getQueue().size();
+    }
+
+    private long delayNanos(Object item) {
+        if ((item.hashCode() % everyNthRecord) == 0)
+            return 0;
+        var wait = rateLimiter == null ? 0 : rateLimiter.reserve();
+        return wait + latency.nextNanos();
+    }
+
+    private static <T> CompletableFuture<T> schedule(T item, long nanos) {
+        var future = new CompletableFuture<T>();
+        var scheduled = timer.schedule(() -> future.complete(item), nanos, TimeUnit.NANOSECONDS);
+        // Cancelling the future takes the entry off the timer's queue
+        future.whenComplete((value, failure) -> {
+            if (future.isCancelled())
+                scheduled.cancel(false);
+        });
+        return future;
+    }
+
+    private static ScheduledThreadPoolExecutor createTimer() {
+        var executor = new ScheduledThreadPoolExecutor(1, runnable -> {
+            var thread = new Thread(runnable, "latency-simulator");
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.setRemoveOnCancelPolicy(true);
+        return executor;
+    }
+}
@@ -0,0 +1,325 @@
+package edu.yu.parallel;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.zip.ZipException;
+
+import static java.nio.file.StandardWatchEventKinds.ENTRY_CREATE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_MODIFY;
+import static java.nio.file.StandardWatchEventKinds.OVERFLOW;
+
+/***
+ * Keeps the market data of the cached symbols in memory and up to date with the data directory.
+ *
+ * Each symbol's file is read once, and after that only from where the last read stopped: rows
+ * appended to a file and files created for symbols that had no data are picked up by refresh(), or
+ * as they happen by watch(), which follows the directory with a WatchService. Only complete lines
+ * are read, so a row that is still being written is picked up by the next read. Files are expected
+ * to only grow; a file that has shrunk is read again from the start. A malformed row is logged and
+ * skipped, and the rows after it are read as usual.
+ *
+ * Like CsvPriceSource, a symbol's file is [symbol].csv, or [symbol].csv.gz if only that exists. A
+ * compressed file cannot be read from the middle, so whenever its size changes it is decompressed
+ * whole and the rows after those already read are parsed; it may grow by appending gzip members
+ * (e.g. gzip -c rows >> [symbol].csv.gz), and a member still being written is read once it is
+ * complete. A symbol whose file is replaced by the other kind is read again from the start.
+ *
+ * Reads are made on one thread at a time. The series handed out by load() can be used from any
+ * thread while rows are being appended: each is a snapshot of the rows read so far.
+ */
+public class LiveMarketData implements PriceSource, Closeable {
+    private final static Logger logger = LogManager.getLogger(LiveMarketData.class);
+    private static final Duration DEFAULT_QUIET_PERIOD = Duration.ofMillis(200);
+
+    /***
+     * The rows of a symbol that a refresh has read
+     *
+     * @param id the SymbolCache id of the symbol
+     * @param firstRow the first new row; the rows before it are unchanged
+     * @param reloaded true if the file was read again from the start, in which case firstRow is 0
+     *                 and the rows read before may have been different
+     */
+    public record Update(int id, int firstRow, boolean reloaded) {
+    }
+
+    private final SymbolCache symbols;
+    private final Path dataDirectory;
+    private final Duration quietPeriod;
+    private final LiveSeries[] series;
+    // For each symbol, the number of bytes of its file read so far: up to the end of the last complete line
+    // (of the decompressed data, for a compressed file)
+    private final long[] offsets;
+    // For each symbol, the file last read, and the size of a compressed file when it was last decompressed
+    private final Path[] files;
+    private final long[] compressedSizes;
+    private final CsvCursor csv = new CsvCursor();
+    private final GzipReader gzip = new GzipReader();
+    private ByteBuffer buffer = ByteBuffer.allocate(64 * 1024);
+    private volatile WatchService watcher;
+    private volatile boolean closed;
+
+    public LiveMarketData(SymbolCache symbols, Path dataDirectory) {
+        this(symbols, dataDirectory, DEFAULT_QUIET_PERIOD);
+    }
+
+    /***
+     * @param quietPeriod how long watch() waits for more changes before reading a batch of them
+     */
+    public LiveMarketData(SymbolCache symbols, Path dataDirectory, Duration quietPeriod) {
+        this.symbols = symbols;
+        this.dataDirectory = dataDirectory;
+        this.quietPeriod = quietPeriod;
+        this.series = new LiveSeries[symbols.size()];
+        this.offsets = new long[symbols.size()];
+        this.files = new Path[symbols.size()];
+        this.compressedSizes = new long[symbols.size()];
+    }
+
+    public SymbolCache symbols() {
+        return symbols;
+    }
+
+    @Override
+    public Optional<PriceSeries> load(String symbol) {
+        var id = symbols.idOf(symbol);
+        return id < 0 ? Optional.empty() : Optional.ofNullable(series(id));
+    }
+
+    /***
+     * @return the rows of the given symbol read so far, or null if it has no data
+     */
+    PriceSeries series(int id) {
+        var rows = series[id];
+        return rows == null ? null : rows.view();
+    }
+
+    /***
+     * Reads what has been written to every symbol's file since it was last read. The first refresh
+     * reads all the files.
+     *
+     * @return the symbols that have new rows or a new file, in id order
+     * @throws UncheckedIOException if a file could not be read
+     */
+    public List<Update> refresh() {
+        var all = new BitSet(symbols.size());
+        all.set(0, symbols.size());
+        return refresh(all);
+    }
+
+    private synchronized List<Update> refresh(BitSet ids) {
+        var updates = new ArrayList<Update>();
+        for (int id = ids.nextSetBit(0); id >= 0; id = ids.nextSetBit(id + 1)) {
+            var update = read(id);
+            if (update != null)
+                updates.add(update);
+        }
+        return updates;
+    }
+
+    /***
+     * Follows the data directory, handing each batch of new rows to the listener, until the
+     * source is closed or the thread is interrupted. Changes that arrive within the quiet period
+     * of each other are read as one batch.
+     *
+     * The first batch has everything written since the last refresh (all the data, if there was
+     * none). All the listener calls are made on the calling thread.
+     *
+     * @throws IOException if the directory cannot be watched
+     * @throws InterruptedException if the thread is interrupted
+     * @throws UncheckedIOException if a file could not be read
+     */
+    public void watch(Consumer<List<Update>> listener) throws IOException, InterruptedException {
+        try (var watchService = dataDirectory.getFileSystem().newWatchService()) {
+            watcher = watchService;
+            if (closed)
+                return;
+            // Registered before the first refresh, so nothing written in between is missed
+            dataDirectory.register(watchService, ENTRY_CREATE, ENTRY_MODIFY);
+
+            var updates = refresh();
+            while (true) {
+                if (!updates.isEmpty())
+                    listener.accept(updates);
+
+                var changed = new BitSet(symbols.size());
+                collect(watchService.take(), changed);
+                WatchKey key;
+                while ((key = watchService.poll(quietPeriod.toMillis(), TimeUnit.MILLISECONDS)) != null)
+                    collect(key, changed);
+                updates = refresh(changed);
+            }
+        } catch (ClosedWatchServiceException e) {
+            // closed
+        } finally {
+            watcher = null;
+        }
+    }
+
+    /***
+     * Stops watch()
+     */
+    @Override
+    public void close() throws IOException {
+        closed = true;
+        var watchService = watcher;
+        if (watchService != null)
+            watchService.close();
+    }
+
+    private void collect(WatchKey key, BitSet changed) {
+        for (var event : key.pollEvents()) {
+            if (event.kind() == OVERFLOW) {
+                // Events were lost: check every file
+                changed.set(0, symbols.size());
+                continue;
+            }
+
+            var name = event.context().toString();
+            var suffix = name.endsWith(".csv") ? ".csv" : name.endsWith(".csv.gz") ? ".csv.gz" : null;
+            if (suffix != null) {
+                var id = symbols.idOf(name.substring(0, name.length() - suffix.length()));
+                if (id >= 0)
+                    changed.set(id);
+            }
+        }
+        key.reset();
+    }
+
+    /***
+     * Reads the complete lines written to a symbol's file since it was last read
+     *
+     * @return the update, or null if there are no new rows
+     */
+    private Update read(int id) {
+        var symbol = symbols.symbol(id);
+        var file = CsvPriceSource.dataFile(dataDirectory, symbol);
+        try {
+            var switched = files[id] != null && !file.equals(files[id]);
+            if (switched)
+                logger.info("{} replaces {}; reading it from the start", file, files[id]);
+            var update = CsvPriceSource.isCompressed(file)
+                    ? readCompressed(id, symbol, file, switched)
+                    : readPlain(id, symbol, file, switched);
+            files[id] = file;
+            return update;
+        } catch (NoSuchFileException e) {
+            return null;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private Update readPlain(int id, String symbol, Path file, boolean switched) throws IOException {
+        try (var channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            var reloaded = switched || channel.size() < offsets[id];
+            if (reloaded) {
+                if (!switched)
+                    logger.warn("{} has shrunk; reading it again", file);
+                restart(id);
+            }
+            if (channel.size() == offsets[id] && !reloaded)
+                return null;
+
+            buffer.clear();
+            channel.position(offsets[id]);
+            while (channel.read(buffer) >= 0) {
+                if (!buffer.hasRemaining())
+                    buffer = ByteBuffer.allocate(buffer.capacity() * 2).put(buffer.flip());
+            }
+            return parse(id, symbol, reloaded, buffer.array(), 0, buffer.position());
+        }
+    }
+
+    private Update readCompressed(int id, String symbol, Path file, boolean switched) throws IOException {
+        var size = Files.size(file);
+        if (size == compressedSizes[id] && !switched)
+            return null;
+
+        int length;
+        try {
+            length = gzip.read(file);
+        } catch (EOFException e) {
+            // The last member is still being written: read the file again when it has grown
+            return null;
+        } catch (ZipException e) {
+            // Read again only once the file has changed
+            logger.warn("Cannot read {}: {}", file, e.getMessage());
+            compressedSizes[id] = size;
+            return null;
+        }
+        compressedSizes[id] = size;
+
+        var reloaded = switched || length < offsets[id];
+        if (reloaded) {
+            if (!switched)
+                logger.warn("{} has shrunk; reading it again", file);
+            restart(id);
+        }
+        return parse(id, symbol, reloaded, gzip.buffer(), (int) offsets[id], length);
+    }
+
+    /***
+     * Drops the rows read so far, before the file is read again from the start
+     */
+    private void restart(int id) {
+        if (series[id] != null)
+            series[id].clear();
+        offsets[id] = 0;
+    }
+
+    /***
+     * Appends the complete lines of bytes[from, to) to the symbol's rows
+     */
+    private Update parse(int id, String symbol, boolean reloaded, byte[] bytes, int from, int to) {
+        var end = to;
+        while (end > from && bytes[end - 1] != '\n')
+            end--;
+        if (end == from && !reloaded)
+            return null;
+
+        var rows = series[id];
+        var created = rows == null;
+        if (created)
+            rows = series[id] = new LiveSeries(symbol);
+        var firstRow = rows.size();
+        var skipped = 0;
+        csv.reset(bytes, from, end - from);
+        if (offsets[id] == 0)
+            csv.nextLine(); // header
+        while (csv.nextLine()) {
+            try {
+                if (!rows.append(csv))
+                    skipped++;
+            } catch (NumberFormatException e) {
+                // Skipped for good: the offset moves past it with the rest of the lines
+                logger.warn("{}: skipped a malformed row: {}", symbol, e.getMessage());
+            }
+        }
+        offsets[id] += end - from;
+
+        if (skipped > 0)
+            logger.warn("{}: skipped {} rows that were not after the last row read", symbol, skipped);
+        return rows.size() > firstRow || reloaded || created ? new Update(id, firstRow, reloaded) : null;
+    }
+}
@@ -0,0 +1,23 @@
+package edu.yu.parallel;
+
+/***
+ * Receives the report rows that LiveReports has changed. Each batch of changes ends with a call to
+ * batchEnd(). All the calls are made on the thread applying the updates.
+ */
+public interface LiveReportListener {
+
+    /***
+     * A symbol's close-above-mid count has changed, or the symbol has data for the first time
+     */
+    void closeAboveMidChanged(SymbolData symbol, int count);
+
+    /***
+     * An index's composite for a date is new or has changed
+     *
+     * @param values the High, Low, Open, Close, Volume and Adj Close sums
+     */
+    void compositeChanged(MarketIndex index, int epochDay, double[] values);
+
+    default void batchEnd() {
+    }
+}
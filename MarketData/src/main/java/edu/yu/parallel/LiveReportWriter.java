@@ -0,0 +1,61 @@
+package edu.yu.parallel;
+
+import java.io.OutputStream;
+import java.util.EnumMap;
+import java.util.Map;
+
+/***
+ * Writes the rows that LiveReports changes as they change, in the formats of the full reports:
+ * Symbol,Count for the close-above-mid counts, and Date,High,Low,Open,Close,Volume,Adj Close for
+ * each index's composite. The outputs are change logs rather than reports: a row replaces any
+ * earlier row for the same symbol or date, and the close-above-mid rows are not sorted by count.
+ *
+ * The outputs are flushed at the end of every batch.
+ */
+public class LiveReportWriter implements LiveReportListener {
+    private static final int DECIMALS = 6;
+
+    private final CsvWriter closeAboveMid;
+    private final Map<MarketIndex, CsvWriter> composites = new EnumMap<>(MarketIndex.class);
+
+    /***
+     * @param closeAboveMid where to write the changed counts
+     * @param composites where to write the changed composite rows of each index; the other
+     *                   indexes' changes are ignored
+     */
+    public LiveReportWriter(OutputStream closeAboveMid, Map<MarketIndex, ? extends OutputStream> composites) {
+        this.closeAboveMid = new CsvWriter(closeAboveMid);
+        this.closeAboveMid.field("Symbol").field("Count").endLine();
+        composites.forEach((index, output) -> {
+            var writer = new CsvWriter(output);
+            writer.field("Date").field("High").field("Low").field("Open").field("Close").field("Volume")
+                    .field("Adj Close").endLine();
+            this.composites.put(index, writer);
+        });
+        batchEnd();
+    }
+
+    @Override
+    public void closeAboveMidChanged(SymbolData symbol, int count) {
+        closeAboveMid.field(symbol.symbol()).field(count).endLine();
+    }
+
+    @Override
+    public void compositeChanged(MarketIndex index, int epochDay, double[] values) {
+        var writer = composites.get(index);
+        if (writer == null)
+            return;
+
+        writer.dateField(epochDay);
+        for (var value : values)
+            writer.field(value, DECIMALS);
+        writer.endLine();
+    }
+
+    @Override
+    public void batchEnd() {
+        closeAboveMid.flush();
+        for (var writer : composites.values())
+            writer.flush();
+    }
+}
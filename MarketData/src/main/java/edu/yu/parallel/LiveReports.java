@@ -0,0 +1,161 @@
+package edu.yu.parallel;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/***
+ * Keeps the close-above-mid counts and the index composites up to date with a LiveMarketData, and
+ * passes on only the rows that each batch of updates changes.
+ *
+ * A count is updated from the new rows of its symbol alone. A composite depends on every member's
+ * row for the date, and new rows usually complete dates whose other rows were read earlier, so each
+ * date with a new row is summed again from the in-memory series, in symbol id order, with the
+ * kernel of the full report (see CompositeReport). So a live composite row is always bit-for-bit
+ * the row that MarketDataReports would write for the same data.
+ *
+ * Not thread-safe: apply updates from one thread (e.g. the one running LiveMarketData.watch()).
+ */
+public class LiveReports {
+    private static final int FIELDS = 6;
+
+    private final LiveMarketData data;
+    private final SymbolCache symbols;
+    private final WeightedSumKernel kernel = WeightedSumKernel.configured();
+    private final int[] counts;
+    private final BitSet scanned;
+    private final Map<MarketIndex, TreeMap<Integer, double[]>> composites = new EnumMap<>(MarketIndex.class);
+
+    public LiveReports(LiveMarketData data) {
+        this.data = data;
+        this.symbols = data.symbols();
+        this.counts = new int[symbols.size()];
+        this.scanned = new BitSet(symbols.size());
+        for (var index : MarketIndex.values())
+            composites.put(index, new TreeMap<>());
+    }
+
+    /***
+     * @return the symbol's current close-above-mid count
+     */
+    public int closeAboveMidCount(String symbol) {
+        var id = symbols.idOf(symbol);
+        return id < 0 ? 0 : counts[id];
+    }
+
+    /***
+     * @return the index's current composite for the date, or null if it has none
+     */
+    public double[] composite(MarketIndex index, int epochDay) {
+        var values = composites.get(index).get(epochDay);
+        return values == null ? null : values.clone();
+    }
+
+    /***
+     * Applies a batch of updates and passes the changed rows on to the listener: the counts in id
+     * (alphabetical) order, then each index's composites in date order, then batchEnd().
+     *
+     * @param listener the listener, or null to only update the reports (e.g. with the data that
+     *                 the full reports were written from)
+     */
+    public void apply(List<LiveMarketData.Update> updates, LiveReportListener listener) {
+        var changedCounts = new BitSet(symbols.size());
+        var dates = new TreeSet<Integer>();
+        for (var update : updates) {
+            var id = update.id();
+            var series = data.series(id);
+            if (update.reloaded()) {
+                // The rows read before may be gone: check every date
+                for (var composite : composites.values())
+                    dates.addAll(composite.keySet());
+                counts[id] = 0;
+            }
+
+            var count = counts[id];
+            for (int row = update.firstRow(); row < series.size(); row++) {
+                if (series.close(row) > (series.high(row) + series.low(row)) / 2)
+                    count++;
+                dates.add(series.epochDay(row));
+            }
+            if (count != counts[id] || !scanned.get(id) || update.reloaded())
+                changedCounts.set(id);
+            counts[id] = count;
+            scanned.set(id);
+        }
+
+        if (listener != null) {
+            for (int id = changedCounts.nextSetBit(0); id >= 0; id = changedCounts.nextSetBit(id + 1))
+                listener.closeAboveMidChanged(symbols.symbolData(id), counts[id]);
+        }
+
+        if (!dates.isEmpty()) {
+            for (var entry : composites.entrySet())
+                updateComposite(entry.getKey(), entry.getValue(), dates, listener);
+        }
+        if (listener != null)
+            listener.batchEnd();
+    }
+
+    private void updateComposite(MarketIndex index, TreeMap<Integer, double[]> composite, TreeSet<Integer> dates,
+                                 LiveReportListener listener) {
+        var members = symbols.memberIds(index).toArray();
+        var weights = symbols.weights(index);
+        var series = new PriceSeries[members.length];
+        for (int i = 0; i < members.length; i++)
+            series[i] = data.series(members[i]);
+
+        var rowWeights = new double[members.length];
+        var buffer = new double[members.length * WeightedSumKernel.STRIDE];
+        var total = new double[WeightedSumKernel.STRIDE];
+        for (var epochDay : dates) {
+            var rows = 0;
+            for (int i = 0; i < members.length; i++) {
+                var row = series[i] == null ? -1 : find(series[i], epochDay);
+                if (row < 0)
+                    continue;
+
+                var offset = rows * WeightedSumKernel.STRIDE;
+                buffer[offset] = series[i].high(row);
+                buffer[offset + 1] = series[i].low(row);
+                buffer[offset + 2] = series[i].open(row);
+                buffer[offset + 3] = series[i].close(row);
+                buffer[offset + 4] = series[i].volume(row);
+                buffer[offset + 5] = series[i].adjClose(row);
+                rowWeights[rows++] = weights[members[i]];
+            }
+
+            if (rows == 0) {
+                composite.remove(epochDay);
+                continue;
+            }
+            Arrays.fill(total, 0);
+            kernel.accumulate(rowWeights, buffer, rows, total);
+            var sums = Arrays.copyOf(total, FIELDS);
+            var previous = composite.put(epochDay, sums);
+            if (listener != null && !Arrays.equals(previous, sums))
+                listener.compositeChanged(index, epochDay, sums.clone());
+        }
+    }
+
+    /***
+     * @return the row of the series for the date, or -1 if it has none
+     */
+    private static int find(PriceSeries series, int epochDay) {
+        int low = 0, high = series.size() - 1;
+        while (low <= high) {
+            var middle = (low + high) >>> 1;
+            var day = series.epochDay(middle);
+            if (day < epochDay)
+                low = middle + 1;
+            else if (day > epochDay)
+                high = middle - 1;
+            else
+                return middle;
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,140 @@
+package edu.yu.parallel;
+
+import java.util.Arrays;
+import java.util.Objects;
+
+/***
+ * A symbol's market data that grows as rows are appended to its file.
+ *
+ * Rows are appended by a single writer thread. Readers take a view(), a PriceSeries over the rows
+ * that had been appended at that point, which stays valid and unchanged while more rows are
+ * appended: the columns only ever grow, and are replaced (never modified below the published size)
+ * when they have to be enlarged. The columns and the size are published together, as the view
+ * itself, so a reader never sees the size of one set of columns with another's rows (e.g. those
+ * of clear()).
+ */
+final class LiveSeries {
+    private final String symbol;
+    private volatile View view;
+
+    LiveSeries(String symbol) {
+        this.symbol = symbol;
+        this.view = new View(symbol, new Columns(256), 0);
+    }
+
+    int size() {
+        return view.size();
+    }
+
+    /***
+     * Appends the row the cursor is on
+     *
+     * @return false, without appending, if the row is not after the last row
+     */
+    boolean append(CsvCursor row) {
+        var epochDay = row.nextEpochDay();
+        var published = view;
+        var count = published.size();
+        var current = published.columns();
+        if (count > 0 && epochDay <= current.epochDays[count - 1])
+            return false;
+
+        if (count == current.epochDays.length)
+            current = current.grow();
+        current.epochDays[count] = epochDay;
+        current.high[count] = row.nextDouble();
+        current.low[count] = row.nextDouble();
+        current.open[count] = row.nextDouble();
+        current.close[count] = row.nextDouble();
+        current.volume[count] = row.nextDouble();
+        current.adjClose[count] = row.nextDouble();
+        view = new View(symbol, current, count + 1);
+        return true;
+    }
+
+    /***
+     * Drops all rows, e.g. before the file is read again from the start
+     */
+    void clear() {
+        view = new View(symbol, new Columns(256), 0);
+    }
+
+    PriceSeries view() {
+        return view;
+    }
+
+    private static final class Columns {
+        final int[] epochDays;
+        final double[] high;
+        final double[] low;
+        final double[] open;
+        final double[] close;
+        final double[] volume;
+        final double[] adjClose;
+
+        Columns(int capacity) {
+            this(new int[capacity], new double[capacity], new double[capacity], new double[capacity],
+                    new double[capacity], new double[capacity], new double[capacity]);
+        }
+
+        private Columns(int[] epochDays, double[] high, double[] low, double[] open, double[] close,
+                        double[] volume, double[] adjClose) {
+            this.epochDays = epochDays;
+            this.high = high;
+            this.low = low;
+            this.open = open;
+            this.close = close;
+            this.volume = volume;
+            this.adjClose = adjClose;
+        }
+
+        Columns grow() {
+            var capacity = epochDays.length * 2;
+            return new Columns(Arrays.copyOf(epochDays, capacity), Arrays.copyOf(high, capacity),
+                    Arrays.copyOf(low, capacity), Arrays.copyOf(open, capacity), Arrays.copyOf(close, capacity),
+                    Arrays.copyOf(volume, capacity), Arrays.copyOf(adjClose, capacity));
+        }
+    }
+
+    private record View(String symbol, Columns columns, int size) implements PriceSeries {
+
+        @Override
+        public int epochDay(int row) {
+            return columns.epochDays[check(row)];
+        }
+
+        @Override
+        public double high(int row) {
+            return columns.high[check(row)];
+        }
+
+        @Override
+        public double low(int row) {
+            return columns.low[check(row)];
+        }
+
+        @Override
+        public double open(int row) {
+            return columns.open[check(row)];
+        }
+
+        @Override
+        public double close(int row) {
+            return columns.close[check(row)];
+        }
+
+        @Override
+        public double volume(int row) {
+            return columns.volume[check(row)];
+        }
+
+        @Override
+        public double adjClose(int row) {
+            return columns.adjClose[check(row)];
+        }
+
+        private int check(int row) {
+            return row < size ? row : Objects.checkIndex(row, size);
+        }
+    }
+}
@@ -0,0 +1,339 @@
+package edu.yu.parallel;
+
+import org.apache.logging.log4j.Level;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.apache.logging.log4j.core.config.Configurator;
+
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.DayOfWeek;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+
+/***
+ * Writes a synthetic dataset in the layout of the real one: a symbol file with index weights, and
+ * a Date,High,Low,Open,Close,Volume,Adj Close file per symbol, for load and scaling tests that must
+ * run offline, e.g.
+ *
+ * MarketDataGenerator.builder().symbols(10_000).from(LocalDate.of(1973, 1, 1)).seed(42).build()
+ *         .write(directory, pipeline);
+ *
+ * Closes follow a geometric random walk with a drift and volatility of their own per symbol; open,
+ * high and low scatter around the close as in real daily bars, and the volume is log-normal around
+ * a level of its own. Every weekday is a trading day. The index members are a random sample of the
+ * symbols, with random weights that add up to about 100 per index.
+ *
+ * Each symbol's rows are drawn from its own random generator, seeded from the seed and the symbol's
+ * position, so the files are written in parallel on the ingestion pipeline and still come out the
+ * same for the same options, whatever the number of threads.
+ */
+public class MarketDataGenerator {
+    private final static Logger logger = LogManager.getLogger(MarketDataGenerator.class);
+    private static final String[] COLUMNS = {"Date", "High", "Low", "Open", "Close", "Volume", "Adj Close"};
+    private static final int DECIMALS = 4;
+    private static final int WEIGHT_DECIMALS = 6;
+    private static final int SYMBOL_LETTERS = 26;
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private final String name;
+    private final int symbols;
+    private final LocalDate from;
+    private final LocalDate to;
+    private final int nasdaq100Members;
+    private final int snp500Members;
+    private final long seed;
+
+    private MarketDataGenerator(Builder builder) {
+        this.name = builder.name;
+        this.symbols = builder.symbols;
+        this.from = builder.from;
+        this.to = builder.to;
+        this.nasdaq100Members = builder.nasdaq100Members();
+        this.snp500Members = builder.snp500Members();
+        this.seed = builder.seed;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /***
+     * Writes the symbol file, [directory]/[name].symbols.csv, and the market data files,
+     * [directory]/data/[symbol].csv, replacing any files of the same names
+     *
+     * @return the symbol file, to read with new SymbolReader(Path)
+     */
+    public Path write(Path directory, IngestionPipeline pipeline) {
+        var dataDirectory = directory.resolve("data");
+        var symbolFile = directory.resolve(name + ".symbols.csv");
+        var symbolData = symbolData();
+        try {
+            Files.createDirectories(dataDirectory);
+            try (var output = new FileOutputStream(symbolFile.toFile())) {
+                writeSymbols(symbolData, new CsvWriter(output));
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        var tradingDays = tradingDays();
+        var names = symbolData.stream().map(SymbolData::symbol).toArray(String[]::new);
+        pipeline.map(symbolData, symbol -> {
+            var position = Arrays.binarySearch(names, symbol.symbol());
+            var file = dataDirectory.resolve(symbol.symbol() + ".csv");
+            try (var output = new FileOutputStream(file.toFile())) {
+                var writer = new CsvWriter(output, BUFFER_SIZE);
+                writeSeries(tradingDays, random(position + 1), writer);
+                writer.flush();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            return file;
+        });
+        return symbolFile;
+    }
+
+    /***
+     * @return the generated symbols, in alphabetical order, with their index weights
+     */
+    List<SymbolData> symbolData() {
+        var random = random(0);
+        var nasdaq100 = weights(random, nasdaq100Members);
+        var snp500 = weights(random, snp500Members);
+        var symbolData = new ArrayList<SymbolData>(symbols);
+        for (int i = 0; i < symbols; i++) {
+            var symbol = symbol(i);
+            symbolData.add(new SymbolData(symbol, "Synthetic " + symbol + " Inc.", false, nasdaq100[i], snp500[i]));
+        }
+        return symbolData;
+    }
+
+    /***
+     * @return the epoch days of the weekdays from the first date to the last, both included
+     */
+    int[] tradingDays() {
+        var days = new int[(int) (to.toEpochDay() - from.toEpochDay() + 1)];
+        var count = 0;
+        for (var date = from; !date.isAfter(to); date = date.plusDays(1)) {
+            if (date.getDayOfWeek() != DayOfWeek.SATURDAY && date.getDayOfWeek() != DayOfWeek.SUNDAY)
+                days[count++] = (int) date.toEpochDay();
+        }
+        return Arrays.copyOf(days, count);
+    }
+
+    /***
+     * @return the i-th symbol of the alphabetical sequence of all symbols of the fewest letters
+     * (at least three) that has room for every symbol, spread evenly over the alphabet
+     */
+    String symbol(int i) {
+        var letters = 3;
+        var combinations = (long) Math.pow(SYMBOL_LETTERS, letters);
+        while (combinations < symbols) {
+            letters++;
+            combinations *= SYMBOL_LETTERS;
+        }
+        var code = i * (combinations / symbols);
+        var symbol = new char[letters];
+        for (int j = letters - 1; j >= 0; j--) {
+            symbol[j] = (char) ('A' + code % SYMBOL_LETTERS);
+            code /= SYMBOL_LETTERS;
+        }
+        return new String(symbol);
+    }
+
+    private void writeSymbols(List<SymbolData> symbolData, CsvWriter writer) {
+        writer.field("symbol").field("company").field("etf").field("nasdaq100").field("snp500").endLine();
+        for (var symbol : symbolData) {
+            writer.field(symbol.symbol()).field(symbol.company()).field(symbol.etf() ? "TRUE" : "FALSE")
+                    .field(symbol.nsdq100Weight(), WEIGHT_DECIMALS)
+                    .field(symbol.snp500Weight(), WEIGHT_DECIMALS)
+                    .endLine();
+        }
+        writer.flush();
+    }
+
+    private static void writeSeries(int[] tradingDays, SplittableRandom random, CsvWriter writer) {
+        for (var column : COLUMNS)
+            writer.field(column);
+        writer.endLine();
+
+        // A yearly drift of -10% to +20% and a daily volatility of 1% to 3.5%
+        var drift = random.nextDouble(-0.10, 0.20) / 252;
+        var volatility = random.nextDouble(0.01, 0.035);
+        var close = Math.exp(random.nextDouble(Math.log(5), Math.log(500)));
+        var volume = Math.exp(random.nextDouble(Math.log(1e5), Math.log(5e7)));
+        for (var epochDay : tradingDays) {
+            var open = close * (1 + random.nextGaussian() * volatility / 4);
+            close *= Math.exp(drift - volatility * volatility / 2 + volatility * random.nextGaussian());
+            var high = Math.max(open, close) * (1 + Math.abs(random.nextGaussian()) * volatility / 2);
+            var low = Math.min(open, close) * (1 - Math.min(0.5, Math.abs(random.nextGaussian()) * volatility / 2));
+            writer.dateField(epochDay)
+                    .field(high, DECIMALS)
+                    .field(low, DECIMALS)
+                    .field(open, DECIMALS)
+                    .field(close, DECIMALS)
+                    .field(Math.round(volume * Math.exp(random.nextGaussian() * 0.4)))
+                    .field(close, DECIMALS)
+                    .endLine();
+        }
+    }
+
+    /***
+     * @return the weights, by symbol position, of a random sample of members adding up to about 100
+     */
+    private double[] weights(SplittableRandom random, int members) {
+        // A partial Fisher-Yates shuffle picks the members
+        var positions = new int[symbols];
+        for (int i = 0; i < symbols; i++)
+            positions[i] = i;
+        var raw = new double[members];
+        var total = 0.0;
+        for (int i = 0; i < members; i++) {
+            var j = i + random.nextInt(symbols - i);
+            var swap = positions[i];
+            positions[i] = positions[j];
+            positions[j] = swap;
+            // Log-normal weights: a few large members and a long tail, as in a cap-weighted index
+            raw[i] = Math.exp(random.nextGaussian());
+            total += raw[i];
+        }
+
+        var weights = new double[symbols];
+        for (int i = 0; i < members; i++)
+            weights[positions[i]] = Math.max(1e-6, Math.round(raw[i] / total * 100 * 1e6) / 1e6);
+        return weights;
+    }
+
+    /***
+     * @return the random generator of a stream: 0 for the symbols, the symbol's position + 1 for
+     * its rows
+     */
+    private SplittableRandom random(long stream) {
+        // A SplitMix64 step decorrelates the seeds of neighbouring streams
+        var z = seed + stream * 0x9e3779b97f4a7c15L;
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return new SplittableRandom(z ^ (z >>> 31));
+    }
+
+    /***
+     * Writes a dataset to the directory given as the first argument (default: generated), sized by
+     * the system properties "symbols" (default: 500), "from" and "to" (ISO dates; default: 2017 to
+     * 2021), "nasdaq100" and "snp500" (the number of members of each index; default: 100 and 500,
+     * or all symbols if fewer), "seed" (default: 3820) and "threads" (default: the number of
+     * processors). Run the application on it with -Ddata=[directory]/data and
+     * -DsymbolFile=[directory]/synthetic.symbols.csv.
+     */
+    public static void main(String[] args) {
+        Configurator.setLevel("edu.yu.parallel", Level.INFO);
+        var directory = Path.of(args.length > 0 ? args[0] : "generated");
+        var symbols = Integer.getInteger("symbols", 500);
+        var from = LocalDate.parse(System.getProperty("from", "2017-01-01"));
+        var to = LocalDate.parse(System.getProperty("to", "2021-12-31"));
+        var builder = builder()
+                .symbols(symbols)
+                .from(from)
+                .to(to)
+                .seed(Long.getLong("seed", 3820));
+        if (Integer.getInteger("nasdaq100") != null)
+            builder.nasdaq100Members(Integer.getInteger("nasdaq100"));
+        if (Integer.getInteger("snp500") != null)
+            builder.snp500Members(Integer.getInteger("snp500"));
+        var generator = builder.build();
+
+        var threads = Integer.getInteger("threads", Runtime.getRuntime().availableProcessors());
+        var start = Instant.now();
+        try (var pipeline = new IngestionPipeline(new ForkJoinPool(threads), threads * 2)) {
+            var symbolFile = generator.write(directory, pipeline);
+            var duration = Duration.between(start, Instant.now()).toMillis();
+            logger.info("{} symbols from {} to {}: {}, duration={}, threads={}",
+                    symbols, from, to, symbolFile, duration, threads);
+        }
+    }
+
+    public static class Builder {
+        private String name = "synthetic";
+        private int symbols = 500;
+        private LocalDate from = LocalDate.of(2017, 1, 1);
+        private LocalDate to = LocalDate.of(2021, 12, 31);
+        // Unless set, 100 and 500 or all symbols if fewer
+        private Integer nasdaq100Members;
+        private Integer snp500Members;
+        private long seed = 3820;
+
+        private Builder() {
+        }
+
+        /***
+         * @param name the name of the symbol file, [name].symbols.csv
+         */
+        public Builder name(String name) {
+            this.name = name;
+            return this;
+        }
+
+        public Builder symbols(int symbols) {
+            this.symbols = symbols;
+            return this;
+        }
+
+        public Builder from(LocalDate from) {
+            this.from = from;
+            return this;
+        }
+
+        public Builder to(LocalDate to) {
+            this.to = to;
+            return this;
+        }
+
+        /***
+         * @param members the number of NASDAQ 100 members (default: 100, or all symbols if fewer)
+         */
+        public Builder nasdaq100Members(int members) {
+            this.nasdaq100Members = members;
+            return this;
+        }
+
+        /***
+         * @param members the number of S&P 500 members (default: 500, or all symbols if fewer)
+         */
+        public Builder snp500Members(int members) {
+            this.snp500Members = members;
+            return this;
+        }
+
+        public Builder seed(long seed) {
+            this.seed = seed;
+            return this;
+        }
+
+        public MarketDataGenerator build() {
+            if (symbols < 1)
+                throw new IllegalArgumentException("There must be at least one symbol: " + symbols);
+            if (from.isAfter(to))
+                throw new IllegalArgumentException("The dates are out of order: " + from + " is after " + to);
+            if (nasdaq100Members() < 0 || nasdaq100Members() > symbols || snp500Members() < 0 || snp500Members() > symbols)
+                throw new IllegalArgumentException("Index members must be between 0 and the number of symbols");
+            return new MarketDataGenerator(this);
+        }
+
+        private int nasdaq100Members() {
+            return nasdaq100Members != null ? nasdaq100Members : Math.min(100, symbols);
+        }
+
+        private int snp500Members() {
+            return snp500Members != null ? snp500Members : Math.min(500, symbols);
+        }
+    }
+}
@@ -1,14 +1,41 @@
 package edu.yu.parallel;
 
 import java.io.OutputStream;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.function.Consumer;
 
 
 public class MarketDataReports {
 
     private final SymbolCache symbolCache;
+    private final PriceSource priceSource;
+    private final IngestionPipeline pipeline;
+    private final PipelineMetrics metrics;
 
     public MarketDataReports(SymbolCache symbolCache) {
+        this(symbolCache, new CsvPriceSource(PriceSource.defaultDataDirectory()));
+    }
+
+    public MarketDataReports(SymbolCache symbolCache, PriceSource priceSource) {
+        this(symbolCache, priceSource, IngestionPipeline.sequential());
+    }
+
+    public MarketDataReports(SymbolCache symbolCache, PriceSource priceSource, IngestionPipeline pipeline) {
+        this(symbolCache, priceSource, pipeline, null);
+    }
+
+    /***
+     * @param metrics where the report runs record the time of each stage (see ReportEngine), or null
+     */
+    public MarketDataReports(SymbolCache symbolCache, PriceSource priceSource, IngestionPipeline pipeline,
+                             PipelineMetrics metrics) {
         this.symbolCache = symbolCache;
+        this.priceSource = priceSource;
+        this.pipeline = pipeline;
+        this.metrics = metrics;
     }
 
 
@@ -37,7 +64,56 @@ public class MarketDataReports {
      * @param outputStream the OutputStream to save the report to
      */
     public void generateCloseAboveMidPriceReport(OutputStream outputStream) {
+        generateReports(new CloseAboveMidReport(outputStream));
+    }
+
+    /***
+     * Generate the top of the CloseAboveMid report (see generateCloseAboveMidPriceReport()): its
+     * first limit rows, or all of them given Integer.MAX_VALUE.
+     *
+     * A symbol's count does not depend on any other symbol, so rather than scanning all symbols
+     * together by date, each symbol is counted by its own task on the ingestion pipeline into its
+     * slot of an int array. Only the top limit symbols are then kept, in a bounded heap.
+     *
+     * @param outputStream the OutputStream to save the report to
+     * @param limit the number of symbols to include
+     */
+    public void generateCloseAboveMidPriceReport(OutputStream outputStream, int limit) {
+        if (limit < 0)
+            throw new IllegalArgumentException("The limit cannot be negative: " + limit);
 
+        var counts = new int[symbolCache.size()];
+        var counted = pipeline.map(symbolCache.stream().toList(), symbol -> {
+            if (metrics != null)
+                metrics.sampleQueueDepth();
+            var start = metrics != null ? System.nanoTime() : 0;
+            var opened = priceSource.open(symbol.symbol());
+            if (metrics != null)
+                metrics.record(PipelineMetrics.Stage.OPEN, System.nanoTime() - start, 1, 0, 0);
+            if (opened.isEmpty())
+                return null;
+
+            var cursor = opened.get();
+            try {
+                start = metrics != null ? System.nanoTime() : 0;
+                var rows = 0;
+                var count = 0;
+                while (cursor.next()) {
+                    rows++;
+                    if (CloseAboveMidReport.closeAboveMid(cursor))
+                        count++;
+                }
+                if (metrics != null)
+                    metrics.recordParse(System.nanoTime() - start, rows, cursor.bytesRead());
+                var id = symbolCache.idOf(symbol.symbol());
+                counts[id] = count;
+                return id;
+            } finally {
+                cursor.release();
+            }
+        });
+        var ids = counted.stream().mapToInt(Integer::intValue).toArray();
+        CloseAboveMidReport.write(new CsvWriter(outputStream), symbolCache, ids, counts, limit);
     }
 
     /***
@@ -62,6 +138,166 @@ public class MarketDataReports {
      * @param outputStream the OutputStream to save the report to
      */
     public void generateNASDAQ100CompositeReport(OutputStream outputStream) {
+        generateReports(new CompositeReport(outputStream, MarketIndex.NASDAQ_100));
+    }
+
+    /***
+     * Generate a composite of the symbols that are part of the S&P 500 index, i.e. those with an
+     * S&P 500 participation weight greater than 0, in the same format as the NASDAQ 100 composite
+     * report (see generateNASDAQ100CompositeReport()).
+     *
+     * @param outputStream the OutputStream to save the report to
+     */
+    public void generateSNP500CompositeReport(OutputStream outputStream) {
+        generateReports(new CompositeReport(outputStream, MarketIndex.SNP_500));
+    }
+
+    /***
+     * Generate the composite reports of several indexes from a single pass over the market data;
+     * a symbol that is a member of several indexes is read once.
+     *
+     * @param outputStreams the OutputStream to save each index's report to
+     */
+    public void generateCompositeReports(Map<MarketIndex, ? extends OutputStream> outputStreams) {
+        generateReports(new CompositeReport(outputStreams));
+    }
+
+    /***
+     * Generate the rolling-window metrics of every symbol for which data has been provided (see
+     * RollingWindow), computed in parallel across symbols on the ingestion pipeline.
+     *
+     * The report is in CSV format with the columns Symbol,Date,SMA,EMA,VWAP,High,Low, ordered by
+     * symbol and date, with one row per symbol and date from the symbol's first full window on.
+     *
+     * @param outputStream the OutputStream to save the report to
+     * @param window the number of trading days in each window
+     */
+    public void generateRollingWindowReport(OutputStream outputStream, int window) {
+        var symbols = symbolCache.stream().toList();
+        RollingAnalytics.write(new RollingAnalytics(priceSource, pipeline).compute(symbols, window), outputStream);
+    }
+
+    /***
+     * Generate the correlation matrix of the daily returns of the NASDAQ 100 members that have
+     * data, each pair over the dates both have a return on (see CovarianceMatrix).
+     *
+     * The report is in CSV format with a header row of Symbol and the members, in alphabetical
+     * order, and a row per member with its correlation with each member; a pair without enough
+     * common dates is NaN.
+     *
+     * e.g.
+     * Symbol,AAPL,ADBE,ADI,...
+     * AAPL,1.000000,0.657021,0.642193,...
+     * ADBE,0.657021,1.000000,0.584370,...
+     *
+     * @param outputStream the OutputStream to save the report to
+     */
+    public void generateNASDAQ100CorrelationReport(OutputStream outputStream) {
+        covarianceMatrix(MarketIndex.NASDAQ_100).writeCorrelation(outputStream);
+    }
+
+    /***
+     * Generate the covariance matrix of the daily returns of the NASDAQ 100 members, in the same
+     * format as the correlation report (see generateNASDAQ100CorrelationReport()), with 9 decimals.
+     *
+     * @param outputStream the OutputStream to save the report to
+     */
+    public void generateNASDAQ100CovarianceReport(OutputStream outputStream) {
+        covarianceMatrix(MarketIndex.NASDAQ_100).writeCovariance(outputStream);
+    }
+
+    /***
+     * Loads the index members that have data on the ingestion pipeline, and computes the
+     * covariance and correlation matrices of their daily returns on its fork/join pool
+     */
+    public CovarianceMatrix covarianceMatrix(MarketIndex index) {
+        var members = symbolCache.stream().filter(symbol -> index.weight(symbol) > 0).toList();
+        return CovarianceMatrix.compute(pipeline.run(members, priceSource, metrics, (symbol, series) -> series), pipeline);
+    }
+
+    /***
+     * Loads the market data of every cached symbol for ad-hoc queries (see MarketDataQuery), for
+     * questions that do not need a full pass over the data
+     */
+    public MarketDataQuery query() {
+        return MarketDataQuery.load(symbolCache, priceSource, pipeline, metrics);
+    }
+
+    /***
+     * Generate several reports from a single pass over the market data, e.g.
+     *
+     * reports.generateReports(
+     *         new CloseAboveMidReport(closeAboveMidStream),
+     *         new CompositeReport(nasdaq100Stream, MarketIndex.NASDAQ_100));
+     *
+     * @param reports the reports to fill
+     */
+    public void generateReports(ReportAggregator... reports) {
+        var engine = new ReportEngine(symbolCache, priceSource, pipeline, metrics);
+        for (var report : reports)
+            engine.register(report);
+        engine.run();
+    }
+
+    /***
+     * Generates the CloseAboveMid report (see generateCloseAboveMidPriceReport()) on the given
+     * executor
+     *
+     * @return a future that completes when the report has been written; cancelling it stops the run
+     */
+    public CompletableFuture<Void> generateCloseAboveMidPriceReportAsync(OutputStream outputStream, Executor executor) {
+        return generateReportsAsync(executor, progress -> {
+        }, new CloseAboveMidReport(outputStream));
+    }
+
+    /***
+     * Generates the NASDAQ 100 composite report (see generateNASDAQ100CompositeReport()) on the
+     * given executor
+     *
+     * @return a future that completes when the report has been written; cancelling it stops the run
+     */
+    public CompletableFuture<Void> generateNASDAQ100CompositeReportAsync(OutputStream outputStream, Executor executor) {
+        return generateReportsAsync(executor, progress -> {
+        }, new CompositeReport(outputStream, MarketIndex.NASDAQ_100));
+    }
+
+    /***
+     * Generates several reports from a single pass over the market data, as generateReports(), on
+     * the given executor.
+     *
+     * Cancelling the returned future stops the run promptly, including its file reads (see
+     * ReportEngine.run()); the reports are then left partly written and their streams are not
+     * closed. Any number of runs may share this object, and with it the symbol cache, at the same
+     * time, as long as each run has its own reports.
+     *
+     * @param executor where to run the reports
+     * @param progress called with the symbols and bytes read so far as the run progresses
+     * @param reports the reports to fill
+     * @return a future that completes when all the reports have been written
+     */
+    public CompletableFuture<Void> generateReportsAsync(Executor executor, Consumer<ReportProgress> progress,
+                                                        ReportAggregator... reports) {
+        var future = new CompletableFuture<Void>();
+        var engine = new ReportEngine(symbolCache, priceSource, pipeline, metrics);
+        for (var report : reports)
+            engine.register(report);
 
+        try {
+            executor.execute(() -> {
+                if (future.isDone())
+                    return;
+                try {
+                    engine.run(future::isDone, progress);
+                    future.complete(null);
+                } catch (CancellationException e) {
+                    future.cancel(false);
+                } catch (Throwable e) {
+                    future.completeExceptionally(e);
+                }
+            });
+        } catch (RuntimeException e) {
+            future.completeExceptionally(e);
+        }
+        return future;
     }
 }
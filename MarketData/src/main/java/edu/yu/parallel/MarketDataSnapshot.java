@@ -0,0 +1,447 @@
+package edu.yu.parallel;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+/***
+ * A single binary file holding the symbol list and the market data of every symbol, built once from
+ * the CSV files so that later runs can start without parsing any CSV.
+ *
+ * Layout, all values little-endian:
+ *   header      - magic, version, symbol count, dictionary length (4 ints),
+ *                 symbol file size, symbol file last-modified (2 longs), dictionary CRC32C (int), reserved
+ *   dictionary  - per symbol: symbol, company (short length + UTF-8 bytes), etf (byte),
+ *                 nasdaq100 weight, s&p500 weight (2 doubles), data file size, data file last-modified,
+ *                 block offset (3 longs), block length, block CRC32C (2 ints)
+ *   blocks      - per symbol with a data file: the series in the ColumnarSeries layout, 8-byte aligned
+ *
+ * open() maps an existing snapshot and checks it against the sizes and timestamps of the symbol file
+ * and every data file. If anything changed, or the snapshot is missing or damaged, it is rebuilt
+ * (re-using the blocks of the symbols whose data file did not change) before being opened.
+ *
+ * A snapshot may be larger than a single mapping (2GB): the dictionary and the blocks are mapped in
+ * regions of whole blocks of up to REGION_BYTES each, and blocks are located by long offsets. A
+ * rebuild writes each block as soon as it is encoded, in the order they are done, so it holds no
+ * more blocks in memory than the pipeline has files in flight.
+ *
+ * Each build is a new generation of the snapshot, in a file of its own ([snapshot file].[n]), and
+ * open() maps the latest. A rebuild reads the unchanged blocks from the previous generation, which
+ * stays mapped, so it never writes over a mapped file (which Windows refuses). Older generations are
+ * deleted after a rebuild; one still mapped on Windows is left in place and deleted by a later one.
+ */
+public class MarketDataSnapshot implements PriceSource {
+    private final static Logger logger = LogManager.getLogger(MarketDataSnapshot.class);
+
+    static final int MAGIC = 0x4D44534E; // "MDSN"
+    static final int VERSION = 1;
+    static final int HEADER_BYTES = 64;
+    static final long REGION_BYTES = 1L << 30;
+    private static final long NO_DATA = -1;
+
+    private final long symbolFileSize;
+    private final long symbolFileLastModified;
+    private final SymbolData[] symbols;
+    private final long[] sourceSizes;
+    private final long[] sourceLastModified;
+    private final long[] blockOffsets;
+    private final int[] blockLengths;
+    private final int[] blockChecksums;
+    private final boolean[] verified;
+    private final Map<String, Integer> index;
+    // The mapped regions, and for each symbol with data the region holding its block
+    private final ByteBuffer[] regions;
+    private final long[] regionOffsets;
+    private final int[] blockRegions;
+
+    /***
+     * @param regionBytes the size up to which consecutive blocks are mapped together
+     */
+    private MarketDataSnapshot(FileChannel channel, long regionBytes) throws IOException {
+        var size = channel.size();
+        if (size < HEADER_BYTES)
+            throw new IllegalArgumentException("Not a market data snapshot");
+        var header = map(channel, 0, HEADER_BYTES);
+        if (header.getInt(0) != MAGIC || header.getInt(4) != VERSION)
+            throw new IllegalArgumentException("Not a market data snapshot");
+
+        var count = header.getInt(8);
+        var dictionaryLength = header.getInt(12);
+        if (count < 0 || dictionaryLength < 0 || HEADER_BYTES + (long) dictionaryLength > size)
+            throw new IllegalArgumentException("Snapshot dictionary is damaged");
+        var dictionary = map(channel, HEADER_BYTES, dictionaryLength);
+        if (checksum(dictionary, 0, dictionaryLength) != header.getInt(32))
+            throw new IllegalArgumentException("Snapshot dictionary is damaged");
+
+        this.symbolFileSize = header.getLong(16);
+        this.symbolFileLastModified = header.getLong(24);
+        this.symbols = new SymbolData[count];
+        this.sourceSizes = new long[count];
+        this.sourceLastModified = new long[count];
+        this.blockOffsets = new long[count];
+        this.blockLengths = new int[count];
+        this.blockChecksums = new int[count];
+        this.verified = new boolean[count];
+        this.index = new HashMap<>(count * 2);
+
+        for (int i = 0; i < count; i++) {
+            var symbol = getString(dictionary);
+            var company = getString(dictionary);
+            var etf = dictionary.get() != 0;
+            symbols[i] = new SymbolData(symbol, company, etf, dictionary.getDouble(), dictionary.getDouble());
+            sourceSizes[i] = dictionary.getLong();
+            sourceLastModified[i] = dictionary.getLong();
+            blockOffsets[i] = dictionary.getLong();
+            blockLengths[i] = dictionary.getInt();
+            blockChecksums[i] = dictionary.getInt();
+            if (blockOffsets[i] < 0 || blockLengths[i] < 0 || blockOffsets[i] + blockLengths[i] > size)
+                throw new IllegalArgumentException("Snapshot block out of range: " + symbol);
+            index.put(symbol, i);
+        }
+
+        // Consecutive blocks share a region as long as it stays within regionBytes
+        var blocks = IntStream.range(0, count)
+                .filter(i -> sourceSizes[i] != NO_DATA)
+                .boxed()
+                .sorted(Comparator.comparingLong(i -> blockOffsets[i]))
+                .toList();
+        var regions = new ArrayList<ByteBuffer>();
+        var regionOffsets = new ArrayList<Long>();
+        this.blockRegions = new int[count];
+        for (int first = 0; first < blocks.size(); ) {
+            var start = blockOffsets[blocks.get(first)];
+            var end = start + blockLengths[blocks.get(first)];
+            var last = first + 1;
+            while (last < blocks.size()
+                    && blockOffsets[blocks.get(last)] + blockLengths[blocks.get(last)] - start <= regionBytes) {
+                end = Math.max(end, blockOffsets[blocks.get(last)] + blockLengths[blocks.get(last)]);
+                last++;
+            }
+            for (int b = first; b < last; b++)
+                blockRegions[blocks.get(b)] = regions.size();
+            regions.add(map(channel, start, (int) (end - start)));
+            regionOffsets.add(start);
+            first = last;
+        }
+        this.regions = regions.toArray(new ByteBuffer[0]);
+        this.regionOffsets = regionOffsets.stream().mapToLong(Long::longValue).toArray();
+    }
+
+    /***
+     * Opens the snapshot for the symbol file and data directory, kept in
+     * [data directory]/.snapshot/[symbol file].snapshot.[n]
+     */
+    public static MarketDataSnapshot open(String symbolFile, Path dataDirectory) {
+        var snapshotFile = dataDirectory.resolve(".snapshot").resolve(symbolFile + ".snapshot");
+        return open(new SymbolReader(symbolFile), dataDirectory, snapshotFile, IngestionPipeline.sequential());
+    }
+
+    /***
+     * Opens a snapshot, first (re)building it if it is missing, damaged or out of date
+     *
+     * @param symbolReader the symbol file the snapshot is built from
+     * @param dataDirectory the directory with the per-symbol CSV files
+     * @param snapshotFile where the snapshot is kept: each generation is [snapshotFile].[n]
+     * @param pipeline the pipeline used to parse the CSV files when (re)building
+     * @return the opened snapshot
+     */
+    public static MarketDataSnapshot open(SymbolReader symbolReader, Path dataDirectory, Path snapshotFile,
+                                          IngestionPipeline pipeline) {
+        return open(symbolReader, dataDirectory, snapshotFile, pipeline, REGION_BYTES);
+    }
+
+    static MarketDataSnapshot open(SymbolReader symbolReader, Path dataDirectory, Path snapshotFile,
+                                   IngestionPipeline pipeline, long regionBytes) {
+        try {
+            var symbolFileStamp = symbolReader.sourceStamp();
+            var current = currentFile(snapshotFile);
+            MarketDataSnapshot previous = null;
+            if (current != null) {
+                try {
+                    previous = read(current, regionBytes);
+                    if (previous.isCurrent(symbolFileStamp, dataDirectory))
+                        return previous;
+                    logger.info("Snapshot {} is out of date", current);
+                } catch (IllegalArgumentException e) {
+                    logger.warn("Snapshot {} is not usable: {}", current, e.getMessage());
+                }
+            }
+
+            var start = Instant.now();
+            var next = generationFile(snapshotFile, current == null ? 1 : generation(snapshotFile, current) + 1);
+            build(symbolReader, symbolFileStamp, dataDirectory, next, previous, pipeline);
+            logger.info("Built snapshot {}: duration={}", next, Duration.between(start, Instant.now()).toMillis());
+            deleteOtherGenerations(snapshotFile, next);
+            return read(next, regionBytes);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /***
+     * @return the latest generation of the snapshot, or null if there is none
+     */
+    static Path currentFile(Path snapshotFile) throws IOException {
+        if (!Files.isDirectory(snapshotFile.getParent()))
+            return null;
+        Path current = null;
+        try (var files = Files.newDirectoryStream(snapshotFile.getParent())) {
+            for (var file : files) {
+                if (generation(snapshotFile, file) > (current == null ? 0 : generation(snapshotFile, current)))
+                    current = file;
+            }
+        }
+        return current;
+    }
+
+    private static Path generationFile(Path snapshotFile, long generation) {
+        return snapshotFile.resolveSibling(snapshotFile.getFileName() + "." + generation);
+    }
+
+    /***
+     * @return the generation of the snapshot the file holds, or 0 if it is not a generation of it
+     */
+    private static long generation(Path snapshotFile, Path file) {
+        var prefix = snapshotFile.getFileName() + ".";
+        var name = file.getFileName().toString();
+        if (!name.startsWith(prefix) || !name.substring(prefix.length()).matches("[0-9]{1,18}"))
+            return 0;
+        return Long.parseLong(name.substring(prefix.length()));
+    }
+
+    /***
+     * Deletes the generations of the snapshot other than the current one (and a snapshot written
+     * before there were generations), skipping any that cannot be deleted yet
+     */
+    private static void deleteOtherGenerations(Path snapshotFile, Path current) throws IOException {
+        try (var files = Files.newDirectoryStream(snapshotFile.getParent(),
+                file -> !file.equals(current) && (file.equals(snapshotFile) || generation(snapshotFile, file) > 0))) {
+            for (var file : files) {
+                try {
+                    Files.deleteIfExists(file);
+                } catch (IOException e) {
+                    logger.debug("Cannot delete {} yet: {}", file, e.toString());
+                }
+            }
+        }
+    }
+
+    /***
+     * @return every symbol of the symbol file the snapshot was built from, in file order
+     */
+    public Stream<SymbolData> symbols() {
+        return Arrays.stream(symbols);
+    }
+
+    /***
+     * @return the number of regions the blocks are mapped in
+     */
+    int regions() {
+        return regions.length;
+    }
+
+    @Override
+    public Optional<PriceSeries> load(String symbol) {
+        var i = index.get(symbol);
+        if (i == null || sourceSizes[i] == NO_DATA)
+            return Optional.empty();
+
+        var region = blockRegions[i];
+        var block = regions[region].slice((int) (blockOffsets[i] - regionOffsets[region]), blockLengths[i]);
+        if (!verified[i]) {
+            // A benign race: at worst two threads both verify the same block
+            if (checksum(block, 0, blockLengths[i]) != blockChecksums[i])
+                throw new UncheckedIOException(new IOException("Snapshot block checksum mismatch: " + symbol));
+            verified[i] = true;
+        }
+        return Optional.of(new ColumnarSeries(symbol, block));
+    }
+
+    private boolean isCurrent(FileStamp symbolFileStamp, Path dataDirectory) {
+        if (symbolFileSize != symbolFileStamp.size() || symbolFileLastModified != symbolFileStamp.lastModified())
+            return false;
+
+        for (int i = 0; i < symbols.length; i++) {
+            var stamp = FileStamp.of(dataFile(dataDirectory, symbols[i].symbol()));
+            if (stamp.size() != sourceSizes[i] || stamp.lastModified() != sourceLastModified[i])
+                return false;
+        }
+        return true;
+    }
+
+    private record Entry(SymbolData symbol, FileStamp stamp, long offset, int length, int checksum) {
+    }
+
+    private static void build(SymbolReader symbolReader, FileStamp symbolFileStamp, Path dataDirectory,
+                              Path generationFile, MarketDataSnapshot previous, IngestionPipeline pipeline)
+            throws IOException {
+        var csvSource = new CsvPriceSource(dataDirectory);
+        var symbols = symbolReader.stream().toList();
+        var dictionaryLength = dictionaryLength(symbols);
+
+        var directory = generationFile.getParent();
+        Files.createDirectories(directory);
+        var tempFile = Files.createTempFile(directory, generationFile.getFileName().toString(), ".tmp");
+        try {
+            try (var channel = FileChannel.open(tempFile, StandardOpenOption.WRITE)) {
+                // The blocks follow the space left for the header and the dictionary
+                var end = new AtomicLong(align(HEADER_BYTES + (long) dictionaryLength));
+
+                // Stamp each data file before it is parsed, so a file that changes while it is being
+                // read is seen as out of date the next time the snapshot is opened
+                var entries = pipeline.map(symbols, data -> {
+                    var stamp = FileStamp.of(dataFile(dataDirectory, data.symbol()));
+                    var reusable = previous != null && previous.isUnchanged(data.symbol(), stamp);
+                    var series = stamp.size() == NO_DATA ? Optional.<PriceSeries>empty()
+                            : (reusable ? previous : csvSource).load(data.symbol());
+                    if (series.isEmpty())
+                        return new Entry(data, FileStamp.MISSING, 0, 0, 0);
+
+                    var block = ColumnarSeries.encode(series.get(), stamp.size(), stamp.lastModified());
+                    var length = block.remaining();
+                    var checksum = checksum(block, 0, length);
+                    var offset = end.getAndUpdate(position -> align(position + length));
+                    writeFully(channel, block, offset);
+                    return new Entry(data, stamp, offset, length, checksum);
+                });
+
+                var dictionary = encodeDictionary(entries, dictionaryLength);
+                var header = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN)
+                        .putInt(MAGIC).putInt(VERSION).putInt(entries.size()).putInt(dictionaryLength)
+                        .putLong(symbolFileStamp.size()).putLong(symbolFileStamp.lastModified())
+                        .putInt(checksum(dictionary, 0, dictionaryLength))
+                        .position(HEADER_BYTES)
+                        .flip();
+                writeFully(channel, header, 0);
+                writeFully(channel, dictionary, HEADER_BYTES);
+            }
+            try {
+                Files.move(tempFile, generationFile, StandardCopyOption.ATOMIC_MOVE);
+            } catch (IOException e) {
+                // Another JVM built the same generation first (and may have mapped it)
+                if (!Files.isRegularFile(generationFile))
+                    throw e;
+            }
+        } finally {
+            Files.deleteIfExists(tempFile);
+        }
+    }
+
+    private boolean isUnchanged(String symbol, FileStamp stamp) {
+        var i = index.get(symbol);
+        return i != null && sourceSizes[i] == stamp.size() && sourceLastModified[i] == stamp.lastModified();
+    }
+
+    private static int dictionaryLength(List<SymbolData> symbols) {
+        var length = 0L;
+        for (var symbol : symbols) {
+            length += 2 + symbol.symbol().getBytes(StandardCharsets.UTF_8).length
+                    + 2 + symbol.company().getBytes(StandardCharsets.UTF_8).length
+                    + 1 + 2 * Double.BYTES + 3 * Long.BYTES + 2 * Integer.BYTES;
+        }
+        return Math.toIntExact(length);
+    }
+
+    private static ByteBuffer encodeDictionary(List<Entry> entries, int length) {
+        var dictionary = ByteBuffer.allocate(length).order(ByteOrder.LITTLE_ENDIAN);
+        for (var entry : entries) {
+            putString(dictionary, entry.symbol().symbol().getBytes(StandardCharsets.UTF_8));
+            putString(dictionary, entry.symbol().company().getBytes(StandardCharsets.UTF_8));
+            dictionary.put((byte) (entry.symbol().etf() ? 1 : 0))
+                    .putDouble(entry.symbol().nsdq100Weight())
+                    .putDouble(entry.symbol().snp500Weight())
+                    .putLong(entry.stamp().size())
+                    .putLong(entry.stamp().lastModified())
+                    .putLong(entry.offset())
+                    .putInt(entry.length())
+                    .putInt(entry.checksum());
+        }
+        return dictionary.flip();
+    }
+
+    private static Path dataFile(Path dataDirectory, String symbol) {
+        return CsvPriceSource.dataFile(dataDirectory, symbol);
+    }
+
+    private static long align(long offset) {
+        return (offset + 7) & ~7L;
+    }
+
+    private static int checksum(ByteBuffer buffer, int offset, int length) {
+        var crc = new CRC32C();
+        crc.update(buffer.slice(offset, length));
+        return (int) crc.getValue();
+    }
+
+    private static void putString(ByteBuffer buffer, byte[] bytes) {
+        buffer.putShort((short) bytes.length).put(bytes);
+    }
+
+    private static String getString(ByteBuffer buffer) {
+        var bytes = new byte[Short.toUnsignedInt(buffer.getShort())];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /***
+     * Writes the buffer at the position, which is safe for concurrent writes to different positions
+     */
+    private static void writeFully(FileChannel channel, ByteBuffer buffer, long position) {
+        try {
+            while (buffer.hasRemaining())
+                position += channel.write(buffer, position);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static MarketDataSnapshot read(Path file, long regionBytes) throws IOException {
+        try (var channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            return new MarketDataSnapshot(channel, regionBytes);
+        }
+    }
+
+    private static ByteBuffer map(FileChannel channel, long offset, int length) throws IOException {
+        return channel.map(FileChannel.MapMode.READ_ONLY, offset, length).order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    /***
+     * The size and last-modified time (millis) of a source file; both are -1 if the file does not exist
+     */
+    record FileStamp(long size, long lastModified) {
+        static final FileStamp MISSING = new FileStamp(NO_DATA, NO_DATA);
+
+        static FileStamp of(Path file) {
+            try {
+                if (!Files.isRegularFile(file))
+                    return MISSING;
+                return new FileStamp(Files.size(file), Files.getLastModifiedTime(file).toMillis());
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+}
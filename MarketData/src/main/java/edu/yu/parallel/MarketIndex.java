@@ -0,0 +1,22 @@
+package edu.yu.parallel;
+
+import java.util.function.ToDoubleFunction;
+
+/***
+ * The weighted indexes that the symbol file tags symbols with. A symbol is a member of an index
+ * if its participation weight in that index is greater than 0.
+ */
+public enum MarketIndex {
+    NASDAQ_100(SymbolData::nsdq100Weight),
+    SNP_500(SymbolData::snp500Weight);
+
+    private final ToDoubleFunction<SymbolData> weight;
+
+    MarketIndex(ToDoubleFunction<SymbolData> weight) {
+        this.weight = weight;
+    }
+
+    public double weight(SymbolData symbol) {
+        return weight.applyAsDouble(symbol);
+    }
+}
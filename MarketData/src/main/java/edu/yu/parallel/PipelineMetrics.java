@@ -0,0 +1,283 @@
+package edu.yu.parallel;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.IntSupplier;
+import java.util.function.ToLongFunction;
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+/***
+ * Time, calls, rows and bytes per stage of the report runs, the per-symbol parse latency and the
+ * depth of the ingestion pipeline's queue, so that it is clear which stage to work on.
+ *
+ * Everything is counted with LongAdders and a lock-free histogram, so the threads of a parallel
+ * pipeline record without contending, and a ReportEngine times rows by sampling (see
+ * Stage.PARSE) rather than calling the clock twice per row. The metrics accumulate across runs
+ * until reset(), and can be followed live over JMX once register()ed.
+ */
+public class PipelineMetrics implements PipelineMetricsMXBean {
+
+    public enum Stage {
+        /***
+         * Opening a symbol's cursor to stream it (part of PARSE when symbols are loaded)
+         */
+        OPEN,
+        /***
+         * Reading and parsing the market data, one call and one parse latency per symbol read:
+         * loaded whole (see IngestionPipeline.run()), streamed by a task of its own, or streamed
+         * in a merged scan. The time of a merged scan without read-ahead is estimated from a
+         * sample of the rows and shared out by the rows each symbol's cursor was advanced. The
+         * bytes are those read from the files when streaming, and the size of the loaded series
+         * otherwise.
+         */
+        PARSE,
+        /***
+         * Passing the rows to the reports (estimated from the same sample when streaming) and the
+         * reports' per-date work
+         */
+        AGGREGATE,
+        /***
+         * Finishing the reports: sorting the close-above-mid counts and formatting what is left
+         */
+        SORT,
+        /***
+         * Writing the reports' output to its destination
+         */
+        WRITE;
+
+        String label() {
+            return name().toLowerCase(Locale.ROOT);
+        }
+    }
+
+    private final Map<Stage, Counters> stages = new EnumMap<>(Stage.class);
+    private final LatencyHistogram parseLatency = new LatencyHistogram();
+    private final LongAdder queueSamples = new LongAdder();
+    private final LongAdder queueDepthSum = new LongAdder();
+    private final LongAccumulator maxQueueDepth = new LongAccumulator(Math::max, 0);
+    private volatile IntSupplier queueDepth = () -> 0;
+
+    public PipelineMetrics() {
+        for (var stage : Stage.values())
+            stages.put(stage, new Counters());
+    }
+
+    /***
+     * Records work done in a stage
+     *
+     * @param calls the number of calls (e.g. files or dates) the time was spent in
+     */
+    public void record(Stage stage, long nanos, long calls, long rows, long bytes) {
+        var counters = stages.get(stage);
+        counters.nanos.add(nanos);
+        counters.calls.add(calls);
+        counters.rows.add(rows);
+        counters.bytes.add(bytes);
+    }
+
+    /***
+     * Records the loading of one symbol: a call of the parse stage, and a parse latency
+     */
+    public void recordParse(long nanos, long rows, long bytes) {
+        record(Stage.PARSE, nanos, 1, rows, bytes);
+        parseLatency.record(nanos);
+    }
+
+    /***
+     * Records a sample of the pipeline's queue depth, e.g. as each task starts
+     */
+    public void sampleQueueDepth() {
+        var depth = queueDepth.getAsInt();
+        queueSamples.increment();
+        queueDepthSum.add(depth);
+        maxQueueDepth.accumulate(depth);
+    }
+
+    /***
+     * @param queueDepth reads the current depth of the pipeline's queue (see IngestionPipeline.queueDepth())
+     */
+    public void watchQueue(IntSupplier queueDepth) {
+        this.queueDepth = queueDepth;
+    }
+
+    /***
+     * @return a stream that counts the time and bytes written through it as the WRITE stage
+     */
+    public OutputStream meter(OutputStream outputStream) {
+        return new MeteredOutputStream(outputStream);
+    }
+
+    /***
+     * Registers the metrics with the platform MBean server as
+     * edu.yu.parallel:type=PipelineMetrics,name=[name], replacing any metrics registered under the
+     * same name
+     */
+    public void register(String name) {
+        try {
+            var server = ManagementFactory.getPlatformMBeanServer();
+            var objectName = new ObjectName("edu.yu.parallel:type=PipelineMetrics,name=" + ObjectName.quote(name));
+            if (server.isRegistered(objectName))
+                server.unregisterMBean(objectName);
+            server.registerMBean(this, objectName);
+        } catch (JMException e) {
+            throw new IllegalStateException("Could not register the pipeline metrics", e);
+        }
+    }
+
+    public long nanos(Stage stage) {
+        return stages.get(stage).nanos.sum();
+    }
+
+    public long calls(Stage stage) {
+        return stages.get(stage).calls.sum();
+    }
+
+    public long rows(Stage stage) {
+        return stages.get(stage).rows.sum();
+    }
+
+    public long bytes(Stage stage) {
+        return stages.get(stage).bytes.sum();
+    }
+
+    public LatencyHistogram parseLatency() {
+        return parseLatency;
+    }
+
+    @Override
+    public Map<String, Long> getStageMillis() {
+        return byStage(counters -> counters.nanos.sum() / 1_000_000);
+    }
+
+    @Override
+    public Map<String, Long> getStageCalls() {
+        return byStage(counters -> counters.calls.sum());
+    }
+
+    @Override
+    public Map<String, Long> getStageRows() {
+        return byStage(counters -> counters.rows.sum());
+    }
+
+    @Override
+    public Map<String, Long> getStageBytes() {
+        return byStage(counters -> counters.bytes.sum());
+    }
+
+    @Override
+    public Map<String, Long> getParseLatencyMicros() {
+        var latency = new LinkedHashMap<String, Long>();
+        latency.put("count", parseLatency.count());
+        latency.put("mean", (long) parseLatency.mean() / 1000);
+        latency.put("p50", parseLatency.percentile(50) / 1000);
+        latency.put("p90", parseLatency.percentile(90) / 1000);
+        latency.put("p99", parseLatency.percentile(99) / 1000);
+        latency.put("max", parseLatency.max() / 1000);
+        return latency;
+    }
+
+    @Override
+    public int getQueueDepth() {
+        return queueDepth.getAsInt();
+    }
+
+    @Override
+    public long getMaxQueueDepth() {
+        return maxQueueDepth.get();
+    }
+
+    /***
+     * @return a table of the stages, with their throughput, followed by the parse latency and the
+     * queue depth
+     */
+    @Override
+    public String getSummary() {
+        var summary = new StringBuilder(String.format("%-10s %8s %10s %12s %14s %10s %10s%n",
+                "stage", "calls", "time(ms)", "rows", "rows/s", "MB", "MB/s"));
+        for (var entry : stages.entrySet()) {
+            var counters = entry.getValue();
+            var seconds = counters.nanos.sum() / 1e9;
+            var rows = counters.rows.sum();
+            var megabytes = counters.bytes.sum() / 1e6;
+            summary.append(String.format("%-10s %8d %10.1f %12d %14.0f %10.1f %10.1f%n",
+                    entry.getKey().label(), counters.calls.sum(), seconds * 1000, rows,
+                    seconds > 0 ? rows / seconds : 0, megabytes, seconds > 0 ? megabytes / seconds : 0));
+        }
+        summary.append(String.format("parse latency per symbol (us): n=%d mean=%.0f p50=%d p90=%d p99=%d max=%d%n",
+                parseLatency.count(), parseLatency.mean() / 1000, parseLatency.percentile(50) / 1000,
+                parseLatency.percentile(90) / 1000, parseLatency.percentile(99) / 1000, parseLatency.max() / 1000));
+        var samples = queueSamples.sum();
+        summary.append(String.format("pipeline queue depth: samples=%d mean=%.1f max=%d",
+                samples, samples > 0 ? (double) queueDepthSum.sum() / samples : 0, maxQueueDepth.get()));
+        return summary.toString();
+    }
+
+    @Override
+    public void reset() {
+        for (var counters : stages.values()) {
+            counters.nanos.reset();
+            counters.calls.reset();
+            counters.rows.reset();
+            counters.bytes.reset();
+        }
+        parseLatency.reset();
+        queueSamples.reset();
+        queueDepthSum.reset();
+        maxQueueDepth.reset();
+    }
+
+    @Override
+    public String toString() {
+        return getSummary();
+    }
+
+    private Map<String, Long> byStage(ToLongFunction<Counters> value) {
+        var values = new LinkedHashMap<String, Long>();
+        stages.forEach((stage, counters) -> values.put(stage.label(), value.applyAsLong(counters)));
+        return values;
+    }
+
+    private static final class Counters {
+        final LongAdder nanos = new LongAdder();
+        final LongAdder calls = new LongAdder();
+        final LongAdder rows = new LongAdder();
+        final LongAdder bytes = new LongAdder();
+    }
+
+    private final class MeteredOutputStream extends FilterOutputStream {
+
+        MeteredOutputStream(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            var start = System.nanoTime();
+            out.write(b);
+            record(Stage.WRITE, System.nanoTime() - start, 1, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            var start = System.nanoTime();
+            out.write(b, off, len);
+            record(Stage.WRITE, System.nanoTime() - start, 1, 0, len);
+        }
+
+        @Override
+        public void flush() throws IOException {
+            var start = System.nanoTime();
+            out.flush();
+            record(Stage.WRITE, System.nanoTime() - start, 0, 0, 0);
+        }
+    }
+}
@@ -0,0 +1,35 @@
+package edu.yu.parallel;
+
+import java.util.Map;
+
+/***
+ * The JMX view of a PipelineMetrics (see PipelineMetrics.register()). The maps are keyed by stage
+ * name (open, parse, aggregate, sort, write), or by statistic for the parse latency.
+ */
+public interface PipelineMetricsMXBean {
+
+    Map<String, Long> getStageMillis();
+
+    Map<String, Long> getStageCalls();
+
+    Map<String, Long> getStageRows();
+
+    Map<String, Long> getStageBytes();
+
+    /***
+     * @return the count, mean, p50, p90, p99 and max of the per-symbol parse latency, in microseconds
+     * (the count is a number of symbols)
+     */
+    Map<String, Long> getParseLatencyMicros();
+
+    /***
+     * @return the number of tasks currently queued in the ingestion pipeline's pool
+     */
+    int getQueueDepth();
+
+    long getMaxQueueDepth();
+
+    String getSummary();
+
+    void reset();
+}
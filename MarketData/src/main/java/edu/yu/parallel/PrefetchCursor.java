@@ -0,0 +1,176 @@
+package edu.yu.parallel;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/***
+ * A PriceCursor that reads ahead of its consumer: while the rows of one chunk are visited, the next
+ * CHUNK_ROWS rows are read (and, from a file, parsed) from the underlying cursor on the pipeline's
+ * executor. A scan over many prefetching cursors so parses their files in parallel, with two chunks
+ * per cursor in memory however long the series are.
+ *
+ * The underlying cursor is used by one task at a time, and each chunk is handed over through the
+ * future of the task that filled it. Like any cursor, a prefetching cursor has a single consumer.
+ */
+final class PrefetchCursor implements PriceCursor {
+    static final int CHUNK_ROWS = 128;
+
+    private final PriceCursor source;
+    private final IngestionPipeline pipeline;
+    private final PipelineMetrics metrics;
+    private Chunk chunk = new Chunk();
+    // The chunk being filled, or null once the underlying cursor is exhausted
+    private CompletableFuture<Chunk> next;
+    private int row = -1;
+    // Only used by the fill tasks, one after the other
+    private long parseNanos;
+    private long parsedRows;
+
+    /***
+     * Starts reading the first chunk
+     *
+     * @param metrics where to record the time spent reading the symbol, as its parse latency, once
+     *                it has been read to the end; or null
+     */
+    PrefetchCursor(PriceCursor source, IngestionPipeline pipeline, PipelineMetrics metrics) {
+        this.source = source;
+        this.pipeline = pipeline;
+        this.metrics = metrics;
+        this.next = fill(new Chunk());
+    }
+
+    @Override
+    public String symbol() {
+        return source.symbol();
+    }
+
+    @Override
+    public boolean next() {
+        if (++row < chunk.rows)
+            return true;
+        if (next == null)
+            return false;
+
+        var filled = join(next);
+        // The chunk just visited is refilled while the new one is
+        next = filled.exhausted ? null : fill(chunk);
+        chunk = filled;
+        row = 0;
+        return chunk.rows > 0;
+    }
+
+    @Override
+    public int epochDay() {
+        return chunk.epochDays[row];
+    }
+
+    @Override
+    public double high() {
+        return chunk.high[row];
+    }
+
+    @Override
+    public double low() {
+        return chunk.low[row];
+    }
+
+    @Override
+    public double open() {
+        return chunk.open[row];
+    }
+
+    @Override
+    public double close() {
+        return chunk.close[row];
+    }
+
+    @Override
+    public double volume() {
+        return chunk.volume[row];
+    }
+
+    @Override
+    public double adjClose() {
+        return chunk.adjClose[row];
+    }
+
+    /***
+     * @return the bytes the underlying cursor had read by the end of the current chunk
+     */
+    @Override
+    public long bytesRead() {
+        return chunk.bytesRead;
+    }
+
+    /***
+     * Waits for the chunk being read, if any, so that the file is not released under it, and
+     * releases the underlying cursor
+     */
+    @Override
+    public void release() {
+        if (next != null) {
+            next.handle((filled, e) -> null).join();
+            next = null;
+        }
+        source.release();
+    }
+
+    private CompletableFuture<Chunk> fill(Chunk spare) {
+        return pipeline.supply(() -> {
+            var start = metrics != null ? System.nanoTime() : 0;
+            spare.fill(source);
+            if (metrics != null) {
+                parseNanos += System.nanoTime() - start;
+                parsedRows += spare.rows;
+                if (spare.exhausted)
+                    metrics.recordParse(parseNanos, parsedRows, spare.bytesRead);
+            }
+            return spare;
+        });
+    }
+
+    private static Chunk join(CompletableFuture<Chunk> chunk) {
+        try {
+            return chunk.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause)
+                throw cause;
+            throw e;
+        }
+    }
+
+    private static final class Chunk {
+        final int[] epochDays = new int[CHUNK_ROWS];
+        final double[] high = new double[CHUNK_ROWS];
+        final double[] low = new double[CHUNK_ROWS];
+        final double[] open = new double[CHUNK_ROWS];
+        final double[] close = new double[CHUNK_ROWS];
+        final double[] volume = new double[CHUNK_ROWS];
+        final double[] adjClose = new double[CHUNK_ROWS];
+        int rows;
+        boolean exhausted;
+        long bytesRead;
+
+        /***
+         * Reads up to CHUNK_ROWS rows from the cursor
+         */
+        void fill(PriceCursor source) {
+            rows = 0;
+            while (rows < CHUNK_ROWS) {
+                if (!source.next()) {
+                    exhausted = true;
+                    break;
+                }
+                epochDays[rows] = source.epochDay();
+                high[rows] = source.high();
+                low[rows] = source.low();
+                open[rows] = source.open();
+                close[rows] = source.close();
+                volume[rows] = source.volume();
+                adjClose[rows] = source.adjClose();
+                rows++;
+            }
+            bytesRead = source.bytesRead();
+        }
+    }
+}
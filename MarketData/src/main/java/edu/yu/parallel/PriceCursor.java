@@ -0,0 +1,48 @@
+package edu.yu.parallel;
+
+/***
+ * A forward-only view of a symbol's market data, one row (trading day) at a time, in date order.
+ *
+ * Unlike a PriceSeries, a cursor does not need the whole series in memory, so it can stream a file
+ * of any length in constant space. The accessors return the values of the current row and are only
+ * valid after next() has returned true. (close() is the closing price, so the file behind a cursor is
+ * released with release().)
+ */
+public interface PriceCursor {
+
+    String symbol();
+
+    /***
+     * Moves to the next row
+     *
+     * @return false if there are no more rows
+     */
+    boolean next();
+
+    int epochDay();
+
+    double high();
+
+    double low();
+
+    double open();
+
+    double close();
+
+    double volume();
+
+    double adjClose();
+
+    /***
+     * @return the number of bytes of market data the cursor has read so far: the bytes of the file
+     * for cursors that stream one, and the columnar size of the rows visited for series in memory
+     */
+    default long bytesRead() {
+        return 0;
+    }
+
+    /***
+     * Releases the file (if any) the cursor is reading from
+     */
+    void release();
+}
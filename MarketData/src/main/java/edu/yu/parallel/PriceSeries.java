@@ -0,0 +1,39 @@
+package edu.yu.parallel;
+
+/***
+ * The daily market data for a single symbol, ordered by date.
+ *
+ * Rows are addressed by index so that reports can run over the series as a tight loop without
+ * materializing a record per row. Dates are expressed as epoch days (see LocalDate.toEpochDay()).
+ */
+public interface PriceSeries {
+
+    String symbol();
+
+    /***
+     *
+     * @return The number of rows (trading days) in the series
+     */
+    int size();
+
+    int epochDay(int row);
+
+    double high(int row);
+
+    double low(int row);
+
+    double open(int row);
+
+    double close(int row);
+
+    double volume(int row);
+
+    double adjClose(int row);
+
+    /***
+     * @return a cursor positioned before the first row of the series
+     */
+    default PriceCursor cursor() {
+        return new SeriesCursor(this);
+    }
+}
@@ -0,0 +1,52 @@
+package edu.yu.parallel;
+
+import java.nio.file.Path;
+import java.util.Optional;
+
+/***
+ * Provides the market data series for a symbol. Implementations decide how the data is stored
+ * (e.g. the CSV files themselves or a memory-mapped columnar copy of them).
+ */
+public interface PriceSource {
+
+    /***
+     * Loads the market data for the given symbol
+     *
+     * @param symbol the symbol to load
+     * @return the series, or an empty Optional if no data has been provided for the symbol
+     * @throws java.io.UncheckedIOException if the data exists but could not be read
+     */
+    Optional<PriceSeries> load(String symbol);
+
+    /***
+     * Opens a cursor over the market data for the given symbol. Sources that can read a symbol
+     * incrementally override this to stream the data instead of loading the whole series.
+     *
+     * @param symbol the symbol to read
+     * @return the cursor, which the caller must release(), or an empty Optional if no data has been
+     * provided for the symbol
+     */
+    default Optional<PriceCursor> open(String symbol) {
+        return load(symbol).map(PriceSeries::cursor);
+    }
+
+    /***
+     * @return true if data has been provided for the symbol, so that load() and open() would not
+     * return an empty Optional. Opens the symbol and releases it again; sources that can tell
+     * without reading the data override this.
+     */
+    default boolean hasData(String symbol) {
+        var cursor = open(symbol);
+        cursor.ifPresent(PriceCursor::release);
+        return cursor.isPresent();
+    }
+
+    /***
+     *
+     * @return the directory containing the per-symbol market data CSV files. Defaults to
+     * src/main/resources/data and may be overridden with the "data" system property
+     */
+    static Path defaultDataDirectory() {
+        return Path.of(System.getProperty("data", "src/main/resources/data"));
+    }
+}
@@ -0,0 +1,49 @@
+package edu.yu.parallel;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/***
+ * Spaces out the items of a stream so that no more than a given number pass per second.
+ *
+ * The limiter never blocks: reserve() books the next free slot and returns how long the caller
+ * must wait for it, which the caller can then sleep or schedule.
+ */
+public class RateLimiter {
+    private final long intervalNanos;
+    private final LongSupplier clock;
+    private final AtomicLong nextFreeNanos;
+
+    /***
+     * @param permitsPerSecond the maximum rate
+     */
+    public RateLimiter(double permitsPerSecond) {
+        this(permitsPerSecond, System::nanoTime);
+    }
+
+    /***
+     * @param clock the current time in nanoseconds, as System.nanoTime()
+     */
+    RateLimiter(double permitsPerSecond, LongSupplier clock) {
+        if (!(permitsPerSecond > 0))
+            throw new IllegalArgumentException("permitsPerSecond must be greater than 0");
+        this.intervalNanos = Math.max(1, (long) (1_000_000_000L / permitsPerSecond));
+        this.clock = clock;
+        this.nextFreeNanos = new AtomicLong(clock.getAsLong());
+    }
+
+    /***
+     * Reserves the next permit
+     *
+     * @return the number of nanoseconds until the permit may be used (0 if it may be used now)
+     */
+    public long reserve() {
+        while (true) {
+            var now = clock.getAsLong();
+            var next = nextFreeNanos.get();
+            var start = next - now > 0 ? next : now;
+            if (nextFreeNanos.compareAndSet(next, start + intervalNanos))
+                return start - now;
+        }
+    }
+}
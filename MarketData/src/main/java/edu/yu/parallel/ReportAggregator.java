@@ -0,0 +1,58 @@
+package edu.yu.parallel;
+
+/***
+ * A report that is filled from the ReportEngine's shared scan of the market data.
+ *
+ * The engine reads every symbol that at least one registered report includes, once, and hands
+ * each row to the reports that include its symbol. Rows arrive in date order, and within a date in
+ * symbol id order. Symbols are identified by their SymbolCache id, so reports can keep their
+ * per-symbol state in arrays. All callbacks are made on the engine's thread, except onRow() for a
+ * report that does not need date order (see needsDateOrder()).
+ */
+public interface ReportAggregator {
+
+    /***
+     * @return true if the report needs the market data of the given symbol
+     */
+    boolean includes(SymbolData symbol);
+
+    /***
+     * @return false if the report keeps only per-symbol state while the rows arrive (e.g. a count
+     * per id), so that it does not need the rows of different symbols merged by date. The symbols
+     * that no date-ordered report includes are then read separately, after the merged scan: a
+     * symbol per task on the engine's pipeline, one file open per task, with onRow() called
+     * concurrently for different symbols and in date order for each. onDateEnd() is only called
+     * for the dates of the merged scan.
+     */
+    default boolean needsDateOrder() {
+        return true;
+    }
+
+    /***
+     * Called once before the scan
+     *
+     * @param symbols the symbol cache that ids refer to
+     * @param scanned the ids, in ascending order, of the symbols that will be scanned (those
+     *                included by any report that have data)
+     */
+    void start(SymbolCache symbols, int[] scanned);
+
+    /***
+     * Called for each row of a symbol that this report includes
+     *
+     * @param id the SymbolCache id of the row's symbol
+     * @param row the cursor positioned on the row; only valid during the call
+     */
+    void onRow(int id, PriceCursor row);
+
+    /***
+     * Called once all the rows for a date have been scanned
+     */
+    default void onDateEnd(int epochDay) {
+    }
+
+    /***
+     * Called after the last row; the report writes whatever it has not yet written
+     */
+    void finish();
+}
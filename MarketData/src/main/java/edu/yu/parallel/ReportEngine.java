@@ -0,0 +1,383 @@
+package edu.yu.parallel;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+import java.util.stream.IntStream;
+
+/***
+ * Fills any number of reports from a single pass over the market data.
+ *
+ * The engine works out which symbols any registered report includes, opens each of them once and
+ * merges them into one scan in (date, symbol id) order with a CursorMerge. Every row is passed to each
+ * report that includes its symbol, so adding a report adds work per row but no extra I/O.
+ *
+ * The symbols are streamed from the price source, so the scan's memory does not grow with the
+ * length of the history. With a parallel pipeline the symbols are opened in parallel, and each
+ * cursor that streams a file reads ahead of the scan on the pipeline's threads, a chunk of rows at a
+ * time (see PrefetchCursor), so the files are parsed in parallel while the merge runs.
+ *
+ * The merged scan has a cursor open on every symbol it reads at once, since any of them may have the
+ * next date: with the CSV source, that is an open file and a 16KB read buffer per symbol (and two
+ * chunks of rows read ahead), so a scan of many thousands of CSV files needs a file descriptor limit
+ * (ulimit -n) above the number of symbols. The columnar and snapshot sources map their files, and
+ * their cursors keep none open. Only the symbols that a report needing date order includes are
+ * merged, though. The others, included only by reports that keep per-symbol state such as
+ * CloseAboveMidReport (see ReportAggregator.needsDateOrder()), are read after the merge, one task
+ * and one open file per symbol, so at most the pipeline's maxInFlight of them are open at a time.
+ *
+ * Given PipelineMetrics, the engine records the time of each stage of a run. Opens, chunks read
+ * ahead, dates and the reports' finish() are timed individually; rows are timed one in
+ * SAMPLE_INTERVAL and the totals estimated from the sample, which keeps the clock out of the
+ * per-row loop. A sequential scan's row time counts as PARSE and the reports' share of it as
+ * AGGREGATE; when the cursors read ahead, the chunks count as PARSE and the merge as AGGREGATE.
+ * A symbol read separately is timed as a whole, as PARSE. Time spent writing output from within
+ * the reports is part of their stage as well as of WRITE.
+ */
+public class ReportEngine {
+    private static final int CHECK_INTERVAL = 4096;
+    private static final int SAMPLE_INTERVAL = 16;
+
+    private final SymbolCache symbolCache;
+    private final PriceSource priceSource;
+    private final IngestionPipeline pipeline;
+    private final PipelineMetrics metrics;
+    private final List<ReportAggregator> reports = new ArrayList<>();
+
+    public ReportEngine(SymbolCache symbolCache, PriceSource priceSource, IngestionPipeline pipeline) {
+        this(symbolCache, priceSource, pipeline, null);
+    }
+
+    /***
+     * @param metrics where to record the time of each stage of a run, or null
+     */
+    public ReportEngine(SymbolCache symbolCache, PriceSource priceSource, IngestionPipeline pipeline,
+                        PipelineMetrics metrics) {
+        this.symbolCache = symbolCache;
+        this.priceSource = priceSource;
+        this.pipeline = pipeline;
+        this.metrics = metrics;
+    }
+
+    public ReportEngine register(ReportAggregator report) {
+        reports.add(report);
+        return this;
+    }
+
+    /***
+     * Scans the market data once and fills every registered report
+     */
+    public void run() {
+        run(() -> false, progress -> {
+        });
+    }
+
+    /***
+     * Scans the market data once and fills every registered report, checking for cancellation and
+     * reporting progress as it goes.
+     *
+     * Cancellation is checked before each symbol file is opened and every few thousand
+     * rows of the scan, so a cancelled run stops within a file read. The reports are then left
+     * unfinished and the open files are released.
+     *
+     * @param cancelled polled for whether the run should stop
+     * @param progress called whenever a symbol has been read completely, and every few thousand
+     *                 rows; calls are never concurrent, but while a parallel pipeline opens the
+     *                 symbols they are made on the pipeline's threads
+     * @throws CancellationException if the run was cancelled
+     */
+    public void run(BooleanSupplier cancelled, Consumer<ReportProgress> progress) {
+        var candidates = IntStream.range(0, symbolCache.size())
+                .filter(id -> reports.stream().anyMatch(report -> report.includes(symbolCache.symbolData(id))))
+                .toArray();
+        var merged = Arrays.stream(candidates).filter(this::needsDateOrder).toArray();
+        var separate = Arrays.stream(candidates).filter(id -> !needsDateOrder(id)).toArray();
+
+        var tracker = new Tracker(cancelled, progress, candidates.length);
+        var scanned = new int[merged.length];
+        int[] separateIds;
+        try (var merge = new CursorMerge(open(merged, scanned, tracker))) {
+            scanned = Arrays.copyOf(scanned, merge.size());
+            separateIds = withData(separate, tracker);
+            tracker.check();
+
+            // For each scanned symbol (by merge index), the reports that want its rows
+            var interested = new ReportAggregator[scanned.length][];
+            for (int i = 0; i < scanned.length; i++)
+                interested[i] = interested(scanned[i]);
+
+            var ids = scanned;
+            var all = IntStream.concat(Arrays.stream(ids), Arrays.stream(separateIds)).sorted().toArray();
+            reports.forEach(report -> report.start(symbolCache, all));
+
+            var epochDay = Integer.MIN_VALUE;
+            var rows = 0;
+            var timed = metrics != null;
+            long sampledNext = 0, sampledRows = 0, samples = 0;
+            // By merge index: the sampled time of the next() calls that advanced each cursor, and its rows
+            var sampledNextBy = timed ? new long[ids.length] : null;
+            var rowsBy = timed ? new int[ids.length] : null;
+            var previous = -1;
+            while (true) {
+                var sample = timed && rows % SAMPLE_INTERVAL == 0;
+                var start = sample ? System.nanoTime() : 0;
+                var i = merge.next();
+                if (i < 0)
+                    break;
+                if (sample) {
+                    var nanos = System.nanoTime() - start;
+                    sampledNext += nanos;
+                    if (previous >= 0)
+                        sampledNextBy[previous] += nanos;
+                }
+                if (timed)
+                    rowsBy[i]++;
+                previous = i;
+                if (++rows % CHECK_INTERVAL == 0)
+                    tracker.scanned(merge);
+
+                var row = merge.cursor(i);
+                if (row.epochDay() != epochDay) {
+                    if (epochDay != Integer.MIN_VALUE)
+                        endDate(epochDay);
+                    epochDay = row.epochDay();
+                }
+                start = sample ? System.nanoTime() : 0;
+                var id = ids[i];
+                for (var report : interested[i])
+                    report.onRow(id, row);
+                if (sample) {
+                    sampledRows += System.nanoTime() - start;
+                    samples++;
+                }
+            }
+            if (epochDay != Integer.MIN_VALUE)
+                endDate(epochDay);
+            tracker.scanned(merge);
+            if (timed)
+                recordScan(merge, rows, samples, sampledNext, sampledRows, sampledNextBy, rowsBy);
+        }
+        readSeparately(separateIds, tracker);
+
+        for (var report : reports) {
+            var start = metrics != null ? System.nanoTime() : 0;
+            report.finish();
+            if (metrics != null)
+                metrics.record(PipelineMetrics.Stage.SORT, System.nanoTime() - start, 1, 0, 0);
+        }
+    }
+
+    /***
+     * Records the scan's row times, scaled up from the sample. Without read-ahead, each symbol's
+     * share of the time is recorded as its parse, since next() parses the row of the cursor it
+     * advances.
+     */
+    private void recordScan(CursorMerge merge, int rows, long samples, long sampledNext, long sampledRows,
+                            long[] sampledNextBy, int[] rowsBy) {
+        var scale = samples == 0 ? 0 : (double) rows / samples;
+        var next = (long) (sampledNext * scale);
+        var aggregate = (long) (sampledRows * scale);
+        if (prefetches()) {
+            metrics.record(PipelineMetrics.Stage.AGGREGATE, next + aggregate, 0, rows, 0);
+            return;
+        }
+
+        for (int i = 0; i < merge.size(); i++)
+            metrics.recordParse((long) (sampledNextBy[i] * scale), rowsBy[i], merge.cursor(i).bytesRead());
+        metrics.record(PipelineMetrics.Stage.AGGREGATE, aggregate, 0, rows, 0);
+    }
+
+    /***
+     * @return true if the cursors that stream a file read ahead of the scan on the pipeline's
+     * threads, rather than parse it as the scan goes
+     */
+    private boolean prefetches() {
+        return pipeline.parallelism() > 1;
+    }
+
+    private void endDate(int epochDay) {
+        var start = metrics != null ? System.nanoTime() : 0;
+        for (var report : reports)
+            report.onDateEnd(epochDay);
+        if (metrics != null)
+            metrics.record(PipelineMetrics.Stage.AGGREGATE, System.nanoTime() - start, 1, 0, 0);
+    }
+
+    /***
+     * @return true if a report that needs date order includes the symbol, so that it is read in the
+     * merged scan
+     */
+    private boolean needsDateOrder(int id) {
+        var symbol = symbolCache.symbolData(id);
+        return reports.stream().anyMatch(report -> report.needsDateOrder() && report.includes(symbol));
+    }
+
+    private ReportAggregator[] interested(int id) {
+        var symbol = symbolCache.symbolData(id);
+        return reports.stream().filter(report -> report.includes(symbol)).toArray(ReportAggregator[]::new);
+    }
+
+    /***
+     * @return the ids, in ascending order, of those given whose symbol has data
+     */
+    private int[] withData(int[] ids, Tracker tracker) {
+        var symbols = Arrays.stream(ids).mapToObj(symbolCache::symbolData).toList();
+        return pipeline.map(symbols, symbol -> {
+            tracker.check();
+            if (priceSource.hasData(symbol.symbol()))
+                return symbolCache.idOf(symbol.symbol());
+            tracker.missing();
+            return null;
+        }).stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    /***
+     * Reads each symbol that is not part of the merged scan in a task of its own, handing its rows
+     * to the reports that include it as it goes, and releases its file before the task ends
+     */
+    private void readSeparately(int[] ids, Tracker tracker) {
+        var symbols = Arrays.stream(ids).mapToObj(symbolCache::symbolData).toList();
+        pipeline.map(symbols, symbol -> {
+            tracker.check();
+            if (metrics != null)
+                metrics.sampleQueueDepth();
+            var start = metrics != null ? System.nanoTime() : 0;
+            var opened = priceSource.open(symbol.symbol());
+            if (metrics != null)
+                metrics.record(PipelineMetrics.Stage.OPEN, System.nanoTime() - start, 1, 0, 0);
+            if (opened.isEmpty()) {
+                tracker.missing();
+                return null;
+            }
+
+            var cursor = opened.get();
+            try {
+                var id = symbolCache.idOf(symbol.symbol());
+                var interested = interested(id);
+                start = metrics != null ? System.nanoTime() : 0;
+                var rows = 0;
+                while (cursor.next()) {
+                    if (++rows % CHECK_INTERVAL == 0)
+                        tracker.check();
+                    for (var report : interested)
+                        report.onRow(id, cursor);
+                }
+                if (metrics != null)
+                    metrics.recordParse(System.nanoTime() - start, rows, cursor.bytesRead());
+                tracker.read(cursor.bytesRead());
+            } finally {
+                cursor.release();
+            }
+            return null;
+        });
+    }
+
+    /***
+     * Opens a cursor for each candidate id that has data, and records the id of each cursor in
+     * scanned, so that scanned[i] is the id of the i-th cursor
+     */
+    private List<PriceCursor> open(int[] candidates, int[] scanned, Tracker tracker) {
+        record Opened(int id, PriceCursor cursor) {
+        }
+        var symbols = Arrays.stream(candidates).mapToObj(symbolCache::symbolData).toList();
+        var cursors = new ConcurrentLinkedQueue<PriceCursor>();
+        List<Opened> opened;
+        try {
+            opened = pipeline.map(symbols, symbol -> {
+                tracker.check();
+                if (metrics != null)
+                    metrics.sampleQueueDepth();
+                var start = metrics != null ? System.nanoTime() : 0;
+                var cursor = priceSource.open(symbol.symbol()).map(this::prefetch);
+                if (metrics != null)
+                    metrics.record(PipelineMetrics.Stage.OPEN, System.nanoTime() - start, 1, 0, 0);
+                if (cursor.isEmpty()) {
+                    tracker.missing();
+                    return null;
+                }
+                cursors.add(cursor.get());
+                return new Opened(symbolCache.idOf(symbol.symbol()), cursor.get());
+            });
+        } catch (RuntimeException e) {
+            cursors.forEach(PriceCursor::release);
+            throw e;
+        }
+
+        for (int i = 0; i < opened.size(); i++)
+            scanned[i] = opened.get(i).id();
+        return opened.stream().map(Opened::cursor).toList();
+    }
+
+    /***
+     * @return the cursor, reading ahead on the pipeline's threads if it streams a file and the
+     * pipeline is parallel; a cursor over a series in memory (or mapped) has nothing to read
+     */
+    private PriceCursor prefetch(PriceCursor cursor) {
+        return prefetches() && !(cursor instanceof SeriesCursor) ? new PrefetchCursor(cursor, pipeline, metrics) : cursor;
+    }
+
+    /***
+     * Checks for cancellation and publishes the progress of a run. Symbols are counted as read when
+     * the scan has exhausted their cursor (or, read separately, once their task has read them), and
+     * symbols without data once they have been looked up.
+     */
+    private static final class Tracker {
+        private final BooleanSupplier cancelled;
+        private final Consumer<ReportProgress> listener;
+        private final int symbols;
+        private int symbolsMissing;
+        private int symbolsScanned;
+        private long bytesScanned;
+        private ReportProgress last;
+
+        Tracker(BooleanSupplier cancelled, Consumer<ReportProgress> listener, int symbols) {
+            this.cancelled = cancelled;
+            this.listener = listener;
+            this.symbols = symbols;
+        }
+
+        void check() {
+            if (cancelled.getAsBoolean())
+                throw new CancellationException("The report run was cancelled");
+        }
+
+        synchronized void missing() {
+            symbolsMissing++;
+            publish();
+        }
+
+        void scanned(CursorMerge merge) {
+            check();
+            var bytes = 0L;
+            for (int i = 0; i < merge.size(); i++)
+                bytes += merge.cursor(i).bytesRead();
+            var exhausted = merge.size() - merge.remaining();
+            synchronized (this) {
+                symbolsScanned = exhausted;
+                bytesScanned = bytes;
+                publish();
+            }
+        }
+
+        /***
+         * Counts a symbol read separately, after the merged scan
+         */
+        synchronized void read(long bytes) {
+            symbolsScanned++;
+            bytesScanned += bytes;
+            publish();
+        }
+
+        private void publish() {
+            var progress = new ReportProgress(symbolsMissing + symbolsScanned, symbols, bytesScanned);
+            if (!progress.equals(last)) {
+                last = progress;
+                listener.accept(progress);
+            }
+        }
+    }
+}
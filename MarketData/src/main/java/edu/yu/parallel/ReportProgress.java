@@ -0,0 +1,12 @@
+package edu.yu.parallel;
+
+/***
+ * How far a report run has got
+ *
+ * @param symbolsRead the number of symbols whose market data has been read completely
+ * @param symbols the number of symbols that the run reads
+ * @param bytesRead the number of bytes of market data read so far, as counted by
+ *                  PriceCursor.bytesRead()
+ */
+public record ReportProgress(int symbolsRead, int symbols, long bytesRead) {
+}
@@ -0,0 +1,69 @@
+package edu.yu.parallel;
+
+import java.io.OutputStream;
+import java.util.List;
+
+/***
+ * Computes the rolling-window metrics (see RollingWindow) of many symbols, in parallel across
+ * symbols.
+ *
+ * Each symbol is an independent task on the ingestion pipeline that streams the symbol's rows
+ * through PriceSource.open(), the same cursor path the reports scan, into its own RollingWindow;
+ * so the tasks share no state and a symbol is never loaded as a whole.
+ */
+public class RollingAnalytics {
+    private static final String[] COLUMNS = {"Symbol", "Date", "SMA", "EMA", "VWAP", "High", "Low"};
+    private static final int DECIMALS = 6;
+
+    private final PriceSource priceSource;
+    private final IngestionPipeline pipeline;
+
+    public RollingAnalytics(PriceSource priceSource, IngestionPipeline pipeline) {
+        this.priceSource = priceSource;
+        this.pipeline = pipeline;
+    }
+
+    /***
+     * @param symbols the symbols to compute the metrics of
+     * @param window the number of rows in each window
+     * @return the metrics of the symbols that have data, in the same order as the symbols
+     */
+    public List<RollingSeries> compute(List<SymbolData> symbols, int window) {
+        if (window < 1)
+            throw new IllegalArgumentException("The window size must be at least 1: " + window);
+
+        return pipeline.map(symbols, symbol -> priceSource.open(symbol.symbol())
+                .map(cursor -> {
+                    try {
+                        return RollingSeries.of(cursor, window);
+                    } finally {
+                        cursor.release();
+                    }
+                })
+                .orElse(null));
+    }
+
+    /***
+     * Writes the metrics as CSV, with the columns Symbol,Date,SMA,EMA,VWAP,High,Low and one line
+     * per symbol and full window, in the order of the list
+     */
+    public static void write(List<RollingSeries> series, OutputStream outputStream) {
+        var writer = new CsvWriter(outputStream);
+        for (var column : COLUMNS)
+            writer.field(column);
+        writer.endLine();
+
+        for (var metrics : series) {
+            for (int i = 0; i < metrics.size(); i++) {
+                writer.field(metrics.symbol()).dateField(metrics.epochDays()[i])
+                        .field(metrics.sma()[i], DECIMALS)
+                        .field(metrics.ema()[i], DECIMALS)
+                        .field(metrics.vwap()[i], DECIMALS)
+                        .field(metrics.high()[i], DECIMALS)
+                        .field(metrics.low()[i], DECIMALS)
+                        .endLine();
+            }
+        }
+        writer.flush();
+    }
+}
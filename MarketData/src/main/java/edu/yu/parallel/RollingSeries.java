@@ -0,0 +1,73 @@
+package edu.yu.parallel;
+
+import java.util.Arrays;
+
+/***
+ * The rolling-window metrics of a symbol, one entry per row from the first full window on
+ *
+ * @param symbol the symbol
+ * @param window the number of rows in each window
+ * @param epochDays the date of the last row of each window
+ * @param sma the simple moving average of the close
+ * @param ema the exponential moving average of the close
+ * @param vwap the volume-weighted average typical price
+ * @param high the highest high
+ * @param low the lowest low
+ */
+public record RollingSeries(String symbol, int window, int[] epochDays, double[] sma, double[] ema,
+                            double[] vwap, double[] high, double[] low) {
+
+    public int size() {
+        return epochDays.length;
+    }
+
+    /***
+     * Computes the metrics of every full window of the cursor's rows; the cursor is read to its end
+     * but not released
+     */
+    public static RollingSeries of(PriceCursor cursor, int window) {
+        var rolling = new RollingWindow(window);
+        var builder = new Builder(cursor.symbol(), window);
+        while (cursor.next()) {
+            rolling.add(cursor);
+            if (rolling.isFull())
+                builder.add(cursor.epochDay(), rolling);
+        }
+        return builder.build();
+    }
+
+    private static final class Builder {
+        private final String symbol;
+        private final int window;
+        private int size;
+        private int[] epochDays = new int[256];
+        private double[][] columns = new double[5][256];
+
+        Builder(String symbol, int window) {
+            this.symbol = symbol;
+            this.window = window;
+        }
+
+        void add(int epochDay, RollingWindow rolling) {
+            if (size == epochDays.length) {
+                epochDays = Arrays.copyOf(epochDays, size * 2);
+                for (int i = 0; i < columns.length; i++)
+                    columns[i] = Arrays.copyOf(columns[i], size * 2);
+            }
+            epochDays[size] = epochDay;
+            columns[0][size] = rolling.sma();
+            columns[1][size] = rolling.ema();
+            columns[2][size] = rolling.vwap();
+            columns[3][size] = rolling.high();
+            columns[4][size] = rolling.low();
+            size++;
+        }
+
+        RollingSeries build() {
+            return new RollingSeries(symbol, window, Arrays.copyOf(epochDays, size),
+                    Arrays.copyOf(columns[0], size), Arrays.copyOf(columns[1], size),
+                    Arrays.copyOf(columns[2], size), Arrays.copyOf(columns[3], size),
+                    Arrays.copyOf(columns[4], size));
+        }
+    }
+}
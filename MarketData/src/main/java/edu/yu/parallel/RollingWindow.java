@@ -0,0 +1,178 @@
+package edu.yu.parallel;
+
+/***
+ * Rolling-window metrics of one symbol's rows, updated incrementally as rows are added:
+ * the simple and exponential moving averages of the close, the volume-weighted average of the
+ * typical price ((high + low + close) / 3), and the highest high and lowest low.
+ *
+ * Every add() is O(1) amortized, whatever the window size. The sums behind the averages are kept
+ * over ring buffers of the last `size` values; they are recomputed from the ring once per window so
+ * that rounding errors cannot accumulate over a long series. The highest high and lowest low come
+ * from monotonic deques, which drop every value that can no longer be the extreme of a window.
+ *
+ * The metrics are NaN until the window is full. The EMA uses a smoothing factor of 2 / (size + 1)
+ * and is seeded with the first full window's SMA. A window is not thread-safe.
+ */
+public final class RollingWindow {
+    private final int size;
+    private final double alpha;
+
+    private final double[] closes;
+    private final double[] prices;
+    private final double[] volumes;
+    private final Extremes highs;
+    private final Extremes lows;
+    private long rows;
+    private double closeSum;
+    private double priceVolumeSum;
+    private double volumeSum;
+    private double ema = Double.NaN;
+
+    public RollingWindow(int size) {
+        if (size < 1)
+            throw new IllegalArgumentException("The window size must be at least 1: " + size);
+        this.size = size;
+        this.alpha = 2.0 / (size + 1);
+        this.closes = new double[size];
+        this.prices = new double[size];
+        this.volumes = new double[size];
+        this.highs = new Extremes(size, true);
+        this.lows = new Extremes(size, false);
+    }
+
+    public void add(PriceCursor row) {
+        add(row.high(), row.low(), row.close(), row.volume());
+    }
+
+    public void add(double high, double low, double close, double volume) {
+        var slot = (int) (rows % size);
+        var priceVolume = (high + low + close) / 3 * volume;
+        if (rows >= size) {
+            closeSum += close - closes[slot];
+            priceVolumeSum += priceVolume - prices[slot];
+            volumeSum += volume - volumes[slot];
+        }
+        closes[slot] = close;
+        prices[slot] = priceVolume;
+        volumes[slot] = volume;
+        if (slot == size - 1)
+            resum();
+        highs.add(rows, high);
+        lows.add(rows, low);
+        rows++;
+
+        if (rows == size)
+            ema = closeSum / size;
+        else if (rows > size)
+            ema += alpha * (close - ema);
+    }
+
+    /***
+     * @return true once `size` rows have been added
+     */
+    public boolean isFull() {
+        return rows >= size;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /***
+     * @return the simple moving average of the close
+     */
+    public double sma() {
+        return isFull() ? closeSum / size : Double.NaN;
+    }
+
+    /***
+     * @return the exponential moving average of the close
+     */
+    public double ema() {
+        return ema;
+    }
+
+    /***
+     * @return the volume-weighted average typical price, or NaN if the window has no volume
+     */
+    public double vwap() {
+        return isFull() && volumeSum != 0 ? priceVolumeSum / volumeSum : Double.NaN;
+    }
+
+    /***
+     * @return the highest high of the window
+     */
+    public double high() {
+        return isFull() ? highs.value() : Double.NaN;
+    }
+
+    /***
+     * @return the lowest low of the window
+     */
+    public double low() {
+        return isFull() ? lows.value() : Double.NaN;
+    }
+
+    /***
+     * Recomputes the sums from the ring buffers, once per window
+     */
+    private void resum() {
+        double close = 0, priceVolume = 0, volume = 0;
+        for (int i = 0; i < size; i++) {
+            close += closes[i];
+            priceVolume += prices[i];
+            volume += volumes[i];
+        }
+        closeSum = close;
+        priceVolumeSum = priceVolume;
+        volumeSum = volume;
+    }
+
+    /***
+     * A monotonic deque of the (row, value) pairs that can still be the extreme of a window, kept
+     * in a ring of `size` slots. Values run from the extreme at the head to the newest row at the
+     * tail; each value is added and removed at most once.
+     */
+    private static final class Extremes {
+        private final int size;
+        private final boolean max;
+        private final long[] rows;
+        private final double[] values;
+        private int head;
+        private int count;
+
+        Extremes(int size, boolean max) {
+            this.size = size;
+            this.max = max;
+            this.rows = new long[size];
+            this.values = new double[size];
+        }
+
+        void add(long row, double value) {
+            // Drop the values at the tail that are no more extreme than the new value, then the
+            // head if it has left the window
+            while (count > 0 && !beats(values[slot(count - 1)], value))
+                count--;
+            if (count > 0 && rows[head] <= row - size) {
+                head = (head + 1) % size;
+                count--;
+            }
+            var tail = slot(count);
+            rows[tail] = row;
+            values[tail] = value;
+            count++;
+        }
+
+        double value() {
+            return values[head];
+        }
+
+        private boolean beats(double existing, double value) {
+            return max ? existing > value : existing < value;
+        }
+
+        private int slot(int offset) {
+            return (head + offset) % size;
+        }
+    }
+}
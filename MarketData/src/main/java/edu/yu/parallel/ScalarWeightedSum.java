@@ -0,0 +1,38 @@
+package edu.yu.parallel;
+
+/***
+ * The portable WeightedSumKernel: one multiply and add per field per row, with the six running
+ * sums kept in locals
+ */
+final class ScalarWeightedSum implements WeightedSumKernel {
+    static final ScalarWeightedSum INSTANCE = new ScalarWeightedSum();
+
+    private ScalarWeightedSum() {
+    }
+
+    @Override
+    public void accumulate(double[] weights, double[] rows, int count, double[] sums) {
+        // The padding lanes are always 0, so only the six fields are summed
+        double high = sums[0], low = sums[1], open = sums[2], close = sums[3], volume = sums[4], adjClose = sums[5];
+        for (int k = 0, offset = 0; k < count; k++, offset += STRIDE) {
+            var w = weights[k];
+            high += w * rows[offset];
+            low += w * rows[offset + 1];
+            open += w * rows[offset + 2];
+            close += w * rows[offset + 3];
+            volume += w * rows[offset + 4];
+            adjClose += w * rows[offset + 5];
+        }
+        sums[0] = high;
+        sums[1] = low;
+        sums[2] = open;
+        sums[3] = close;
+        sums[4] = volume;
+        sums[5] = adjClose;
+    }
+
+    @Override
+    public String toString() {
+        return "scalar";
+    }
+}
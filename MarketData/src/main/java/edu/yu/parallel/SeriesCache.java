@@ -0,0 +1,419 @@
+package edu.yu.parallel;
+
+import java.util.Arrays;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.LongAdder;
+
+/***
+ * Keeps recently loaded series in memory, up to a budget of bytes, in front of another PriceSource.
+ *
+ * Entries are kept by SymbolCache id. When an entry has to be evicted to make room, the least
+ * recently used entry goes first. With the TINY_LFU policy a new series is only let in if its symbol
+ * has been asked for more often recently than the symbol it would evict. Otherwise it is returned
+ * without being kept. This keeps repeated scans over more symbols than fit from replacing the whole
+ * cache on every pass, which is what plain LRU does. The ids are dense, so the frequencies are exact
+ * counts rather than a sketch; they are halved every 10 x (number of symbols) requests, so they follow
+ * recent use.
+ *
+ * A symbol that is not cached is loaded once however many threads ask for it at the same time: the
+ * first one loads it and the others wait for its result. A failed load is not cached.
+ *
+ * A symbol that is not cached when a cursor is opened on it is streamed from the source, and its
+ * rows are copied as the cursor passes them. Once the cursor has been read to the end and released,
+ * the copy is offered to the cache just like a loaded series, so a report scan fills the cache as
+ * well. The copies in progress are limited to the budget in total (reserved up to COPY_ROWS rows
+ * at a time): a scan over more symbols than fit streams the rest without copying them, rather than
+ * holding them all.
+ *
+ * A series is charged SeriesCursor.ROW_BYTES per row; a symbol without data is charged nothing.
+ * Symbols that are not in the SymbolCache are passed straight through.
+ */
+public class SeriesCache implements PriceSource {
+    private static final int NONE = -1;
+    private static final int COPY_ROWS = 256;
+
+    public enum Policy {
+        LRU,
+        TINY_LFU
+    }
+
+    /***
+     * @param hits requests served from the cache, including those that waited for another thread's load
+     * @param misses requests for symbols that were not cached, which were loaded (or streamed and
+     *               copied, by open())
+     * @param evictions series removed to make room
+     * @param rejections loaded series that were not kept because they were used less than the
+     *                   series they would have evicted, or were larger than the whole budget
+     * @param entries the number of symbols in the cache
+     * @param bytes the bytes charged for them
+     */
+    public record Stats(long hits, long misses, long evictions, long rejections, int entries, long bytes) {
+        public double hitRate() {
+            var requests = hits + misses;
+            return requests == 0 ? 0 : (double) hits / requests;
+        }
+    }
+
+    private final SymbolCache symbols;
+    private final PriceSource source;
+    private final long maxBytes;
+    private final Policy policy;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder rejections = new LongAdder();
+
+    // Guarded by this: the entry (loaded or loading) of each id, and the LRU list of the loaded
+    // entries, linked through previous/next from the most recently used (head) to the least (tail)
+    private final CompletableFuture<Optional<PriceSeries>>[] entries;
+    private final long[] weights;
+    private final int[] previous;
+    private final int[] next;
+    private final int[] frequencies;
+    private final int sampleSize;
+    private int head = NONE;
+    private int tail = NONE;
+    private int size;
+    private long bytes;
+    private int requests;
+    // Reserved by the cursors copying a streamed series
+    private long copying;
+
+    public SeriesCache(SymbolCache symbols, PriceSource source, long maxBytes) {
+        this(symbols, source, maxBytes, Policy.TINY_LFU);
+    }
+
+    @SuppressWarnings("unchecked")
+    public SeriesCache(SymbolCache symbols, PriceSource source, long maxBytes, Policy policy) {
+        if (maxBytes < 0)
+            throw new IllegalArgumentException("maxBytes must not be negative: " + maxBytes);
+        this.symbols = symbols;
+        this.source = source;
+        this.maxBytes = maxBytes;
+        this.policy = policy;
+        this.entries = new CompletableFuture[symbols.size()];
+        this.weights = new long[symbols.size()];
+        this.previous = new int[symbols.size()];
+        this.next = new int[symbols.size()];
+        this.frequencies = new int[symbols.size()];
+        this.sampleSize = Math.max(10 * symbols.size(), 1);
+    }
+
+    @Override
+    public Optional<PriceSeries> load(String symbol) {
+        var id = symbols.idOf(symbol);
+        return id < 0 ? source.load(symbol) : get(id);
+    }
+
+    /***
+     * Serves a cached symbol from memory, and streams one that is not cached from the source,
+     * copying its rows into the cache as they are read while the budget allows
+     */
+    @Override
+    public Optional<PriceCursor> open(String symbol) {
+        var id = symbols.idOf(symbol);
+        if (id < 0)
+            return source.open(symbol);
+
+        var entry = cached(id);
+        if (entry != null)
+            return join(entry).map(PriceSeries::cursor);
+        misses.increment();
+        return source.open(symbol).map(cursor -> new CopyingCursor(id, cursor));
+    }
+
+    /***
+     * Asks the source, without counting a request
+     */
+    @Override
+    public boolean hasData(String symbol) {
+        return source.hasData(symbol);
+    }
+
+    /***
+     * @return the series of the symbol with the given SymbolCache id, loading it if it is not cached
+     * @throws java.io.UncheckedIOException if the data exists but could not be read
+     */
+    public Optional<PriceSeries> get(int id) {
+        CompletableFuture<Optional<PriceSeries>> existing, entry = null;
+        synchronized (this) {
+            existing = cached(id);
+            if (existing == null)
+                entry = entries[id] = new CompletableFuture<>();
+        }
+        if (existing != null)
+            return join(existing);
+
+        misses.increment();
+        Optional<PriceSeries> series;
+        try {
+            series = source.load(symbols.symbol(id));
+        } catch (RuntimeException | Error e) {
+            synchronized (this) {
+                entries[id] = null;
+            }
+            entry.completeExceptionally(e);
+            throw e;
+        }
+        admit(id, entry, series);
+        entry.complete(series);
+        return series;
+    }
+
+    /***
+     * Drops every entry; loads in progress complete but are not kept
+     */
+    public synchronized void clear() {
+        Arrays.fill(entries, null);
+        head = tail = NONE;
+        size = 0;
+        bytes = 0;
+    }
+
+    public synchronized Stats stats() {
+        return new Stats(hits.sum(), misses.sum(), evictions.sum(), rejections.sum(), size, bytes);
+    }
+
+    /***
+     * Counts a request for the id and, if it is cached or being loaded, counts a hit and marks it
+     * as used
+     *
+     * @return the entry, or null if it is neither cached nor being loaded
+     */
+    private synchronized CompletableFuture<Optional<PriceSeries>> cached(int id) {
+        record(id);
+        var entry = entries[id];
+        if (entry == null)
+            return null;
+
+        hits.increment();
+        if (entry.isDone() && head != id) {
+            unlink(id);
+            linkFirst(id);
+        }
+        return entry;
+    }
+
+    /***
+     * Keeps a loaded series if there is room for it, or if room can be made by evicting the least
+     * recently used entries (with TINY_LFU, only entries used less often than the new one)
+     */
+    private synchronized void admit(int id, CompletableFuture<Optional<PriceSeries>> entry, Optional<PriceSeries> series) {
+        if (entries[id] != entry)
+            return; // cleared while loading
+
+        var weight = series.map(data -> (long) data.size() * SeriesCursor.ROW_BYTES).orElse(0L);
+        if (weight > maxBytes || !makeRoom(id, weight)) {
+            entries[id] = null;
+            rejections.increment();
+            return;
+        }
+        weights[id] = weight;
+        bytes += weight;
+        size++;
+        linkFirst(id);
+    }
+
+    /***
+     * Offers a series copied by a cursor to the cache, unless the symbol has been loaded (or is
+     * being loaded) in the meantime
+     */
+    private synchronized void fill(int id, PriceSeries series) {
+        if (entries[id] != null)
+            return;
+        var entry = CompletableFuture.completedFuture(Optional.of(series));
+        entries[id] = entry;
+        admit(id, entry, Optional.of(series));
+    }
+
+    /***
+     * Reserves room for up to the given number of rows of a copy, as far as the copies in progress
+     * stay within the budget
+     *
+     * @return the number of rows reserved, or 0 if the copies in progress fill the budget
+     */
+    private synchronized int reserve(int rows) {
+        var reserved = (int) Math.min(rows, (maxBytes - copying) / SeriesCursor.ROW_BYTES);
+        copying += (long) reserved * SeriesCursor.ROW_BYTES;
+        return reserved;
+    }
+
+    private synchronized void unreserve(long reserved) {
+        copying -= reserved;
+    }
+
+    private boolean makeRoom(int id, long weight) {
+        if (policy == Policy.TINY_LFU) {
+            // Check the victims before evicting any of them
+            var needed = bytes + weight - maxBytes;
+            for (var victim = tail; needed > 0; victim = previous[victim]) {
+                if (frequencies[id] <= frequencies[victim])
+                    return false;
+                needed -= weights[victim];
+            }
+        }
+
+        while (bytes + weight > maxBytes) {
+            var victim = tail;
+            unlink(victim);
+            entries[victim] = null;
+            bytes -= weights[victim];
+            size--;
+            evictions.increment();
+        }
+        return true;
+    }
+
+    private void record(int id) {
+        frequencies[id]++;
+        if (++requests == sampleSize) {
+            for (int i = 0; i < frequencies.length; i++)
+                frequencies[i] >>>= 1;
+            requests = 0;
+        }
+    }
+
+    private void linkFirst(int id) {
+        previous[id] = NONE;
+        next[id] = head;
+        if (head != NONE)
+            previous[head] = id;
+        head = id;
+        if (tail == NONE)
+            tail = id;
+    }
+
+    private void unlink(int id) {
+        var before = previous[id];
+        var after = next[id];
+        if (before == NONE)
+            head = after;
+        else
+            next[before] = after;
+        if (after == NONE)
+            tail = before;
+        else
+            previous[after] = before;
+    }
+
+    /***
+     * Streams a symbol that is not cached from the source cursor, and copies its rows for the cache
+     * until they no longer fit in the budget
+     */
+    private final class CopyingCursor implements PriceCursor {
+        private final int id;
+        private final PriceCursor cursor;
+        private ArrayPriceSeries.Builder copy;
+        private long rows;
+        private long reservedRows;
+        private boolean exhausted;
+
+        CopyingCursor(int id, PriceCursor cursor) {
+            this.id = id;
+            this.cursor = cursor;
+            this.copy = ArrayPriceSeries.builder(cursor.symbol());
+        }
+
+        @Override
+        public String symbol() {
+            return cursor.symbol();
+        }
+
+        @Override
+        public boolean next() {
+            if (!cursor.next()) {
+                exhausted = true;
+                return false;
+            }
+            if (copy != null && rows == reservedRows) {
+                var reserved = reserve(COPY_ROWS);
+                if (reserved > 0)
+                    reservedRows += reserved;
+                else
+                    abandon();
+            }
+            if (copy != null) {
+                copy.add(cursor.epochDay(), cursor.high(), cursor.low(), cursor.open(), cursor.close(),
+                        cursor.volume(), cursor.adjClose());
+                rows++;
+            }
+            return true;
+        }
+
+        @Override
+        public int epochDay() {
+            return cursor.epochDay();
+        }
+
+        @Override
+        public double high() {
+            return cursor.high();
+        }
+
+        @Override
+        public double low() {
+            return cursor.low();
+        }
+
+        @Override
+        public double open() {
+            return cursor.open();
+        }
+
+        @Override
+        public double close() {
+            return cursor.close();
+        }
+
+        @Override
+        public double volume() {
+            return cursor.volume();
+        }
+
+        @Override
+        public double adjClose() {
+            return cursor.adjClose();
+        }
+
+        @Override
+        public long bytesRead() {
+            return cursor.bytesRead();
+        }
+
+        /***
+         * Releases the source cursor and, if it was read to the end, offers the copy to the cache
+         */
+        @Override
+        public void release() {
+            var series = exhausted && copy != null ? copy.build() : null;
+            abandon();
+            try {
+                cursor.release();
+            } finally {
+                if (series != null)
+                    fill(id, series);
+            }
+        }
+
+        private void abandon() {
+            copy = null;
+            unreserve(reservedRows * SeriesCursor.ROW_BYTES);
+            reservedRows = 0;
+        }
+    }
+
+    private static Optional<PriceSeries> join(CompletableFuture<Optional<PriceSeries>> entry) {
+        try {
+            return entry.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause)
+                throw cause;
+            if (e.getCause() instanceof Error cause)
+                throw cause;
+            throw e;
+        }
+    }
+}
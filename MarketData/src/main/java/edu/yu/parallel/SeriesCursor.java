@@ -0,0 +1,70 @@
+package edu.yu.parallel;
+
+/***
+ * A PriceCursor over a PriceSeries that is already loaded (or mapped)
+ */
+class SeriesCursor implements PriceCursor {
+    // An epoch day and six doubles, as stored by ColumnarSeries
+    static final int ROW_BYTES = Integer.BYTES + 6 * Double.BYTES;
+
+    private final PriceSeries series;
+    private int row = -1;
+
+    SeriesCursor(PriceSeries series) {
+        this.series = series;
+    }
+
+    @Override
+    public String symbol() {
+        return series.symbol();
+    }
+
+    @Override
+    public boolean next() {
+        return ++row < series.size();
+    }
+
+    @Override
+    public int epochDay() {
+        return series.epochDay(row);
+    }
+
+    @Override
+    public double high() {
+        return series.high(row);
+    }
+
+    @Override
+    public double low() {
+        return series.low(row);
+    }
+
+    @Override
+    public double open() {
+        return series.open(row);
+    }
+
+    @Override
+    public double close() {
+        return series.close(row);
+    }
+
+    @Override
+    public double volume() {
+        return series.volume(row);
+    }
+
+    @Override
+    public double adjClose() {
+        return series.adjClose(row);
+    }
+
+    @Override
+    public long bytesRead() {
+        return (long) Math.min(row + 1, series.size()) * ROW_BYTES;
+    }
+
+    @Override
+    public void release() {
+    }
+}
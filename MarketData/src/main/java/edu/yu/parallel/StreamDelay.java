@@ -1,30 +1,29 @@
 package edu.yu.parallel;
 
-import java.util.concurrent.ExecutionException;
-import java.util.concurrent.Executors;
-import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.TimeUnit;
 
+/***
+ * Adds a fixed delay to (some of) the items of a stream, e.g. stream.map(StreamDelay::delay).
+ * Items whose hashCode is a multiple of everyNthRecord are passed through without delay.
+ *
+ * The delays run on the LatencySimulator's shared timer; use a LatencySimulator directly for other
+ * latency distributions or a rate limit.
+ */
 public class StreamDelay {
 
     public static  <T> T delay(T item) {
         return delay(item, 1, TimeUnit.NANOSECONDS, 2);
     }
     public static  <T> T delay(T item, long delay, TimeUnit unit, int everyNthRecord) {
-        if ((item.hashCode() % everyNthRecord) == 0)
-            return item;
+        return simulator(delay, unit, everyNthRecord).delay(item);
+    }
+
+    public static <T> CompletableFuture<T> delayAsync(T item, long delay, TimeUnit unit, int everyNthRecord) {
+        return simulator(delay, unit, everyNthRecord).delayAsync(item);
+    }
 
-        ScheduledExecutorService executor = Executors.newScheduledThreadPool(1);
-        try {
-            return executor.schedule(() -> {
-                return item;
-            }, delay, unit).get();
-        } catch (InterruptedException e) {
-            return item;
-        } catch (ExecutionException e) {
-            return item;
-        } finally {
-            executor.shutdown();
-        }
+    private static LatencySimulator simulator(long delay, TimeUnit unit, int everyNthRecord) {
+        return new LatencySimulator(LatencyDistribution.fixed(delay, unit), 0, everyNthRecord);
     }
 }
@@ -1,26 +1,135 @@
 package edu.yu.parallel;
 
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.EnumMap;
 import java.util.Map;
-import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 import java.util.stream.Stream;
 
+/***
+ * The symbols that are a member of at least one index, held in a read-only, array-based layout.
+ *
+ * Symbols are sorted, and a symbol's position in that order is its id: ids are dense (0 to size()-1),
+ * so reports can keep per-symbol state in plain arrays indexed by id, and ascending id order is
+ * alphabetical order. Lookups are binary searches. For every index the cache keeps a bitset of its
+ * members and an array of the weights of all symbols by id (0 for non-members).
+ *
+ * The cache never changes once it is built, so any number of report runs can share it concurrently.
+ */
 public class SymbolCache {
-    private final Map<String, SymbolData> symbolList;
+    private final String[] symbols;
+    private final SymbolData[] symbolData;
+    private final Map<MarketIndex, double[]> weights = new EnumMap<>(MarketIndex.class);
+    private final Map<MarketIndex, BitSet> members = new EnumMap<>(MarketIndex.class);
 
     public SymbolCache(SymbolReader reader) {
-        this.symbolList = reader.stream()
+        this(reader.stream());
+    }
+
+    public SymbolCache(MarketDataSnapshot snapshot) {
+        this(new SymbolReader(snapshot));
+    }
+
+    SymbolCache(Stream<SymbolData> symbols) {
+        this.symbolData = symbols
                 .filter(data -> data.nsdq100Weight() > 0 || data.snp500Weight() > 0)
-                .collect(Collectors.toMap(
-                        data -> data.symbol(),
-                        data -> data));
+                .sorted(Comparator.comparing(SymbolData::symbol))
+                .toArray(SymbolData[]::new);
+        this.symbols = Arrays.stream(symbolData).map(SymbolData::symbol).toArray(String[]::new);
+
+        for (int id = 1; id < this.symbols.length; id++) {
+            if (this.symbols[id].equals(this.symbols[id - 1]))
+                throw new IllegalArgumentException("Duplicate symbol: " + this.symbols[id]);
+        }
+
+        for (var index : MarketIndex.values()) {
+            var indexWeights = new double[symbolData.length];
+            var indexMembers = new BitSet(symbolData.length);
+            for (int id = 0; id < symbolData.length; id++) {
+                indexWeights[id] = index.weight(symbolData[id]);
+                indexMembers.set(id, indexWeights[id] > 0);
+            }
+            weights.put(index, indexWeights);
+            members.put(index, indexMembers);
+        }
     }
 
 
+    /***
+     * @return the cached symbols in alphabetical (id) order
+     */
     public Stream<SymbolData> stream() {
-        return symbolList.values().stream();
+        return Arrays.stream(symbolData);
     }
 
     public SymbolData getSymbolData(String symbol) {
-        return symbolList.get(symbol);
+        var id = idOf(symbol);
+        return id < 0 ? null : symbolData[id];
+    }
+
+    public int size() {
+        return symbols.length;
+    }
+
+    /***
+     * @return the id of the symbol, or -1 if it is not in the cache
+     */
+    public int idOf(String symbol) {
+        var id = Arrays.binarySearch(symbols, symbol);
+        return id < 0 ? -1 : id;
+    }
+
+    public String symbol(int id) {
+        return symbols[id];
+    }
+
+    public SymbolData symbolData(int id) {
+        return symbolData[id];
+    }
+
+    /***
+     * @return the ids, in alphabetical order, of the symbols that start with the prefix
+     */
+    public IntStream idsWithPrefix(String prefix) {
+        return IntStream.range(lowerBound(prefix), lowerBound(prefix + Character.MAX_VALUE));
+    }
+
+    /***
+     * @return whether the symbol with the given id is a member of the index
+     */
+    public boolean isMember(MarketIndex index, int id) {
+        return members.get(index).get(id);
+    }
+
+    /***
+     * @return the ids of the index's members, in ascending order
+     */
+    public IntStream memberIds(MarketIndex index) {
+        return members.get(index).stream();
+    }
+
+    /***
+     * @return a copy of the index's membership, with a bit set for each member's id
+     */
+    public BitSet members(MarketIndex index) {
+        return (BitSet) members.get(index).clone();
+    }
+
+    /***
+     * @return a copy of the participation weights in the index of all symbols, by id
+     */
+    public double[] weights(MarketIndex index) {
+        return weights.get(index).clone();
+    }
+
+    public double weight(MarketIndex index, int id) {
+        return weights.get(index)[id];
+    }
+
+    private int lowerBound(String key) {
+        var position = Arrays.binarySearch(symbols, key);
+        return position < 0 ? -position - 1 : position;
     }
 }
@@ -1,39 +1,124 @@
 package edu.yu.parallel;
 
-import java.io.BufferedReader;
+import java.io.IOException;
 import java.io.InputStream;
-import java.io.InputStreamReader;
-import java.util.Arrays;
-import java.util.List;
+import java.io.UncheckedIOException;
+import java.net.MalformedURLException;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.file.Path;
 import java.util.function.Function;
 import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
 
 public class SymbolReader {
     private final String fileName;
-    private final Function<String, List<String>> csvLineParser = line -> Arrays.asList(line.split(","));
-    private final Function<List<String>, SymbolData> inputToRecord = input -> {
+    private final Path path;
+    private final MarketDataSnapshot snapshot;
+    private final Function<CsvCursor, SymbolData> inputToRecord = input -> {
 
-        var symbol = input.get(0);
-        var company = input.get(1);
-        var etf = Boolean.valueOf(input.get(2));
-        var nweight = Double.valueOf(input.get(3));
-        var sweight = Double.valueOf(input.get(4));
+        var symbol = input.nextString();
+        var company = input.nextString();
+        var etf = input.nextBoolean();
+        var nweight = input.nextDouble();
+        var sweight = input.nextDouble();
 
         return new SymbolData(symbol, company, etf, nweight, sweight);
     };
 
     public SymbolReader(String symbolFile) {
         this.fileName = "/" + symbolFile + ".symbols.csv";
+        this.path = null;
+        this.snapshot = null;
+    }
+
+    /***
+     * Reads the symbols from a symbol file on disk (e.g. one written by MarketDataGenerator) rather
+     * than from the resources; a path ending in .gz is read as gzip-compressed
+     */
+    public SymbolReader(Path symbolFile) {
+        this.fileName = symbolFile.toString();
+        this.path = symbolFile;
+        this.snapshot = null;
+    }
+
+    /***
+     * Reads the symbols from a snapshot rather than from the symbol CSV file
+     */
+    public SymbolReader(MarketDataSnapshot snapshot) {
+        this.fileName = null;
+        this.path = null;
+        this.snapshot = snapshot;
+    }
+
+    /***
+     * @return a reader of the symbol file given by the "symbolFile" system property, or of the nasdaq
+     * symbol file in the resources
+     */
+    static SymbolReader defaultReader() {
+        var symbolFile = System.getProperty("symbolFile");
+        return symbolFile != null ? new SymbolReader(Path.of(symbolFile)) : new SymbolReader("nasdaq");
     }
 
     public Stream<SymbolData> stream() {
-        return fromFile().skip(1).map(csvLineParser).map(inputToRecord);
+        if (snapshot != null)
+            return snapshot.symbols();
+
+        var cursor = new CsvCursor().reset(fromFile());
+        cursor.nextLine(); // header
+
+        var records = Stream.<SymbolData>builder();
+        while (cursor.nextLine())
+            records.add(inputToRecord.apply(cursor));
+        return records.build();
     }
 
-    private Stream<String> fromFile() {
-        InputStream csvFileStream = getClass().getResourceAsStream(this.fileName);
-        return new BufferedReader(new InputStreamReader(csvFileStream)).lines();
+    /***
+     * @return the size and last-modified time of the symbol file, used to tell whether a snapshot
+     * built from it is still current
+     */
+    MarketDataSnapshot.FileStamp sourceStamp() {
+        var url = resource();
+        try {
+            if ("file".equals(url.getProtocol()))
+                return MarketDataSnapshot.FileStamp.of(Path.of(url.toURI()));
+            var connection = url.openConnection();
+            return new MarketDataSnapshot.FileStamp(connection.getContentLengthLong(), connection.getLastModified());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } catch (URISyntaxException e) {
+            throw new IllegalStateException(e);
+        }
     }
 
+    /***
+     * @return the symbol file, or its gzip-compressed version ([name].symbols.csv.gz) if only that exists
+     */
+    private URL resource() {
+        if (path != null) {
+            try {
+                return path.toUri().toURL();
+            } catch (MalformedURLException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
 
+        var url = getClass().getResource(this.fileName);
+        if (url == null)
+            url = getClass().getResource(this.fileName + ".gz");
+        if (url == null)
+            throw new IllegalArgumentException("Symbol file not found: " + this.fileName);
+        return url;
+    }
+
+    private byte[] fromFile() {
+        var url = resource();
+        try (InputStream csvFileStream = url.openStream()) {
+            if (url.getPath().endsWith(".gz"))
+                return new GZIPInputStream(csvFileStream).readAllBytes();
+            return csvFileStream.readAllBytes();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
 }
@@ -0,0 +1,34 @@
+package edu.yu.parallel;
+
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.VectorSpecies;
+
+/***
+ * A WeightedSumKernel on the (incubating) Vector API. The fields of a row are the lanes of one or
+ * more vectors of the platform's preferred size (e.g. two 4-lane vectors with AVX2, one 8-lane
+ * vector with AVX-512), and each row's weight is broadcast across them.
+ *
+ * Only instantiated by name from WeightedSumKernel.best(), when the module is present.
+ */
+final class VectorWeightedSum implements WeightedSumKernel {
+    // A double vector has at most 8 lanes, so its length always divides the stride
+    private static final VectorSpecies<Double> SPECIES = DoubleVector.SPECIES_PREFERRED;
+
+    @Override
+    public void accumulate(double[] weights, double[] rows, int count, double[] sums) {
+        var lanes = SPECIES.length();
+        for (int f = 0; f < STRIDE; f += lanes) {
+            var sum = DoubleVector.fromArray(SPECIES, sums, f);
+            for (int k = 0, offset = f; k < count; k++, offset += STRIDE) {
+                var row = DoubleVector.fromArray(SPECIES, rows, offset);
+                sum = sum.add(row.mul(weights[k]));
+            }
+            sum.intoArray(sums, f);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "vector(" + SPECIES + ")";
+    }
+}
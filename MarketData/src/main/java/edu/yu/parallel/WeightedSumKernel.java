@@ -0,0 +1,84 @@
+package edu.yu.parallel;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/***
+ * Sums weighted rows of price and volume fields: sums[f] += weights[k] * rows[k * STRIDE + f] for
+ * each of the six fields f and each row k, in row order.
+ *
+ * Rows are laid out row-major with a stride of 8 doubles: the six fields, then two lanes of padding
+ * that callers leave 0 and whose sums they ignore. That way a SIMD implementation can keep the
+ * fields in the lanes of a vector and broadcast each row's weight. Every lane then adds its
+ * products in the same order as the scalar loop, with a separate multiply and add (no fused
+ * multiply-add), so the scalar and vector kernels return bit-for-bit identical sums. The exact
+ * kernel instead rounds each sum once, whatever the order of the rows.
+ */
+interface WeightedSumKernel {
+    int STRIDE = 8;
+
+    /***
+     * @param weights the weight of each row
+     * @param rows count rows of STRIDE doubles
+     * @param count the number of rows to add
+     * @param sums the STRIDE running sums to add the weighted rows to
+     */
+    void accumulate(double[] weights, double[] rows, int count, double[] sums);
+
+    /***
+     * @return the kernel the reports sum with: the exact kernel, unless the "kernel" system property
+     * asks for the faster, naively rounded sums of the "vector" (see best()) or "scalar" kernel
+     */
+    static WeightedSumKernel configured() {
+        return switch (System.getProperty("kernel", "exact")) {
+            case "vector" -> best();
+            case "scalar" -> scalar();
+            case "exact" -> exact();
+            default -> throw new IllegalArgumentException("Unknown kernel: " + System.getProperty("kernel"));
+        };
+    }
+
+    /***
+     * @return the vectorized kernel if it was built (by the vector profile, mvn -P vector) and the
+     * jdk.incubator.vector module is available (i.e. the JVM was started with --add-modules
+     * jdk.incubator.vector); otherwise the scalar kernel
+     */
+    static WeightedSumKernel best() {
+        return Selection.BEST;
+    }
+
+    static WeightedSumKernel scalar() {
+        return ScalarWeightedSum.INSTANCE;
+    }
+
+    /***
+     * @return the kernel that sums exactly and rounds once (see ExactWeightedSum)
+     */
+    static WeightedSumKernel exact() {
+        return ExactWeightedSum.INSTANCE;
+    }
+
+    final class Selection {
+        private final static Logger logger = LogManager.getLogger(WeightedSumKernel.class);
+        private static final WeightedSumKernel BEST = select();
+
+        private Selection() {
+        }
+
+        private static WeightedSumKernel select() {
+            if (ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent()) {
+                try {
+                    // Loaded by name, so that the scalar path never links against the module, and so
+                    // that a build without the vector profile (and so without the class) still runs
+                    var kernel = (WeightedSumKernel) Class.forName("edu.yu.parallel.VectorWeightedSum")
+                            .getDeclaredConstructor().newInstance();
+                    logger.debug("Weighted sums: {}", kernel);
+                    return kernel;
+                } catch (ReflectiveOperationException | LinkageError e) {
+                    logger.debug("Vector API unavailable, using the scalar kernel: {}", e.toString());
+                }
+            }
+            return scalar();
+        }
+    }
+}
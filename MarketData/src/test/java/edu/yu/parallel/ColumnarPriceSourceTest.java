@@ -0,0 +1,74 @@
+package edu.yu.parallel;
+
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.util.List;
+
+class ColumnarPriceSourceTest {
+    private static final String HEADER = "Date,High,Low,Open,Close,Volume,Adj Close\n";
+
+    @TempDir
+    Path dataDirectory;
+
+    private Path storeDirectory;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        Files.writeString(dataDirectory.resolve("AAA.csv"), HEADER
+                + "2022-01-03,12.0,10.0,10.5,11.5,1000.0,11.0\n"
+                + "2022-01-04,13.0,11.0,11.5,11.0,2000.0,10.5\n");
+        storeDirectory = dataDirectory.resolve(".columnar");
+    }
+
+    @Test
+    @DisplayName("a changed CSV file is copied to a new columnar file, and series mapped from the old one stay readable")
+    public void rebuildsToNewFile() throws IOException {
+        var source = new ColumnarPriceSource(dataDirectory);
+        var before = source.load("AAA").orElseThrow();
+        var first = columnFiles();
+        Assertions.assertEquals(1, first.size());
+        // An unchanged CSV file is not copied again
+        source.load("AAA");
+        Assertions.assertEquals(first, columnFiles());
+
+        var csvFile = dataDirectory.resolve("AAA.csv");
+        Files.writeString(csvFile, "2022-01-05,14.0,12.0,12.5,13.5,3000.0,13.0\n", StandardOpenOption.APPEND);
+        Files.setLastModifiedTime(csvFile, FileTime.fromMillis(Files.getLastModifiedTime(csvFile).toMillis() + 2000));
+        var after = source.load("AAA").orElseThrow();
+
+        Assertions.assertEquals(3, after.size());
+        Assertions.assertEquals(13.5, after.close(2));
+        Assertions.assertEquals(2, before.size());
+        Assertions.assertEquals(11.0, before.close(1));
+        // The old file is deleted once replaced, and no temporary file is left behind
+        var second = columnFiles();
+        Assertions.assertEquals(1, second.size());
+        Assertions.assertNotEquals(first, second);
+        try (var files = Files.list(storeDirectory)) {
+            Assertions.assertEquals(second, files.map(Path::getFileName).map(Path::toString).toList());
+        }
+    }
+
+    @Test
+    @DisplayName("a columnar file in the old naming scheme is replaced")
+    public void replacesUnversionedFile() throws IOException {
+        Files.createDirectories(storeDirectory);
+        Files.writeString(storeDirectory.resolve("AAA.col"), "stale");
+
+        Assertions.assertEquals(2, new ColumnarPriceSource(dataDirectory).load("AAA").orElseThrow().size());
+        Assertions.assertFalse(Files.exists(storeDirectory.resolve("AAA.col")));
+        Assertions.assertEquals(1, columnFiles().size());
+    }
+
+    private List<String> columnFiles() throws IOException {
+        try (var files = Files.list(storeDirectory)) {
+            return files.map(Path::getFileName).map(Path::toString).filter(name -> name.endsWith(".col")).toList();
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package edu.yu.parallel;
+
+import org.junit.jupiter.api.*;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.stream.IntStream;
+
+class CountRankingTest {
+
+    @Test
+    @DisplayName("the counting sort orders as a full sort, ties by id")
+    public void countingSortMatchesSort() {
+        var random = new Random(3820);
+        for (var maxCount : new int[]{1, 5, 1000}) {
+            var counts = counts(random, 2000, maxCount);
+            var ids = ids(random, counts.length);
+
+            Assertions.assertArrayEquals(CountRanking.sort(ids, counts), CountRanking.countingSort(ids, counts));
+        }
+    }
+
+    @Test
+    @DisplayName("counts too spread out for buckets fall back to a full sort")
+    public void spreadOutCounts() {
+        var counts = new int[]{3, 50_000_000, 3, 0};
+        var ids = new int[]{0, 1, 2, 3};
+
+        Assertions.assertArrayEquals(new int[]{1, 0, 2, 3}, CountRanking.countingSort(ids, counts));
+    }
+
+    @Test
+    @DisplayName("the top k are the first k of the full ranking")
+    public void topMatchesPrefix() {
+        var random = new Random(3820);
+        var counts = counts(random, 5000, 20);
+        var ids = ids(random, counts.length);
+        var ranked = CountRanking.sort(ids, counts);
+
+        for (var k : new int[]{0, 1, 2, 17, 100, ids.length - 1}) {
+            Assertions.assertArrayEquals(Arrays.copyOf(ranked, k), CountRanking.rank(ids, counts, k), "k=" + k);
+        }
+        Assertions.assertArrayEquals(ranked, CountRanking.rank(ids, counts, Integer.MAX_VALUE));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> CountRanking.rank(ids, counts, -1));
+    }
+
+    private static int[] counts(Random random, int size, int maxCount) {
+        var counts = new int[size];
+        for (int i = 0; i < size; i++)
+            counts[i] = random.nextInt(maxCount + 1);
+        return counts;
+    }
+
+    /***
+     * @return about half of the ids below size, in ascending order
+     */
+    private static int[] ids(Random random, int size) {
+        return IntStream.range(0, size).filter(id -> random.nextBoolean()).toArray();
+    }
+}
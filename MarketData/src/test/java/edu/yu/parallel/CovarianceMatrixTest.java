@@ -0,0 +1,139 @@
+package edu.yu.parallel;
+
+import org.junit.jupiter.api.*;
+
+import java.io.ByteArrayOutputStream;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+class CovarianceMatrixTest {
+    private static final int JAN_3 = (int) LocalDate.of(2022, 1, 3).toEpochDay();
+
+    @Test
+    @DisplayName("matches a naive two-pass computation over the dates each pair has in common")
+    public void matchesNaivePairs() {
+        // More symbols than a tile and more dates than a block, listed and delisted on different dates
+        var random = new Random(7);
+        var series = new ArrayList<PriceSeries>();
+        for (int s = 0; s < 37; s++) {
+            var first = random.nextInt(200);
+            var last = 1200 - random.nextInt(200);
+            var builder = ArrayPriceSeries.builder("S" + s);
+            var price = 100.0;
+            for (int day = first; day < last; day++) {
+                if (random.nextInt(20) == 0)
+                    continue;
+                price *= 1 + random.nextGaussian() * 0.02;
+                builder.add(JAN_3 + day, price, price, price, price, 1000, price);
+            }
+            series.add(builder.build());
+        }
+
+        var matrix = CovarianceMatrix.compute(series, IngestionPipeline.sequential());
+        for (int i = 0; i < series.size(); i++) {
+            for (int j = 0; j < series.size(); j++) {
+                var expected = naive(series.get(i), series.get(j));
+                Assertions.assertEquals(expected[0], matrix.observations(i, j));
+                Assertions.assertEquals(expected[1], matrix.covariance(i, j), 1e-12);
+                Assertions.assertEquals(expected[2], matrix.correlation(i, j), 1e-9);
+                Assertions.assertEquals(matrix.covariance(i, j), matrix.covariance(j, i));
+            }
+            Assertions.assertEquals(1.0, matrix.correlation(i, i));
+        }
+
+        try (var pipeline = IngestionPipeline.parallel(3)) {
+            var parallel = CovarianceMatrix.compute(series, pipeline);
+            var expected = new ByteArrayOutputStream();
+            matrix.writeCovariance(expected);
+            var out = new ByteArrayOutputStream();
+            parallel.writeCovariance(out);
+            Assertions.assertEquals(expected.toString(), out.toString());
+        }
+    }
+
+    @Test
+    @DisplayName("perfectly correlated, anti-correlated and constant series")
+    public void extremes() {
+        var series = List.of(
+                series("AAA", 10, 11, 10.5, 12, 11),
+                series("BBB", 20, 22, 21, 24, 22),
+                series("CCC", 10, 9, 9.5, 8, 9),
+                series("DDD", 5, 5, 5, 5, 5),
+                series("EEE", 1, 2));
+
+        var matrix = CovarianceMatrix.compute(series, IngestionPipeline.sequential());
+
+        Assertions.assertEquals(1.0, matrix.correlation(0, 1), 1e-12);
+        Assertions.assertEquals(-1.0, matrix.correlation(0, 2), 0.05);
+        Assertions.assertEquals(0.0, matrix.covariance(0, 3));
+        Assertions.assertTrue(Double.isNaN(matrix.correlation(0, 3)));
+        // EEE has a single return, so no pair with it has two
+        Assertions.assertEquals(1, matrix.observations(0, 4));
+        Assertions.assertTrue(Double.isNaN(matrix.covariance(0, 4)));
+        Assertions.assertEquals(4, matrix.dates());
+    }
+
+    @Test
+    @DisplayName("writes a header row and a row per symbol")
+    public void write() {
+        var matrix = CovarianceMatrix.compute(
+                List.of(series("AAA", 10, 11, 10.45), series("BBB", 20, 22, 20.9)), IngestionPipeline.sequential());
+
+        var out = new ByteArrayOutputStream();
+        matrix.writeCorrelation(out);
+        Assertions.assertEquals("Symbol,AAA,BBB\nAAA,1.000000,1.000000\nBBB,1.000000,1.000000\n", out.toString());
+
+        var empty = new ByteArrayOutputStream();
+        CovarianceMatrix.compute(List.of(), IngestionPipeline.sequential()).writeCovariance(empty);
+        Assertions.assertEquals("Symbol\n", empty.toString());
+    }
+
+    /***
+     * @return the number of dates both series have a return on, and the sample covariance and
+     * correlation of their returns over those dates
+     */
+    private static double[] naive(PriceSeries first, PriceSeries second) {
+        var x = new ArrayList<Double>();
+        var y = new ArrayList<Double>();
+        for (int i = 1, j = 1; i < first.size() && j < second.size(); ) {
+            if (first.epochDay(i) < second.epochDay(j)) {
+                i++;
+            } else if (first.epochDay(i) > second.epochDay(j)) {
+                j++;
+            } else {
+                x.add(first.adjClose(i) / first.adjClose(i - 1) - 1);
+                y.add(second.adjClose(j) / second.adjClose(j - 1) - 1);
+                i++;
+                j++;
+            }
+        }
+        var n = x.size();
+        if (n < 2)
+            return new double[]{n, Double.NaN, Double.NaN};
+
+        double meanX = 0, meanY = 0;
+        for (int i = 0; i < n; i++) {
+            meanX += x.get(i) / n;
+            meanY += y.get(i) / n;
+        }
+        double xy = 0, xx = 0, yy = 0;
+        for (int i = 0; i < n; i++) {
+            xy += (x.get(i) - meanX) * (y.get(i) - meanY);
+            xx += (x.get(i) - meanX) * (x.get(i) - meanX);
+            yy += (y.get(i) - meanY) * (y.get(i) - meanY);
+        }
+        return new double[]{n, xy / (n - 1), xy / Math.sqrt(xx * yy)};
+    }
+
+    /***
+     * A series with one row per day from 2022-01-03, with the given adjusted closes
+     */
+    private static PriceSeries series(String symbol, double... adjCloses) {
+        var builder = ArrayPriceSeries.builder(symbol);
+        for (int i = 0; i < adjCloses.length; i++)
+            builder.add(JAN_3 + i, adjCloses[i], adjCloses[i], adjCloses[i], adjCloses[i], 100, adjCloses[i]);
+        return builder.build();
+    }
+}
@@ -0,0 +1,127 @@
+package edu.yu.parallel;
+
+import org.junit.jupiter.api.*;
+
+import java.io.ByteArrayInputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+
+class CsvCursorTest {
+
+    @Nested
+    @DisplayName("Lines and fields")
+    class LinesAndFields {
+
+        @Test
+        @DisplayName("reads fields of every type from a line")
+        public void readsFields() {
+            var cursor = new CsvCursor().reset(bytes("AAPL,Apple Inc.,TRUE,12.906,-3,2022-11-30\n"));
+
+            Assertions.assertTrue(cursor.nextLine());
+            Assertions.assertEquals("AAPL", cursor.nextString());
+            Assertions.assertEquals("Apple Inc.", cursor.nextString());
+            Assertions.assertTrue(cursor.nextBoolean());
+            Assertions.assertEquals(12.906, cursor.nextDouble());
+            Assertions.assertEquals(-3, cursor.nextInt());
+            Assertions.assertEquals(LocalDate.of(2022, 11, 30).toEpochDay(), cursor.nextEpochDay());
+            Assertions.assertFalse(cursor.hasField());
+            Assertions.assertFalse(cursor.nextLine());
+        }
+
+        @Test
+        @DisplayName("skips empty lines, strips carriage returns and reads a last line without a newline")
+        public void lineEndings() {
+            var cursor = new CsvCursor().reset(bytes("a,FALSE\r\n\n\r\nb,false\nc,true"));
+
+            Assertions.assertTrue(cursor.nextLine());
+            Assertions.assertEquals("a", cursor.nextString());
+            Assertions.assertFalse(cursor.nextBoolean());
+            Assertions.assertTrue(cursor.nextLine());
+            Assertions.assertEquals("b", cursor.nextString());
+            Assertions.assertEquals(4, cursor.lineNumber());
+            Assertions.assertTrue(cursor.nextLine());
+            Assertions.assertEquals("c", cursor.nextString());
+            Assertions.assertTrue(cursor.nextBoolean());
+            Assertions.assertFalse(cursor.nextLine());
+        }
+
+        @Test
+        @DisplayName("streams input through a buffer smaller than a line")
+        public void streamsThroughSmallBuffer() {
+            var csv = new StringBuilder();
+            for (int i = 0; i < 1000; i++)
+                csv.append(i).append(",").append("x".repeat(i % 50)).append("\n");
+
+            var cursor = new CsvCursor(16).reset(new ByteArrayInputStream(bytes(csv.toString())));
+            for (int i = 0; i < 1000; i++) {
+                Assertions.assertTrue(cursor.nextLine());
+                Assertions.assertEquals(i, cursor.nextInt());
+                Assertions.assertEquals("x".repeat(i % 50), cursor.nextString());
+            }
+            Assertions.assertFalse(cursor.nextLine());
+            Assertions.assertEquals(csv.length(), cursor.bytesRead());
+        }
+
+        @Test
+        @DisplayName("reads a heap ByteBuffer in place and a direct ByteBuffer by copying")
+        public void readsByteBuffers() {
+            var data = bytes("xx1.5,2.5\n");
+            var heap = ByteBuffer.wrap(data).position(2);
+            var direct = ByteBuffer.allocateDirect(data.length).put(data).flip().position(2);
+
+            for (var buffer : new ByteBuffer[]{heap, direct}) {
+                var cursor = new CsvCursor().reset(buffer);
+                Assertions.assertTrue(cursor.nextLine());
+                Assertions.assertEquals(1.5, cursor.nextDouble());
+                Assertions.assertEquals(2.5, cursor.nextDouble());
+            }
+        }
+
+        @Test
+        @DisplayName("reports a missing field")
+        public void missingField() {
+            var cursor = new CsvCursor().reset(bytes("1.0\n"));
+            cursor.nextLine();
+            cursor.nextDouble();
+
+            Assertions.assertThrows(NumberFormatException.class, cursor::nextDouble);
+        }
+    }
+
+    @Nested
+    @DisplayName("Number parsing")
+    class NumberParsing {
+
+        @Test
+        @DisplayName("parses doubles exactly as Double.parseDouble")
+        public void doublesMatchParseDouble() {
+            var values = new String[]{
+                    "0", "-0.0", "1", "116.33000183105469", "3475185756.440001", "0.000001", "1e22", "1e23",
+                    "9007199254740993", "2.2250738585072014E-308", "4.9e-324", "1.7976931348623157e308",
+                    "12345678901234567890123", "0.1000000000000000055511151231257827", "NaN", "-Infinity", ".5", "5."
+            };
+            var cursor = new CsvCursor().reset(bytes(String.join(",", values)));
+            cursor.nextLine();
+
+            for (var value : values)
+                Assertions.assertEquals(Double.parseDouble(value), cursor.nextDouble(), value);
+        }
+
+        @Test
+        @DisplayName("rejects malformed numbers and dates")
+        public void rejectsMalformed() {
+            var cursor = new CsvCursor().reset(bytes("1.2.3,12x,2022-02-30,2022/01/01\n"));
+            cursor.nextLine();
+
+            Assertions.assertThrows(NumberFormatException.class, cursor::nextDouble);
+            Assertions.assertThrows(NumberFormatException.class, cursor::nextInt);
+            Assertions.assertThrows(NumberFormatException.class, cursor::nextEpochDay);
+            Assertions.assertThrows(NumberFormatException.class, cursor::nextEpochDay);
+        }
+    }
+
+    private static byte[] bytes(String text) {
+        return text.getBytes(StandardCharsets.US_ASCII);
+    }
+}
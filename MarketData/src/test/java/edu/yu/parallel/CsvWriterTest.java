@@ -0,0 +1,68 @@
+package edu.yu.parallel;
+
+import org.junit.jupiter.api.*;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.Locale;
+import java.util.Random;
+
+class CsvWriterTest {
+    private final ByteArrayOutputStream output = new ByteArrayOutputStream();
+    private final CsvWriter writer = new CsvWriter(output, 16);
+
+    @Test
+    @DisplayName("separates fields with commas and ends lines with a newline")
+    public void writesLines() {
+        writer.field("Symbol").field("Count").endLine();
+        writer.field("AAPL").field(844).field(-3L).endLine();
+        writer.field("Zoë").field(Long.MIN_VALUE).endLine();
+        writer.flush();
+
+        Assertions.assertEquals("Symbol,Count\nAAPL,844,-3\nZoë,-9223372036854775808\n",
+                output.toString(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    @DisplayName("writes dates as LocalDate.toString() does")
+    public void writesDates() {
+        var expected = new StringBuilder();
+        for (var date : new LocalDate[]{LocalDate.of(1970, 1, 1), LocalDate.of(1969, 12, 31),
+                LocalDate.of(2000, 2, 29), LocalDate.of(2022, 11, 30), LocalDate.of(1, 3, 1),
+                LocalDate.of(9999, 12, 31), LocalDate.of(10000, 1, 1), LocalDate.of(-1, 1, 1)}) {
+            writer.dateField((int) date.toEpochDay()).endLine();
+            expected.append(date).append('\n');
+        }
+        writer.flush();
+
+        Assertions.assertEquals(expected.toString(), output.toString(StandardCharsets.US_ASCII));
+    }
+
+    @Test
+    @DisplayName("writes doubles exactly as String.format(\"%.nf\") does")
+    public void writesDoublesAsFormatter() {
+        var random = new Random(3820);
+        var expected = new StringBuilder();
+        for (int i = 0; i < 200_000; i++) {
+            var value = switch (i % 5) {
+                case 0 -> Double.longBitsToDouble(random.nextLong());
+                case 1 -> random.nextDouble() * 100_000;
+                case 2 -> (random.nextInt(100_000_000) + 0.5) / 1_000_000;
+                case 3 -> random.nextDouble() * 1e11;
+                default -> random.nextGaussian() * Math.pow(10, random.nextInt(30) - 15);
+            };
+            var decimals = i % 2 == 0 ? 6 : random.nextInt(10);
+            writer.field(value, decimals).endLine();
+            expected.append(String.format(Locale.ROOT, "%." + decimals + "f", value)).append('\n');
+        }
+        for (var value : new double[]{0.0, -0.0, -1e-9, 0.5, 2.5, 5e-7, 9.9999995, 0.0093595, 4114890214.638,
+                Double.MIN_VALUE, Double.MAX_VALUE, Double.NaN, Double.NEGATIVE_INFINITY}) {
+            writer.field(value, 6).endLine();
+            expected.append(String.format(Locale.ROOT, "%.6f", value)).append('\n');
+        }
+        writer.flush();
+
+        Assertions.assertEquals(expected.toString(), output.toString(StandardCharsets.US_ASCII));
+    }
+}
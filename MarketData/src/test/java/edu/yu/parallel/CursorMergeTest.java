@@ -0,0 +1,70 @@
+package edu.yu.parallel;
+
+import org.junit.jupiter.api.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+class CursorMergeTest {
+
+    @Test
+    @DisplayName("returns rows ordered by date, then by cursor index")
+    public void ordersByDateThenIndex() {
+        var inputs = List.of(
+                series("A", 3, 5, 6),
+                series("B", 1, 3, 6),
+                series("C"),
+                series("D", 3, 4));
+
+        var rows = new ArrayList<String>();
+        try (var merge = new CursorMerge(inputs.stream().map(PriceSeries::cursor).toList())) {
+            int i;
+            while ((i = merge.next()) >= 0)
+                rows.add(merge.cursor(i).epochDay() + merge.cursor(i).symbol());
+        }
+
+        Assertions.assertEquals(List.of("1B", "3A", "3B", "3D", "4D", "5A", "6A", "6B"), rows);
+    }
+
+    @Test
+    @DisplayName("rejects an input that is not in ascending date order")
+    public void rejectsUnsortedInput() {
+        try (var merge = new CursorMerge(List.of(series("A", 1, 3, 2).cursor()))) {
+            Assertions.assertEquals(0, merge.next());
+            Assertions.assertEquals(0, merge.next());
+            Assertions.assertThrows(IllegalStateException.class, merge::next);
+        }
+    }
+
+    @Test
+    @DisplayName("releases its cursors if it cannot read their first rows")
+    public void releasesCursorsOnFailure() {
+        var released = new ArrayList<String>();
+        var cursors = new ArrayList<PriceCursor>();
+        for (var symbol : List.of("A", "B", "C")) {
+            cursors.add(new SeriesCursor(series(symbol, 1, 2)) {
+                @Override
+                public boolean next() {
+                    if (symbol().equals("B"))
+                        throw new IllegalStateException("Malformed row");
+                    return super.next();
+                }
+
+                @Override
+                public void release() {
+                    released.add(symbol());
+                }
+            });
+        }
+
+        Assertions.assertThrows(IllegalStateException.class, () -> new CursorMerge(cursors));
+        Assertions.assertEquals(List.of("A", "B", "C"), released);
+    }
+
+    private static PriceSeries series(String symbol, int... epochDays) {
+        var series = ArrayPriceSeries.builder(symbol);
+        for (var epochDay : epochDays)
+            series.add(epochDay, 1, 1, 1, 1, 1, 1);
+        return series.build();
+    }
+}
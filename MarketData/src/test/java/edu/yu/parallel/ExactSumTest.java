@@ -0,0 +1,117 @@
+package edu.yu.parallel;
+
+import org.junit.jupiter.api.*;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+class ExactSumTest {
+
+    @Test
+    @DisplayName("cancellation loses nothing")
+    public void cancellation() {
+        Assertions.assertEquals(1.0, new ExactSum().add(1e100).add(1).add(-1e100).sum());
+        Assertions.assertEquals(1e-300, new ExactSum().add(1e300).add(1e-300).add(-1e300).sum());
+        Assertions.assertEquals(0.1 * 3, new ExactSum().addProduct(0.1, 3).sum());
+        Assertions.assertEquals(0.0, new ExactSum().add(0.1).add(-0.1).sum());
+        Assertions.assertEquals(0.0, new ExactSum().sum());
+    }
+
+    @Test
+    @DisplayName("the sum is the exact sum rounded to the nearest double")
+    public void correctlyRounded() {
+        var random = new Random(3820);
+        for (int trial = 0; trial < 200; trial++) {
+            var sum = new ExactSum();
+            var exact = BigDecimal.ZERO;
+            for (int i = 0; i < 50; i++) {
+                var a = value(random);
+                var b = value(random);
+                sum.addProduct(a, b);
+                sum.add(b);
+                exact = exact.add(new BigDecimal(a).multiply(new BigDecimal(b))).add(new BigDecimal(b));
+            }
+
+            var result = sum.sum();
+            var error = exact.subtract(new BigDecimal(result)).abs();
+            var halfUlp = new BigDecimal(Math.ulp(result)).divide(BigDecimal.valueOf(2));
+            Assertions.assertTrue(error.compareTo(halfUlp) <= 0, "trial " + trial + ": " + result + " vs " + exact);
+        }
+    }
+
+    @Test
+    @DisplayName("rounds a tie to even")
+    public void tiesToEven() {
+        // 1 + 2^-53 is halfway between 1 and the next double: it rounds down to 1, but any more rounds up
+        Assertions.assertEquals(1.0, new ExactSum().add(1).add(Math.scalb(1.0, -53)).sum());
+        Assertions.assertEquals(Math.nextUp(1.0),
+                new ExactSum().add(1).add(Math.scalb(1.0, -53)).add(Double.MIN_VALUE).sum());
+        Assertions.assertEquals(Math.nextUp(Math.nextUp(1.0)),
+                new ExactSum().add(Math.nextUp(1.0)).add(Math.scalb(1.0, -53)).sum());
+    }
+
+    @Test
+    @DisplayName("sums of the parts on several threads, combined in any order, equal the sequential sum")
+    public void parallelParts() throws Exception {
+        var random = new Random(3820);
+        var values = new double[100_000];
+        for (int i = 0; i < values.length; i++)
+            values[i] = value(random);
+        var sequential = new ExactSum();
+        for (int i = 0; i + 1 < values.length; i += 2)
+            sequential.addProduct(values[i], values[i + 1]);
+
+        var executor = Executors.newFixedThreadPool(4);
+        try {
+            for (var parts : new int[]{2, 3, 7, 16}) {
+                var futures = new ArrayList<Future<ExactSum>>();
+                for (int part = 0; part < parts; part++) {
+                    var first = part;
+                    futures.add(executor.submit(() -> {
+                        var sum = new ExactSum();
+                        for (int i = 2 * first; i + 1 < values.length; i += 2 * parts)
+                            sum.addProduct(values[i], values[i + 1]);
+                        return sum;
+                    }));
+                }
+                var sums = new ArrayList<ExactSum>();
+                for (var future : futures)
+                    sums.add(future.get());
+                Collections.shuffle(sums, random);
+
+                var combined = new ExactSum();
+                sums.forEach(combined::add);
+                Assertions.assertEquals(Double.doubleToLongBits(sequential.sum()), Double.doubleToLongBits(combined.sum()),
+                        parts + " parts");
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    @DisplayName("infinities and NaN propagate as in a naive sum")
+    public void nonFinite() {
+        Assertions.assertEquals(Double.POSITIVE_INFINITY, new ExactSum().add(1).add(Double.POSITIVE_INFINITY).sum());
+        Assertions.assertTrue(Double.isNaN(new ExactSum().add(Double.POSITIVE_INFINITY).add(Double.NEGATIVE_INFINITY).sum()));
+        Assertions.assertTrue(Double.isNaN(new ExactSum().addProduct(Double.NaN, 2).sum()));
+        Assertions.assertEquals(Double.POSITIVE_INFINITY, new ExactSum().add(Double.MAX_VALUE).add(Double.MAX_VALUE).sum());
+
+        var sum = new ExactSum().add(Double.NaN);
+        sum.reset();
+        Assertions.assertEquals(2.0, sum.add(2).sum());
+    }
+
+    /***
+     * A value of either sign with a magnitude between 1e-10 and 1e10
+     */
+    private static double value(Random random) {
+        var value = Math.pow(10, random.nextDouble() * 20 - 10);
+        return random.nextBoolean() ? value : -value;
+    }
+}
@@ -0,0 +1,68 @@
+package edu.yu.parallel;
+
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.ZipException;
+
+class GzipReaderTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    @DisplayName("reads every member of a file and reuses its buffer from one file to the next")
+    public void concatenatedMembers() throws IOException {
+        var reader = new GzipReader();
+        var large = "x".repeat(1_000_000);
+        var file = write("large.gz", gzip(large));
+        Assertions.assertEquals(large, read(reader, file));
+
+        var first = gzip("Date,High\n");
+        var second = gzip("2022-01-03,12.0\n");
+        var both = new byte[first.length + second.length];
+        System.arraycopy(first, 0, both, 0, first.length);
+        System.arraycopy(second, 0, both, first.length, second.length);
+        Assertions.assertEquals("Date,High\n2022-01-03,12.0\n", read(reader, write("both.gz", both)));
+    }
+
+    @Test
+    @DisplayName("rejects corrupt and truncated files")
+    public void corruptFiles() throws IOException {
+        var reader = new GzipReader();
+        var data = gzip("Date,High\n2022-01-03,12.0\n");
+
+        var corrupt = data.clone();
+        corrupt[corrupt.length - 8] ^= 1; // CRC
+        Assertions.assertThrows(ZipException.class, () -> reader.read(write("corrupt.gz", corrupt)));
+
+        var truncated = Arrays.copyOf(data, data.length - 4);
+        Assertions.assertThrows(IOException.class, () -> reader.read(write("truncated.gz", truncated)));
+        Assertions.assertThrows(ZipException.class,
+                () -> reader.read(write("plain.gz", "Date,High\n".getBytes(StandardCharsets.US_ASCII))));
+    }
+
+    private Path write(String name, byte[] contents) throws IOException {
+        return Files.write(directory.resolve(name), contents);
+    }
+
+    private static String read(GzipReader reader, Path file) throws IOException {
+        var length = reader.read(file);
+        return new String(reader.buffer(), 0, length, StandardCharsets.US_ASCII);
+    }
+
+    private static byte[] gzip(String text) throws IOException {
+        var out = new ByteArrayOutputStream();
+        try (var gzip = new GZIPOutputStream(out)) {
+            gzip.write(text.getBytes(StandardCharsets.US_ASCII));
+        }
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,61 @@
+package edu.yu.parallel;
+
+import org.junit.jupiter.api.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.ZipException;
+
+class GzipStreamTest {
+
+    @Test
+    @DisplayName("reads every member of a stream, and is reset from one stream to the next")
+    public void concatenatedMembers() throws IOException {
+        var stream = new GzipStream(1024);
+        var large = "x".repeat(1_000_000);
+        Assertions.assertEquals(large, read(stream, gzip(large)));
+
+        var first = gzip("Date,High\n");
+        var second = gzip("2022-01-03,12.0\n");
+        var both = new byte[first.length + second.length];
+        System.arraycopy(first, 0, both, 0, first.length);
+        System.arraycopy(second, 0, both, first.length, second.length);
+        Assertions.assertEquals("Date,High\n2022-01-03,12.0\n", read(stream, both));
+        stream.end();
+    }
+
+    @Test
+    @DisplayName("rejects corrupt and truncated streams")
+    public void corruptStreams() throws IOException {
+        var stream = new GzipStream(1024);
+        var data = gzip("Date,High\n2022-01-03,12.0\n");
+
+        var corrupt = data.clone();
+        corrupt[corrupt.length - 8] ^= 1; // CRC
+        Assertions.assertThrows(ZipException.class, () -> read(stream, corrupt));
+
+        var truncated = Arrays.copyOf(data, data.length - 4);
+        Assertions.assertThrows(IOException.class, () -> read(stream, truncated));
+        Assertions.assertThrows(ZipException.class,
+                () -> read(stream, "Date,High\n".getBytes(StandardCharsets.US_ASCII)));
+        stream.end();
+    }
+
+    private static String read(GzipStream stream, byte[] contents) throws IOException {
+        try (var in = stream.reset(new ByteArrayInputStream(contents))) {
+            return new String(in.readAllBytes(), StandardCharsets.US_ASCII);
+        }
+    }
+
+    private static byte[] gzip(String text) throws IOException {
+        var out = new ByteArrayOutputStream();
+        try (var gzip = new GZIPOutputStream(out)) {
+            gzip.write(text.getBytes(StandardCharsets.US_ASCII));
+        }
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,87 @@
+package edu.yu.parallel;
+
+import org.junit.jupiter.api.*;
+
+import java.util.List;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.IntStream;
+
+class IngestionPipelineTest {
+
+    @Test
+    @DisplayName("after a task fails, starts no more tasks and waits for the running ones before throwing")
+    public void failure() {
+        var started = new AtomicInteger();
+        var running = new AtomicInteger();
+        try (var pipeline = IngestionPipeline.parallel(2)) {
+            var e = Assertions.assertThrows(IllegalStateException.class, () -> pipeline.map(symbols(100), symbol -> {
+                started.incrementAndGet();
+                running.incrementAndGet();
+                try {
+                    if (symbol.symbol().equals("S0"))
+                        throw new IllegalStateException("S0");
+                    sleep(20);
+                    return symbol;
+                } finally {
+                    running.decrementAndGet();
+                }
+            }));
+
+            Assertions.assertEquals("S0", e.getMessage());
+            Assertions.assertEquals(0, running.get());
+            // No more than the tasks in flight when S0 failed were started
+            Assertions.assertTrue(started.get() <= 4, () -> "started " + started.get());
+        }
+    }
+
+    @Test
+    @DisplayName("when the caller is interrupted, waits for the running tasks before throwing")
+    public void interrupt() throws InterruptedException {
+        var running = new AtomicInteger();
+        var started = new CountDownLatch(1);
+        var thrown = new AtomicReference<Throwable>();
+        var runningAtThrow = new AtomicInteger(-1);
+        try (var pipeline = IngestionPipeline.parallel(1)) {
+            var caller = new Thread(() -> {
+                try {
+                    pipeline.map(symbols(10), symbol -> {
+                        running.incrementAndGet();
+                        started.countDown();
+                        sleep(100);
+                        running.decrementAndGet();
+                        return symbol;
+                    });
+                } catch (RuntimeException e) {
+                    runningAtThrow.set(running.get());
+                    thrown.set(e);
+                }
+            });
+            caller.start();
+            // The caller is now submitting, or waiting for a permit while the first task runs
+            Assertions.assertTrue(started.await(5, TimeUnit.SECONDS));
+            caller.interrupt();
+            caller.join(5000);
+
+            Assertions.assertFalse(caller.isAlive());
+            Assertions.assertInstanceOf(CompletionException.class, thrown.get());
+            Assertions.assertInstanceOf(InterruptedException.class, thrown.get().getCause());
+            Assertions.assertEquals(0, runningAtThrow.get());
+        }
+    }
+
+    private static List<SymbolData> symbols(int count) {
+        return IntStream.range(0, count).mapToObj(i -> new SymbolData("S" + i, "S" + i, false, 1, 0)).toList();
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
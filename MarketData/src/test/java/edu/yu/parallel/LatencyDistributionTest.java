@@ -0,0 +1,84 @@
+package edu.yu.parallel;
+
+import org.junit.jupiter.api.*;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.LongStream;
+
+class LatencyDistributionTest {
+    private static final int DRAWS = 10_001;
+
+    @Test
+    @DisplayName("none and fixed always return the same latency")
+    public void constant() {
+        Assertions.assertEquals(0, LatencyDistribution.none().nextNanos());
+        var fixed = LatencyDistribution.fixed(3, TimeUnit.MILLISECONDS);
+        for (int i = 0; i < 100; i++)
+            Assertions.assertEquals(3_000_000, fixed.nextNanos());
+    }
+
+    @Test
+    @DisplayName("uniform latencies cover [min, max)")
+    public void uniform() {
+        var latencies = draw(LatencyDistribution.uniform(1, 3, TimeUnit.MILLISECONDS));
+
+        Assertions.assertTrue(latencies[0] >= 1_000_000, () -> "min " + latencies[0]);
+        Assertions.assertTrue(latencies[DRAWS - 1] < 3_000_000, () -> "max " + latencies[DRAWS - 1]);
+        Assertions.assertTrue(latencies[0] < 1_100_000, () -> "min " + latencies[0]);
+        Assertions.assertTrue(latencies[DRAWS - 1] > 2_900_000, () -> "max " + latencies[DRAWS - 1]);
+        Assertions.assertEquals(2_000_000, latencies[DRAWS / 2], 50_000);
+
+        Assertions.assertThrows(IllegalArgumentException.class, () -> LatencyDistribution.uniform(3, 3, TimeUnit.MILLISECONDS));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> LatencyDistribution.uniform(-1, 3, TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    @DisplayName("log-normal latencies are centred on the median, with a long tail")
+    public void logNormal() {
+        var latencies = draw(LatencyDistribution.logNormal(2, 0.5, TimeUnit.MILLISECONDS));
+
+        Assertions.assertTrue(latencies[0] > 0, () -> "min " + latencies[0]);
+        Assertions.assertEquals(2_000_000, latencies[DRAWS / 2], 100_000);
+        // exp(2.326 * 0.5) = 3.2
+        var p99 = latencies[DRAWS * 99 / 100] / 2_000_000.0;
+        Assertions.assertEquals(3.2, p99, 0.3);
+
+        Assertions.assertEquals(2_000_000, LatencyDistribution.logNormal(2, 0, TimeUnit.MILLISECONDS).nextNanos(), 1);
+        Assertions.assertThrows(IllegalArgumentException.class, () -> LatencyDistribution.logNormal(0, 0.5, TimeUnit.MILLISECONDS));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> LatencyDistribution.logNormal(2, -0.5, TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    @DisplayName("a seeded distribution returns the same latencies for the same seed")
+    public void seeded() {
+        Assertions.assertArrayEquals(
+                sequence(LatencyDistribution.uniform(1, 3, TimeUnit.MILLISECONDS, 42)),
+                sequence(LatencyDistribution.uniform(1, 3, TimeUnit.MILLISECONDS, 42)));
+        Assertions.assertFalse(Arrays.equals(
+                sequence(LatencyDistribution.uniform(1, 3, TimeUnit.MILLISECONDS, 42)),
+                sequence(LatencyDistribution.uniform(1, 3, TimeUnit.MILLISECONDS, 43))));
+
+        Assertions.assertArrayEquals(
+                sequence(LatencyDistribution.logNormal(2, 0.5, TimeUnit.MILLISECONDS, 42)),
+                sequence(LatencyDistribution.logNormal(2, 0.5, TimeUnit.MILLISECONDS, 42)));
+        Assertions.assertFalse(Arrays.equals(
+                sequence(LatencyDistribution.logNormal(2, 0.5, TimeUnit.MILLISECONDS, 42)),
+                sequence(LatencyDistribution.logNormal(2, 0.5, TimeUnit.MILLISECONDS, 43))));
+
+        // Seeded draws keep to the same range
+        var latencies = draw(LatencyDistribution.uniform(1, 3, TimeUnit.MILLISECONDS, 42));
+        Assertions.assertTrue(latencies[0] >= 1_000_000 && latencies[DRAWS - 1] < 3_000_000);
+    }
+
+    /***
+     * @return DRAWS latencies, sorted
+     */
+    private static long[] draw(LatencyDistribution distribution) {
+        return LongStream.generate(distribution::nextNanos).limit(DRAWS).sorted().toArray();
+    }
+
+    private static long[] sequence(LatencyDistribution distribution) {
+        return LongStream.generate(distribution::nextNanos).limit(100).toArray();
+    }
+}
@@ -0,0 +1,101 @@
+package edu.yu.parallel;
+
+import org.junit.jupiter.api.*;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+class LatencySimulatorTest {
+
+    @Test
+    @DisplayName("async delays complete in the order they are due, on the shared timer")
+    public void completionOrder() {
+        var completed = Collections.synchronizedList(new ArrayList<String>());
+        var threads = Collections.synchronizedList(new ArrayList<String>());
+        var futures = new ArrayList<CompletableFuture<String>>();
+        for (var latency : List.of(60, 20, 40)) {
+            var future = simulator(latency, TimeUnit.MILLISECONDS).delayAsync("item" + latency);
+            Assertions.assertFalse(future.isDone());
+            futures.add(future.whenComplete((item, e) -> {
+                completed.add(item);
+                threads.add(Thread.currentThread().getName());
+            }));
+        }
+        futures.forEach(CompletableFuture::join);
+
+        Assertions.assertEquals(List.of("item20", "item40", "item60"), completed);
+        Assertions.assertEquals(List.of("latency-simulator", "latency-simulator", "latency-simulator"), threads);
+    }
+
+    @Test
+    @DisplayName("a rate limit spaces the items out")
+    public void rateLimit() {
+        var simulator = new LatencySimulator(LatencyDistribution.none(), 100, Integer.MAX_VALUE);
+        var start = System.nanoTime();
+        var futures = new ArrayList<CompletableFuture<Integer>>();
+        for (int i = 1; i <= 10; i++)
+            futures.add(simulator.delayAsync(i));
+        futures.forEach(CompletableFuture::join);
+
+        // The first item passes at once, the tenth 9 intervals of 10ms later
+        Assertions.assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(90));
+    }
+
+    @Test
+    @DisplayName("every nth item passes without delay")
+    public void everyNthRecord() {
+        var latency = LatencyDistribution.fixed(1, TimeUnit.MINUTES);
+        var simulator = new LatencySimulator(latency, 0, 2);
+        Assertions.assertTrue(simulator.delayAsync(4).isDone());
+        Assertions.assertEquals(4, simulator.delay(4));
+        Assertions.assertEquals(6, StreamDelay.delay(6, 1, TimeUnit.MINUTES, 3));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new LatencySimulator(latency, 0, 0));
+    }
+
+    @Test
+    @DisplayName("cancelling an async delay takes it off the timer")
+    public void cancel() {
+        var before = LatencySimulator.scheduledDelays();
+        var future = simulator(1, TimeUnit.MINUTES).delayAsync("item");
+        Assertions.assertEquals(before + 1, LatencySimulator.scheduledDelays());
+
+        Assertions.assertTrue(future.cancel(false));
+        Assertions.assertEquals(before, LatencySimulator.scheduledDelays());
+    }
+
+    @Test
+    @DisplayName("interrupting a blocking delay returns the item at once and takes the delay off the timer")
+    public void interrupt() throws InterruptedException {
+        var before = LatencySimulator.scheduledDelays();
+        var simulator = simulator(1, TimeUnit.MINUTES);
+        var result = new AtomicReference<String>();
+        var interrupted = new AtomicBoolean();
+        var caller = new Thread(() -> {
+            result.set(simulator.delay("item"));
+            interrupted.set(Thread.currentThread().isInterrupted());
+        });
+        caller.start();
+        while (LatencySimulator.scheduledDelays() == before)
+            Thread.sleep(1);
+
+        caller.interrupt();
+        caller.join(5000);
+        Assertions.assertFalse(caller.isAlive());
+        Assertions.assertEquals("item", result.get());
+        Assertions.assertTrue(interrupted.get());
+        Assertions.assertEquals(before, LatencySimulator.scheduledDelays());
+    }
+
+    /***
+     * @return a simulator that delays every item (no hashCode of the test items is a multiple of
+     * Integer.MAX_VALUE)
+     */
+    private static LatencySimulator simulator(long latency, TimeUnit unit) {
+        return new LatencySimulator(LatencyDistribution.fixed(latency, unit), 0, Integer.MAX_VALUE);
+    }
+}
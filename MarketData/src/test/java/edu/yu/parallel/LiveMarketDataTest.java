@@ -0,0 +1,237 @@
+package edu.yu.parallel;
+
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.zip.GZIPOutputStream;
+
+class LiveMarketDataTest {
+    @TempDir
+    Path dataDirectory;
+
+    private SymbolCache symbolCache;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        TestData.writeSampleFile(dataDirectory, "AAA", 2);
+        TestData.writeSampleFile(dataDirectory, "BBB", 1);
+        symbolCache = new SymbolCache(new SymbolReader("test"));
+    }
+
+    @Test
+    @DisplayName("only the appended rows and new files are read")
+    public void readsAppendedRows() throws IOException {
+        try (var live = new LiveMarketData(symbolCache, dataDirectory)) {
+            Assertions.assertEquals(List.of(update("AAA", 0), update("BBB", 0)), live.refresh());
+            Assertions.assertEquals(List.of(), live.refresh());
+
+            append("AAA", "2022-01-05,14.0,12.0,12.5,13.5,3000.0,13.0\n2022-01-06,15.0");
+            Files.writeString(dataDirectory.resolve("CCC.csv"), TestData.HEADER + TestData.rows("CCC", 1, 2));
+            Assertions.assertEquals(List.of(update("AAA", 2), update("CCC", 0)), live.refresh());
+            Assertions.assertEquals(3, live.load("AAA").orElseThrow().size());
+
+            // The row is read once its line is complete
+            append("AAA", ",13.0,14.0,14.5,100.0,14.5\n");
+            Assertions.assertEquals(List.of(update("AAA", 3)), live.refresh());
+            Assertions.assertEquals(14.5, live.load("AAA").orElseThrow().close(3));
+        }
+    }
+
+    @Test
+    @DisplayName("a malformed row is skipped, and the rows around it are read")
+    public void skipsMalformedRow() throws IOException {
+        try (var live = new LiveMarketData(symbolCache, dataDirectory)) {
+            live.refresh();
+            append("AAA", "2022-01-05,14.0,12.0,12.5,13.5,3000.0,13.0\n"
+                    + "2022-01-06,15.0,oops,13.5,14.5,100.0,14.5\n"
+                    + "2022-01-07,16.0,14.0,14.5,15.5,100.0,15.5\n");
+            Assertions.assertEquals(List.of(update("AAA", 2)), live.refresh());
+            Assertions.assertEquals(List.of(), live.refresh());
+
+            append("AAA", "2022-01-10,17.0,15.0,15.5,16.5,100.0,16.5\n");
+            Assertions.assertEquals(List.of(update("AAA", 4)), live.refresh());
+            var series = live.load("AAA").orElseThrow();
+            Assertions.assertEquals(5, series.size());
+            Assertions.assertEquals(LocalDate.of(2022, 1, 7).toEpochDay(), series.epochDay(3));
+            Assertions.assertEquals(16.5, series.close(4));
+        }
+    }
+
+    @Test
+    @DisplayName("a compressed file is read like the batch reports read it, as gzip members are appended to it")
+    public void readsCompressedFile() throws IOException {
+        var file = dataDirectory.resolve("CCC.csv.gz");
+        Files.write(file, gzip(TestData.HEADER + TestData.rows("CCC", 0, 1)));
+        try (var live = new LiveMarketData(symbolCache, dataDirectory)) {
+            Assertions.assertEquals(List.of(update("AAA", 0), update("BBB", 0), update("CCC", 0)), live.refresh());
+            Assertions.assertEquals(List.of(), live.refresh());
+
+            // A member that is still being written is read once it is complete
+            var member = gzip("2022-01-05,6.0,4.0,5.0,5.5,20.0,5.5\n");
+            Files.write(file, Arrays.copyOf(member, member.length / 2), StandardOpenOption.APPEND);
+            Assertions.assertEquals(List.of(), live.refresh());
+            Files.write(file, Arrays.copyOfRange(member, member.length / 2, member.length), StandardOpenOption.APPEND);
+            Assertions.assertEquals(List.of(update("CCC", 1)), live.refresh());
+
+            var expected = new CsvPriceSource(dataDirectory).load("CCC").orElseThrow();
+            var series = live.load("CCC").orElseThrow();
+            Assertions.assertEquals(2, series.size());
+            Assertions.assertEquals(expected.close(1), series.close(1));
+
+            // Replaced by an uncompressed file, the symbol is read again from the start
+            Files.writeString(dataDirectory.resolve("CCC.csv"), TestData.HEADER + TestData.rows("CCC", 1, 2));
+            Assertions.assertEquals(List.of(new LiveMarketData.Update(symbolCache.idOf("CCC"), 0, true)), live.refresh());
+            Assertions.assertEquals(1, live.load("CCC").orElseThrow().size());
+        }
+    }
+
+    @Test
+    @DisplayName("only the changed rows are passed on")
+    public void emitsChangedRows() throws IOException {
+        try (var live = new LiveMarketData(symbolCache, dataDirectory)) {
+            var reports = new LiveReports(live);
+            reports.apply(live.refresh(), null);
+
+            append("AAA", TestData.rows("AAA", 2, 3));
+            append("BBB", "2022-01-04,23.0,21.0,21.5,20.5,200.0,20.0\n");
+            var changes = new ArrayList<String>();
+            reports.apply(live.refresh(), new LiveReportListener() {
+                @Override
+                public void closeAboveMidChanged(SymbolData symbol, int count) {
+                    changes.add(symbol.symbol() + "," + count);
+                }
+
+                @Override
+                public void compositeChanged(MarketIndex index, int epochDay, double[] values) {
+                    changes.add(index + "," + LocalDate.ofEpochDay(epochDay));
+                }
+            });
+
+            // BBB's close on the 4th is below the mid, so only AAA's count changes
+            Assertions.assertEquals(List.of("AAA,2",
+                    "NASDAQ_100,2022-01-04", "NASDAQ_100,2022-01-05", "SNP_500,2022-01-05"), changes);
+            Assertions.assertEquals(2, reports.closeAboveMidCount("AAA"));
+            Assertions.assertEquals(1, reports.closeAboveMidCount("BBB"));
+        }
+    }
+
+    @Test
+    @DisplayName("the change log ends up with the rows of the full composite report")
+    public void changeLogMatchesFullReport() throws IOException {
+        var out = new ByteArrayOutputStream();
+        try (var live = new LiveMarketData(symbolCache, dataDirectory)) {
+            var reports = new LiveReports(live);
+            var writer = new LiveReportWriter(new ByteArrayOutputStream(), Map.of(MarketIndex.NASDAQ_100, out));
+            reports.apply(live.refresh(), writer);
+            append("BBB", TestData.rows("BBB", 1, 2));
+            append("AAA", TestData.rows("AAA", 2, 3));
+            reports.apply(live.refresh(), writer);
+        }
+
+        var latest = new TreeMap<String, String>();
+        out.toString().lines().skip(1).forEach(line -> latest.put(line.substring(0, line.indexOf(',')), line));
+        var full = new ByteArrayOutputStream();
+        new MarketDataReports(symbolCache, new CsvPriceSource(dataDirectory)).generateNASDAQ100CompositeReport(full);
+        Assertions.assertEquals(full.toString().lines().skip(1).toList(), List.copyOf(latest.values()));
+    }
+
+    @Test
+    @DisplayName("watch() reads rows as they are appended")
+    public void watchesDirectory() throws Exception {
+        try (var live = new LiveMarketData(symbolCache, dataDirectory, Duration.ofMillis(10))) {
+            var batches = new ArrayList<List<LiveMarketData.Update>>();
+            var appended = new CountDownLatch(2);
+            var watcher = new Thread(() -> {
+                try {
+                    live.watch(updates -> {
+                        synchronized (batches) {
+                            batches.add(updates);
+                        }
+                        appended.countDown();
+                    });
+                } catch (IOException | InterruptedException e) {
+                    throw new RuntimeException(e);
+                }
+            });
+            watcher.start();
+
+            // The first batch is the initial read; wait until the directory is being watched
+            while (live.load("AAA").isEmpty())
+                Thread.sleep(10);
+            append("AAA", TestData.rows("AAA", 2, 3));
+
+            Assertions.assertTrue(appended.await(30, TimeUnit.SECONDS));
+            live.close();
+            watcher.join(10_000);
+            Assertions.assertFalse(watcher.isAlive());
+            synchronized (batches) {
+                Assertions.assertEquals(List.of(update("AAA", 2)), batches.get(1));
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("a view never sees the rows of other columns than those its size was taken from")
+    public void consistentViews() throws InterruptedException {
+        var series = new LiveSeries("AAA");
+        var csv = new StringBuilder();
+        for (var date = LocalDate.of(2022, 1, 1); csv.length() == 0 || date.getYear() == 2022; date = date.plusDays(1))
+            csv.append(date).append(",12.0,10.0,10.5,11.5,1000.0,11.0\n");
+        var rows = csv.toString().getBytes();
+
+        // The writer reloads the series over and over, growing its columns past their initial capacity
+        var stop = new AtomicBoolean();
+        var writer = new Thread(() -> {
+            var cursor = new CsvCursor();
+            while (!stop.get()) {
+                series.clear();
+                cursor.reset(rows);
+                while (cursor.nextLine())
+                    series.append(cursor);
+            }
+        });
+        writer.start();
+        try {
+            var deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(300);
+            while (System.nanoTime() < deadline) {
+                var view = series.view();
+                for (int row = 0; row < view.size(); row++)
+                    Assertions.assertNotEquals(0, view.epochDay(row));
+            }
+        } finally {
+            stop.set(true);
+            writer.join();
+        }
+    }
+
+    private LiveMarketData.Update update(String symbol, int firstRow) {
+        return new LiveMarketData.Update(symbolCache.idOf(symbol), firstRow, false);
+    }
+
+    private static byte[] gzip(String text) throws IOException {
+        var bytes = new ByteArrayOutputStream();
+        try (var out = new GZIPOutputStream(bytes)) {
+            out.write(text.getBytes());
+        }
+        return bytes.toByteArray();
+    }
+
+    private void append(String symbol, String rows) throws IOException {
+        Files.writeString(dataDirectory.resolve(symbol + ".csv"), rows, StandardOpenOption.APPEND);
+    }
+}
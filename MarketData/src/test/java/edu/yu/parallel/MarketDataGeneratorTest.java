@@ -0,0 +1,120 @@
+package edu.yu.parallel;
+
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.util.stream.Stream;
+
+class MarketDataGeneratorTest {
+    private static final MarketDataGenerator GENERATOR = MarketDataGenerator.builder()
+            .symbols(40)
+            .from(LocalDate.of(2022, 1, 1))
+            .to(LocalDate.of(2022, 3, 31))
+            .nasdaq100Members(10)
+            .snp500Members(25)
+            .seed(42)
+            .build();
+
+    @TempDir
+    Path directory;
+
+    @Test
+    @DisplayName("writes the same files from the same seed, whatever the number of threads")
+    public void reproducible() throws IOException {
+        var sequential = GENERATOR.write(directory.resolve("sequential"), IngestionPipeline.sequential());
+        Path parallel;
+        try (var pipeline = IngestionPipeline.parallel(4)) {
+            parallel = GENERATOR.write(directory.resolve("parallel"), pipeline);
+        }
+
+        Assertions.assertEquals(Files.readString(sequential), Files.readString(parallel));
+        try (var files = Files.list(sequential.resolveSibling("data"))) {
+            for (var file : (Iterable<Path>) files::iterator) {
+                Assertions.assertArrayEquals(Files.readAllBytes(file),
+                        Files.readAllBytes(parallel.resolveSibling("data").resolve(file.getFileName())));
+            }
+        }
+
+        var otherSeed = MarketDataGenerator.builder().symbols(40).nasdaq100Members(10).snp500Members(25).seed(43).build()
+                .write(directory.resolve("other"), IngestionPipeline.sequential());
+        Assertions.assertNotEquals(Files.readString(sequential), Files.readString(otherSeed));
+    }
+
+    @Test
+    @DisplayName("the symbol file has the requested index members, with weights adding up to 100")
+    public void symbolFile() {
+        var symbolFile = GENERATOR.write(directory, IngestionPipeline.sequential());
+        var symbols = new SymbolReader(symbolFile).stream().toList();
+
+        Assertions.assertEquals(40, symbols.size());
+        Assertions.assertEquals(40, symbols.stream().map(SymbolData::symbol).distinct().count());
+        Assertions.assertEquals(10, symbols.stream().filter(data -> data.nsdq100Weight() > 0).count());
+        Assertions.assertEquals(25, symbols.stream().filter(data -> data.snp500Weight() > 0).count());
+        Assertions.assertEquals(100, symbols.stream().mapToDouble(SymbolData::nsdq100Weight).sum(), 1e-3);
+        Assertions.assertEquals(100, symbols.stream().mapToDouble(SymbolData::snp500Weight).sum(), 1e-3);
+    }
+
+    @Test
+    @DisplayName("every weekday has a bar whose high and low bound its open and close")
+    public void marketData() {
+        GENERATOR.write(directory, IngestionPipeline.sequential());
+        var series = new CsvPriceSource(directory.resolve("data")).load(GENERATOR.symbol(7)).orElseThrow();
+
+        var weekdays = Stream.iterate(LocalDate.of(2022, 1, 1), date -> date.plusDays(1))
+                .limit(90)
+                .filter(date -> date.getDayOfWeek().getValue() <= DayOfWeek.FRIDAY.getValue())
+                .count();
+        Assertions.assertEquals(weekdays, series.size());
+        for (int row = 0; row < series.size(); row++) {
+            Assertions.assertTrue(series.high(row) >= Math.max(series.open(row), series.close(row)));
+            Assertions.assertTrue(series.low(row) <= Math.min(series.open(row), series.close(row)));
+            Assertions.assertTrue(series.low(row) > 0 && series.volume(row) > 0);
+        }
+    }
+
+    @Test
+    @DisplayName("the reports run on the generated dataset")
+    public void reports() {
+        var symbolFile = GENERATOR.write(directory, IngestionPipeline.sequential());
+        var symbolCache = new SymbolCache(new SymbolReader(symbolFile));
+        var reports = new MarketDataReports(symbolCache, new CsvPriceSource(directory.resolve("data")));
+
+        var closeAboveMid = new ByteArrayOutputStream();
+        reports.generateCloseAboveMidPriceReport(closeAboveMid);
+        var composite = new ByteArrayOutputStream();
+        reports.generateNASDAQ100CompositeReport(composite);
+
+        Assertions.assertEquals(symbolCache.size() + 1, closeAboveMid.toString().lines().count());
+        Assertions.assertEquals(64 + 1, composite.toString().lines().count());
+    }
+
+    @Test
+    @DisplayName("symbols are distinct and in alphabetical order")
+    public void symbols() {
+        var generator = MarketDataGenerator.builder().symbols(20_000).build();
+        var previous = "";
+        for (int i = 0; i < 20_000; i++) {
+            var symbol = generator.symbol(i);
+            Assertions.assertTrue(symbol.compareTo(previous) > 0, symbol);
+            previous = symbol;
+        }
+        Assertions.assertEquals(4, previous.length());
+    }
+
+    @Test
+    @DisplayName("every symbol is an index member by default when there are fewer symbols than members")
+    public void fewSymbols() {
+        var symbols = MarketDataGenerator.builder().symbols(5).build().symbolData();
+
+        Assertions.assertEquals(5, symbols.stream().filter(data -> data.nsdq100Weight() > 0).count());
+        Assertions.assertEquals(5, symbols.stream().filter(data -> data.snp500Weight() > 0).count());
+        Assertions.assertThrows(IllegalArgumentException.class,
+                () -> MarketDataGenerator.builder().symbols(5).snp500Members(6).build());
+    }
+}
@@ -0,0 +1,86 @@
+package edu.yu.parallel;
+
+import org.junit.jupiter.api.*;
+
+import java.time.LocalDate;
+import java.util.List;
+
+class MarketDataQueryTest {
+    private static final int JAN_3 = (int) LocalDate.of(2022, 1, 3).toEpochDay();
+
+    private final SymbolCache symbolCache = new SymbolCache(new SymbolReader("test"));
+    private final MarketDataQuery query = new MarketDataQuery(symbolCache, new PriceSeries[]{
+            series("AAA", 10, 11, 12, 13, 14), series("BBB", 20, 21, 22), series("CCC", 30, 31), null});
+
+    @Test
+    @DisplayName("finds the rows of a date range by binary search")
+    public void lowerBound() {
+        var series = query.series("AAA");
+        Assertions.assertEquals(0, MarketDataQuery.lowerBound(series, JAN_3 - 10));
+        Assertions.assertEquals(0, MarketDataQuery.lowerBound(series, JAN_3));
+        Assertions.assertEquals(2, MarketDataQuery.lowerBound(series, JAN_3 + 2));
+        Assertions.assertEquals(5, MarketDataQuery.lowerBound(series, JAN_3 + 5));
+    }
+
+    @Test
+    @DisplayName("aggregates the selected dates of every symbol")
+    public void dateRange() {
+        var aggregate = query.select()
+                .between(LocalDate.of(2022, 1, 4), LocalDate.of(2022, 1, 5))
+                .aggregate(MarketDataQuery.Column.CLOSE);
+
+        Assertions.assertEquals(new MarketDataQuery.Aggregate(5, 11 + 12 + 21 + 22 + 31, 11, 31, 97), aggregate);
+        Assertions.assertEquals(97 / 5.0, aggregate.mean());
+    }
+
+    @Test
+    @DisplayName("filters the symbols by index membership and weights them by the index")
+    public void indexMembers() {
+        var selection = query.select()
+                .between(JAN_3, JAN_3 + 1)
+                .members(MarketIndex.SNP_500)
+                .weightedBy(MarketIndex.SNP_500);
+
+        Assertions.assertEquals(2, selection.symbolCount());
+        Assertions.assertEquals(4, selection.rowCount());
+        var aggregate = selection.aggregate(MarketDataQuery.Column.CLOSE);
+        Assertions.assertEquals(10 + 11 + 30 + 31, aggregate.sum());
+        Assertions.assertEquals(1.5 * 10 + 1.5 * 11 + 0.25 * 30 + 0.25 * 31, aggregate.weightedSum());
+    }
+
+    @Test
+    @DisplayName("aggregates a subset of the symbols, by symbol")
+    public void bySymbol() {
+        var aggregates = query.select()
+                .symbols("BBB", "AAA", "DDD", "ZZZ")
+                .between(JAN_3 + 1, Integer.MAX_VALUE)
+                .aggregateBySymbol(MarketDataQuery.Column.VOLUME);
+
+        Assertions.assertEquals(List.of("AAA", "BBB"), List.copyOf(aggregates.keySet()));
+        Assertions.assertEquals(new MarketDataQuery.Aggregate(4, 4 * 100 + 11 + 12 + 13 + 14, 111, 114, 450),
+                aggregates.get("AAA"));
+        Assertions.assertEquals(2, aggregates.get("BBB").count());
+    }
+
+    @Test
+    @DisplayName("an empty selection has no rows")
+    public void empty() {
+        var aggregate = query.select().between(JAN_3 + 3, JAN_3 + 2).aggregate(MarketDataQuery.Column.HIGH);
+
+        Assertions.assertEquals(0, aggregate.count());
+        Assertions.assertTrue(Double.isNaN(aggregate.min()));
+        Assertions.assertTrue(Double.isNaN(aggregate.mean()));
+        Assertions.assertEquals(0, query.select().symbols("DDD").rowCount());
+    }
+
+    /***
+     * A series with one row per day from 2022-01-03, closing at the given prices, with a volume of
+     * 100 plus the close
+     */
+    private static PriceSeries series(String symbol, double... closes) {
+        var builder = ArrayPriceSeries.builder(symbol);
+        for (int i = 0; i < closes.length; i++)
+            builder.add(JAN_3 + i, closes[i] + 1, closes[i] - 1, closes[i], closes[i], 100 + closes[i], closes[i]);
+        return builder.build();
+    }
+}
@@ -0,0 +1,366 @@
+package edu.yu.parallel;
+
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.GZIPOutputStream;
+
+class MarketDataReportsTest {
+    @TempDir
+    static Path dataDirectory;
+
+    private static SymbolCache symbolCache;
+
+    @BeforeAll
+    static void setUp() throws IOException {
+        TestData.writeSampleFiles(dataDirectory);
+        // ZZZ is not part of any index
+        Files.writeString(dataDirectory.resolve("ZZZ.csv"), TestData.HEADER
+                + "2022-01-03,2.0,1.0,1.5,1.9,10.0,1.9\n");
+
+        symbolCache = new SymbolCache(new SymbolReader("test"));
+    }
+
+    @Nested
+    @DisplayName("Close above mid price report")
+    class CloseAboveMidPriceReport {
+
+        @Test
+        @DisplayName("ordered by count descending, then by symbol")
+        public void orderedByCountThenSymbol() {
+            var expected = "Symbol,Count\n"
+                    + "AAA,2\n"
+                    + "BBB,2\n"
+                    + "CCC,2\n";
+
+            Assertions.assertEquals(expected, closeAboveMid(new CsvPriceSource(dataDirectory)));
+        }
+
+        @Test
+        @DisplayName("columnar store produces the same report as the CSV files")
+        public void columnarMatchesCsv() {
+            Assertions.assertEquals(closeAboveMid(new CsvPriceSource(dataDirectory)),
+                    closeAboveMid(new ColumnarPriceSource(dataDirectory)));
+        }
+
+        @Test
+        @DisplayName("snapshot produces the same report as the CSV files")
+        public void snapshotMatchesCsv() {
+            Assertions.assertEquals(closeAboveMid(new CsvPriceSource(dataDirectory)), closeAboveMid(snapshot()));
+        }
+
+        @Test
+        @DisplayName("parallel ingestion produces the same report as sequential ingestion")
+        public void parallelMatchesSequential() {
+            var source = new CsvPriceSource(dataDirectory);
+            try (var pipeline = IngestionPipeline.parallel(4)) {
+                var out = new ByteArrayOutputStream();
+                new MarketDataReports(symbolCache, source, pipeline).generateCloseAboveMidPriceReport(out);
+                Assertions.assertEquals(closeAboveMid(source), out.toString());
+            }
+        }
+
+        @Test
+        @DisplayName("reads one file at a time per task rather than merging all of them by date")
+        public void readsSymbolsSeparately() {
+            var source = new CsvPriceSource(dataDirectory);
+            var open = new AtomicInteger();
+            var maxOpen = new AtomicInteger();
+            var counting = new PriceSource() {
+                @Override
+                public Optional<PriceSeries> load(String symbol) {
+                    return source.load(symbol);
+                }
+
+                @Override
+                public Optional<PriceCursor> open(String symbol) {
+                    return load(symbol).map(series -> {
+                        maxOpen.accumulateAndGet(open.incrementAndGet(), Math::max);
+                        return new SeriesCursor(series) {
+                            @Override
+                            public void release() {
+                                open.decrementAndGet();
+                            }
+                        };
+                    });
+                }
+            };
+
+            Assertions.assertEquals(closeAboveMid(source), closeAboveMid(counting));
+            Assertions.assertEquals(1, maxOpen.get());
+            Assertions.assertEquals(0, open.get());
+        }
+
+        @Test
+        @DisplayName("the top symbols, counted per symbol in parallel, are the first rows of the report")
+        public void topSymbols() {
+            var source = new CsvPriceSource(dataDirectory);
+            var lines = closeAboveMid(source).split("\n");
+            try (var pipeline = IngestionPipeline.parallel(4)) {
+                var reports = new MarketDataReports(symbolCache, source, pipeline);
+                for (var limit : new int[]{0, 1, 2, 3, Integer.MAX_VALUE}) {
+                    var out = new ByteArrayOutputStream();
+                    reports.generateCloseAboveMidPriceReport(out, limit);
+                    var expected = String.join("\n", List.of(lines).subList(0, (int) Math.min(lines.length, limit + 1L))) + "\n";
+                    Assertions.assertEquals(expected, out.toString(), "limit " + limit);
+                }
+            }
+        }
+    }
+
+    @Nested
+    @DisplayName("NASDAQ 100 composite report")
+    class NASDAQ100CompositeReport {
+
+        @Test
+        @DisplayName("applies the participation weights to every price and volume field")
+        public void appliesWeights() {
+            var expected = TestData.HEADER
+                    + "2022-01-03,35.000000,30.000000,31.250000,33.750000,2050.000000,32.500000\n"
+                    + "2022-01-04,37.500000,32.500000,33.750000,33.250000,4100.000000,32.000000\n"
+                    + "2022-01-05,28.000000,24.000000,25.000000,27.000000,6000.000000,26.000000\n";
+
+            Assertions.assertEquals(expected, composite(new CsvPriceSource(dataDirectory)));
+        }
+
+        @Test
+        @DisplayName("columnar store produces the same report as the CSV files")
+        public void columnarMatchesCsv() {
+            Assertions.assertEquals(composite(new CsvPriceSource(dataDirectory)),
+                    composite(new ColumnarPriceSource(dataDirectory)));
+        }
+
+        @Test
+        @DisplayName("snapshot produces the same report as the CSV files")
+        public void snapshotMatchesCsv() {
+            Assertions.assertEquals(composite(new CsvPriceSource(dataDirectory)), composite(snapshot()));
+        }
+
+        @Test
+        @DisplayName("parallel ingestion produces the same report as sequential ingestion")
+        public void parallelMatchesSequential() {
+            var source = new CsvPriceSource(dataDirectory);
+            try (var pipeline = IngestionPipeline.parallel(4)) {
+                var out = new ByteArrayOutputStream();
+                new MarketDataReports(symbolCache, source, pipeline).generateNASDAQ100CompositeReport(out);
+                Assertions.assertEquals(composite(source), out.toString());
+            }
+        }
+    }
+
+    @Nested
+    @DisplayName("S&P 500 composite report")
+    class SNP500CompositeReport {
+
+        @Test
+        @DisplayName("applies the S&P 500 participation weights")
+        public void appliesWeights() {
+            var expected = TestData.HEADER
+                    + "2022-01-03,18.000000,15.000000,15.750000,17.250000,1500.000000,16.500000\n"
+                    + "2022-01-04,20.750000,17.250000,18.250000,17.625000,3002.500000,16.875000\n"
+                    + "2022-01-05,22.500000,19.000000,20.000000,21.625000,4505.000000,20.875000\n";
+
+            var out = new ByteArrayOutputStream();
+            new MarketDataReports(symbolCache, new CsvPriceSource(dataDirectory)).generateSNP500CompositeReport(out);
+            Assertions.assertEquals(expected, out.toString());
+        }
+
+        @Test
+        @DisplayName("several indexes from one pass match the individual composite reports")
+        public void severalIndexesMatchIndividualReports() {
+            var source = new CsvPriceSource(dataDirectory);
+            var reports = new MarketDataReports(symbolCache, source);
+            var nasdaq100 = new ByteArrayOutputStream();
+            var snp500 = new ByteArrayOutputStream();
+            reports.generateCompositeReports(Map.of(MarketIndex.NASDAQ_100, nasdaq100, MarketIndex.SNP_500, snp500));
+
+            var expectedSnp500 = new ByteArrayOutputStream();
+            reports.generateSNP500CompositeReport(expectedSnp500);
+            Assertions.assertEquals(composite(source), nasdaq100.toString());
+            Assertions.assertEquals(expectedSnp500.toString(), snp500.toString());
+        }
+    }
+
+    @Nested
+    @DisplayName("Asynchronous reports")
+    class AsynchronousReports {
+
+        @Test
+        @DisplayName("complete with the same output as the blocking methods and report progress")
+        public void matchesBlockingReports() throws IOException {
+            var source = new CsvPriceSource(dataDirectory);
+            var out = new ByteArrayOutputStream();
+            var progress = new ArrayList<ReportProgress>();
+            var executor = Executors.newSingleThreadExecutor();
+            try {
+                new MarketDataReports(symbolCache, source)
+                        .generateReportsAsync(executor, progress::add, new CloseAboveMidReport(out))
+                        .join();
+            } finally {
+                executor.shutdown();
+            }
+
+            Assertions.assertEquals(closeAboveMid(source), out.toString());
+            var bytes = 0L;
+            for (var symbol : List.of("AAA", "BBB", "CCC"))
+                bytes += Files.size(dataDirectory.resolve(symbol + ".csv"));
+            // DDD has no data, but is read as far as the run is concerned
+            Assertions.assertEquals(new ReportProgress(4, 4, bytes), progress.get(progress.size() - 1));
+        }
+
+        @Test
+        @DisplayName("concurrent runs share the symbol cache")
+        public void concurrentRuns() {
+            var source = new CsvPriceSource(dataDirectory);
+            var reports = new MarketDataReports(symbolCache, source);
+            var executor = Executors.newFixedThreadPool(4);
+            try {
+                var outputs = new ArrayList<ByteArrayOutputStream>();
+                var futures = new ArrayList<CompletableFuture<Void>>();
+                for (int i = 0; i < 16; i++) {
+                    var out = new ByteArrayOutputStream();
+                    outputs.add(out);
+                    futures.add(i % 2 == 0
+                            ? reports.generateCloseAboveMidPriceReportAsync(out, executor)
+                            : reports.generateNASDAQ100CompositeReportAsync(out, executor));
+                }
+                CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).join();
+
+                for (int i = 0; i < outputs.size(); i++) {
+                    var expected = i % 2 == 0 ? closeAboveMid(source) : composite(source);
+                    Assertions.assertEquals(expected, outputs.get(i).toString());
+                }
+            } finally {
+                executor.shutdown();
+            }
+        }
+
+        @Test
+        @DisplayName("a run cancelled before it starts writes nothing")
+        public void cancelledBeforeStart() {
+            var queued = new ArrayList<Runnable>();
+            var out = new ByteArrayOutputStream();
+            var future = new MarketDataReports(symbolCache, new CsvPriceSource(dataDirectory))
+                    .generateCloseAboveMidPriceReportAsync(out, queued::add);
+
+            Assertions.assertTrue(future.cancel(true));
+            queued.forEach(Runnable::run);
+
+            Assertions.assertTrue(future.isCancelled());
+            Assertions.assertEquals(0, out.size());
+        }
+
+        @Test
+        @DisplayName("a run cancelled while it reads stops before finishing the reports")
+        public void cancelledWhileReading() {
+            var out = new ByteArrayOutputStream();
+            var checks = new AtomicInteger();
+            var engine = new ReportEngine(symbolCache, new CsvPriceSource(dataDirectory), IngestionPipeline.sequential())
+                    .register(new CloseAboveMidReport(out));
+
+            Assertions.assertThrows(CancellationException.class,
+                    () -> engine.run(() -> checks.incrementAndGet() > 2, progress -> {
+                    }));
+            Assertions.assertEquals(3, checks.get());
+            Assertions.assertEquals(0, out.size());
+        }
+    }
+
+    @Nested
+    @DisplayName("Compressed market data")
+    class CompressedMarketData {
+
+        @Test
+        @DisplayName("gzip-compressed files produce the same reports as the CSV files")
+        public void compressedMatchesCsv() throws IOException {
+            var source = new CsvPriceSource(compressedCopy());
+            Assertions.assertEquals(closeAboveMid(new CsvPriceSource(dataDirectory)), closeAboveMid(source));
+            Assertions.assertEquals(composite(new CsvPriceSource(dataDirectory)), composite(source));
+        }
+
+        @Test
+        @DisplayName("parallel ingestion decompresses the files on the pipeline threads")
+        public void parallelDecompression() throws IOException {
+            var source = new CsvPriceSource(compressedCopy());
+            try (var pipeline = IngestionPipeline.parallel(4)) {
+                var out = new ByteArrayOutputStream();
+                new MarketDataReports(symbolCache, source, pipeline).generateNASDAQ100CompositeReport(out);
+                Assertions.assertEquals(composite(new CsvPriceSource(dataDirectory)), out.toString());
+            }
+        }
+
+        @Test
+        @DisplayName("the columnar store is built from compressed files")
+        public void columnarFromCompressed() throws IOException {
+            var compressed = compressedCopy();
+            Assertions.assertEquals(closeAboveMid(new CsvPriceSource(dataDirectory)),
+                    closeAboveMid(new ColumnarPriceSource(compressed)));
+        }
+
+        private Path compressedCopy() throws IOException {
+            var directory = dataDirectory.resolve("gz");
+            Files.createDirectories(directory);
+            try (var files = Files.list(dataDirectory)) {
+                for (var file : files.filter(f -> f.toString().endsWith(".csv")).toList()) {
+                    try (var out = new GZIPOutputStream(Files.newOutputStream(directory.resolve(file.getFileName() + ".gz")))) {
+                        Files.copy(file, out);
+                    }
+                }
+            }
+            return directory;
+        }
+    }
+
+    @Test
+    @DisplayName("the correlation report covers the NASDAQ 100 members that have data")
+    public void correlationReport() {
+        var out = new ByteArrayOutputStream();
+        new MarketDataReports(symbolCache, new CsvPriceSource(dataDirectory)).generateNASDAQ100CorrelationReport(out);
+        // BBB has a single return, so no pair with it has enough dates
+        Assertions.assertEquals("Symbol,AAA,BBB\nAAA,1.000000,NaN\nBBB,NaN,NaN\n", out.toString());
+    }
+
+    @Test
+    @DisplayName("a single pass fills several reports exactly as the individual report methods")
+    public void singlePassMatchesIndividualReports() {
+        var source = new CsvPriceSource(dataDirectory);
+        var closeAboveMid = new ByteArrayOutputStream();
+        var composite = new ByteArrayOutputStream();
+
+        new MarketDataReports(symbolCache, source).generateReports(
+                new CloseAboveMidReport(closeAboveMid),
+                new CompositeReport(composite, MarketIndex.NASDAQ_100));
+
+        Assertions.assertEquals(closeAboveMid(source), closeAboveMid.toString());
+        Assertions.assertEquals(composite(source), composite.toString());
+    }
+
+    private static MarketDataSnapshot snapshot() {
+        return MarketDataSnapshot.open(new SymbolReader("test"), dataDirectory,
+                dataDirectory.resolve(".snapshot").resolve("test.snapshot"), IngestionPipeline.sequential());
+    }
+
+    private static String closeAboveMid(PriceSource source) {
+        var out = new ByteArrayOutputStream();
+        new MarketDataReports(symbolCache, source).generateCloseAboveMidPriceReport(out);
+        return out.toString();
+    }
+
+    private static String composite(PriceSource source) {
+        var out = new ByteArrayOutputStream();
+        new MarketDataReports(symbolCache, source).generateNASDAQ100CompositeReport(out);
+        return out.toString();
+    }
+}
@@ -0,0 +1,107 @@
+package edu.yu.parallel;
+
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.time.LocalDate;
+
+class MarketDataSnapshotTest {
+    @TempDir
+    Path dataDirectory;
+
+    private Path snapshotFile;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        TestData.writeSampleFile(dataDirectory, "AAA", 2);
+        TestData.writeSampleFile(dataDirectory, "BBB", 1);
+        snapshotFile = dataDirectory.resolve(".snapshot").resolve("test.snapshot");
+    }
+
+    @Test
+    @DisplayName("hydrates the symbol list and market data from the snapshot")
+    public void hydrates() {
+        var snapshot = open();
+        var cache = new SymbolCache(snapshot);
+
+        Assertions.assertEquals(5, snapshot.symbols().count());
+        Assertions.assertEquals(new SymbolData("AAA", "Alpha Inc. Common Stock", false, 2, 1.5), cache.getSymbolData("AAA"));
+        Assertions.assertTrue(snapshot.load("DDD").isEmpty());
+
+        var series = snapshot.load("AAA").orElseThrow();
+        Assertions.assertEquals(2, series.size());
+        Assertions.assertEquals(LocalDate.of(2022, 1, 4).toEpochDay(), series.epochDay(1));
+        Assertions.assertEquals(2000.0, series.volume(1));
+    }
+
+    @Test
+    @DisplayName("re-uses an up-to-date snapshot without rebuilding it")
+    public void reusesCurrentSnapshot() throws IOException {
+        open();
+        var file = MarketDataSnapshot.currentFile(snapshotFile);
+        var built = Files.getLastModifiedTime(file);
+        Files.setLastModifiedTime(file, FileTime.fromMillis(built.toMillis() - 60_000));
+
+        open();
+        Assertions.assertEquals(file, MarketDataSnapshot.currentFile(snapshotFile));
+        Assertions.assertEquals(built.toMillis() - 60_000, Files.getLastModifiedTime(file).toMillis());
+    }
+
+    @Test
+    @DisplayName("rebuilds when a data file changes or appears")
+    public void rebuildsWhenSourceChanges() throws IOException {
+        var previous = open();
+        Files.writeString(dataDirectory.resolve("AAA.csv"), TestData.rows("AAA", 2, 3),
+                StandardOpenOption.APPEND);
+        Files.writeString(dataDirectory.resolve("DDD.csv"), TestData.HEADER + "2022-01-03,2.0,1.0,1.5,1.9,10.0,1.9\n");
+
+        var snapshot = open();
+        Assertions.assertEquals(3, snapshot.load("AAA").orElseThrow().size());
+        Assertions.assertEquals(1, snapshot.load("DDD").orElseThrow().size());
+
+        // The rebuild is a new generation: the previous one stays readable while it is mapped,
+        // and its file is deleted
+        Assertions.assertEquals(2, previous.load("AAA").orElseThrow().size());
+        Assertions.assertEquals(snapshotFile.resolveSibling("test.snapshot.2"), MarketDataSnapshot.currentFile(snapshotFile));
+        try (var files = Files.list(snapshotFile.getParent())) {
+            Assertions.assertEquals(1, files.count());
+        }
+    }
+
+    @Test
+    @DisplayName("rebuilds a damaged snapshot")
+    public void rebuildsDamagedSnapshot() throws IOException {
+        open();
+        var file = MarketDataSnapshot.currentFile(snapshotFile);
+        var bytes = Files.readAllBytes(file);
+        bytes[MarketDataSnapshot.HEADER_BYTES + 1] ^= 0x55;
+        Files.write(file, bytes);
+
+        Assertions.assertEquals(2, open().load("AAA").orElseThrow().size());
+    }
+
+    @Test
+    @DisplayName("maps the blocks in as many regions as their size requires")
+    public void mapsRegions() throws IOException {
+        Assertions.assertEquals(1, open().regions());
+
+        // Built again in parallel, so the blocks are written in the order they are done
+        Files.delete(MarketDataSnapshot.currentFile(snapshotFile));
+        MarketDataSnapshot snapshot;
+        try (var pipeline = IngestionPipeline.parallel(2)) {
+            snapshot = MarketDataSnapshot.open(new SymbolReader("test"), dataDirectory, snapshotFile, pipeline, 1);
+        }
+        Assertions.assertEquals(2, snapshot.regions());
+        Assertions.assertEquals(10.5, snapshot.load("AAA").orElseThrow().adjClose(1));
+        Assertions.assertEquals(21.5, snapshot.load("BBB").orElseThrow().close(0));
+    }
+
+    private MarketDataSnapshot open() {
+        return MarketDataSnapshot.open(new SymbolReader("test"), dataDirectory, snapshotFile, IngestionPipeline.sequential());
+    }
+}
@@ -0,0 +1,175 @@
+package edu.yu.parallel;
+
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Path;
+import java.util.Map;
+import javax.management.JMException;
+import javax.management.ObjectName;
+import javax.management.openmbean.TabularData;
+
+class PipelineMetricsTest {
+    @TempDir
+    static Path dataDirectory;
+
+    private static SymbolCache symbolCache;
+
+    @BeforeAll
+    static void setUp() throws IOException {
+        TestData.writeSampleFiles(dataDirectory);
+
+        symbolCache = new SymbolCache(new SymbolReader("test"));
+    }
+
+    @Nested
+    @DisplayName("Latency histogram")
+    class Histogram {
+
+        @Test
+        @DisplayName("reports percentiles to within a bucket of the recorded values")
+        public void percentiles() {
+            var histogram = new LatencyHistogram();
+            for (int i = 1; i <= 1000; i++)
+                histogram.record(i * 1000L);
+
+            Assertions.assertEquals(1000, histogram.count());
+            Assertions.assertEquals(500_500, histogram.mean());
+            Assertions.assertEquals(1_000_000, histogram.max());
+            Assertions.assertEquals(1_000_000, histogram.percentile(100));
+            for (var percentile : new double[]{1, 50, 90, 99}) {
+                var expected = (long) (percentile * 10_000);
+                var actual = histogram.percentile(percentile);
+                Assertions.assertTrue(actual >= expected && actual <= expected * 1.125,
+                        percentile + ": " + actual);
+            }
+
+            histogram.reset();
+            Assertions.assertEquals(0, histogram.count());
+            Assertions.assertEquals(0, histogram.percentile(50));
+        }
+
+        @Test
+        @DisplayName("buckets are contiguous and each value falls within its bucket's bound")
+        public void buckets() {
+            for (var value : new long[]{0, 1, 15, 16, 17, 31, 32, 1000, 123_456_789, Long.MAX_VALUE}) {
+                var bucket = LatencyHistogram.bucket(value);
+                Assertions.assertTrue(value <= LatencyHistogram.upperBound(bucket), Long.toString(value));
+                if (bucket > 0)
+                    Assertions.assertTrue(value > LatencyHistogram.upperBound(bucket - 1), Long.toString(value));
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("a streamed run records opens, the parse of each symbol, dates and the reports' finish")
+    public void streamedRun() {
+        var metrics = new PipelineMetrics();
+        var reports = new MarketDataReports(symbolCache, new CsvPriceSource(dataDirectory),
+                IngestionPipeline.sequential(), metrics);
+        generateReports(reports);
+
+        Assertions.assertEquals(4, metrics.calls(PipelineMetrics.Stage.OPEN));
+        // Three of the four symbols have data
+        Assertions.assertEquals(3, metrics.calls(PipelineMetrics.Stage.PARSE));
+        Assertions.assertEquals(7, metrics.rows(PipelineMetrics.Stage.PARSE));
+        Assertions.assertTrue(metrics.bytes(PipelineMetrics.Stage.PARSE) > 0);
+        Assertions.assertEquals(3, metrics.parseLatency().count());
+        Assertions.assertEquals(7, metrics.rows(PipelineMetrics.Stage.AGGREGATE));
+        Assertions.assertEquals(3, metrics.calls(PipelineMetrics.Stage.AGGREGATE));
+        Assertions.assertEquals(2, metrics.calls(PipelineMetrics.Stage.SORT));
+    }
+
+    @Test
+    @DisplayName("a parallel run records the parse latency of each symbol read ahead and samples the queue")
+    public void parallelRun() {
+        var metrics = new PipelineMetrics();
+        try (var pipeline = IngestionPipeline.parallel(2)) {
+            metrics.watchQueue(pipeline::queueDepth);
+            generateReports(new MarketDataReports(symbolCache, new CsvPriceSource(dataDirectory), pipeline, metrics));
+        }
+
+        // Three of the four symbols have data
+        Assertions.assertEquals(3, metrics.calls(PipelineMetrics.Stage.PARSE));
+        Assertions.assertEquals(7, metrics.rows(PipelineMetrics.Stage.PARSE));
+        Assertions.assertTrue(metrics.bytes(PipelineMetrics.Stage.PARSE) > 0);
+        Assertions.assertEquals(3, metrics.parseLatency().count());
+        Assertions.assertEquals(4, metrics.calls(PipelineMetrics.Stage.OPEN));
+        Assertions.assertEquals(7, metrics.rows(PipelineMetrics.Stage.AGGREGATE));
+        Assertions.assertTrue(metrics.getSummary().contains("queue depth: samples=4"), metrics.getSummary());
+
+        metrics.reset();
+        Assertions.assertEquals(0, metrics.calls(PipelineMetrics.Stage.PARSE));
+        Assertions.assertEquals(0, metrics.parseLatency().count());
+    }
+
+    @Test
+    @DisplayName("loading symbols, and counting them for the top of the report, records the parse of each symbol")
+    public void loads() {
+        var metrics = new PipelineMetrics();
+        var reports = new MarketDataReports(symbolCache, new CsvPriceSource(dataDirectory),
+                IngestionPipeline.sequential(), metrics);
+
+        reports.query();
+        Assertions.assertEquals(3, metrics.calls(PipelineMetrics.Stage.PARSE));
+        Assertions.assertEquals(7, metrics.rows(PipelineMetrics.Stage.PARSE));
+        Assertions.assertEquals(7L * SeriesCursor.ROW_BYTES, metrics.bytes(PipelineMetrics.Stage.PARSE));
+        Assertions.assertEquals(3, metrics.parseLatency().count());
+
+        // AAA and BBB are the NASDAQ 100 members with data
+        metrics.reset();
+        reports.covarianceMatrix(MarketIndex.NASDAQ_100);
+        Assertions.assertEquals(2, metrics.parseLatency().count());
+
+        metrics.reset();
+        reports.generateCloseAboveMidPriceReport(new ByteArrayOutputStream(), 1);
+        Assertions.assertEquals(3, metrics.calls(PipelineMetrics.Stage.PARSE));
+        Assertions.assertEquals(7, metrics.rows(PipelineMetrics.Stage.PARSE));
+        Assertions.assertEquals(3, metrics.parseLatency().count());
+    }
+
+    @Test
+    @DisplayName("a metered stream counts what is written through it")
+    public void meteredWrites() throws IOException {
+        var metrics = new PipelineMetrics();
+        var out = new ByteArrayOutputStream();
+        try (var metered = metrics.meter(out)) {
+            metered.write(new byte[]{1, 2, 3});
+            metered.write(4);
+        }
+
+        Assertions.assertEquals(4, out.size());
+        Assertions.assertEquals(4, metrics.bytes(PipelineMetrics.Stage.WRITE));
+        Assertions.assertEquals(2, metrics.calls(PipelineMetrics.Stage.WRITE));
+    }
+
+    @Test
+    @DisplayName("registered metrics can be read over JMX")
+    public void registersMBean() throws JMException {
+        var metrics = new PipelineMetrics();
+        metrics.register("test");
+        metrics.register("test");
+        metrics.record(PipelineMetrics.Stage.SORT, 0, 2, 0, 0);
+
+        var server = ManagementFactory.getPlatformMBeanServer();
+        var name = new ObjectName("edu.yu.parallel:type=PipelineMetrics,name=" + ObjectName.quote("test"));
+        try {
+            Assertions.assertEquals(2L, ((TabularData) server.getAttribute(name, "StageCalls"))
+                    .get(new Object[]{"sort"}).get("value"));
+            Assertions.assertEquals(0, server.getAttribute(name, "QueueDepth"));
+            Assertions.assertTrue(((String) server.getAttribute(name, "Summary")).startsWith("stage"));
+        } finally {
+            server.unregisterMBean(name);
+        }
+    }
+
+    private static void generateReports(MarketDataReports reports) {
+        reports.generateReports(
+                new CloseAboveMidReport(new ByteArrayOutputStream()),
+                new CompositeReport(Map.of(MarketIndex.NASDAQ_100, new ByteArrayOutputStream(),
+                        MarketIndex.SNP_500, new ByteArrayOutputStream())));
+    }
+}
@@ -0,0 +1,106 @@
+package edu.yu.parallel;
+
+import org.junit.jupiter.api.*;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+class PrefetchCursorTest {
+    // Two full chunks and a partial one
+    private static final int ROWS = 2 * PrefetchCursor.CHUNK_ROWS + 5;
+
+    private static IngestionPipeline pipeline;
+
+    @BeforeAll
+    static void setUp() {
+        pipeline = IngestionPipeline.parallel(2);
+    }
+
+    @AfterAll
+    static void tearDown() {
+        pipeline.close();
+    }
+
+    @Test
+    @DisplayName("returns the rows of the underlying cursor, chunk after chunk")
+    public void readsAhead() {
+        var series = series(ROWS);
+        var cursor = new PrefetchCursor(series.cursor(), pipeline, null);
+
+        for (int row = 0; row < ROWS; row++) {
+            Assertions.assertTrue(cursor.next());
+            Assertions.assertEquals(series.epochDay(row), cursor.epochDay());
+            Assertions.assertEquals(series.high(row), cursor.high());
+            Assertions.assertEquals(series.low(row), cursor.low());
+            Assertions.assertEquals(series.open(row), cursor.open());
+            Assertions.assertEquals(series.close(row), cursor.close());
+            Assertions.assertEquals(series.volume(row), cursor.volume());
+            Assertions.assertEquals(series.adjClose(row), cursor.adjClose());
+        }
+        Assertions.assertFalse(cursor.next());
+        Assertions.assertFalse(cursor.next());
+        Assertions.assertEquals("AAA", cursor.symbol());
+        cursor.release();
+
+        Assertions.assertFalse(new PrefetchCursor(series(0).cursor(), pipeline, null).next());
+    }
+
+    @Test
+    @DisplayName("a failure to read a chunk is thrown to the consumer when it gets to the chunk")
+    public void readFailure() {
+        var source = new SeriesCursor(series(ROWS)) {
+            private int rows;
+
+            @Override
+            public boolean next() {
+                if (++rows > PrefetchCursor.CHUNK_ROWS)
+                    throw new IllegalStateException("Malformed row");
+                return super.next();
+            }
+        };
+        var cursor = new PrefetchCursor(source, pipeline, null);
+
+        for (int row = 0; row < PrefetchCursor.CHUNK_ROWS; row++)
+            Assertions.assertTrue(cursor.next());
+        Assertions.assertThrows(IllegalStateException.class, cursor::next);
+    }
+
+    @Test
+    @DisplayName("release() releases the underlying cursor once it is no longer being read")
+    public void release() {
+        var released = new AtomicBoolean();
+        var source = new SeriesCursor(series(ROWS)) {
+            private volatile boolean reading;
+
+            @Override
+            public boolean next() {
+                reading = true;
+                try {
+                    Thread.sleep(1);
+                    return super.next();
+                } catch (InterruptedException e) {
+                    throw new IllegalStateException(e);
+                } finally {
+                    reading = false;
+                }
+            }
+
+            @Override
+            public void release() {
+                Assertions.assertFalse(reading);
+                released.set(true);
+            }
+        };
+        var cursor = new PrefetchCursor(source, pipeline, null);
+        Assertions.assertTrue(cursor.next());
+        cursor.release();
+
+        Assertions.assertTrue(released.get());
+    }
+
+    private static PriceSeries series(int rows) {
+        var series = ArrayPriceSeries.builder("AAA");
+        for (int i = 0; i < rows; i++)
+            series.add(19_000 + i, i + 2, i, i + 0.5, i + 1, 100 * i, i + 0.75);
+        return series.build();
+    }
+}
@@ -0,0 +1,69 @@
+package edu.yu.parallel;
+
+import org.junit.jupiter.api.*;
+
+import java.util.ArrayList;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.LongStream;
+
+class RateLimiterTest {
+    private static final long INTERVAL = 1_000_000;
+
+    @Test
+    @DisplayName("spaces the permits of concurrent callers one interval apart")
+    public void concurrentCallers() throws InterruptedException {
+        var threads = 8;
+        var permits = 200;
+        // The clock stands still, so each wait is the permit's place in the queue
+        var limiter = new RateLimiter(1000, () -> 0);
+
+        var waits = new ConcurrentLinkedQueue<Long>();
+        var start = new CountDownLatch(1);
+        var callers = new ArrayList<Thread>();
+        for (int t = 0; t < threads; t++) {
+            var caller = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                for (int i = 0; i < permits; i++)
+                    waits.add(limiter.reserve());
+            });
+            caller.start();
+            callers.add(caller);
+        }
+        start.countDown();
+        for (var caller : callers)
+            caller.join();
+
+        var expected = LongStream.range(0, threads * permits).map(i -> i * INTERVAL).toArray();
+        Assertions.assertArrayEquals(expected, waits.stream().mapToLong(Long::longValue).sorted().toArray());
+    }
+
+    @Test
+    @DisplayName("waits only as long as the next free permit is away, and saves up no permits while idle")
+    public void paces() {
+        var now = new AtomicLong(5_000_000);
+        var limiter = new RateLimiter(1000, now::get);
+
+        Assertions.assertEquals(0, limiter.reserve());
+        Assertions.assertEquals(INTERVAL, limiter.reserve());
+        now.addAndGet(INTERVAL / 2);
+        Assertions.assertEquals(3 * INTERVAL / 2, limiter.reserve());
+
+        now.addAndGet(100 * INTERVAL);
+        Assertions.assertEquals(0, limiter.reserve());
+        Assertions.assertEquals(INTERVAL, limiter.reserve());
+    }
+
+    @Test
+    @DisplayName("rejects a rate that is not positive")
+    public void rejectsRate() {
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new RateLimiter(0));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new RateLimiter(-1));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new RateLimiter(Double.NaN));
+    }
+}
@@ -0,0 +1,96 @@
+package edu.yu.parallel;
+
+import org.junit.jupiter.api.*;
+
+import java.util.Optional;
+import java.util.Random;
+import java.util.stream.IntStream;
+
+class RollingWindowTest {
+
+    @Test
+    @DisplayName("matches the metrics recomputed from scratch for every window")
+    public void matchesBruteForce() {
+        var random = new Random(3820);
+        var rows = 500;
+        double[] high = new double[rows], low = new double[rows], close = new double[rows], volume = new double[rows];
+        for (int i = 0; i < rows; i++) {
+            low[i] = 50 + random.nextInt(50);
+            high[i] = low[i] + random.nextInt(10);
+            close[i] = low[i] + random.nextDouble() * (high[i] - low[i]);
+            volume[i] = random.nextInt(3) == 0 ? 0 : random.nextInt(1_000_000);
+        }
+
+        for (var size : new int[]{1, 2, 3, 7, 20, 499, 500}) {
+            var window = new RollingWindow(size);
+            var ema = Double.NaN;
+            for (int row = 0; row < rows; row++) {
+                window.add(high[row], low[row], close[row], volume[row]);
+                if (row < size - 1) {
+                    Assertions.assertFalse(window.isFull());
+                    Assertions.assertTrue(Double.isNaN(window.sma()));
+                    Assertions.assertTrue(Double.isNaN(window.ema()));
+                    continue;
+                }
+
+                double closeSum = 0, priceVolume = 0, volumeSum = 0, highest = Double.NEGATIVE_INFINITY, lowest = Double.POSITIVE_INFINITY;
+                for (int i = row - size + 1; i <= row; i++) {
+                    closeSum += close[i];
+                    priceVolume += (high[i] + low[i] + close[i]) / 3 * volume[i];
+                    volumeSum += volume[i];
+                    highest = Math.max(highest, high[i]);
+                    lowest = Math.min(lowest, low[i]);
+                }
+                ema = row == size - 1 ? closeSum / size : ema + 2.0 / (size + 1) * (close[row] - ema);
+
+                Assertions.assertEquals(closeSum / size, window.sma(), 1e-9, "sma, window " + size + ", row " + row);
+                Assertions.assertEquals(ema, window.ema(), 1e-9, "ema, window " + size + ", row " + row);
+                Assertions.assertEquals(priceVolume / volumeSum, window.vwap(), 1e-9, "vwap, window " + size + ", row " + row);
+                Assertions.assertEquals(highest, window.high(), "high, window " + size + ", row " + row);
+                Assertions.assertEquals(lowest, window.low(), "low, window " + size + ", row " + row);
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("keeps the newest of equal extremes and drops extremes that leave the window")
+    public void extremesLeaveTheWindow() {
+        var window = new RollingWindow(3);
+        var highs = new double[]{5, 5, 1, 1, 1, 2, 9, 3, 3, 3};
+        var expected = new double[]{5, 5, 5, 5, 1, 2, 9, 9, 9, 3};
+        for (int i = 0; i < highs.length; i++) {
+            window.add(highs[i], 0, 0, 1);
+            if (i >= 2)
+                Assertions.assertEquals(expected[i], window.high(), "row " + i);
+        }
+    }
+
+    @Test
+    @DisplayName("computes the same metrics sequentially and in parallel across symbols")
+    public void parallelMatchesSequential() {
+        var symbols = IntStream.range(0, 50)
+                .mapToObj(i -> new SymbolData("S" + i, "S" + i, false, 1, 0)).toList();
+        PriceSource source = symbol -> {
+            var random = new Random(symbol.hashCode());
+            var series = ArrayPriceSeries.builder(symbol);
+            for (int day = 0; day < 300; day++) {
+                var low = 10 + random.nextDouble() * 90;
+                series.add(day, low + random.nextDouble() * 5, low, low, low + random.nextDouble(), random.nextInt(1000), low);
+            }
+            return Optional.of(series.build());
+        };
+
+        var sequential = new RollingAnalytics(source, IngestionPipeline.sequential()).compute(symbols, 10);
+        try (var pipeline = IngestionPipeline.parallel(4)) {
+            var parallel = new RollingAnalytics(source, pipeline).compute(symbols, 10);
+
+            Assertions.assertEquals(symbols.size(), parallel.size());
+            for (int i = 0; i < symbols.size(); i++) {
+                Assertions.assertEquals(symbols.get(i).symbol(), parallel.get(i).symbol());
+                Assertions.assertEquals(291, parallel.get(i).size());
+                Assertions.assertArrayEquals(sequential.get(i).sma(), parallel.get(i).sma());
+                Assertions.assertArrayEquals(sequential.get(i).vwap(), parallel.get(i).vwap());
+            }
+        }
+    }
+}
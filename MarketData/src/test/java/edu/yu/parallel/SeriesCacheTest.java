@@ -0,0 +1,155 @@
+package edu.yu.parallel;
+
+import org.junit.jupiter.api.*;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+class SeriesCacheTest {
+    private static final int ROWS = 10;
+    private static final long SERIES_BYTES = ROWS * SeriesCursor.ROW_BYTES;
+
+    private final SymbolCache symbolCache = new SymbolCache(new SymbolReader("test"));
+    private final List<String> loads = new ArrayList<>();
+
+    @Test
+    @DisplayName("evicts the least recently used series to stay within its budget")
+    public void evictsLeastRecentlyUsed() {
+        var cache = new SeriesCache(symbolCache, this::load, 2 * SERIES_BYTES, SeriesCache.Policy.LRU);
+        cache.load("AAA");
+        cache.load("BBB");
+        cache.load("AAA");
+        cache.load("CCC"); // evicts BBB
+        cache.load("AAA");
+        cache.load("BBB");
+
+        Assertions.assertEquals(List.of("AAA", "BBB", "CCC", "BBB"), loads);
+        Assertions.assertEquals(new SeriesCache.Stats(2, 4, 2, 0, 2, 2 * SERIES_BYTES), cache.stats());
+    }
+
+    @Test
+    @DisplayName("TinyLFU keeps frequently used series when a scan passes through")
+    public void tinyLfuResistsScans() {
+        var cache = new SeriesCache(symbolCache, this::load, 2 * SERIES_BYTES);
+        for (int i = 0; i < 3; i++) {
+            cache.load("AAA");
+            cache.load("BBB");
+        }
+        cache.load("CCC");
+        cache.load("DDD");
+        cache.load("AAA");
+        cache.load("BBB");
+
+        Assertions.assertEquals(List.of("AAA", "BBB", "CCC", "DDD"), loads);
+        Assertions.assertEquals(2, cache.stats().rejections());
+        Assertions.assertEquals(0, cache.stats().evictions());
+    }
+
+    @Test
+    @DisplayName("a cursor read to the end fills the cache, and the copies in progress stay within the budget")
+    public void cursorFillsCache() {
+        var cache = new SeriesCache(symbolCache, this::load, SERIES_BYTES + SERIES_BYTES / 2);
+        var first = cache.open("AAA").orElseThrow();
+        var second = cache.open("BBB").orElseThrow();
+        Assertions.assertEquals(ROWS, read(first));
+        // AAA's copy has reserved the rest of the budget while BBB is read, so BBB is not copied
+        Assertions.assertEquals(ROWS, read(second));
+        second.release();
+        first.release();
+        Assertions.assertEquals(new SeriesCache.Stats(0, 2, 0, 0, 1, SERIES_BYTES), cache.stats());
+
+        Assertions.assertEquals(ROWS, read(cache.open("AAA").orElseThrow()));
+        Assertions.assertEquals(List.of("AAA", "BBB"), loads);
+        Assertions.assertEquals(1, cache.stats().hits());
+
+        // A cursor released before the end is not cached
+        var partial = cache.open("CCC").orElseThrow();
+        partial.next();
+        partial.release();
+        Assertions.assertEquals(1, cache.stats().entries());
+    }
+
+    @Test
+    @DisplayName("loads a symbol once however many threads ask for it")
+    public void singleFlight() throws Exception {
+        var started = new CountDownLatch(1);
+        var release = new CountDownLatch(1);
+        var count = new AtomicInteger();
+        var cache = new SeriesCache(symbolCache, symbol -> {
+            count.incrementAndGet();
+            started.countDown();
+            await(release);
+            return Optional.of(series(symbol));
+        }, Long.MAX_VALUE);
+
+        var executor = Executors.newFixedThreadPool(8);
+        try {
+            var results = new ArrayList<Future<Optional<PriceSeries>>>();
+            results.add(executor.submit(() -> cache.load("AAA")));
+            started.await();
+            for (int i = 0; i < 7; i++)
+                results.add(executor.submit(() -> cache.load("AAA")));
+            while (cache.stats().hits() < 7)
+                Thread.sleep(1);
+            release.countDown();
+
+            var first = results.get(0).get(10, TimeUnit.SECONDS).orElseThrow();
+            for (var result : results)
+                Assertions.assertSame(first, result.get(10, TimeUnit.SECONDS).orElseThrow());
+            Assertions.assertEquals(1, count.get());
+            Assertions.assertEquals(1, cache.stats().misses());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    @DisplayName("a failed load is not cached")
+    public void failedLoad() {
+        var failures = new AtomicInteger(1);
+        var cache = new SeriesCache(symbolCache, symbol -> {
+            if (failures.getAndDecrement() > 0)
+                throw new UncheckedIOException(new IOException("disk error"));
+            return load(symbol);
+        }, Long.MAX_VALUE);
+
+        Assertions.assertThrows(UncheckedIOException.class, () -> cache.load("AAA"));
+        Assertions.assertTrue(cache.load("AAA").isPresent());
+        Assertions.assertEquals(1, cache.stats().entries());
+    }
+
+    private static int read(PriceCursor cursor) {
+        var rows = 0;
+        while (cursor.next())
+            rows++;
+        return rows;
+    }
+
+    private Optional<PriceSeries> load(String symbol) {
+        loads.add(symbol);
+        return Optional.of(series(symbol));
+    }
+
+    private static PriceSeries series(String symbol) {
+        var builder = ArrayPriceSeries.builder(symbol);
+        for (int day = 0; day < ROWS; day++)
+            builder.add(19000 + day, 2, 1, 1.5, 1.5, 100, 1.5);
+        return builder.build();
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
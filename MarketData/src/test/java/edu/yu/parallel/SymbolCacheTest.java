@@ -0,0 +1,65 @@
+package edu.yu.parallel;
+
+import org.junit.jupiter.api.*;
+
+import java.util.stream.Stream;
+
+class SymbolCacheTest {
+    private static SymbolCache cache;
+
+    @BeforeAll
+    public static void load() {
+        cache = new SymbolCache(new SymbolReader("test"));
+    }
+
+    @Test
+    @DisplayName("assigns dense ids in alphabetical order to the members of any index")
+    public void assignsIdsInSymbolOrder() {
+        Assertions.assertEquals(4, cache.size());
+        Assertions.assertArrayEquals(new String[]{"AAA", "BBB", "CCC", "DDD"},
+                cache.stream().map(SymbolData::symbol).toArray());
+        for (int id = 0; id < cache.size(); id++) {
+            Assertions.assertEquals(id, cache.idOf(cache.symbol(id)));
+            Assertions.assertSame(cache.symbolData(id), cache.getSymbolData(cache.symbol(id)));
+        }
+        Assertions.assertEquals(-1, cache.idOf("ZZZ"));
+        Assertions.assertNull(cache.getSymbolData("ZZZ"));
+    }
+
+    @Test
+    @DisplayName("finds the ids of the symbols that start with a prefix")
+    public void findsByPrefix() {
+        var cache = new SymbolCache(Stream.of(symbol("AA"), symbol("AAPL"), symbol("AB"), symbol("B")));
+
+        Assertions.assertArrayEquals(new int[]{0, 1}, cache.idsWithPrefix("AA").toArray());
+        Assertions.assertArrayEquals(new int[]{0, 1, 2}, cache.idsWithPrefix("A").toArray());
+        Assertions.assertArrayEquals(new int[]{0, 1, 2, 3}, cache.idsWithPrefix("").toArray());
+        Assertions.assertArrayEquals(new int[0], cache.idsWithPrefix("AC").toArray());
+    }
+
+    @Test
+    @DisplayName("indexes the members and weights of each index by id")
+    public void indexesMembership() {
+        Assertions.assertArrayEquals(new int[]{0, 1, 3}, cache.memberIds(MarketIndex.NASDAQ_100).toArray());
+        Assertions.assertArrayEquals(new int[]{0, 2}, cache.memberIds(MarketIndex.SNP_500).toArray());
+        Assertions.assertTrue(cache.isMember(MarketIndex.SNP_500, cache.idOf("CCC")));
+        Assertions.assertFalse(cache.isMember(MarketIndex.NASDAQ_100, cache.idOf("CCC")));
+        Assertions.assertArrayEquals(new double[]{2, 0.5, 0, 1}, cache.weights(MarketIndex.NASDAQ_100));
+
+        cache.weights(MarketIndex.NASDAQ_100)[0] = 0;
+        cache.members(MarketIndex.NASDAQ_100).clear();
+        Assertions.assertEquals(2, cache.weight(MarketIndex.NASDAQ_100, 0));
+        Assertions.assertTrue(cache.isMember(MarketIndex.NASDAQ_100, 0));
+    }
+
+    @Test
+    @DisplayName("rejects duplicate symbols")
+    public void rejectsDuplicates() {
+        Assertions.assertThrows(IllegalArgumentException.class,
+                () -> new SymbolCache(Stream.of(symbol("AA"), symbol("AA"))));
+    }
+
+    private static SymbolData symbol(String symbol) {
+        return new SymbolData(symbol, symbol, false, 1, 1);
+    }
+}
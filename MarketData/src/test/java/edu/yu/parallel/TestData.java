@@ -0,0 +1,54 @@
+package edu.yu.parallel;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+
+/***
+ * The sample data files the tests read, for the symbols of test.symbols.csv. DDD has no data file,
+ * and ZZZ (which is not part of any index) is left to the tests that need it.
+ */
+final class TestData {
+    static final String HEADER = "Date,High,Low,Open,Close,Volume,Adj Close\n";
+
+    private static final Map<String, List<String>> ROWS = Map.of(
+            "AAA", List.of(
+                    "2022-01-03,12.0,10.0,10.5,11.5,1000.0,11.0\n",
+                    "2022-01-04,13.0,11.0,11.5,11.0,2000.0,10.5\n",
+                    "2022-01-05,14.0,12.0,12.5,13.5,3000.0,13.0\n"),
+            "BBB", List.of(
+                    "2022-01-03,22.0,20.0,20.5,21.5,100.0,21.0\n",
+                    "2022-01-04,23.0,21.0,21.5,22.5,200.0,22.0\n"),
+            "CCC", List.of(
+                    "2022-01-04,5.0,3.0,4.0,4.5,10.0,4.5\n",
+                    "2022-01-05,6.0,4.0,5.0,5.5,20.0,5.5\n"));
+
+    private TestData() {
+    }
+
+    /***
+     * Writes the sample files of AAA (3 rows), BBB (2 rows) and CCC (2 rows) into the directory
+     */
+    static void writeSampleFiles(Path directory) throws IOException {
+        for (var symbol : List.of("AAA", "BBB", "CCC"))
+            writeSampleFile(directory, symbol, ROWS.get(symbol).size());
+    }
+
+    /***
+     * Writes the header and the first rows of a symbol's sample file, as it was before the later
+     * rows were appended
+     */
+    static void writeSampleFile(Path directory, String symbol, int rows) throws IOException {
+        Files.writeString(directory.resolve(symbol + ".csv"), HEADER + rows(symbol, 0, rows));
+    }
+
+    /***
+     * @return the sample rows of the symbol from the first (inclusive) to the last (exclusive), each
+     * ending with a newline
+     */
+    static String rows(String symbol, int from, int to) {
+        return String.join("", ROWS.get(symbol).subList(from, to));
+    }
+}
@@ -0,0 +1,31 @@
+package edu.yu.parallel;
+
+import org.junit.jupiter.api.*;
+
+import java.util.Random;
+
+/***
+ * Built and run by the vector profile only, which adds the jdk.incubator.vector module
+ */
+class VectorWeightedSumTest {
+
+    @Test
+    @DisplayName("the vector kernel is used when the module is present and matches the scalar kernel bit for bit")
+    public void vectorMatchesScalar() {
+        var kernel = WeightedSumKernel.best();
+        Assertions.assertNotSame(WeightedSumKernel.scalar(), kernel);
+
+        var random = new Random(3820);
+        for (var count : new int[]{0, 1, 7, 100, 503}) {
+            var weights = new double[count];
+            var rows = WeightedSumKernelTest.rows(random, weights, count);
+            var expected = new double[WeightedSumKernel.STRIDE];
+            var sums = new double[WeightedSumKernel.STRIDE];
+            WeightedSumKernel.scalar().accumulate(weights, rows, count, expected);
+            kernel.accumulate(weights, rows, count, sums);
+
+            for (int f = 0; f < 6; f++)
+                Assertions.assertEquals(Double.doubleToLongBits(expected[f]), Double.doubleToLongBits(sums[f]), "field " + f);
+        }
+    }
+}
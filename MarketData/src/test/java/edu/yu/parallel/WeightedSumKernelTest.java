@@ -0,0 +1,68 @@
+package edu.yu.parallel;
+
+import org.junit.jupiter.api.*;
+
+import java.util.Random;
+
+class WeightedSumKernelTest {
+
+    @Test
+    @DisplayName("the scalar kernel adds each weighted row in order")
+    public void scalarMatchesReference() {
+        var random = new Random(3820);
+        var count = 101;
+        var weights = new double[count];
+        var rows = rows(random, weights, count);
+
+        var expected = new double[WeightedSumKernel.STRIDE];
+        for (int k = 0; k < count; k++) {
+            for (int f = 0; f < 6; f++)
+                expected[f] += weights[k] * rows[k * WeightedSumKernel.STRIDE + f];
+        }
+        var sums = new double[WeightedSumKernel.STRIDE];
+        WeightedSumKernel.scalar().accumulate(weights, rows, count, sums);
+
+        Assertions.assertArrayEquals(expected, sums);
+    }
+
+    @Test
+    @DisplayName("without the vector module (or the vector profile's kernel), the best kernel is the scalar one")
+    public void scalarFallback() {
+        Assumptions.assumeFalse(ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent());
+        Assertions.assertSame(WeightedSumKernel.scalar(), WeightedSumKernel.best());
+    }
+
+    @Test
+    @DisplayName("the exact kernel's sums do not depend on the order of the rows")
+    public void exactIgnoresOrder() {
+        var random = new Random(3820);
+        var count = 503;
+        var weights = new double[count];
+        var rows = rows(random, weights, count);
+        var sums = new double[WeightedSumKernel.STRIDE];
+        WeightedSumKernel.exact().accumulate(weights, rows, count, sums);
+
+        // Reversed rows give the same bits, where naive sums usually differ in the last place
+        var reversedWeights = new double[count];
+        var reversedRows = new double[rows.length];
+        for (int k = 0; k < count; k++) {
+            reversedWeights[k] = weights[count - 1 - k];
+            System.arraycopy(rows, (count - 1 - k) * WeightedSumKernel.STRIDE, reversedRows,
+                    k * WeightedSumKernel.STRIDE, WeightedSumKernel.STRIDE);
+        }
+        var reversed = new double[WeightedSumKernel.STRIDE];
+        WeightedSumKernel.exact().accumulate(reversedWeights, reversedRows, count, reversed);
+
+        Assertions.assertArrayEquals(sums, reversed);
+    }
+
+    static double[] rows(Random random, double[] weights, int count) {
+        var rows = new double[count * WeightedSumKernel.STRIDE];
+        for (int k = 0; k < count; k++) {
+            weights[k] = random.nextDouble() * 13;
+            for (int f = 0; f < 6; f++)
+                rows[k * WeightedSumKernel.STRIDE + f] = f == 4 ? random.nextInt(10_000_000) : random.nextDouble() * 500;
+        }
+        return rows;
+    }
+}